@@ -172,6 +172,69 @@ public abstract class Builder extends Job {
     addText(pi, Data.PI);
   }
 
+  /**
+   * Adds nodes of the specified data instance. The range must not end inside an attribute list.
+   * @param data data instance
+   * @param start pre value of the first node
+   * @param end pre value after the last node
+   * @throws IOException I/O exception
+   */
+  public final void add(final Data data, final int start, final int end) throws IOException {
+    final IntList ends = new IntList();
+    boolean doc = false;
+    for(int pre = start; pre < end;) {
+      final int kind = data.kind(pre);
+      if(kind == Data.DOC) {
+        while(!ends.isEmpty()) {
+          ends.pop();
+          closeElem();
+        }
+        if(doc) closeDoc();
+        openDoc(data.text(pre++, true));
+        doc = true;
+        continue;
+      }
+      while(!ends.isEmpty() && ends.peek() <= pre) {
+        ends.pop();
+        closeElem();
+      }
+      switch(kind) {
+        case Data.ELEM:
+          final int as = data.attSize(pre, kind), s = data.size(pre, kind);
+          final Atts atts = new Atts();
+          for(int a = pre + 1; a < pre + as; a++) {
+            atts.add(data.name(a, Data.ATTR), data.text(a, false));
+          }
+          final byte[] name = data.name(pre, kind);
+          final Atts nsp = data.namespaces(pre);
+          if(s == as) {
+            emptyElem(name, atts, nsp);
+          } else {
+            openElem(name, atts, nsp);
+            ends.push(pre + s);
+          }
+          pre += as;
+          break;
+        case Data.TEXT:
+          text(data.text(pre++, true));
+          break;
+        case Data.COMM:
+          comment(data.text(pre++, true));
+          break;
+        case Data.PI:
+          pi(data.text(pre++, true));
+          break;
+        default:
+          throw Util.notExpected("Unexpected node kind: %", kind);
+      }
+    }
+    while(!ends.isEmpty()) {
+      ends.pop();
+      closeElem();
+    }
+    if(doc) closeDoc();
+  }
+
   // PROGRESS INFORMATION =====================================================
 
   @Override
@@ -4,12 +4,15 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
 import org.basex.core.*;
 import org.basex.core.MainOptions.MainParser;
 import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.index.resource.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.util.*;
@@ -25,6 +28,9 @@ import org.basex.util.list.*;
 public final class DirParser extends Parser {
   /** Number of skipped files to log. */
   private static final int SKIPLOG = 10;
+  /** Maximum size of streamed inputs that will be cached and parsed in parallel
+   * (larger inputs and inputs with unknown size are parsed sequentially). */
+  private static final int MAXCACHE = 1 << 22;
   /** Skipped files. */
   private final StringList skipped = new StringList();
   /** File pattern. */
@@ -46,8 +52,18 @@ public final class DirParser extends Parser {
   private final boolean rawParser;
   /** Archive name. */
   private final boolean archiveName;
+  /** Number of threads for parsing documents. */
+  private final int threads;
   /** Database path for storing binary files. */
   private IOFile rawPath;
+  /** Database path for storing the contents of deduplicated binary files (can be {@code null}). */
+  private IOFile blobPath;
+
+  /** Thread pool for parsing documents in parallel ({@code null} if documents are parsed
+   * sequentially). */
+  private ExecutorService pool;
+  /** Documents that are parsed in parallel, in the order in which they will be added. */
+  private final ArrayDeque<Shard> shards = new ArrayDeque<>();
 
   /** Last source. */
   private IO lastSrc;
@@ -78,6 +94,7 @@ public final class DirParser extends Parser {
     addRaw = options.get(MainOptions.ADDRAW);
     dtd = options.get(MainOptions.DTD);
     rawParser = options.get(MainOptions.PARSER) == MainParser.RAW;
+    threads = Math.max(1, options.get(MainOptions.PARSETHREADS));
     filter = !isDir && !source.isArchive() ? null :
       Pattern.compile(IOFile.regex(options.get(MainOptions.CREATEFILTER)));
   }
@@ -90,14 +107,30 @@ public final class DirParser extends Parser {
    */
   public DirParser(final IO source, final MainOptions options, final IOFile dbpath) {
     this(source, options);
-    if(dbpath != null && (addRaw || rawParser)) rawPath = new IOFile(dbpath, IO.RAW);
+    if(dbpath != null && (addRaw || rawParser)) {
+      rawPath = new IOFile(dbpath, IO.RAW);
+      if(options.get(MainOptions.DEDUPLICATE)) blobPath = new IOFile(dbpath, IO.BLOBS);
+    }
   }
 
   @Override
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = original;
-    parse(build, source);
+    if(threads == 1 || rawParser) {
+      parse(build, source);
+    } else {
+      // parse documents in parallel, add them in the original order
+      pool = Executors.newFixedThreadPool(threads);
+      try {
+        parse(build, source);
+        while(!shards.isEmpty()) add(build);
+      } finally {
+        pool.shutdownNow();
+        pool = null;
+        shards.clear();
+      }
+    }
   }
 
   /**
@@ -196,16 +229,29 @@ public final class DirParser extends Parser {
     if(exclude) {
       // exclude file: check if will be added as raw file
       if(addRaw && rawPath != null) {
-        Store.store(source.inputSource(), new IOFile(rawPath, targ + name));
+        store(source, new IOFile(rawPath, targ + name));
       }
     } else {
       if(rawParser) {
         // store input in raw format if database path is known
         if(rawPath != null) {
-          Store.store(source.inputSource(), new IOFile(rawPath, targ + name));
+          store(source, new IOFile(rawPath, targ + name));
+        }
+      } else if(pool != null && (source instanceof IOFile || source instanceof IOContent ||
+          l != -1 && l <= MAXCACHE)) {
+        // parse input in a separate thread; cache streamed contents
+        IO in = source;
+        if(!(source instanceof IOFile || source instanceof IOContent)) {
+          in = new IOContent(source.read());
+          in.name(name);
         }
+        final Shard shard = new Shard(in, targ, options);
+        pool.execute(shard);
+        shards.add(shard);
+        if(shards.size() >= threads << 2) add(builder);
       } else {
-        // store input as XML
+        // add documents that are parsed in parallel, store input as XML
+        while(!shards.isEmpty()) add(builder);
         boolean ok = true;
         IO in = source;
         if(skipCorrupt) {
@@ -237,6 +283,40 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Stores the specified source as binary file.
+   * @param source source
+   * @param file target file
+   * @throws IOException I/O exception
+   */
+  private void store(final IO source, final IOFile file) throws IOException {
+    Store.store(source.inputSource(), file);
+    if(blobPath != null) BlobStore.link(file, blobPath);
+  }
+
+  /**
+   * Adds the next document that has been parsed in parallel.
+   * Documents that cannot be parsed are skipped if {@link MainOptions#SKIPCORRUPT} is enabled.
+   * @param builder builder
+   * @throws IOException I/O exception
+   */
+  private void add(final Builder builder) throws IOException {
+    final Shard shard = shards.poll();
+    final MemData data;
+    try {
+      data = result(shard);
+    } catch(final IOException ex) {
+      if(!skipCorrupt) throw ex;
+      Util.debug(ex);
+      skipped.add(shard.input.path());
+      return;
+    }
+    builder.checkStop();
+    builder.add(data, 0, data.meta.size);
+    data.close();
+    if(Prop.debug && (++c & 0x3FF) == 0) Util.err(";");
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -269,5 +349,23 @@ public final class DirParser extends Parser {
   @Override
   public void close() throws IOException {
     if(parser != null) parser.close();
+    if(pool != null) pool.shutdownNow();
+  }
+
+  /** Document that is parsed in a separate thread. */
+  private static final class Shard extends FutureTask<MemData> {
+    /** Input. */
+    private final IO input;
+
+    /**
+     * Constructor.
+     * @param input input
+     * @param target target path
+     * @param options main options
+     */
+    private Shard(final IO input, final String target, final MainOptions options) {
+      super(() -> MemBuilder.build("", Parser.singleParser(input, options, target)));
+      this.input = input;
+    }
   }
 }
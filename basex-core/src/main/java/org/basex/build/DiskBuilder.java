@@ -1,28 +1,39 @@
 package org.basex.build;
 
 import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
 
 import java.io.*;
 
 import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.data.*;
+import org.basex.index.*;
 import org.basex.index.name.*;
+import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class creates a database instance on disk.
  * The storage layout is described in the {@link Data} class.
  *
+ * If {@link MainOptions#BULKLOAD} is enabled, the most recently written table pages are kept
+ * in main memory, and the entries of the text, attribute and token index are collected while
+ * the input is parsed. As a result, most size values need not be written to a temporary file,
+ * and the value indexes need not be built in separate passes.
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 public final class DiskBuilder extends Builder {
+  /** Number of table pages that are kept in main memory during a bulk load. */
+  private static final int WINDOW = 256;
   /** Database table. */
   private DataOutput tout;
   /** Database texts. */
@@ -31,9 +42,26 @@ public final class DiskBuilder extends Builder {
   private DataOutput vout;
   /** Output stream for temporary values. */
   private DataOutput sout;
+  /** Recently stored texts ({@code null} if values are not deduplicated). */
+  private TextDictionary xdict;
+  /** Recently stored attribute values ({@code null} if values are not deduplicated). */
+  private TextDictionary vdict;
+
+  /** Table output, which keeps recently written pages ({@code null} if no bulk load is run). */
+  private TableOutput table;
+  /** Index entries of texts ({@code null} if not collected). */
+  private DiskValuesCollector textIndex;
+  /** Index entries of attribute values ({@code null} if not collected). */
+  private DiskValuesCollector attrIndex;
+  /** Index entries of attribute tokens ({@code null} if not collected). */
+  private DiskValuesCollector tokenIndex;
+  /** Pre values, name ids and namespace uri ids of opened elements (used for text indexing). */
+  private final IntList elems = new IntList();
 
   /** Static options. */
   private final StaticOptions sopts;
+  /** Bulk load. */
+  private final boolean bulk;
   /** Debug counter. */
   private int c;
 
@@ -49,6 +77,7 @@ public final class DiskBuilder extends Builder {
     super(name, parser);
     this.sopts = sopts;
     meta = new MetaData(dbName, opts, sopts);
+    bulk = opts.get(MainOptions.BULKLOAD);
   }
 
   @Override
@@ -68,9 +97,23 @@ public final class DiskBuilder extends Builder {
 
     elemNames = new Names(meta);
     attrNames = new Names(meta);
+    if(meta.deduplicate) {
+      xdict = new TextDictionary(meta.maxlen);
+      vdict = new TextDictionary(meta.maxlen);
+    }
+    if(bulk) {
+      if(meta.createtext) textIndex = new DiskValuesCollector(meta, IndexType.TEXT);
+      if(meta.createattr) attrIndex = new DiskValuesCollector(meta, IndexType.ATTRIBUTE);
+      if(meta.createtoken) tokenIndex = new DiskValuesCollector(meta, IndexType.TOKEN);
+    }
     try {
       try {
-        tout = new DataOutput(new TableOutput(meta, DATATBL));
+        if(bulk) {
+          table = new TableOutput(meta, DATATBL, WINDOW);
+          tout = new DataOutput(table);
+        } else {
+          tout = new DataOutput(new TableOutput(meta, DATATBL));
+        }
         xout = new DataOutput(meta.dbfile(DATATXT), bs);
         vout = new DataOutput(meta.dbfile(DATAATV), bs);
         sout = new DataOutput(meta.dbfile(DATATMP), bs);
@@ -83,18 +126,27 @@ public final class DiskBuilder extends Builder {
       }
 
       // copy temporary values into database table
-      try(DataInput in = new DataInput(meta.dbfile(DATATMP))) {
-        final TableAccess ta = new TableDiskAccess(meta, true);
-        try {
-          for(; spos < ssize; ++spos) ta.write4(in.readNum(), 8, in.readNum());
-        } finally {
-          ta.close();
+      if(ssize > 0) {
+        try(DataInput in = new DataInput(meta.dbfile(DATATMP))) {
+          final TableAccess ta = new TableDiskAccess(meta, true);
+          try {
+            for(; spos < ssize; ++spos) ta.write4(in.readNum(), 8, in.readNum());
+          } finally {
+            ta.close();
+          }
         }
       }
       meta.dbfile(DATATMP).delete();
 
-      // return database instance
-      return new DiskData(meta, elemNames, attrNames, path, nspaces);
+      // return database instance, merge collected index entries
+      final DiskData data = new DiskData(meta, elemNames, attrNames, path, nspaces);
+      for(final DiskValuesCollector dvc : new DiskValuesCollector[] {
+          textIndex, attrIndex, tokenIndex }) {
+        if(dvc == null) continue;
+        new DiskValuesBuilder(data, dvc.type, dvc.finish()).build().close();
+        meta.index(dvc.type, true);
+      }
+      return data;
 
     } catch(final Throwable th) {
       DropDB.drop(meta.name, sopts);
@@ -109,6 +161,10 @@ public final class DiskBuilder extends Builder {
 
   @Override
   protected void addDoc(final byte[] value) throws IOException {
+    if(textIndex != null) {
+      elems.reset();
+      elems.add(meta.size).add(-1).add(0);
+    }
     tout.write1(Data.DOC);
     tout.write2(0);
     tout.write5(textRef(value, true));
@@ -120,6 +176,10 @@ public final class DiskBuilder extends Builder {
   protected void addElem(final int dist, final int nameId, final int asize, final int uriId,
       final boolean ne) throws IOException {
 
+    if(textIndex != null) {
+      parent(meta.size - dist);
+      elems.add(meta.size).add(nameId).add(uriId);
+    }
     tout.write1(asize << 3 | Data.ELEM);
     tout.write2((ne ? 1 << 15 : 0) | nameId);
     tout.write1(uriId);
@@ -134,6 +194,11 @@ public final class DiskBuilder extends Builder {
   protected void addAttr(final int nameId, final byte[] value, final int dist, final int uriId)
       throws IOException {
 
+    if(attrIndex != null || tokenIndex != null) {
+      final byte[] name = attrNames.key(nameId), uri = uri(name, uriId);
+      if(attrIndex != null && attrIndex.contains(name, uri)) attrIndex.add(value, meta.size);
+      if(tokenIndex != null && tokenIndex.contains(name, uri)) tokenIndex.add(value, meta.size);
+    }
     tout.write1(dist << 3 | Data.ATTR);
     tout.write2(nameId);
     tout.write5(textRef(value, false));
@@ -143,6 +208,13 @@ public final class DiskBuilder extends Builder {
 
   @Override
   protected void addText(final byte[] value, final int dist, final byte kind) throws IOException {
+    if(textIndex != null && kind == Data.TEXT) {
+      final int e = parent(meta.size - dist), nameId = elems.get(e + 1);
+      final byte[] name = nameId == -1 ? null : elemNames.key(nameId);
+      if(textIndex.contains(name, name == null ? null : uri(name, elems.get(e + 2)))) {
+        textIndex.add(value, meta.size);
+      }
+    }
     tout.write1(kind);
     tout.write2(0);
     tout.write5(textRef(value, true));
@@ -152,11 +224,36 @@ public final class DiskBuilder extends Builder {
 
   @Override
   protected void setSize(final int pre, final int size) throws IOException {
+    // update value in main memory, or cache it in a temporary file
+    if(table != null && table.write4(pre, 8, size)) return;
     sout.writeNum(pre);
     sout.writeNum(size);
     ++ssize;
   }
 
+  /**
+   * Returns the position of the specified parent node on the stack of opened nodes.
+   * Nodes with larger pre values have been closed and are removed from the stack.
+   * @param par pre value of the parent node
+   * @return position of the parent node
+   */
+  private int parent(final int par) {
+    int e = elems.size() - 3;
+    while(elems.get(e) > par) e -= 3;
+    elems.size(e + 3);
+    return e;
+  }
+
+  /**
+   * Returns the namespace uri of an element or attribute.
+   * @param name name
+   * @param uriId id of namespace uri
+   * @return uri (empty if the name has no namespace)
+   */
+  private byte[] uri(final byte[] name, final int uriId) {
+    return uriId > 0 ? nspaces.uri(uriId) : eq(prefix(name), XML) ? XML_URI : EMPTY;
+  }
+
   /**
    * Calculates the text offset and writes the text value.
    * @param value value to be inlined
@@ -169,11 +266,20 @@ public final class DiskBuilder extends Builder {
     final long v = Token.toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
 
+    // reuse reference to repeated value
+    final TextDictionary dict = text ? xdict : vdict;
+    if(dict != null) {
+      final long ref = dict.get(value);
+      if(ref != -1) return ref;
+    }
+
     // store text to heap file
     final DataOutput store = text ? xout : vout;
     final long off = store.size();
     final byte[] val = Compress.pack(value);
     store.writeToken(val);
-    return val == value ? off : off | IO.OFFCOMP;
+    final long ref = val == value ? off : off | IO.OFFCOMP;
+    if(dict != null) dict.add(value, ref);
+    return ref;
   }
 }
@@ -1,10 +1,16 @@
 package org.basex.build.csv;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
+import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.io.in.*;
+import org.basex.io.parse.csv.*;
+import org.basex.util.*;
 
 /**
  * This class parses files in the CSV format and converts them to XML.
@@ -12,10 +18,15 @@ import org.basex.io.*;
  * <p>The parser provides some options, which can be specified via the
  * {@link MainOptions#CSVPARSER} option.</p>
  *
+ * <p>If {@link MainOptions#PARSETHREADS} is larger than 1, the input is split into chunks,
+ * which are converted in parallel. The records of the chunks are added in the original order.</p>
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 public final class CsvParser extends SingleParser {
+  /** Minimum size of chunks that are converted in parallel. */
+  private static final int CHUNK = 1 << 20;
   /** CSV Parser options. */
   private final CsvParserOptions copts;
 
@@ -41,10 +52,58 @@ public final class CsvParser extends SingleParser {
 
   @Override
   protected void parse() throws IOException {
-    try {
-      pushJob(new CsvBuilder(copts, builder)).convert(source);
+    final int threads = options.get(MainOptions.PARSETHREADS);
+    if(threads > 1) {
+      parse(threads);
+    } else {
+      try {
+        pushJob(new CsvBuilder(copts, builder)).convert(source);
+      } finally {
+        popJob();
+      }
+    }
+  }
+
+  /**
+   * Converts chunks of the input in parallel.
+   * @param threads number of threads
+   * @throws IOException I/O exception
+   */
+  private void parse(final int threads) throws IOException {
+    // chunks are converted sequentially, and they are UTF-8 encoded
+    final MainOptions opts = new MainOptions(options);
+    opts.set(MainOptions.PARSETHREADS, 1);
+    final CsvParserOptions chunkOpts = new CsvParserOptions(copts);
+    chunkOpts.set(CsvParserOptions.ENCODING, Strings.UTF8);
+
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    final ArrayDeque<Future<MemData>> chunks = new ArrayDeque<>();
+    try(NewlineInput nli = new NewlineInput(source)) {
+      final CsvChunks cc = new CsvChunks(nli.encoding(copts.get(CsvParserOptions.ENCODING)),
+          copts, CHUNK);
+      builder.openElem(CsvConverter.CSV, atts, nsp);
+      for(byte[] chunk; (chunk = cc.next()) != null;) {
+        final IO io = new IOContent(chunk);
+        chunks.add(pool.submit(() -> MemBuilder.build("", new CsvParser(io, opts, chunkOpts))));
+        if(chunks.size() >= threads << 1) add(chunks.poll());
+      }
+      while(!chunks.isEmpty()) add(chunks.poll());
+      builder.closeElem();
     } finally {
-      popJob();
+      pool.shutdownNow();
     }
   }
+
+  /**
+   * Adds the records of a converted chunk.
+   * @param chunk chunk
+   * @throws IOException I/O exception
+   */
+  private void add(final Future<MemData> chunk) throws IOException {
+    final MemData data = result(chunk);
+    builder.checkStop();
+    // skip document node and root element
+    builder.add(data, 2, data.meta.size);
+    data.close();
+  }
 }
@@ -0,0 +1,121 @@
+package org.basex.build.json;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.build.*;
+import org.basex.build.json.JsonOptions.*;
+import org.basex.build.xml.*;
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.*;
+import org.basex.io.parse.json.*;
+import org.basex.util.*;
+
+/**
+ * This class converts JSON Lines input ({@link JsonParserOptions#LINES}) to XML.
+ * The input is split into chunks of lines, which are converted in parallel
+ * ({@link MainOptions#PARSETHREADS}). The members of the chunks are added to the root element
+ * of the first chunk in the original order.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonLinesParser extends SingleParser {
+  /** Minimum size of chunks that are converted in parallel. */
+  private static final int CHUNK = 1 << 20;
+  /** JSON parser options. */
+  private final JsonParserOptions jopts;
+  /** Indicates if the root element has been opened. */
+  private boolean root;
+
+  /**
+   * Constructor.
+   * @param source document source
+   * @param opts database options
+   */
+  public JsonLinesParser(final IO source, final MainOptions opts) {
+    super(source, opts);
+    jopts = opts.get(MainOptions.JSONPARSER);
+  }
+
+  /**
+   * Checks if the input can be converted in parallel. This is the case if lines are parsed,
+   * and if the results are XML nodes without merged types.
+   * @param opts database options
+   * @return result of check
+   */
+  public static boolean parallel(final MainOptions opts) {
+    final JsonParserOptions jopts = opts.get(MainOptions.JSONPARSER);
+    final JsonFormat format = jopts.get(JsonOptions.FORMAT);
+    return opts.get(MainOptions.PARSETHREADS) > 1 && jopts.get(JsonParserOptions.LINES) &&
+      !jopts.get(JsonOptions.MERGE) && (format == JsonFormat.DIRECT ||
+      format == JsonFormat.ATTRIBUTES || format == JsonFormat.BASIC);
+  }
+
+  @Override
+  protected void parse() throws IOException {
+    // chunks are converted sequentially
+    final int threads = options.get(MainOptions.PARSETHREADS);
+    final MainOptions opts = new MainOptions(options);
+    opts.set(MainOptions.PARSETHREADS, 1);
+
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    final ArrayDeque<Future<MemData>> chunks = new ArrayDeque<>();
+    try(NewlineInput nli = new NewlineInput(source)) {
+      nli.encoding(jopts.get(JsonParserOptions.ENCODING));
+      final TokenBuilder tb = new TokenBuilder();
+      for(int ch; (ch = nli.read()) != -1;) {
+        tb.add(ch);
+        if(ch == '\n' && tb.size() >= CHUNK) {
+          chunks.add(submit(tb.next(), opts, pool));
+          if(chunks.size() >= threads << 1) add(chunks.poll());
+        }
+      }
+      if(!tb.isEmpty() || !root && chunks.isEmpty()) chunks.add(submit(tb.next(), opts, pool));
+      while(!chunks.isEmpty()) add(chunks.poll());
+      builder.closeElem();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Submits a chunk for conversion.
+   * @param chunk chunk
+   * @param opts database options
+   * @param pool thread pool
+   * @return future result
+   */
+  private Future<MemData> submit(final byte[] chunk, final MainOptions opts,
+      final ExecutorService pool) {
+    final String path = source.path();
+    return pool.submit(() -> {
+      final IOContent xml = new IOContent(JsonConverter.get(jopts).convert(chunk, path).
+          serialize().finish());
+      return MemBuilder.build("", new XMLParser(xml, opts));
+    });
+  }
+
+  /**
+   * Adds the members of a converted chunk.
+   * @param chunk chunk
+   * @throws IOException I/O exception
+   */
+  private void add(final Future<MemData> chunk) throws IOException {
+    final MemData data = result(chunk);
+    builder.checkStop();
+    // open the root element of the first chunk, skip document node and root element
+    final int as = data.attSize(1, Data.ELEM);
+    if(!root) {
+      final Atts atts = new Atts();
+      for(int a = 2; a < 1 + as; a++) atts.add(data.name(a, Data.ATTR), data.text(a, false));
+      builder.openElem(data.name(1, Data.ELEM), atts, data.namespaces(1));
+      root = true;
+    }
+    builder.add(data, 1 + as, data.meta.size);
+    data.close();
+  }
+}
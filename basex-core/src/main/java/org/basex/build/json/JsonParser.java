@@ -14,6 +14,8 @@ import org.basex.io.parse.json.*;
  * <p>The parser provides some options, which can be specified via the
  * {@link MainOptions#JSONPARSER} option.</p>
  *
+ * <p>JSON Lines input can also be converted in parallel by the {@link JsonLinesParser}.</p>
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
@@ -33,6 +33,16 @@ final class XMLScanner extends Job {
   private static final byte[] QUESTION = { '?' };
   /** Ampersand entity. */
   private static final byte[] AMPER = { '&' };
+  /** Bytes that end a run of text characters. */
+  private static final boolean[] TEXT_STOP = stop("<&]");
+  /** Bytes that end a run of attribute value characters. */
+  private static final boolean[] ATTVALUE_STOP = stop("<&'\"\n");
+  /** Bytes that end a run of name characters. */
+  private static final boolean[] NAME_STOP = new boolean[256];
+
+  static {
+    for(int b = 0; b < 256; b++) NAME_STOP[b] = b >= 0x80 || !isChar(b);
+  }
 
   /** Scanning states. */
   private enum Scan {
@@ -235,7 +245,10 @@ final class XMLScanner extends Job {
     } else if(isStartChar(c)) {
       // scan name of attribute or element...
       type = scan == Scan.ATT ? Type.ATTNAME : Type.ELEMNAME;
-      do token.add(c); while(isChar(c = nextChar()));
+      do {
+        token.add(c);
+        copy(NAME_STOP);
+      } while(isChar(c = nextChar()));
       prev(1);
       scan = Scan.ATT;
     } else {
@@ -280,6 +293,7 @@ final class XMLScanner extends Job {
         else if(!input.add(r, false)) throw error(RECENT);
       } else {
         token.add(c);
+        copy(ATTVALUE_STOP);
       }
     } while((c = consume()) != quote);
   }
@@ -318,6 +332,7 @@ final class XMLScanner extends Job {
           }
           // add character to cached content
           token.add(c);
+          copy(TEXT_STOP);
         }
       }
       c = consume();
@@ -549,6 +564,27 @@ final class XMLScanner extends Job {
     return ch;
   }
 
+  /**
+   * Adds a run of characters to the current token that need no further processing.
+   * @param stop bytes that end the run
+   */
+  private void copy(final boolean[] stop) {
+    if(!pe) input.copy(token, stop);
+  }
+
+  /**
+   * Returns a table with bytes that end a run of characters. Besides the specified characters,
+   * it contains all control characters except for tabs and newlines.
+   * @param chars characters
+   * @return table
+   */
+  private static boolean[] stop(final String chars) {
+    final boolean[] stop = new boolean[256];
+    for(int b = 0; b < 0x20; b++) stop[b] = b != '\t' && b != '\n';
+    for(final char ch : chars.toCharArray()) stop[ch] = true;
+    return stop;
+  }
+
   /**
    * Jumps the specified number of characters back.
    * @param num number of characters
@@ -20,8 +20,16 @@ public final class MainOptions extends Options {
 
   /** Flag for creating a main memory database. */
   public static final BooleanOption MAINMEM = new BooleanOption("MAINMEM", false);
+  /** Flag for storing the table and texts of main memory databases outside the Java heap. */
+  public static final BooleanOption OFFHEAP = new BooleanOption("OFFHEAP", false);
   /** Flag for closing a database after creating it. */
   public static final BooleanOption CREATEONLY = new BooleanOption("CREATEONLY", false);
+  /** Flag for building the table and the value indexes of a new database in a single pass. */
+  public static final BooleanOption BULKLOAD = new BooleanOption("BULKLOAD", false);
+  /** Flag for compressing the pages of the database table. */
+  public static final BooleanOption TABLECOMPRESS = new BooleanOption("TABLECOMPRESS", false);
+  /** Flag for storing repeated texts, attribute values and binary files only once. */
+  public static final BooleanOption DEDUPLICATE = new BooleanOption("DEDUPLICATE", false);
 
   // Parsing
 
@@ -35,6 +43,9 @@ public final class MainOptions extends Options {
   public static final BooleanOption SKIPCORRUPT = new BooleanOption("SKIPCORRUPT", false);
   /** Flag for adding remaining files as raw files. */
   public static final BooleanOption ADDRAW = new BooleanOption("ADDRAW", false);
+  /** Number of threads for parsing documents of directories and archives, and chunks of CSV
+   * and JSON Lines input. */
+  public static final NumberOption PARSETHREADS = new NumberOption("PARSETHREADS", 1);
   /** Define CSV parser options. */
   public static final OptionsOption<CsvParserOptions> CSVPARSER =
       new OptionsOption<>("CSVPARSER", new CsvParserOptions());
@@ -90,6 +101,8 @@ public final class MainOptions extends Options {
   public static final StringOption TOKENINCLUDE = new StringOption("TOKENINCLUDE", "");
   /** Full-text index: names to include. */
   public static final StringOption FTINCLUDE = new StringOption("FTINCLUDE", "");
+  /** Key indexes: paths and keys to include. */
+  public static final StringOption KEYINCLUDE = new StringOption("KEYINCLUDE", "");
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
@@ -99,8 +112,14 @@ public final class MainOptions extends Options {
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
   /** Flag for automatic index updates. */
   public static final BooleanOption AUTOOPTIMIZE = new BooleanOption("AUTOOPTIMIZE", false);
+  /** Flag for storing value indexes as B+-trees. */
+  public static final BooleanOption BTREEINDEX = new BooleanOption("BTREEINDEX", false);
+  /** Flag for indexing numbers and dates of text and attribute values. */
+  public static final BooleanOption TYPEDINDEX = new BooleanOption("TYPEDINDEX", false);
   /** Index split size. */
   public static final NumberOption SPLITSIZE = new NumberOption("SPLITSIZE", 0);
+  /** Number of threads for building index structures. */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 1);
 
   // Full-Text
 
@@ -3,6 +3,7 @@ package org.basex.core;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -38,6 +39,14 @@ public final class StaticOptions extends Options {
   public static final BooleanOption FAIRLOCK = new BooleanOption("FAIRLOCK", false);
   /** Timeout (seconds) for remembering result of asynchronous queries. */
   public static final NumberOption CACHETIMEOUT = new NumberOption("CACHETIMEOUT", 3600);
+  /** Map database files into memory for read access. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Size of the buffer pool that is shared by all databases (megabytes). */
+  public static final NumberOption BUFFERPOOL = new NumberOption("BUFFERPOOL", 32);
+  /** Maximum number of table pages that are read ahead if a table is scanned (0: disabled). */
+  public static final NumberOption READAHEAD = new NumberOption("READAHEAD", 16);
+  /** Write updates of databases to a write-ahead log. */
+  public static final BooleanOption WRITELOG = new BooleanOption("WRITELOG", false);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -69,6 +78,12 @@ public final class StaticOptions extends Options {
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
   /** Defines the number of parallel readers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
+  /** Evaluate read-only queries on snapshots of databases, without waiting for updates. */
+  public static final BooleanOption SNAPSHOTS = new BooleanOption("SNAPSHOTS", false);
+  /** Maximum number of queued updates whose changes will be flushed together. */
+  public static final NumberOption COMMITBATCH = new NumberOption("COMMITBATCH", 1);
+  /** Maximum time (ms) for which flushing the changes of queued updates can be delayed. */
+  public static final NumberOption COMMITLATENCY = new NumberOption("COMMITLATENCY", 10);
   /** Logging flag. */
   public static final BooleanOption LOG = new BooleanOption("LOG", true);
   /** Log message cut-off. */
@@ -134,6 +149,8 @@ public final class StaticOptions extends Options {
       Prop.setSystem("http.nonProxyHosts", nph);
     }
     if(get(IGNORECERT)) IOUrl.ignoreCert();
+    BufferPool.get().size(get(BUFFERPOOL));
+    BufferPool.get().readAhead(get(READAHEAD));
   }
 
   /**
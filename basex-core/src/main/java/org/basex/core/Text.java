@@ -181,6 +181,8 @@ public interface Text {
   String HASH = "Hash";
   /** Index info. */
   String SORTED_LIST = "Sorted List";
+  /** Index info. */
+  String BTREE = "B+-Tree";
 
   /** Query hits. */
   String ITEM = "Item";
@@ -204,6 +206,8 @@ public interface Text {
   /** Options error. */
   String OPT_ONEOF_X_X_X = OPT_INVALID_X_X + "one of: %.";
   /** Options error. */
+  String OPT_KEYS_X_X = OPT_INVALID_X_X + "a list of paths with keys, e.g. '/a/b(@c, d)'.";
+  /** Options error. */
   String OPT_EXPECT_X_X_X = "% expected, % found: %.";
 
   /** "log". */
@@ -1334,6 +1338,8 @@ public interface Text {
 
   /** Info on used main memory. */
   String USED_MEM = lang("used_mem");
+  /** Info on the buffer pool. */
+  String BUFFER_POOL = lang("buffer_pool");
   /** Memory information. */
   String TOTAL_MEM_C = lang("total_mem") + COLS;
   /** Memory information. */
@@ -42,7 +42,13 @@ public final class Close extends Command {
    * @param ctx database context
    */
   public static void close(final Data data, final Context ctx) {
-    synchronized(ctx.datas) { ctx.datas.unpin(data); }
+    // snapshot: release snapshot, unpin original database
+    Data dt = data;
+    if(dt instanceof DiskData) {
+      dt = ((DiskData) data).origin();
+      if(dt != data) data.close();
+    }
+    synchronized(ctx.datas) { ctx.datas.unpin(dt); }
   }
 
   /**
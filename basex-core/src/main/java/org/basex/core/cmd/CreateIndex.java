@@ -3,6 +3,8 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.core.parse.*;
@@ -10,6 +12,8 @@ import org.basex.core.parse.Commands.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.value.*;
+import org.basex.util.*;
 import org.basex.util.ft.*;
 
 /**
@@ -56,6 +60,7 @@ public final class CreateIndex extends ACreate {
     }
     data.meta.names(type, options);
     data.meta.splitsize = options.get(MainOptions.SPLITSIZE);
+    data.meta.indexthreads = options.get(MainOptions.INDEXTHREADS);
 
     return update(data, new Code() {
       @Override
@@ -78,10 +83,67 @@ public final class CreateIndex extends ACreate {
    * @throws IOException I/O exception
    */
   static void create(final Data data, final ACreate cmd) throws IOException {
-    if(data.meta.createtext) create(IndexType.TEXT, data, cmd);
-    if(data.meta.createattr) create(IndexType.ATTRIBUTE, data, cmd);
-    if(data.meta.createtoken) create(IndexType.TOKEN, data, cmd);
-    if(data.meta.createft) create(IndexType.FULLTEXT, data, cmd);
+    // skip indexes that have already been built along with the database
+    final MetaData meta = data.meta;
+    final ArrayList<IndexType> types = new ArrayList<>();
+    if(meta.createtext && !meta.textindex) types.add(IndexType.TEXT);
+    if(meta.createattr && !meta.attrindex) types.add(IndexType.ATTRIBUTE);
+    if(meta.createtoken && !meta.tokenindex) types.add(IndexType.TOKEN);
+    if(meta.createft && !meta.ftindex) types.add(IndexType.FULLTEXT);
+    create(types, data, cmd);
+    // key indexes are only supported for disk-based databases
+    if(!meta.keyinclude.isEmpty() && !meta.keyindex && !data.inMemory()) KeyIndex.create(data);
+  }
+
+  /**
+   * Builds the specified index structures. If {@link MainOptions#INDEXTHREADS} is larger than 1,
+   * the indexes of a disk-based database are built in parallel.
+   * @param types indexes to be built
+   * @param data data reference
+   * @param cmd calling command (may be {@code null})
+   * @throws IOException I/O exception
+   */
+  static void create(final Collection<IndexType> types, final Data data, final ACreate cmd)
+      throws IOException {
+
+    final int threads = Math.min(types.size(), data.meta.indexthreads);
+    if(threads < 2 || data.inMemory()) {
+      for(final IndexType type : types) create(type, data, cmd);
+      return;
+    }
+
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    final ArrayList<IndexBuilder> builders = new ArrayList<>(types.size());
+    try {
+      // builders are created and registered by the calling thread
+      final ArrayList<Future<IndexType>> futures = new ArrayList<>();
+      for(final IndexType type : types) {
+        DropIndex.drop(type, data);
+        final IndexBuilder ib = data.indexBuilder(type);
+        if(cmd != null) cmd.pushJob(ib);
+        builders.add(ib);
+        futures.add(pool.submit(() -> {
+          data.createIndex(type, ib);
+          return type;
+        }));
+      }
+      // wait until all builders have finished, and raise the first error
+      Throwable error = null;
+      final int fs = futures.size();
+      for(int f = 0; f < fs; f++) {
+        try {
+          data.meta.index(builders.get(f).result(futures.get(f)), true);
+        } catch(final IOException | RuntimeException | Error ex) {
+          if(error == null) error = ex;
+        }
+      }
+      if(error instanceof IOException) throw (IOException) error;
+      if(error instanceof RuntimeException) throw (RuntimeException) error;
+      if(error != null) throw (Error) error;
+    } finally {
+      pool.shutdownNow();
+      if(cmd != null) for(int b = builders.size(); b > 0; b--) cmd.popJob();
+    }
   }
 
   /**
@@ -3,12 +3,16 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.ft.*;
+import org.basex.index.resource.*;
 import org.basex.index.stats.*;
+import org.basex.index.value.*;
 import org.basex.util.list.*;
 
 /**
@@ -47,7 +51,10 @@ public final class Optimize extends ACreate {
           data.meta.autooptimize = autooptimize;
           data.meta.dirty = true;
         }
+        data.meta.indexthreads = options.get(MainOptions.INDEXTHREADS);
         optimize(data, Optimize.this);
+        // delete unreferenced contents of deduplicated binary files
+        if(!data.inMemory()) BlobStore.clean(meta.blobs());
         return info(DB_OPTIMIZED_X, meta.name, jc().performance);
       }
     });
@@ -157,28 +164,37 @@ public final class Optimize extends ACreate {
     }
 
     // rebuild value indexes
-    optimize(IndexType.TEXT, data, meta.createtext, enforceText, cmd);
-    optimize(IndexType.ATTRIBUTE, data, meta.createattr, enforceAttr, cmd);
-    optimize(IndexType.TOKEN, data, meta.createtoken, enforceToken, cmd);
-    optimize(IndexType.FULLTEXT, data, meta.createft, enforceFt, cmd);
+    final ArrayList<IndexType> types = new ArrayList<>();
+    optimize(IndexType.TEXT, data, meta.createtext, enforceText, types);
+    optimize(IndexType.ATTRIBUTE, data, meta.createattr, enforceAttr, types);
+    optimize(IndexType.TOKEN, data, meta.createtoken, enforceToken, types);
+    optimize(IndexType.FULLTEXT, data, meta.createft, enforceFt, types);
+    CreateIndex.create(types, data, cmd);
+    // rebuild key indexes
+    if(meta.keyinclude.isEmpty()) KeyIndex.drop(data);
+    else if(!meta.keyindex && !data.inMemory()) KeyIndex.create(data);
+    // merge the changes of an updatable full-text index
+    final Index ftindex = data.index(IndexType.FULLTEXT);
+    if(ftindex instanceof FTIndex) ((FTIndex) ftindex).merge();
   }
 
   /**
-   * Creates or deletes the specified index if the old and new state is different.
+   * Deletes the specified index, or adds it to the indexes to be created,
+   * if the old and new state is different.
    * @param type index type
    * @param data data reference
    * @param create new flag
    * @param enforce enforce operation
-   * @param cmd calling command instance
+   * @param types indexes to be created
    * @throws IOException I/O exception
    */
   private static void optimize(final IndexType type, final Data data, final boolean create,
-      final boolean enforce, final Optimize cmd) throws IOException {
+      final boolean enforce, final ArrayList<IndexType> types) throws IOException {
 
     // check if flags have changed
     if(create == data.meta.index(type) && !enforce) return;
     // create or drop index
-    if(create) CreateIndex.create(type, data, cmd);
+    if(create) types.add(type);
     else DropIndex.drop(type, data);
   }
 
@@ -196,9 +212,13 @@ public final class Optimize extends ACreate {
 
     if(data.meta.updindex) {
       data.idmap = new IdPreMap(md.lastid);
-      if(data.meta.textindex) optimize(IndexType.TEXT, data, true, true, null);
-      if(data.meta.attrindex) optimize(IndexType.ATTRIBUTE, data, true, true, null);
-      if(data.meta.tokenindex) optimize(IndexType.TOKEN, data, true, true, null);
+      final ArrayList<IndexType> types = new ArrayList<>();
+      if(data.meta.textindex) types.add(IndexType.TEXT);
+      if(data.meta.attrindex) types.add(IndexType.ATTRIBUTE);
+      if(data.meta.tokenindex) types.add(IndexType.TOKEN);
+      if(data.meta.ftindex) types.add(IndexType.FULLTEXT);
+      CreateIndex.create(types, data, null);
+      if(data.meta.keyindex) KeyIndex.create(data);
     }
   }
 }
@@ -99,6 +99,7 @@ public final class OptimizeAll extends ACreate {
     options.set(MainOptions.ATTRINCLUDE, ometa.attrinclude);
     options.set(MainOptions.TOKENINCLUDE, ometa.tokeninclude);
     options.set(MainOptions.FTINCLUDE, ometa.ftinclude);
+    options.set(MainOptions.KEYINCLUDE, ometa.keyinclude);
     // adopt original full-text index options
     options.set(MainOptions.STEMMING, ometa.stemming);
     options.set(MainOptions.CASESENS, ometa.casesens);
@@ -108,6 +109,9 @@ public final class OptimizeAll extends ACreate {
     // adopt original index options
     options.set(MainOptions.MAXLEN, ometa.maxlen);
     options.set(MainOptions.MAXCATS, ometa.maxcats);
+    // adopt original storage options
+    options.set(MainOptions.TABLECOMPRESS, ometa.tablecompress);
+    options.set(MainOptions.DEDUPLICATE, ometa.deduplicate);
 
     // build database and index structures
     final StaticOptions sopts = context.soptions;
@@ -146,8 +150,9 @@ public final class OptimizeAll extends ACreate {
     }
 
     // move binary files
-    final IOFile bin = ometa.binaries();
+    final IOFile bin = ometa.binaries(), blobs = ometa.blobs();
     if(bin.exists()) bin.rename(nmeta.binaries());
+    if(blobs.exists()) blobs.rename(nmeta.blobs());
 
     // drop old database, rename temporary database
     if(!DropDB.drop(name, sopts)) throw new BaseXException(DB_NOT_DROPPED_X, name);
@@ -7,6 +7,7 @@ import java.io.*;
 import org.basex.core.parse.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
+import org.basex.index.resource.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.io.out.*;
@@ -63,6 +64,7 @@ public final class Store extends ACreate {
       @Override
       boolean run() throws IOException {
         store(in, file);
+        if(data.meta.deduplicate) BlobStore.link(file, data.meta.blobs());
         return info(QUERY_EXECUTED_X_X, "", jc().performance);
       }
     });
@@ -75,8 +77,8 @@ public final class Store extends ACreate {
    * @throws IOException I/O exception
    */
   public static void store(final InputSource in, final IOFile file) throws IOException {
-    // add directory if it does not exist anyway
-    if(file.isDir()) file.delete();
+    // delete existing file or directory (the file may be linked to a deduplicated blob)
+    file.delete();
     file.parent().md();
 
     try(PrintOutput po = new PrintOutput(file.path())) {
@@ -1,6 +1,8 @@
 package org.basex.core.jobs;
 
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.core.users.*;
@@ -115,6 +117,29 @@ public abstract class Job {
     if(stopped) throw new JobException(Text.INTERRUPTED);
   }
 
+  /**
+   * Waits for the result of a task that has been submitted to a thread pool.
+   * If the waiting thread is interrupted, the job is stopped.
+   * @param <T> result type
+   * @param future future result
+   * @return result
+   * @throws IOException I/O exception thrown by the task
+   */
+  public final <T> T result(final Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+      stop();
+      throw new JobException(Text.INTERRUPTED);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw (IOException) th;
+    }
+  }
+
   /**
    * Sends a new job state.
    * @param js new state
@@ -8,6 +8,7 @@ import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
 import org.basex.core.jobs.*;
+import org.basex.data.*;
 import org.basex.util.*;
 
 /**
@@ -19,6 +20,12 @@ import org.basex.util.*;
  *
  * This class prevents locking deadlocks by sorting all strings.
  *
+ * If {@link StaticOptions#COMMITBATCH} is greater than 1, the changes of an update will not be
+ * flushed immediately if other writers are queued for the same database (group commit). The
+ * updating job will wait for the flush after its locks have been released. If the changes have
+ * not been flushed by a subsequent update in time, the job will flush them itself after having
+ * acquired the write lock of the database again.
+ *
  * Locks can only be released by the same thread which acquired it.
  *
  * Locking methods are not synchronized to each other. The user must make sure not to call them in
@@ -67,6 +74,13 @@ public final class Locking {
   /** Number of running global readers. */
   private int globalReaders;
 
+  /** Group commit: maximum number of updates whose changes will be flushed together. */
+  private final int batch;
+  /** Group commit: maximum time (ms) for which flushing changes can be delayed. */
+  private final long latency;
+  /** Group commits that will be awaited by threads after their locks have been released. */
+  private final ConcurrentMap<Long, Map<DiskData, Long>> commits = new ConcurrentHashMap<>();
+
   /**
    * Constructor.
    * @param soptions static options
@@ -76,6 +90,8 @@ public final class Locking {
     globalLocks = new ReentrantReadWriteLock(fair);
     final int parallel = Math.max(soptions.get(StaticOptions.PARALLEL), 1);
     queue = fair ? new FairLockQueue(parallel) : new NonfairLockQueue(parallel);
+    batch = soptions.get(StaticOptions.COMMITBATCH);
+    latency = soptions.get(StaticOptions.COMMITLATENCY);
   }
 
   /**
@@ -176,6 +192,85 @@ public final class Locking {
 
     // allow next queued job to resume
     queue.release();
+
+    // wait until the changes of deferred updates have been flushed
+    final Map<DiskData, Long> map = commits.remove(id);
+    if(map != null) map.forEach((data, commit) -> {
+      if(!data.awaitCommit(commit, latency)) commit(data, commit);
+    });
+  }
+
+  /**
+   * Temporarily releases the locks of the current thread. Jobs that wait for the locks can
+   * be run before the locks are acquired again.
+   * @param data database that is currently updated
+   * @param opts main options
+   * @throws BaseXException database exception
+   */
+  public void pause(final Data data, final MainOptions opts) throws BaseXException {
+    final Locks locks = locked.get(Thread.currentThread().getId());
+    data.finishUpdate(opts);
+    release();
+    try {
+      acquire(locks);
+    } catch(final InterruptedException ex) {
+      throw Util.notExpected("Thread was interrupted: %", ex);
+    }
+    data.startUpdate(opts);
+  }
+
+  /**
+   * Flushes the changes of deferred updates while holding the write lock of the database.
+   * @param data data reference
+   * @param commit number of the group commit
+   */
+  private void commit(final DiskData data, final long commit) {
+    final Locks locks = new Locks();
+    locks.writes.add(data.meta.name);
+    try {
+      acquire(locks);
+    } catch(final InterruptedException ex) {
+      throw Util.notExpected("Thread was interrupted: %", ex);
+    }
+    try {
+      data.finishCommit(commit);
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Finishes the update of a database. If other writers are queued for the database, flushing
+   * the changes may be delayed (group commit).
+   * @param data data reference
+   * @param opts main options
+   */
+  public void finishUpdate(final Data data, final MainOptions opts) {
+    if(batch > 1 && !data.inMemory() && queued(data.meta.name)) {
+      final DiskData dd = (DiskData) data;
+      final long commit = dd.deferUpdate(opts, batch, latency);
+      if(commit != -1) {
+        final Long id = Thread.currentThread().getId();
+        commits.computeIfAbsent(id, k -> new HashMap<>()).put(dd, commit);
+      }
+    } else {
+      data.finishUpdate(opts);
+    }
+  }
+
+  /**
+   * Checks if other writers are queued for the specified lock string. Jobs that are waiting
+   * in the job queue or for their locks are included.
+   * @param string lock string
+   * @return result of check
+   */
+  private boolean queued(final String string) {
+    final Long id = Thread.currentThread().getId();
+    for(final Map.Entry<Long, Locks> entry : locked.entrySet()) {
+      final LockList writes = entry.getValue().writes;
+      if(!entry.getKey().equals(id) && (writes.global() || writes.contains(string))) return true;
+    }
+    return false;
   }
 
   /**
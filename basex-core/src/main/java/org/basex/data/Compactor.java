@@ -0,0 +1,77 @@
+package org.basex.data;
+
+import org.basex.core.jobs.*;
+
+/**
+ * Compacts the storage of a database in a bounded number of steps. In each step, a page of the
+ * table is moved, the entries of a table page are scanned, or an entry of a heap file is moved.
+ * The steps are performed in batches: locks can be released between two batches.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class Compactor extends Job {
+  /** Number of steps per batch. */
+  private static final int BATCH = 1 << 14;
+
+  /** Remaining number of steps. */
+  private long steps;
+  /** Remaining number of steps in the current batch. */
+  private int batch = BATCH;
+  /** Total number of units in the current phase. */
+  private long total;
+  /** Number of processed units in the current phase. */
+  private long count;
+
+  /**
+   * Constructor.
+   * @param steps maximum number of steps
+   */
+  public Compactor(final long steps) {
+    this.steps = steps;
+  }
+
+  /**
+   * Starts a new compaction phase.
+   * @param units total number of units (pages, heap entries)
+   */
+  public void phase(final long units) {
+    total = units;
+    count = 0;
+  }
+
+  /**
+   * Assigns the number of processed units.
+   * @param units processed units
+   */
+  public void progress(final long units) {
+    count = units;
+  }
+
+  /**
+   * Checks if the job has been stopped, and reserves a step.
+   * @return {@code true} if a step can be performed in the current batch
+   */
+  public boolean step() {
+    checkStop();
+    if(steps == 0 || batch == 0) return false;
+    steps--;
+    batch--;
+    return true;
+  }
+
+  /**
+   * Starts the next batch of steps.
+   * @return {@code true} if the current batch was exhausted and if steps are left
+   */
+  public boolean batch() {
+    if(steps == 0 || batch != 0) return false;
+    batch = BATCH;
+    return true;
+  }
+
+  @Override
+  public double progressInfo() {
+    return total == 0 ? 0 : (double) count / total;
+  }
+}
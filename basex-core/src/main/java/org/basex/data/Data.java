@@ -101,6 +101,8 @@ public abstract class Data {
   public ValueIndex tokenIndex;
   /** Full-text index. */
   public ValueIndex ftIndex;
+  /** Key indexes (can be {@code null}). */
+  public KeyIndex keyIndex;
 
   /** Indicates if distances are to be updated. */
   public boolean updateDists = true;
@@ -127,6 +129,16 @@ public abstract class Data {
     closed = true;
   }
 
+  /**
+   * Compacts the storage of the database.
+   * @param compactor compaction job
+   * @return {@code true} if the storage is compact
+   * @throws IOException I/O exception
+   */
+  public boolean compact(final Compactor compactor) throws IOException {
+    return table.compact(compactor);
+  }
+
   /**
    * Indicates if the database has been closed.
    * @return result of check
@@ -136,12 +148,36 @@ public abstract class Data {
   }
 
   /**
-   * Drops the specified index.
-   * @param type index to be dropped
-   * @param cmd calling command
+   * Creates the specified index.
+   * @param type index to be created
+   * @param cmd calling command (can be {@code null})
+   * @throws IOException I/O exception
+   */
+  public final void createIndex(final IndexType type, final Command cmd) throws IOException {
+    final IndexBuilder ib = indexBuilder(type);
+    try {
+      if(cmd != null) cmd.pushJob(ib);
+      createIndex(type, ib);
+    } finally {
+      if(cmd != null) cmd.popJob();
+    }
+  }
+
+  /**
+   * Returns a builder for the specified index. An existing index will be closed.
+   * @param type index to be created
+   * @return index builder
    * @throws IOException I/O exception
    */
-  public abstract void createIndex(IndexType type, Command cmd) throws IOException;
+  public abstract IndexBuilder indexBuilder(IndexType type) throws IOException;
+
+  /**
+   * Builds and assigns the specified index.
+   * @param type index to be created
+   * @param ib index builder
+   * @throws IOException I/O exception
+   */
+  public abstract void createIndex(IndexType type, IndexBuilder ib) throws IOException;
 
   /**
    * Drops the specified index.
@@ -179,6 +215,18 @@ public abstract class Data {
     return index(token.type()).iter(token);
   }
 
+  /**
+   * Returns an index iterator for the specified token. Only pre values within the specified
+   * range will be returned.
+   * @param token index token reference
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
+   * @return index iterator
+   */
+  public final IndexIterator iter(final IndexToken token, final int min, final int max) {
+    return ((ValueIndex) index(token.type())).iter(token, min, max);
+  }
+
   /**
    * Returns a cost estimation for searching the specified token.
    * Smaller values are better, a value of zero indicates that no results will be returned.
@@ -504,6 +552,8 @@ public abstract class Data {
       final int uriId = nsFlag ? nspaces.add(nsPre, prefix, uri, this) :
         oldUriId != 0 && eq(nspaces.uri(oldUriId), uri) ? oldUriId : 0;
       final int sz = size(pre, kind);
+      final boolean keys = meta.updindex && meta.keyindex;
+      if(keys) keyIndex.delete(pre, sz);
 
       // write ids of namespace uri and name, and namespace flag
       if(kind == ATTR) {
@@ -524,19 +574,24 @@ public abstract class Data {
       } else {
         // update element name
         final IntList pres = new IntList();
-        // update text index
-        if(meta.updindex && meta.textindex) {
+        // update text and full-text index
+        if(meta.updindex && (meta.textindex || meta.ftindex)) {
           final int last = pre + sz;
           for(int curr = pre + attSize(pre, kind); curr < last; curr += size(curr, kind(curr))) {
             if(kind(curr) == TEXT) pres.add(curr);
           }
-          textIndex.delete(new ValueCache(pres, IndexType.TEXT, this));
+          if(meta.textindex) textIndex.delete(new ValueCache(pres, IndexType.TEXT, this));
+          if(meta.ftindex) ftIndex.delete(new ValueCache(pres, IndexType.FULLTEXT, this));
         }
         table.write1(pre, 3, uriId);
         final int nameId = elemNames.put(name);
         table.write2(nsPre, 1, (nsFlag || nsFlag(nsPre) ? 1 << 15 : 0) | nameId);
-        if(!pres.isEmpty()) textIndex.add(new ValueCache(pres, IndexType.TEXT, this));
+        if(!pres.isEmpty()) {
+          if(meta.textindex) textIndex.add(new ValueCache(pres, IndexType.TEXT, this));
+          if(meta.ftindex) ftIndex.add(new ValueCache(pres, IndexType.FULLTEXT, this));
+        }
       }
+      if(keys) keyIndex.add(pre, sz);
     }
   }
 
@@ -692,6 +747,9 @@ public abstract class Data {
     table.delete(pre, size);
 
     updateDist(pre, -size);
+
+    // add entries of ancestors to key indexes
+    if(meta.updindex && meta.keyindex) keyIndex.add(pre, 0);
   }
 
   /**
@@ -726,6 +784,9 @@ public abstract class Data {
     meta.update();
     resources.docs();
 
+    // remove entries of ancestors from key indexes
+    if(meta.updindex && meta.keyindex && par != -1) keyIndex.delete(par, 1);
+
     // resize buffer to cache more entries
     final int bSize = Math.min(sCount, IO.BLOCKSIZE >> IO.NODEPOWER);
     bufferSize(bSize);
@@ -1060,6 +1121,8 @@ public abstract class Data {
       if(meta.textindex) textIndex.delete(new ValueCache(pre, size, IndexType.TEXT, this));
       if(meta.attrindex) attrIndex.delete(new ValueCache(pre, size, IndexType.ATTRIBUTE, this));
       if(meta.tokenindex) tokenIndex.delete(new ValueCache(pre, size, IndexType.TOKEN, this));
+      if(meta.ftindex) ftIndex.delete(new ValueCache(pre, size, IndexType.FULLTEXT, this));
+      if(meta.keyindex) keyIndex.delete(pre, size);
       if(id != -1) idmap.delete(pre, id, -size);
     }
   }
@@ -1078,6 +1141,8 @@ public abstract class Data {
       if(meta.textindex) textIndex.add(new ValueCache(pre, size, IndexType.TEXT, this));
       if(meta.attrindex) attrIndex.add(new ValueCache(pre, size, IndexType.ATTRIBUTE, this));
       if(meta.tokenindex) tokenIndex.add(new ValueCache(pre, size, IndexType.TOKEN, this));
+      if(meta.ftindex) ftIndex.add(new ValueCache(pre, size, IndexType.FULLTEXT, this));
+      if(meta.keyindex) keyIndex.add(pre, size);
     }
   }
 
@@ -15,6 +15,8 @@ public interface DataText {
   String STORAGE = "8.6";
   /** Index version; older version cannot open indexes of these instances. */
   String ISTORAGE = "8.6";
+  /** Format of the id lists of new value indexes (see {@link MetaData#idformat}). */
+  int IDFORMAT = 1;
 
   /** Database version. */
   String DBSTR = "STORAGE";
@@ -34,6 +36,16 @@ public interface DataText {
   String DBUPDIDX = "UPDINDEX";
   /** Automatic optimization. */
   String DBAUTOOPT = "AUTOOPT";
+  /** Value indexes stored as B+-trees. */
+  String DBBTREE = "BTREE";
+  /** Typed value indexes. */
+  String DBTYPED = "TYPED";
+  /** Format of the id lists of value indexes. */
+  String DBIDFMT = "IDFORMAT";
+  /** Table compression. */
+  String DBTBLCMP = "TBLCOMPRESS";
+  /** Deduplication of texts and attribute values. */
+  String DBDEDUP = "DEDUP";
   /** Text index. */
   String DBTXTIDX = "TXTINDEX";
   /** Attribute index. */
@@ -42,6 +54,8 @@ public interface DataText {
   String DBTOKIDX = "TOKINDEX";
   /** Full-text index. */
   String DBFTXIDX = "FTXINDEX";
+  /** Key indexes. */
+  String DBKEYIDX = "KEYINDEX";
   /** Text index: names. */
   String DBTXTINC = "TXTINC";
   /** Attribute index: names. */
@@ -50,6 +64,8 @@ public interface DataText {
   String DBTOKINC = "TOKINC";
   /** Full-text index: names. */
   String DBFTXINC = "FTXINC";
+  /** Key indexes: definitions. */
+  String DBKEYINC = "KEYINC";
   /** Full-text stemming. */
   String DBFTST = "FTSTEM";
   /** Full-text language. */
@@ -110,10 +126,14 @@ public interface DataText {
   String DATASWL = "swl";
   /** Database - Updating flag. */
   String DATAUPD = "upd";
+  /** Database - Write-ahead log. */
+  String DATAWAL = "wal";
   /** Database - Document path index. */
   String DATAPTH = "pth";
   /** Database - ID-PRE mapping. */
   String DATAIDP = "idp";
+  /** Database - Key indexes. */
+  String DATAKEY = "key";
 
   // XML SERIALIZATION ============================================================================
 
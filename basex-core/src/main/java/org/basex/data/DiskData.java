@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.nio.channels.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
@@ -16,6 +17,7 @@ import org.basex.index.path.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -25,6 +27,11 @@ import org.basex.util.*;
  * for textual content in a compressed disk structure.
  * The table mapping is documented in {@link Data}.
  *
+ * Read-only snapshots of the committed database state can be requested via {@link #snapshot()}.
+ * Once a snapshot has been requested, a new snapshot will be created before each update, and
+ * table pages and text blocks will be preserved before they are modified. Index structures are
+ * shared with snapshots; updates wait until they are no longer accessed by snapshot readers.
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
@@ -34,6 +41,36 @@ public final class DiskData extends Data {
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Recently stored texts (only assigned if values are deduplicated). */
+  private TextDictionary xdict;
+  /** Recently stored attribute values (only assigned if values are deduplicated). */
+  private TextDictionary vdict;
+  /** Compaction pass of the text heap ({@code null} if no pass has been started). */
+  private HeapCompaction textPass;
+  /** Compaction pass of the attribute value heap ({@code null} if no pass has been started). */
+  private HeapCompaction valuePass;
+  /** Indicates if the database is currently updated. */
+  private boolean updating;
+  /** Number of finished updates whose changes have not been flushed yet (group commit). */
+  private int deferred;
+  /** Time when the first of these updates was finished (nanoseconds). */
+  private long deferTime;
+  /** Number of group commits (incremented whenever deferred changes have been flushed). */
+  private long commits;
+  /** Snapshot of the committed database state ({@code null} if it has not been created yet). */
+  private DiskData snapshot;
+  /** Indicates if snapshots will be created before updates. */
+  private boolean snapshots;
+  /** Original database (only assigned if this instance is a snapshot). */
+  private final DiskData origin;
+  /** Number of readers (only assigned if this instance is a snapshot). */
+  private int readers;
+  /** Indicates if index structures are shared (only assigned if this instance is a snapshot). */
+  private boolean indexes;
+  /** Number of readers of snapshots that share the index structures. */
+  private int indexReaders;
+  /** Indicates if the index structures are modified by the running update. */
+  private boolean indexing;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -42,35 +79,23 @@ public final class DiskData extends Data {
    */
   public DiskData(final MetaData meta) throws IOException {
     super(meta);
+    origin = null;
+
+    // recover committed changes that may not have been written to the data files
+    recover();
 
     try(DataInput in = new DataInput(meta.dbfile(DATAINF))) {
-      meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        switch(k) {
-          case DBTAGS: elemNames = new Names(in, meta); break;
-          case DBATTS: attrNames = new Names(in, meta); break;
-          case DBPATH: paths = new PathIndex(this, in); break;
-          case DBNS:   nspaces = new Namespaces(in); break;
-          case DBDOCS: resources.read(in); break;
-        }
-      }
+      read(in);
     }
 
     // open data and indexes
     init();
-    if(meta.updindex) {
-      idmap = new IdPreMap(meta.dbfile(DATAIDP));
-      if(meta.textindex) textIndex = new UpdatableDiskValues(this, IndexType.TEXT);
-      if(meta.attrindex) attrIndex = new UpdatableDiskValues(this, IndexType.ATTRIBUTE);
-      if(meta.tokenindex) tokenIndex = new UpdatableDiskValues(this, IndexType.TOKEN);
-    } else {
-      if(meta.textindex) textIndex = new DiskValues(this, IndexType.TEXT);
-      if(meta.attrindex) attrIndex = new DiskValues(this, IndexType.ATTRIBUTE);
-      if(meta.tokenindex) tokenIndex = new DiskValues(this, IndexType.TOKEN);
-    }
+    if(meta.updindex) idmap = new IdPreMap(meta.dbfile(DATAIDP));
+    if(meta.textindex) textIndex = DiskValues.open(this, IndexType.TEXT);
+    if(meta.attrindex) attrIndex = DiskValues.open(this, IndexType.ATTRIBUTE);
+    if(meta.tokenindex) tokenIndex = DiskValues.open(this, IndexType.TOKEN);
     if(meta.ftindex) ftIndex = new FTIndex(this);
+    if(meta.keyindex) keyIndex = new KeyIndex(this);
   }
 
   /**
@@ -86,6 +111,7 @@ public final class DiskData extends Data {
       final PathIndex paths, final Namespaces nspaces) throws IOException {
 
     super(meta);
+    origin = null;
     this.elemNames = elemNames;
     this.attrNames = attrNames;
     this.paths = paths;
@@ -95,14 +121,88 @@ public final class DiskData extends Data {
     init();
   }
 
+  /**
+   * Constructor for a snapshot of a database, called from {@link #freeze()}.
+   * @param origin original database
+   * @param info serialized meta data and name structures
+   * @throws IOException I/O exception
+   */
+  private DiskData(final DiskData origin, final byte[] info) throws IOException {
+    super(new MetaData(origin.meta));
+    this.origin = origin;
+    try(DataInput in = new DataInput(new IOContent(info))) {
+      read(in);
+    }
+    // share valid index structures, unless they are modified by the running update
+    if(!origin.indexing) {
+      if(meta.textindex) textIndex = origin.textIndex;
+      if(meta.attrindex) attrIndex = origin.attrIndex;
+      if(meta.tokenindex) tokenIndex = origin.tokenIndex;
+      if(meta.ftindex) ftIndex = origin.ftIndex;
+      if(meta.keyindex) keyIndex = origin.keyIndex;
+    }
+    meta.textindex = textIndex != null;
+    meta.attrindex = attrIndex != null;
+    meta.tokenindex = tokenIndex != null;
+    meta.ftindex = ftIndex != null;
+    meta.keyindex = keyIndex != null;
+    meta.updindex = false;
+    indexes = meta.textindex || meta.attrindex || meta.tokenindex || meta.ftindex ||
+        meta.keyindex;
+    table = ((TableDiskAccess) origin.table).snapshot(meta);
+    texts = origin.texts.snapshot();
+    values = origin.values.snapshot();
+  }
+
+  /**
+   * Reads the meta data and the name structures.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  private void read(final DataInput in) throws IOException {
+    meta.read(in);
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      switch(k) {
+        case DBTAGS: elemNames = new Names(in, meta); break;
+        case DBATTS: attrNames = new Names(in, meta); break;
+        case DBPATH: paths = new PathIndex(this, in); break;
+        case DBNS:   nspaces = new Namespaces(in); break;
+        case DBDOCS: resources.read(in); break;
+      }
+    }
+  }
+
+  /**
+   * Recovers the changes of a write-ahead log. Changes will only be recovered if no other process
+   * uses the database, as the log may otherwise belong to a database that is still opened.
+   * @throws IOException I/O exception
+   */
+  private void recover() throws IOException {
+    final IOFile wal = meta.dbfile(DATAWAL);
+    if(!wal.exists()) return;
+    try(FileChannel fc = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw").getChannel()) {
+      try(FileLock fl = fc.tryLock()) {
+        if(fl != null) WriteLog.recover(wal);
+      } catch(final OverlappingFileLockException ex) {
+        // database is opened by another context of the same process
+        Util.debug(ex);
+      }
+    }
+  }
+
   /**
    * Initializes the database.
    * @throws IOException I/O exception
    */
   private void init() throws IOException {
+    // an existing log belongs to another process and will not be used
+    final IOFile wal = meta.dbfile(DATAWAL);
+    if(meta.writelog && !wal.exists()) meta.log = new WriteLog(wal);
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    texts = new DataAccess(meta.dbfile(DATATXT), meta.mmap, meta.log);
+    values = new DataAccess(meta.dbfile(DATAATV), meta.mmap, meta.log);
   }
 
   /**
@@ -112,26 +212,144 @@ public final class DiskData extends Data {
   private void write() throws IOException {
     if(!meta.dirty) return;
 
-    try(DataOutput out = new DataOutput(meta.dbfile(DATAINF))) {
-      meta.write(out);
-      out.writeToken(token(DBTAGS));
-      elemNames.write(out);
-      out.writeToken(token(DBATTS));
-      attrNames.write(out);
-      out.writeToken(token(DBPATH));
-      paths.write(out);
-      out.writeToken(token(DBNS));
-      nspaces.write(out);
-      out.writeToken(token(DBDOCS));
-      resources.write(out);
-      out.write(0);
+    try(DataOutput out = WriteLog.output(meta.dbfile(DATAINF), meta.log)) {
+      write(out);
+    }
+    if(meta.updindex) {
+      try(DataOutput out = WriteLog.output(meta.dbfile(DATAIDP), meta.log)) {
+        idmap.write(out);
+      }
     }
-    if(meta.updindex) idmap.write(meta.dbfile(DATAIDP));
     meta.dirty = false;
   }
 
+  /**
+   * Writes the meta data and the name structures.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    elemNames.write(out);
+    out.writeToken(token(DBATTS));
+    attrNames.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+  }
+
+  /**
+   * Returns a read-only snapshot of the committed database state. Updates that are performed
+   * while the snapshot is open will not be visible to its readers. If an update is running, the
+   * snapshot that has been created before the update will be returned. A snapshot is shared by
+   * all readers until the next update is finished; it must be closed by each reader.
+   * Index structures are shared with the snapshot if they are not modified by a running update.
+   * @return snapshot
+   */
+  public synchronized DiskData snapshot() {
+    snapshots = true;
+    // wait for a running update if no snapshot was created before the update, or
+    // wait until an update has removed the index structures from the current snapshot
+    try {
+      while(snapshot == null && updating || indexing && (snapshot == null || snapshot.indexes)) {
+        wait();
+      }
+    } catch(final InterruptedException ex) {
+      throw Util.notExpected(ex);
+    }
+    if(snapshot == null) snapshot = freeze();
+    snapshot.readers++;
+    if(snapshot.indexes) indexReaders++;
+    return snapshot;
+  }
+
+  /**
+   * Returns the original database.
+   * @return original database, or this instance if it is no snapshot
+   */
+  public DiskData origin() {
+    return origin != null ? origin : this;
+  }
+
+  /**
+   * Creates a snapshot of the current database state.
+   * @return snapshot
+   */
+  private DiskData freeze() {
+    try {
+      final ArrayOutput ao = new ArrayOutput();
+      try(DataOutput out = new DataOutput(ao)) {
+        write(out);
+      }
+      return new DiskData(this, ao.finish());
+    } catch(final IOException ex) {
+      throw Util.notExpected(ex);
+    }
+  }
+
+  /**
+   * Releases a snapshot that has been closed by a reader.
+   * @param snap snapshot
+   */
+  private synchronized void release(final DiskData snap) {
+    if(--snap.readers == 0 && snap != snapshot) snap.dispose();
+    if(snap.indexes && --indexReaders == 0) notifyAll();
+  }
+
+  /**
+   * Waits until the index structures are no longer accessed by snapshot readers.
+   * Snapshots that are created during the update will not share the index structures.
+   */
+  private void lockIndexes() {
+    indexing = true;
+    try {
+      while(indexReaders > 0) wait();
+    } catch(final InterruptedException ex) {
+      throw Util.notExpected(ex);
+    }
+    // the current snapshot has no readers: replace it with a snapshot without index structures
+    if(snapshot != null && snapshot.indexes) {
+      snapshot.dispose();
+      snapshot = null;
+    }
+  }
+
+  /**
+   * Detaches the current snapshot after an update. Notifies threads that wait for a snapshot.
+   */
+  private void detach() {
+    if(snapshot != null) {
+      if(snapshot.readers == 0) snapshot.dispose();
+      snapshot = null;
+    }
+    indexing = false;
+    notifyAll();
+  }
+
+  /**
+   * Stops preserving the pages and blocks of a snapshot.
+   */
+  private void dispose() {
+    try {
+      table.close();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    texts.close();
+    values.close();
+  }
+
   @Override
   public synchronized void close() {
+    if(origin != null) {
+      origin.release(this);
+      return;
+    }
     if(closed) return;
     super.close();
     try {
@@ -143,6 +361,19 @@ public final class DiskData extends Data {
       close(IndexType.ATTRIBUTE);
       close(IndexType.TOKEN);
       close(IndexType.FULLTEXT);
+      if(keyIndex != null) {
+        keyIndex.close();
+        keyIndex = null;
+      }
+      if(meta.log != null) {
+        meta.log.close();
+        meta.log = null;
+      }
+      // all changes have been written: release threads that wait for deferred changes
+      if(deferred > 0) {
+        meta.updateFile().delete();
+        notifyAll();
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -162,21 +393,19 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public void createIndex(final IndexType type, final Command cmd) throws IOException {
+  public IndexBuilder indexBuilder(final IndexType type) throws IOException {
     // close existing index
     close(type);
-    final IndexBuilder ib;
     switch(type) {
-      case TEXT: case ATTRIBUTE: case TOKEN: ib = new DiskValuesBuilder(this, type); break;
-      case FULLTEXT: ib = new FTBuilder(this); break;
+      case TEXT: case ATTRIBUTE: case TOKEN: return new DiskValuesBuilder(this, type);
+      case FULLTEXT: return new FTBuilder(this);
       default: throw Util.notExpected();
     }
-    try {
-      if(cmd != null) cmd.pushJob(ib);
-      set(type, ib.build());
-    } finally {
-      if(cmd != null) cmd.popJob();
-    }
+  }
+
+  @Override
+  public void createIndex(final IndexType type, final IndexBuilder ib) throws IOException {
+    set(type, ib.build());
   }
 
   @Override
@@ -203,13 +432,30 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public void startUpdate(final MainOptions opts) throws BaseXException {
+  public synchronized void startUpdate(final MainOptions opts) throws BaseXException {
     if(!table.lock(true)) throw new BaseXException(DB_PINNED_X, meta.name);
-    if(opts.get(MainOptions.AUTOFLUSH)) {
+    // updating file already exists if the changes of previous updates have not been flushed yet
+    if(opts.get(MainOptions.AUTOFLUSH) && deferred == 0) {
       final IOFile upd = meta.updateFile();
       if(upd.exists()) throw new BaseXException(DB_UPDATED_X, meta.name);
       if(!upd.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
     }
+    // preserve the committed state for readers that arrive during the update
+    if(snapshots) {
+      lockIndexes();
+      if(snapshot == null) snapshot = freeze();
+    }
+    // full-text index files of older versions must be converted before the data is changed
+    if(ftIndex instanceof FTIndex) {
+      try {
+        ((FTIndex) ftIndex).prepare();
+      } catch(final IOException ex) {
+        detach();
+        table.lock(false);
+        throw new BaseXException(ex);
+      }
+    }
+    updating = true;
   }
 
   @Override
@@ -217,16 +463,91 @@ public final class DiskData extends Data {
     // OPTIMIZE ALL / db:optimize(..., true) will close the database before this function is called
     if(closed) return;
 
-    // remove updating file
-    final boolean auto = opts.get(MainOptions.AUTOFLUSH);
+    updating = false;
+    detach();
+    commit(opts.get(MainOptions.AUTOFLUSH) || deferred > 0);
+    if(!table.lock(false)) throw Util.notExpected("Database '%': could not unlock.", meta.name);
+  }
+
+  /**
+   * Finishes an update. If the specified limits have not been reached yet, the changes will be
+   * flushed together with the changes of subsequent updates (group commit).
+   * @param opts main options
+   * @param batch maximum number of updates whose changes will be flushed together
+   * @param latency maximum time (ms) for which flushing the changes can be delayed
+   * @return number of the group commit that will flush the changes,
+   *   or {@code -1} if the changes have already been flushed
+   */
+  public synchronized long deferUpdate(final MainOptions opts, final int batch,
+      final long latency) {
+    final long time = System.nanoTime();
+    if(closed || !opts.get(MainOptions.AUTOFLUSH) || deferred + 1 >= batch ||
+        deferred > 0 && (time - deferTime) / 1000000 >= latency) {
+      finishUpdate(opts);
+      return -1;
+    }
+
+    updating = false;
+    detach();
+    if(deferred++ == 0) deferTime = time;
+    if(!table.lock(false)) throw Util.notExpected("Database '%': could not unlock.", meta.name);
+    return commits;
+  }
+
+  /**
+   * Waits until the changes of a deferred update have been flushed by a subsequent update.
+   * @param commit number of the group commit
+   * @param latency maximum time (ms) to wait
+   * @return {@code true} if the changes have been flushed, {@code false} if the time has elapsed
+   *   and no other update is running
+   */
+  public synchronized boolean awaitCommit(final long commit, final long latency) {
+    final long end = System.nanoTime() + latency * 1000000;
+    try {
+      while(commit == commits && !closed) {
+        final long ms = (end - System.nanoTime()) / 1000000;
+        if(ms > 0) {
+          wait(ms);
+        } else if(updating) {
+          // changes will be flushed by the running update
+          wait(Math.max(latency, 1));
+        } else {
+          return false;
+        }
+      }
+    } catch(final InterruptedException ex) {
+      throw Util.notExpected(ex);
+    }
+    return true;
+  }
+
+  /**
+   * Flushes the changes of deferred updates if they have not been flushed by a subsequent update.
+   * Must only be called by a thread that holds the write lock of the database.
+   * @param commit number of the group commit
+   */
+  public synchronized void finishCommit(final long commit) {
+    if(commit == commits && !closed) commit(true);
+  }
+
+  /**
+   * Flushes the changes of the finished updates and removes the updating file.
+   * Notifies threads that wait for deferred changes.
+   * @param auto flush all data structures and remove updating file
+   */
+  private void commit(final boolean auto) {
+    // remove updating file after the changes have been written (or logged)
+    flush(auto);
     if(auto) {
       final IOFile upd = meta.updateFile();
       if(!upd.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
       if(!upd.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
     }
-
-    flush(auto);
-    if(!table.lock(false)) throw Util.notExpected("Database '%': could not unlock.", meta.name);
+    if(deferred > 0) {
+      deferred = 0;
+      commits++;
+      notifyAll();
+    }
   }
 
   @Override
@@ -239,6 +560,9 @@ public final class DiskData extends Data {
         values.flush();
         if(textIndex != null) textIndex.flush();
         if(attrIndex != null) attrIndex.flush();
+        if(ftIndex != null) ftIndex.flush();
+        if(keyIndex != null) keyIndex.flush();
+        if(meta.log != null) meta.log.commit();
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -268,9 +592,10 @@ public final class DiskData extends Data {
     final long o = textRef(pre);
     if(number(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long off = o & IO.OFFCOMP - 1;
+    final int l = da.num(off);
     // compressed: next number contains number of compressed bytes
-    return compressed(o) ? da.readNum() : l;
+    return compressed(o) ? da.num(off + Num.length(l)) : l;
   }
 
   /**
@@ -280,7 +605,7 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long off, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(off & IO.OFFCOMP - 1);
+    final byte[] txt = (text ? texts : values).token(off & IO.OFFCOMP - 1);
     return compressed(off) ? Compress.unpack(txt) : txt;
   }
 
@@ -289,7 +614,7 @@ public final class DiskData extends Data {
    * @param offset offset
    * @return result of check
    */
-  private static boolean number(final long offset) {
+  static boolean number(final long offset) {
     return (offset & IO.OFFNUM) != 0;
   }
 
@@ -309,12 +634,25 @@ public final class DiskData extends Data {
 
   // UPDATE OPERATIONS ========================================================
 
+  @Override
+  public boolean compact(final Compactor compactor) throws IOException {
+    if(!super.compact(compactor)) return false;
+    // references to moved values must not be reused
+    xdict = null;
+    vdict = null;
+    // start new passes if the database has been updated
+    if(textPass == null || !textPass.valid()) textPass = new HeapCompaction(this, texts, true);
+    if(!textPass.compact(compactor)) return false;
+    if(valuePass == null || !valuePass.valid()) valuePass = new HeapCompaction(this, values, false);
+    return valuePass.compact(compactor);
+  }
+
   @Override
   protected void delete(final int pre, final boolean text) {
     // old entry (offset or value)
     final long old = textRef(pre);
-    // fill unused space with zero-bytes
-    if(!number(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    // fill unused space with zero-bytes (skipped if values may be shared)
+    if(!number(old) && !meta.deduplicate) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
   }
 
   @Override
@@ -329,7 +667,10 @@ public final class DiskData extends Data {
 
     // check if new entry is numeric and can be inlined
     final long v = toSimpleInt(value);
-    if(v == Integer.MIN_VALUE) {
+    if(meta.deduplicate) {
+      // values may be shared by several nodes: append new entry, keep old entry
+      textRef(pre, textRef(value, kind != ATTR));
+    } else if(v == Integer.MIN_VALUE) {
       // otherwise, try to compress new value
       final byte[] val = Compress.pack(value);
 
@@ -363,11 +704,25 @@ public final class DiskData extends Data {
     final long v = toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
 
+    // reuse reference to repeated value
+    TextDictionary dict = null;
+    if(meta.deduplicate) {
+      if(xdict == null) {
+        xdict = new TextDictionary(meta.maxlen);
+        vdict = new TextDictionary(meta.maxlen);
+      }
+      dict = text ? xdict : vdict;
+      final long ref = dict.get(value);
+      if(ref != -1) return ref;
+    }
+
     // store text to heap file
     final DataAccess store = text ? texts : values;
     final long off = store.length();
     final byte[] val = Compress.pack(value);
     store.writeToken(off, val);
-    return val == value ? off : off | IO.OFFCOMP;
+    final long ref = val == value ? off : off | IO.OFFCOMP;
+    if(dict != null) dict.add(value, ref);
+    return ref;
   }
 }
@@ -0,0 +1,150 @@
+package org.basex.data;
+
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class compacts a heap file of a database. The state of a compaction pass is preserved
+ * between the calls of {@link #compact(Compactor)}, and each call performs a bounded number of
+ * steps:
+ * <ol>
+ *   <li>The table is scanned page by page. The references to the heap entries are assigned
+ *       to the heap blocks in which the entries start.</li>
+ *   <li>The blocks are processed in ascending order. The entries of a block are sorted by their
+ *       offsets and moved to the end of the compacted part of the heap file. Finally,
+ *       the file is truncated.</li>
+ * </ol>
+ * The state is kept as long as the database is opened. A pass becomes invalid as soon as the
+ * database is updated.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class HeapCompaction {
+  /** Data reference. */
+  private final DiskData data;
+  /** Heap file. */
+  private final DataAccess store;
+  /** Text or attribute value heap. */
+  private final boolean text;
+  /** Timestamp of the database when the pass was started. */
+  private final long time;
+  /** Length of the heap file when the pass was started. */
+  private final long length;
+  /** References to the heap entries, indexed by blocks (offsets in the block, pre values). */
+  private final IntObjMap<LongList> blocks = new IntObjMap<>();
+
+  /** Next pre value to be scanned. */
+  private int pre;
+  /** Next block to be compacted. */
+  private int block;
+  /** Index of the next entry in the current block. */
+  private int entry;
+  /** Offset of the first byte that has not been compacted. */
+  private long target;
+  /** Indicates if the pass is complete. */
+  private boolean done;
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @param store heap file
+   * @param text text or attribute value heap
+   */
+  HeapCompaction(final DiskData data, final DataAccess store, final boolean text) {
+    this.data = data;
+    this.store = store;
+    this.text = text;
+    time = data.meta.time;
+    length = store.length();
+  }
+
+  /**
+   * Checks if the pass is still valid.
+   * @return result of check
+   */
+  boolean valid() {
+    return time == data.meta.time && length == (done ? target : store.length());
+  }
+
+  /**
+   * Continues the compaction pass.
+   * @param compactor compaction job
+   * @return {@code true} if the heap file is compact
+   */
+  boolean compact(final Compactor compactor) {
+    if(!done) done = scan(compactor) && move(compactor);
+    return done;
+  }
+
+  /**
+   * Scans the table for references to heap entries. In each step, the entries of a table page
+   * are scanned.
+   * @param compactor compaction job
+   * @return {@code true} if the table has been scanned completely
+   */
+  private boolean scan(final Compactor compactor) {
+    final int size = data.meta.size;
+    compactor.phase(size);
+    while(pre < size) {
+      compactor.progress(pre);
+      if(!compactor.step()) return false;
+      for(final int end = Math.min(pre + IO.ENTRIES, size); pre < end; pre++) {
+        final int k = data.kind(pre);
+        if(k == Data.ELEM || text == (k == Data.ATTR)) continue;
+        final long ref = data.textRef(pre);
+        if(DiskData.number(ref)) continue;
+        final long off = ref & IO.OFFCOMP - 1;
+        final int b = (int) (off >>> IO.BLOCKPOWER);
+        LongList list = blocks.get(b);
+        if(list == null) {
+          list = new LongList();
+          blocks.put(b, list);
+        }
+        list.add((off & IO.BLOCKSIZE - 1) << 32 | pre);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves the heap entries to the start of the file and truncates the file. In each step,
+   * an entry is processed.
+   * @param compactor compaction job
+   * @return {@code true} if all entries have been moved
+   */
+  private boolean move(final Compactor compactor) {
+    final int last = (int) (length - 1 >>> IO.BLOCKPOWER);
+    compactor.phase(last + 1);
+    for(; block <= last; block++) {
+      final LongList list = blocks.get(block);
+      if(list == null) continue;
+
+      compactor.progress(block);
+      if(entry == 0) list.sort();
+      final int ls = list.size();
+      while(entry < ls) {
+        if(!compactor.step()) return false;
+        final long first = list.get(entry) >>> 32, off = ((long) block << IO.BLOCKPOWER) + first;
+        final int l = store.readNum(off), len = Num.length(l) + l;
+        final boolean moved = off != target;
+        if(moved) store.writeToken(target, store.readToken(off));
+        // update all references (values may be shared if they are deduplicated)
+        for(; entry < ls && list.get(entry) >>> 32 == first; entry++) {
+          if(moved) {
+            final int p = (int) list.get(entry);
+            data.textRef(p, target | data.textRef(p) & IO.OFFCOMP);
+          }
+        }
+        target += len;
+      }
+      blocks.delete(block);
+      entry = 0;
+    }
+    store.length(target);
+    return true;
+  }
+}
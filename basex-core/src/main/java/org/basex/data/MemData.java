@@ -34,7 +34,7 @@ public final class MemData extends Data {
    * @param opts database options
    */
   public MemData(final PathIndex paths, final Namespaces nspaces, final MainOptions opts) {
-    this(null, null, paths, nspaces, null, null, opts);
+    this(null, null, paths, nspaces, opts.get(MainOptions.OFFHEAP), opts);
   }
 
   /**
@@ -42,7 +42,7 @@ public final class MemData extends Data {
    * @param opts database options
    */
   public MemData(final MainOptions opts) {
-    this(null, null, opts);
+    this(null, null, null, null, false, opts);
   }
 
   /**
@@ -51,19 +51,17 @@ public final class MemData extends Data {
    * @param attrNames attribute name index
    * @param paths path index
    * @param nspaces namespaces
-   * @param texts texts
-   * @param values values
+   * @param offheap store table, texts and attribute values outside the Java heap
    * @param options database options
    */
   private MemData(final Names elemNames, final Names attrNames, final PathIndex paths,
-      final Namespaces nspaces, final TokenSet texts, final TokenSet values,
-      final MainOptions options) {
+      final Namespaces nspaces, final boolean offheap, final MainOptions options) {
 
     super(new MetaData(options));
-    table = new TableMemAccess(meta);
+    table = offheap ? new TableOffHeapAccess(meta) : new TableMemAccess(meta);
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
-    this.texts = texts == null ? new TokenSet() : texts;
-    this.values = values == null ? new TokenSet() : values;
+    texts = offheap ? new OffHeapTokenSet() : new TokenSet();
+    values = offheap ? new OffHeapTokenSet() : new TokenSet();
     this.elemNames = elemNames == null ? new Names(meta) : elemNames;
     this.attrNames = attrNames == null ? new Names(meta) : attrNames;
     this.paths = paths == null ? new PathIndex(this) : paths;
@@ -71,22 +69,20 @@ public final class MemData extends Data {
   }
 
   @Override
-  public void createIndex(final IndexType type, final Command cmd) throws IOException {
-    final IndexBuilder ib;
+  public IndexBuilder indexBuilder(final IndexType type) throws IOException {
     switch(type) {
       case TEXT: case ATTRIBUTE: case TOKEN:
-        ib = new MemValuesBuilder(this, type); break;
+        return new MemValuesBuilder(this, type);
       case FULLTEXT:
         throw new BaseXException(NO_MAINMEM);
       default:
         throw Util.notExpected();
     }
-    try {
-      if(cmd != null) cmd.pushJob(ib);
-      set(type, ib.build());
-    } finally {
-      if(cmd != null) cmd.popJob();
-    }
+  }
+
+  @Override
+  public void createIndex(final IndexType type, final IndexBuilder ib) throws IOException {
+    set(type, ib.build());
   }
 
   @Override
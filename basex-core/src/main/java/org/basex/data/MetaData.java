@@ -13,6 +13,7 @@ import org.basex.index.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.ft.*;
 import org.basex.util.list.*;
@@ -47,11 +48,23 @@ public final class MetaData {
   public boolean tokenindex;
   /** Indicates if a full-text index exists. */
   public boolean ftindex;
+  /** Indicates if key indexes exist. */
+  public boolean keyindex;
 
   /** Flag for activated automatic index update. */
   public boolean updindex;
   /** Flag for automatic index updating. */
   public boolean autooptimize;
+  /** Flag for value indexes that are stored as B+-trees. */
+  public boolean btreeindex;
+  /** Flag for typed text and attribute indexes. */
+  public boolean typedindex;
+  /** Format of the id lists of value indexes (0: Num-encoded distances, 1: packed blocks). */
+  public int idformat;
+  /** Flag for compressed table pages. */
+  public boolean tablecompress;
+  /** Flag for storing repeated texts and attribute values only once. */
+  public boolean deduplicate;
 
   /** Indicates if the text index is to be recreated. */
   public boolean createtext;
@@ -69,6 +82,8 @@ public final class MetaData {
   public String tokeninclude = "";
   /** Full-text index: names to include. */
   public String ftinclude = "";
+  /** Key indexes: paths and keys to include. */
+  public String keyinclude = "";
 
   /** Flag for full-text stemming. */
   public boolean stemming;
@@ -95,6 +110,14 @@ public final class MetaData {
   public boolean corrupt;
   /** Dirty flag. */
   public boolean dirty;
+  /** Number of threads for building index structures. */
+  public int indexthreads;
+  /** Flag for reading database files via memory mappings. */
+  public boolean mmap;
+  /** Flag for writing updates to a write-ahead log. */
+  public boolean writelog;
+  /** Write-ahead log ({@code null} if updates are directly written to the data files). */
+  public WriteLog log;
 
   /** Number of nodes. */
   public int size;
@@ -112,6 +135,17 @@ public final class MetaData {
     this("", options, null);
   }
 
+  /**
+   * Constructor for a snapshot of a database instance.
+   * The remaining meta data will be read via {@link #read(DataInput)}.
+   * @param meta meta data of the original database
+   */
+  MetaData(final MetaData meta) {
+    name = meta.name;
+    path = meta.path;
+    language = meta.language;
+  }
+
   /**
    * Constructor.
    * @param name name of the database
@@ -130,6 +164,11 @@ public final class MetaData {
     casesens = options.get(MainOptions.CASESENS);
     updindex = options.get(MainOptions.UPDINDEX);
     autooptimize = options.get(MainOptions.AUTOOPTIMIZE);
+    btreeindex = options.get(MainOptions.BTREEINDEX);
+    typedindex = options.get(MainOptions.TYPEDINDEX);
+    idformat = IDFORMAT;
+    tablecompress = options.get(MainOptions.TABLECOMPRESS);
+    deduplicate = options.get(MainOptions.DEDUPLICATE);
     maxlen = options.get(MainOptions.MAXLEN);
     maxcats = options.get(MainOptions.MAXCATS);
     stopwords = options.get(MainOptions.STOPWORDS);
@@ -138,7 +177,11 @@ public final class MetaData {
     attrinclude = options.get(MainOptions.ATTRINCLUDE);
     tokeninclude = options.get(MainOptions.TOKENINCLUDE);
     ftinclude = options.get(MainOptions.FTINCLUDE);
+    keyinclude = options.get(MainOptions.KEYINCLUDE);
     splitsize = options.get(MainOptions.SPLITSIZE);
+    indexthreads = options.get(MainOptions.INDEXTHREADS);
+    mmap = sopts != null && sopts.get(StaticOptions.MMAP);
+    writelog = sopts != null && sopts.get(StaticOptions.WRITELOG);
   }
 
   // STATIC METHODS ===============================================================================
@@ -263,6 +306,14 @@ public final class MetaData {
     return new IOFile(path, IO.RAW);
   }
 
+  /**
+   * Returns the directory with the contents of deduplicated binary files.
+   * @return blob directory
+   */
+  public IOFile blobs() {
+    return new IOFile(path, IO.BLOBS);
+  }
+
   /**
    * Returns a file that indicates ongoing updates.
    * @return updating file
@@ -373,6 +424,13 @@ public final class MetaData {
    */
   void read(final DataInput in) throws IOException {
     String storage = "", istorage = "";
+    // storage and index flags are disabled if they have not been assigned when the database
+    // was created
+    tablecompress = false;
+    deduplicate = false;
+    btreeindex = false;
+    typedindex = false;
+    idformat = 0;
     while(true) {
       final String k = Token.string(in.readToken());
       if(k.isEmpty()) break;
@@ -392,14 +450,21 @@ public final class MetaData {
       else if(k.equals(DBFTDC))     diacritics   = toBool(v);
       else if(k.equals(DBUPDIDX))   updindex     = toBool(v);
       else if(k.equals(DBAUTOOPT))  autooptimize = toBool(v);
+      else if(k.equals(DBBTREE))    btreeindex   = toBool(v);
+      else if(k.equals(DBTYPED))    typedindex   = toBool(v);
+      else if(k.equals(DBIDFMT))    idformat     = toInt(v);
+      else if(k.equals(DBTBLCMP))   tablecompress = toBool(v);
+      else if(k.equals(DBDEDUP))    deduplicate  = toBool(v);
       else if(k.equals(DBTXTIDX))   textindex    = toBool(v);
       else if(k.equals(DBATVIDX))   attrindex    = toBool(v);
       else if(k.equals(DBTOKIDX))   tokenindex   = toBool(v);
       else if(k.equals(DBFTXIDX))   ftindex      = toBool(v);
+      else if(k.equals(DBKEYIDX))   keyindex     = toBool(v);
       else if(k.equals(DBTXTINC))   textinclude  = v;
       else if(k.equals(DBATVINC))   attrinclude  = v;
       else if(k.equals(DBTOKINC))   tokeninclude = v;
       else if(k.equals(DBFTXINC))   ftinclude    = v;
+      else if(k.equals(DBKEYINC))   keyinclude   = v;
       else if(k.equals(DBSPLITS))   splitsize    = toInt(v);
       else if(k.equals(DBCRTTXT))   createtext   = toBool(v);
       else if(k.equals(DBCRTATV))   createattr   = toBool(v);
@@ -434,14 +499,21 @@ public final class MetaData {
     writeInfo(out, DBSIZE,     size);
     writeInfo(out, DBUPDIDX,   updindex);
     writeInfo(out, DBAUTOOPT,  autooptimize);
+    writeInfo(out, DBBTREE,    btreeindex);
+    writeInfo(out, DBTYPED,    typedindex);
+    writeInfo(out, DBIDFMT,    idformat);
+    writeInfo(out, DBTBLCMP,   tablecompress);
+    writeInfo(out, DBDEDUP,    deduplicate);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBTOKIDX,   tokenindex);
     writeInfo(out, DBFTXIDX,   ftindex);
+    writeInfo(out, DBKEYIDX,   keyindex);
     writeInfo(out, DBTXTINC,   textinclude);
     writeInfo(out, DBATVINC,   attrinclude);
     writeInfo(out, DBTOKINC,   tokeninclude);
     writeInfo(out, DBFTXINC,   ftinclude);
+    writeInfo(out, DBKEYINC,   keyinclude);
     writeInfo(out, DBSPLITS,   splitsize);
     writeInfo(out, DBCRTTXT,   createtext);
     writeInfo(out, DBCRTATV,   createattr);
@@ -463,16 +535,17 @@ public final class MetaData {
    * Notifies the meta structures of an update and invalidates the indexes.
    */
   public void update() {
-    // update database timestamp
-    time = System.currentTimeMillis();
+    // update database timestamp (ensure that it changes with each update)
+    time = Math.max(System.currentTimeMillis(), time + 1);
     uptodate = false;
     dirty = true;
     if(!updindex) {
       textindex = false;
       attrindex = false;
       tokenindex = false;
+      ftindex = false;
+      keyindex = false;
     }
-    ftindex = false;
   }
 
   /**
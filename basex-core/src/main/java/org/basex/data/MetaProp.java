@@ -49,6 +49,16 @@ public enum MetaProp {
     public Boolean value(final MetaData meta) { return meta.uptodate; }
   },
   /** Property. */
+  TABLECOMPRESS(false) {
+    @Override
+    public Boolean value(final MetaData meta) { return meta.tablecompress; }
+  },
+  /** Property. */
+  DEDUPLICATE(false) {
+    @Override
+    public Boolean value(final MetaData meta) { return meta.deduplicate; }
+  },
+  /** Property. */
   INPUTPATH(false) {
     @Override
     public String value(final MetaData meta) { return meta.original; }
@@ -85,6 +95,11 @@ public enum MetaProp {
     public Boolean value(final MetaData meta) { return meta.ftindex; }
   },
   /** Property. */
+  KEYINDEX(true) {
+    @Override
+    public Boolean value(final MetaData meta) { return meta.keyindex; }
+  },
+  /** Property. */
   TEXTINCLUDE(true) {
     @Override
     public String value(final MetaData meta) { return meta.textinclude; }
@@ -105,6 +120,11 @@ public enum MetaProp {
     public String value(final MetaData meta) { return meta.ftinclude; }
   },
   /** Property. */
+  KEYINCLUDE(true) {
+    @Override
+    public String value(final MetaData meta) { return meta.keyinclude; }
+  },
+  /** Property. */
   LANGUAGE(true) {
     @Override
     public String value(final MetaData meta) { return meta.language.toString(); }
@@ -140,6 +160,16 @@ public enum MetaProp {
     public Boolean value(final MetaData meta) { return meta.autooptimize; }
   },
   /** Property. */
+  BTREEINDEX(true) {
+    @Override
+    public Boolean value(final MetaData meta) { return meta.btreeindex; }
+  },
+  /** Property. */
+  TYPEDINDEX(true) {
+    @Override
+    public Boolean value(final MetaData meta) { return meta.typedindex; }
+  },
+  /** Property. */
   MAXCATS(true) {
     @Override
     public Integer value(final MetaData meta) { return meta.maxcats; }
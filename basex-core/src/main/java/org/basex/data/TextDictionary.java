@@ -0,0 +1,68 @@
+package org.basex.data;
+
+import static org.basex.util.Token.*;
+
+/**
+ * This class references recently stored texts or attribute values. It is used to store repeated
+ * values only once ({@link MetaData#deduplicate}).
+ *
+ * The dictionary has a fixed number of entries, and each value is assigned to exactly one entry.
+ * If two values share the same entry, the older one will be dropped. Long values are ignored.
+ * As a result, memory consumption is bounded, and frequently stored values will remain in the
+ * dictionary.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class TextDictionary {
+  /** Number of entries (must be a power of two). */
+  private static final int SIZE = 1 << 16;
+
+  /** Values. */
+  private final byte[][] values = new byte[SIZE][];
+  /** References to stored values. */
+  private final long[] refs = new long[SIZE];
+  /** Maximum length of values. */
+  private final int maxlen;
+
+  /**
+   * Constructor.
+   * @param maxlen maximum length of values to be referenced
+   */
+  public TextDictionary(final int maxlen) {
+    this.maxlen = maxlen;
+  }
+
+  /**
+   * Returns the reference to a stored value.
+   * @param value value
+   * @return reference, or {@code -1} if the value is unknown
+   */
+  public long get(final byte[] value) {
+    if(value.length > maxlen) return -1;
+    final int i = index(value);
+    return eq(value, values[i]) ? refs[i] : -1;
+  }
+
+  /**
+   * Adds the reference to a stored value.
+   * @param value value
+   * @param ref reference
+   */
+  public void add(final byte[] value, final long ref) {
+    if(value.length > maxlen) return;
+    final int i = index(value);
+    values[i] = value.clone();
+    refs[i] = ref;
+  }
+
+  /**
+   * Returns the entry of a value.
+   * @param value value
+   * @return index
+   */
+  private static int index(final byte[] value) {
+    final int h = hash(value);
+    return (h ^ h >>> 16) & SIZE - 1;
+  }
+}
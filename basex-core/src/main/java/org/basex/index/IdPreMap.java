@@ -12,27 +12,27 @@ import org.basex.util.list.*;
 /**
  * Updatable ID-PRE mapping.
  *
+ * The records of a database are represented as a sequence of segments, each of which contains
+ * consecutive IDs with consecutive PRE values. The segments are stored in a balanced tree
+ * (treap), ordered by their PRE values. Each node stores the number of records of its subtree,
+ * which is why the PRE value of a segment can be computed in logarithmic time. A second index
+ * references the segments by their first ID. As a result, all operations take logarithmic time,
+ * regardless of the number of previous updates.
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Dimitar Popov
  */
 public class IdPreMap {
-  /** Invalid id-value. */
-  private static final int INV = -1;
+  /** Marker for the storage format (distinguishes it from the format of older versions). */
+  private static final int FORMAT = Integer.MIN_VALUE;
   /** Base ID value. */
   private int baseid;
-  /** PRE values of the inserted/deleted IDs. */
-  private int[] pres;
-  /** Inserted first ID values. */
-  private int[] fids;
-  /** Inserted last ID values. */
-  private int[] nids;
-  /** Increments showing how the PRE values have been modified. */
-  private int[] incs;
-  /** ID values for the PRE, before inserting/deleting a record. */
-  private int[] oids;
-
-  /** Number of records in the table. */
-  private int rows;
+  /** Segments, indexed by their first ID ({@code null} if no mapping exists yet). */
+  private TreeMap<Integer, Segment> ids;
+  /** Root of the segment tree. */
+  private Segment root;
+  /** Seed for generating node priorities. */
+  private int seed = 0x2545F491;
 
   /**
    * Constructor.
@@ -40,11 +40,6 @@ public class IdPreMap {
    */
   public IdPreMap(final int id) {
     baseid = id;
-    pres = new int[1];
-    fids = new int[1];
-    nids = new int[1];
-    incs = new int[1];
-    oids = new int[1];
   }
 
   /**
@@ -54,31 +49,31 @@ public class IdPreMap {
    */
   public IdPreMap(final IOFile f) throws IOException {
     try(DataInput in = new DataInput(f)) {
-      baseid = in.readNum();
-      rows = in.readNum();
-      pres = in.readNums();
-      fids = in.readNums();
-      nids = in.readNums();
-      incs = in.readNums();
-      oids = in.readNums();
+      final int format = in.readNum();
+      if(format == FORMAT) {
+        baseid = in.readNum();
+        final int size = in.readNum();
+        if(size != -1) {
+          ids = new TreeMap<>();
+          for(int s = 0; s < size; s++) append(in.readNum(), in.readNum());
+        }
+      } else {
+        baseid = format;
+        convert(in);
+      }
     }
   }
 
   /**
-   * Write the map to the specified file.
-   * @param file file to write to
-   * @throws IOException I/O error while writing to the file
+   * Write the map to the specified output stream.
+   * @param out output stream
+   * @throws IOException I/O error while writing to the stream
    */
-  public final void write(final IOFile file) throws IOException {
-    try(DataOutput out = new DataOutput(file)) {
-      out.writeNum(baseid);
-      out.writeNum(rows);
-      out.writeNums(pres);
-      out.writeNums(fids);
-      out.writeNums(nids);
-      out.writeNums(incs);
-      out.writeNums(oids);
-    }
+  public final void write(final DataOutput out) throws IOException {
+    out.writeNum(FORMAT);
+    out.writeNum(baseid);
+    out.writeNum(ids == null ? -1 : ids.size());
+    write(root, out);
   }
 
   /**
@@ -95,21 +90,13 @@ public class IdPreMap {
    * @return PRE or -1 if the ID is already deleted
    */
   public int pre(final int id) {
-    // no updates or id is not affected by updates
-    if(rows == 0 || id < pres[0]) return id;
-
-    if(id > baseid) {
-      // id was inserted by update
-      for(int i = 0; i < rows; ++i) {
-        // if(fids[i] == id) return pres[i]; // is this optimization?
-        if(fids[i] <= id && id <= nids[i]) return pres[i] + id - fids[i];
-      }
-    } else {
-      // id is affected by updates
-      final int i = sortedLastIndexOf(oids, id);
-      return id + incs[i < 0 ? -i - 2 : i];
-    }
-    return -1;
+    // no updates: ids and pre values are identical
+    if(ids == null) return id;
+
+    final Map.Entry<Integer, Segment> entry = ids.floorEntry(id);
+    if(entry == null) return -1;
+    final Segment seg = entry.getValue();
+    return id < seg.fid + seg.len ? seg.pre() + id - seg.fid : -1;
   }
 
   /**
@@ -119,55 +106,27 @@ public class IdPreMap {
    * @param c number of inserted records
    */
   public void insert(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id == baseid + 1) {
+    if(ids == null) {
       // no mapping and we append at the end => nothing to do
-      baseid += c;
-      return;
-    }
-
-    int pos = 0;
-    int inc = c;
-    int oid = pre;
-
-    if(rows > 0) {
-      pos = Arrays.binarySearch(pres, 0, rows, pre);
-      if(pos < 0) {
-        pos = -pos - 1;
-        if(pos != 0) {
-          // check if inserting into an existing id interval
-          final int prev = pos - 1;
-          final int prevcnt = nids[prev] - fids[prev] + 1;
-          final int prevpre = pres[prev];
-
-          if(pre < prevpre + prevcnt) {
-            // split the id interval
-            final int split = pre - prevpre;
-            final int fid = fids[prev] + split;
-
-            // add a new next interval
-            add(pos, pre, fid, nids[prev], incs[prev], oids[prev]);
-
-            // shrink the previous interval
-            nids[prev] = fid - 1;
-            incs[prev] -= prevcnt - split;
-
-            oid = oids[prev];
-            inc += incs[prev];
-          } else {
-            oid = pre - incs[prev];
-            inc += incs[prev];
-          }
-        }
-      } else if(pos > 0) {
-        oid = oids[pos];
-        inc += incs[pos - 1];
+      if(pre == id && id == baseid + 1) {
+        baseid += c;
+        return;
       }
-
-      increment(pos, c);
+      init();
     }
 
-    // add the new interval
-    add(pos, pre, id, id + c - 1, inc, oid);
+    final Segment[] split = split(root, pre);
+    final Segment last = last(split[0]);
+    if(last != null && last.fid + last.len == id) {
+      // extend the preceding segment
+      split[0].parent = null;
+      last.len += c;
+      for(Segment s = last; s != null; s = s.parent) s.size += c;
+      root = merge(split[0], split[1]);
+    } else {
+      root = merge(merge(split[0], add(id, c)), split[1]);
+    }
+    root.parent = null;
   }
 
   /**
@@ -177,214 +136,261 @@ public class IdPreMap {
    * @param c number of deleted records (negative)
    */
   public void delete(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id - c == baseid + 1) {
+    if(ids == null) {
       // no mapping and we delete at the end => nothing to do
-      baseid += c;
-      return;
-    }
-
-    if(rows == 0) {
-      // no previous updates: add a new record
-      add(0, pre, INV, INV, c, id);
-      return;
+      if(pre == id && id - c == baseid + 1) {
+        baseid += c;
+        return;
+      }
+      init();
     }
 
-    final int end = pre - c - 1;
-    final int startIndex = findPre(pre);
+    final Segment[] split = split(root, pre), deleted = split(split[1], -c);
+    remove(deleted[0]);
+    root = merge(split[0], deleted[1]);
+    if(root != null) root.parent = null;
+  }
 
-    // remove all updates which has affected records which now have to be deleted
-    final int removeStart = startIndex < rows && pres[startIndex] < pre ?
-         startIndex + 1 : startIndex;
-    int removeEnd = -1;
-    for(int i = startIndex; i < rows; ++i) {
-      if(end < pres[i] + nids[i] - fids[i]) break;
-      removeEnd = i;
-    }
+  /**
+   * Returns the size of the map.
+   * @return number of stored segments
+   */
+  public int size() {
+    return ids == null ? 0 : ids.size();
+  }
 
-    final int inc;
-    final int oid;
-    int endIndex;
-    if(removeEnd >= 0) {
-      inc = incs[removeEnd];
-      oid = oids[removeEnd];
-      endIndex = removeStart;
-      remove(removeStart, removeEnd);
-    } else {
-      inc = startIndex > 0 ? incs[startIndex - 1] : 0;
-      oid = id;
-      endIndex = startIndex;
-    }
+  // PRIVATE METHODS ==============================================================================
 
-    if(rows <= startIndex) {
-      // the delete does not affect previous updates
-      add(startIndex, pre, INV, INV, inc + c, oid);
-      return;
-    }
+  /**
+   * Creates the initial segment, which contains all IDs up to the base ID.
+   */
+  private void init() {
+    ids = new TreeMap<>();
+    if(baseid >= 0) root = add(0, baseid + 1);
+  }
 
-    final int min = pres[startIndex];
-    if(startIndex < endIndex) {
-      if(endIndex < rows && pres[endIndex] <= end) {
-        shrinkFromStart(endIndex, pre, c);
-        shrinkFromEnd(startIndex, pre, inc + c);
+  /**
+   * Converts a map that has been stored in the format of older versions.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  private void convert(final DataInput in) throws IOException {
+    final int rows = in.readNum();
+    final int[] pres = in.readNums(), fids = in.readNums(), nids = in.readNums();
+    final int[] incs = in.readNums();
+    in.readNums();
+    if(rows == 0) return;
+
+    // records between the tuples have original IDs (PRE value minus current increment)
+    ids = new TreeMap<>();
+    int pre = 0, inc = 0;
+    for(int r = 0; r < rows; r++) {
+      if(pres[r] > pre) append(pre - inc, pres[r] - pre);
+      if(fids[r] == -1) {
+        pre = pres[r];
       } else {
-        --endIndex;     // endIndex is not processed, so we let the increment do that
-        shrinkFromEnd(startIndex, pre, inc + c);
+        final int c = nids[r] - fids[r] + 1;
+        append(fids[r], c);
+        pre = pres[r] + c;
       }
-    } else if(min < pre) {
-      add(++endIndex, pres[startIndex], fids[startIndex], nids[startIndex],
-          incs[startIndex], oids[startIndex]);
-      shrinkFromStart(endIndex, pre, c);
-      shrinkFromEnd(startIndex, pre, inc + c);
-    } else if(end < min) {
-      add(endIndex, pre, INV, INV, inc + c, oid);
-    } else {
-      shrinkFromStart(startIndex, pre, c);
+      inc = incs[r];
     }
+    final int fid = pre - inc;
+    if(fid <= baseid) append(fid, baseid - fid + 1);
+  }
 
-    increment(endIndex + 1, c);
+  /**
+   * Appends a segment.
+   * @param fid first ID
+   * @param c number of IDs
+   */
+  private void append(final int fid, final int c) {
+    root = merge(root, add(fid, c));
+    root.parent = null;
   }
 
   /**
-   * Shrinks the given tuple from the start.
-   * @param i index of the tuple
-   * @param pre pre-value
-   * @param c number of deleted records (negative number)
+   * Creates a new segment and adds it to the ID index.
+   * @param fid first ID
+   * @param c number of IDs
+   * @return segment
    */
-  private void shrinkFromStart(final int i, final int pre, final int c) {
-    incs[i] += c;
-    fids[i] += pre - c - pres[i];
-    pres[i] = pre;
+  private Segment add(final int fid, final int c) {
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    final Segment seg = new Segment(fid, c, seed);
+    ids.put(fid, seg);
+    return seg;
   }
 
   /**
-   * Shrinks the given tuple from the end.
-   * @param i index of the tuple
-   * @param pre pre-value
-   * @param inc new inc-value
+   * Removes all segments of the specified subtree from the ID index.
+   * @param seg root of the subtree (can be {@code null})
    */
-  private void shrinkFromEnd(final int i, final int pre, final int inc) {
-    nids[i] = fids[i] + pre - pres[i] - 1;
-    incs[i] = inc;
+  private void remove(final Segment seg) {
+    if(seg == null) return;
+    ids.remove(seg.fid);
+    remove(seg.left);
+    remove(seg.right);
   }
 
   /**
-   * Increments the pre- and inc-values of all tuples starting from the given index.
-   * @param from start index
-   * @param with increment value
+   * Splits a tree into two trees, the first of which contains the specified number of records.
+   * A segment that spans the split position is divided into two segments.
+   * @param seg root of the tree (can be {@code null})
+   * @param pre number of records of the first tree
+   * @return roots of the resulting trees (entries can be {@code null})
    */
-  private void increment(final int from, final int with) {
-    for(int i = from; i < rows; ++i) {
-      pres[i] += with;
-      incs[i] += with;
+  private Segment[] split(final Segment seg, final int pre) {
+    if(seg == null) return new Segment[2];
+
+    final int ls = size(seg.left);
+    if(pre <= ls) {
+      final Segment[] split = split(seg.left, pre);
+      seg.left = split[1];
+      split[1] = seg.update();
+      return split;
     }
+    final int off = pre - ls;
+    if(off >= seg.len) {
+      final Segment[] split = split(seg.right, off - seg.len);
+      seg.right = split[0];
+      split[0] = seg.update();
+      return split;
+    }
+    // divide the segment
+    final Segment next = add(seg.fid + off, seg.len - off), right = seg.right;
+    seg.len = off;
+    seg.right = null;
+    return new Segment[] { seg.update(), merge(next, right) };
   }
 
   /**
-   * Returns the size of the map.
-   * @return number of stored tuples.
+   * Merges two trees.
+   * @param left root of the first tree (can be {@code null})
+   * @param right root of the second tree (can be {@code null})
+   * @return root of the merged tree
    */
-  public int size() {
-    return rows;
+  private static Segment merge(final Segment left, final Segment right) {
+    if(left == null) return right;
+    if(right == null) return left;
+    if(left.prio > right.prio) {
+      left.right = merge(left.right, right);
+      return left.update();
+    }
+    right.left = merge(left, right.left);
+    return right.update();
   }
 
   /**
-   * Searches for a given pre value.
-   * @param pre pre value
-   * @return index of the record where the pre is found, or the insertion point if not found
+   * Returns the last segment of a tree.
+   * @param seg root of the tree (can be {@code null})
+   * @return segment or {@code null}
    */
-  private int findPre(final int pre) {
-    int low = 0;
-    int high = rows - 1;
-    while(low <= high) {
-      final int mid = low + high >>> 1;
-      final int midValMin = pres[mid];
-      final int midValMax = midValMin + nids[mid] - fids[mid];
-      if(midValMax < pre) low = mid + 1;
-      else if(midValMin > pre) high = mid - 1;
-      else return mid; // key found
-    }
-    return low; // key not found.
+  private static Segment last(final Segment seg) {
+    Segment s = seg;
+    while(s != null && s.right != null) s = s.right;
+    return s;
   }
 
   /**
-   * Binary search of a key in a list. If there are several hits the last one is returned.
-   * @param a array to search into
-   * @param e key to search for
-   * @return index of the found hit or where the key ought to be inserted
+   * Returns the number of records of a tree.
+   * @param seg root of the tree (can be {@code null})
+   * @return number of records
    */
-  private int sortedLastIndexOf(final int[] a, final int e) {
-    int i = Arrays.binarySearch(a, 0, rows, e);
-    if(i >= 0) {
-      while(++i < rows && a[i] == e);
-      return i - 1;
-    }
-    return i;
+  private static int size(final Segment seg) {
+    return seg == null ? 0 : seg.size;
   }
 
   /**
-   * Adds a record to the table and the ID index.
-   * @param i index in the table where the record should be inserted
-   * @param pre pre value
-   * @param fid first ID value
-   * @param nid last ID value
-   * @param inc increment value
-   * @param oid original ID value
+   * Writes the segments of a tree in document order.
+   * @param seg root of the tree (can be {@code null})
+   * @param out output stream
+   * @throws IOException I/O exception
    */
-  private void add(final int i, final int pre, final int fid, final int nid,
-      final int inc, final int oid) {
-    if(rows == pres.length) {
-      final int s = Array.newSize(rows);
-      pres = Arrays.copyOf(pres, s);
-      fids = Arrays.copyOf(fids, s);
-      nids = Arrays.copyOf(nids, s);
-      incs = Arrays.copyOf(incs, s);
-      oids = Arrays.copyOf(oids, s);
-    }
-    if(i < rows) {
-      final int destPos = i + 1;
-      final int length = rows - i;
-      System.arraycopy(pres, i, pres, destPos, length);
-      System.arraycopy(fids, i, fids, destPos, length);
-      System.arraycopy(nids, i, nids, destPos, length);
-      System.arraycopy(incs, i, incs, destPos, length);
-      System.arraycopy(oids, i, oids, destPos, length);
-    }
-    pres[i] = pre;
-    fids[i] = fid;
-    nids[i] = nid;
-    incs[i] = inc;
-    oids[i] = oid;
-    ++rows;
+  private static void write(final Segment seg, final DataOutput out) throws IOException {
+    if(seg == null) return;
+    write(seg.left, out);
+    out.writeNum(seg.fid);
+    out.writeNum(seg.len);
+    write(seg.right, out);
   }
 
   /**
-   * Removes a records from the table and the ID index.
-   * @param s start index of records in the table (inclusive)
-   * @param e end index of records in the table (inclusive)
+   * Adds the segments of a tree to a table.
+   * @param seg root of the tree (can be {@code null})
+   * @param table table
    */
-  private void remove(final int s, final int e) {
-    if(s <= e) {
-      final int last = e + 1;
-      final int length = rows - last;
-      System.arraycopy(pres, last, pres, s, length);
-      System.arraycopy(fids, last, fids, s, length);
-      System.arraycopy(nids, last, nids, s, length);
-      System.arraycopy(incs, last, incs, s, length);
-      System.arraycopy(oids, last, oids, s, length);
-      rows -= last - s;
-    }
+  private static void add(final Segment seg, final Table table) {
+    if(seg == null) return;
+    add(seg.left, table);
+    final TokenList tl = new TokenList();
+    tl.add(seg.pre()).add(seg.fid).add(seg.fid + seg.len - 1);
+    table.contents.add(tl);
+    add(seg.right, table);
   }
 
   @Override
   public String toString() {
     final Table t = new Table();
-    t.header.add("PRE").add("FID").add("NID").add("INC").add("OID");
-    for(int i = 0; i < 5; ++i) t.align.add(true);
-    for(int i = 0; i < rows; i++) {
-      final TokenList tl = new TokenList();
-      tl.add(pres[i]).add(fids[i]).add(nids[i]).add(incs[i]).add(oids[i]);
-      t.contents.add(tl);
-    }
+    t.header.add("PRE").add("FID").add("NID");
+    for(int i = 0; i < 3; ++i) t.align.add(true);
+    add(root, t);
     return t + "\n- BaseID: " + baseid + '\n';
   }
+
+  /** Segment with consecutive IDs and PRE values. */
+  private static final class Segment {
+    /** Priority. */
+    private final int prio;
+    /** First ID. */
+    private final int fid;
+    /** Number of IDs. */
+    private int len;
+    /** Number of records in this subtree. */
+    private int size;
+    /** Left child. */
+    private Segment left;
+    /** Right child. */
+    private Segment right;
+    /** Parent. */
+    private Segment parent;
+
+    /**
+     * Constructor.
+     * @param fid first ID
+     * @param len number of IDs
+     * @param prio priority
+     */
+    private Segment(final int fid, final int len, final int prio) {
+      this.fid = fid;
+      this.len = len;
+      this.prio = prio;
+      size = len;
+    }
+
+    /**
+     * Updates the size of this subtree and the parent references of the children.
+     * @return self reference
+     */
+    private Segment update() {
+      size = len + size(left) + size(right);
+      if(left != null) left.parent = this;
+      if(right != null) right.parent = this;
+      return this;
+    }
+
+    /**
+     * Computes the PRE value of the first record of this segment.
+     * @return PRE value
+     */
+    private int pre() {
+      int pre = size(left);
+      for(Segment s = this; s.parent != null; s = s.parent) {
+        if(s == s.parent.right) pre += size(s.parent.left) + s.parent.len;
+      }
+      return pre;
+    }
+  }
 }
@@ -86,7 +86,16 @@ public abstract class IndexBuilder extends Job {
    * @return result of check
    */
   protected final boolean indexEntry() {
-    return data.kind(pre) == (text ? Data.TEXT : Data.ATTR) && includeNames.contains(pre, text);
+    return indexEntry(pre);
+  }
+
+  /**
+   * Checks if the specified entry should be indexed.
+   * @param p pre value
+   * @return result of check
+   */
+  protected final boolean indexEntry(final int p) {
+    return data.kind(p) == (text ? Data.TEXT : Data.ATTR) && includeNames.contains(p, text);
   }
 
   /**
@@ -117,6 +126,20 @@ public abstract class IndexBuilder extends Job {
     return split;
   }
 
+  /**
+   * Decides whether the temporary index structures of one of several threads
+   * must be flushed to disk.
+   * @param ops number of index operations performed by the thread since the last flush
+   * @param threads number of threads
+   * @return true if structures shall be flushed to disk
+   */
+  protected final boolean splitRequired(final long ops, final int threads) {
+    final boolean split = splitSize > 0 ? ops >= Math.max(1, splitSize / threads) :
+      Performance.memory() >= maxMem;
+    if(split && Prop.debug) Util.err("|");
+    return split;
+  }
+
   /**
    * Performs memory cleanup after writing partial memory if necessary.
    */
@@ -159,7 +182,7 @@ public abstract class IndexBuilder extends Job {
   }
 
   @Override
-  public final double progressInfo() {
+  public double progressInfo() {
     return pre / (size + (splits > 0 ? size / 50.0d : 0.0d));
   }
 
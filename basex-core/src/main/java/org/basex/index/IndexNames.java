@@ -19,7 +19,7 @@ import org.basex.util.hash.*;
 public final class IndexNames {
   /** Local names and namespace uris. All names are accepted if the list is empty. */
   private final Atts qnames = new Atts();
-  /** Data reference. */
+  /** Data reference (can be {@code null}). */
   private final Data data;
 
   /**
@@ -28,8 +28,28 @@ public final class IndexNames {
    * @param data data reference
    */
   public IndexNames(final IndexType type, final Data data) {
+    this(type, data.meta, data);
+  }
+
+  /**
+   * Constructor, used while a database is being built.
+   * Only {@link #contains(byte[][])} can be called.
+   * @param type index type
+   * @param meta meta data
+   */
+  public IndexNames(final IndexType type, final MetaData meta) {
+    this(type, meta, null);
+  }
+
+  /**
+   * Constructor.
+   * @param type index type
+   * @param meta meta data
+   * @param data data reference (can be {@code null})
+   */
+  private IndexNames(final IndexType type, final MetaData meta, final Data data) {
     this.data = data;
-    final String names = data.meta.names(type);
+    final String names = meta.names(type);
     final HashSet<String> inc = toSet(names.trim());
     for(final String entry : inc) {
       // global wildcard: ignore all assignments
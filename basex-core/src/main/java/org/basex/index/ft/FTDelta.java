@@ -0,0 +1,330 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class contains the changes of an updatable full-text index that have not been merged
+ * into the index files yet:</p>
+ *
+ * <ul>
+ * <li>The tokens of new text nodes are kept in main memory, along with their {@code id/pos}
+ *   references.</li>
+ * <li>The ids of deleted or updated text nodes are recorded as tombstones. They are used
+ *   to skip obsolete entries of the index files.</li>
+ * </ul>
+ *
+ * <p>The changes are appended to the file {@link DataText#DATAFTX}{@code u}, and the file is
+ * cleared when the changes have been merged into the index files. If the file exists,
+ * the index files contain ids instead of pre values.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class FTDelta {
+  /** Change type: added entry. */
+  private static final int ADD = 0;
+  /** Change type: removed entries. */
+  private static final int REMOVE = 1;
+  /** Change type: obsolete entries in the index files. */
+  private static final int DELETE = 2;
+
+  /** Added tokens and their {@code id/pos} references. */
+  private final TokenObjMap<IntList> added = new TokenObjMap<>();
+  /** Data reference. */
+  private final Data data;
+
+  /** Ids of text nodes whose entries in the index files are obsolete. */
+  private IntSet deleted = new IntSet();
+  /** Indicates if the index files contain ids. */
+  boolean ids;
+  /** Number of changes. */
+  private int size;
+  /** Type, id and position of each change that has not been written yet. */
+  private final IntList changes = new IntList();
+  /** Tokens of the changes that have not been written yet ({@code null} for deleted ids). */
+  private final TokenList tokens = new TokenList();
+  /** Indicates if the file will be cleared before new changes are written. */
+  private boolean clear;
+  /** Access to the file (opened when changes are written for the first time). */
+  private DataAccess access;
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @throws IOException I/O Exception
+   */
+  FTDelta(final Data data) throws IOException {
+    this.data = data;
+    final IOFile io = file();
+    ids = io.exists();
+    if(!ids) return;
+
+    // replay the changes in the order in which they have been written
+    try(DataInput in = new DataInput(io)) {
+      for(int type; (type = in.read()) != -1;) {
+        if(type == DELETE) {
+          delete(in.readNum(), false);
+        } else {
+          final byte[] token = in.readToken();
+          final int id = in.readNum();
+          if(type == ADD) add(token, id, in.readNum(), false);
+          else remove(token, id, false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Prepares the changes of a new index: an obsolete file is deleted, and an empty file is
+   * created if the database has updatable indexes.
+   * @param data data reference
+   * @throws IOException I/O Exception
+   */
+  static void init(final Data data) throws IOException {
+    data.meta.dbfile(DATAFTX + 'u').delete();
+    if(data.meta.updindex) {
+      final FTDelta delta = new FTDelta(data);
+      delta.clear();
+      delta.write();
+      delta.close();
+    }
+  }
+
+  /**
+   * Adds an entry.
+   * @param token token
+   * @param id id of the text node
+   * @param pos position of the token
+   */
+  void add(final byte[] token, final int id, final int pos) {
+    add(token, id, pos, true);
+  }
+
+  /**
+   * Adds an entry.
+   * @param token token
+   * @param id id of the text node
+   * @param pos position of the token
+   * @param change record change
+   */
+  private void add(final byte[] token, final int id, final int pos, final boolean change) {
+    IntList list = added.get(token);
+    if(list == null) {
+      list = new IntList(2);
+      added.put(token, list);
+    }
+    list.add(id).add(pos);
+    size++;
+    if(change) change(ADD, token, id, pos);
+  }
+
+  /**
+   * Removes all entries of a text node from the specified token.
+   * @param token token
+   * @param id id of the text node
+   */
+  void remove(final byte[] token, final int id) {
+    remove(token, id, true);
+  }
+
+  /**
+   * Removes all entries of a text node from the specified token.
+   * @param token token
+   * @param id id of the text node
+   * @param change record change
+   */
+  private void remove(final byte[] token, final int id, final boolean change) {
+    final IntList list = added.get(token);
+    if(list == null) return;
+    final int ls = list.size();
+    int s = 0;
+    for(int l = 0; l < ls; l += 2) {
+      if(list.get(l) == id) continue;
+      list.set(s++, list.get(l));
+      list.set(s++, list.get(l + 1));
+    }
+    list.size(s);
+    size -= ls - s >> 1;
+    if(change && s < ls) change(REMOVE, token, id, 0);
+  }
+
+  /**
+   * Marks the entries of a text node in the index files as obsolete.
+   * @param id id of the text node
+   */
+  void delete(final int id) {
+    delete(id, true);
+  }
+
+  /**
+   * Marks the entries of a text node in the index files as obsolete.
+   * @param id id of the text node
+   * @param change record change
+   */
+  private void delete(final int id, final boolean change) {
+    if(deleted.add(id)) {
+      size++;
+      if(change) change(DELETE, null, id, 0);
+    }
+  }
+
+  /**
+   * Records a change that will be appended to the file.
+   * @param type change type
+   * @param token token ({@code null} for deleted ids)
+   * @param id id of the text node
+   * @param pos position of the token
+   */
+  private void change(final int type, final byte[] token, final int id, final int pos) {
+    changes.add(type).add(id).add(pos);
+    tokens.add(token);
+  }
+
+  /**
+   * Checks if the entries of a text node in the index files are obsolete.
+   * @param id id of the text node
+   * @return result of check
+   */
+  boolean deleted(final int id) {
+    return deleted.contains(id);
+  }
+
+  /**
+   * Adds the pre values and positions of all entries of a token to the specified lists.
+   * @param token token
+   * @param pres pre values
+   * @param poss positions
+   */
+  void pres(final byte[] token, final IntList pres, final IntList poss) {
+    final IntList list = added.get(token);
+    if(list == null) return;
+    final int ls = list.size();
+    for(int l = 0; l < ls; l += 2) {
+      pres.add(data.pre(list.get(l)));
+      poss.add(list.get(l + 1));
+    }
+  }
+
+  /**
+   * Adds the {@code id/pos} references of all entries of a token to the specified list.
+   * @param token token
+   * @param ids references
+   */
+  void ids(final byte[] token, final IntList ids) {
+    final IntList list = added.get(token);
+    if(list != null) ids.add(list.toArray());
+  }
+
+  /**
+   * Returns the number of added entries for a token.
+   * @param token token
+   * @return number of entries
+   */
+  int count(final byte[] token) {
+    final IntList list = added.get(token);
+    return list == null ? 0 : list.size() >> 1;
+  }
+
+  /**
+   * Returns all tokens with added entries.
+   * @return tokens
+   */
+  TokenList tokens() {
+    final TokenList tokens = new TokenList();
+    for(final byte[] token : added) {
+      if(count(token) != 0) tokens.add(token);
+    }
+    return tokens;
+  }
+
+  /**
+   * Returns the number of changes.
+   * @return number of changes
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Checks if changes exist.
+   * @return result of check
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Discards all changes after they have been merged into the index files.
+   */
+  void clear() {
+    added.clear();
+    deleted = new IntSet();
+    size = 0;
+    ids = true;
+    changes.reset();
+    tokens.reset();
+    clear = true;
+  }
+
+  /**
+   * Appends the new changes to the file. The file will be cleared first if all changes have
+   * been discarded.
+   * @throws IOException I/O Exception
+   */
+  void write() throws IOException {
+    if(clear) {
+      close();
+      WriteLog.output(file(), data.meta.log).close();
+      clear = false;
+    }
+    if(changes.isEmpty()) return;
+
+    final ArrayOutput ao = new ArrayOutput();
+    try(DataOutput out = new DataOutput(ao)) {
+      final int cs = changes.size();
+      for(int c = 0; c < cs; c += 3) {
+        final int type = changes.get(c);
+        out.write(type);
+        if(type != DELETE) out.writeToken(tokens.get(c / 3));
+        out.writeNum(changes.get(c + 1));
+        if(type == ADD) out.writeNum(changes.get(c + 2));
+      }
+    }
+    if(access == null) access = new DataAccess(file(), false, data.meta.log);
+    access.cursor(access.length());
+    access.writeBytes(ao.buffer(), 0, (int) ao.size());
+    access.flush();
+    changes.reset();
+    tokens.reset();
+  }
+
+  /**
+   * Closes the file.
+   */
+  void close() {
+    if(access != null) {
+      access.close();
+      access = null;
+    }
+  }
+
+  /**
+   * Returns the file that contains the changes.
+   * @return file
+   */
+  private IOFile file() {
+    return data.meta.dbfile(DATAFTX + 'u');
+  }
+}
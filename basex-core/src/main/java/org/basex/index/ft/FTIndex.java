@@ -6,6 +6,7 @@ import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -13,6 +14,8 @@ import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
 import org.basex.index.value.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.query.expr.ft.*;
 import org.basex.query.util.*;
@@ -47,30 +50,41 @@ import org.basex.util.similarity.*;
  *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
  * </ul>
  *
+ * <p>If the database has updatable indexes ({@link MainOptions#UPDINDEX}), the files contain ids
+ * instead of pre values, and updates are recorded in a {@link FTDelta delta}. The delta is
+ * consulted by all queries, and it is merged into the index files if it gets too large, or if
+ * the database is optimized. Index files of older versions contain pre values; they are
+ * converted before the database is updated for the first time (see {@link #prepare()}).</p>
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 public final class FTIndex extends ValueIndex {
   /** Entry size. */
   private static final int ENTRY = 9;
+  /** Minimum number of changes that triggers a merge of the delta. */
+  private static final int MERGE = 1 << 16;
 
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  private final IntObjMap<byte[]> ctext = new IntObjMap<>();
   /** Levenshtein reference. */
   private final Levenshtein ls = new Levenshtein();
+  /** Changes of an updatable index ({@code null} if the index is not updatable). */
+  private final FTDelta delta;
 
+  /** Cached texts. Increases used memory, but speeds up repeated queries. */
+  private IntObjMap<byte[]> ctext;
   /** Index storing each unique token length and pointer
    * on the first token with this length. */
-  private final DataAccess inX;
+  private DataAccess inX;
   /** Index storing each token, its data size and pointer on the data. */
-  private final DataAccess inY;
+  private DataAccess inY;
   /** Storing pre and pos values for each token. */
-  private final DataAccess inZ;
-
+  private DataAccess inZ;
   /** Cache for number of hits and data reference per token. */
-  private final IndexCache cache = new IndexCache();
+  private IndexCache cache;
   /** Token positions. */
-  private final int[] tp;
+  private int[] tp;
+  /** Lexer for tokenizing updated texts (created on demand). */
+  private FTLexer lexer;
 
   /**
    * Constructor, initializing the index structure.
@@ -79,6 +93,17 @@ public final class FTIndex extends ValueIndex {
    */
   public FTIndex(final Data data) throws IOException {
     super(data, IndexType.FULLTEXT);
+    delta = data.meta.updindex ? new FTDelta(data) : null;
+    open();
+  }
+
+  /**
+   * Opens the index files.
+   * @throws IOException I/O Exception
+   */
+  private void open() throws IOException {
+    ctext = new IntObjMap<>();
+    cache = new IndexCache();
     // cache token length index
     inY = new DataAccess(data.meta.dbfile(DATAFTX + 'y'));
     inZ = new DataAccess(data.meta.dbfile(DATAFTX + 'z'));
@@ -101,7 +126,7 @@ public final class FTIndex extends ValueIndex {
     // estimate costs for queries which stretch over multiple index entries
     final FTOpt opt = ((FTLexer) it).ftOpt();
     return IndexCosts.get(opt.is(FZ) || opt.is(WC) ? Math.max(1, data.meta.size >> 4) :
-      entry(tok).size);
+      entry(tok).size + (delta != null ? delta.count(tok) : 0));
   }
 
   @Override
@@ -118,7 +143,10 @@ public final class FTIndex extends ValueIndex {
 
     // return cached or new result
     final IndexEntry e = entry(tok);
-    return e.size > 0 ? iter(e.offset, e.size, inZ, tok) : FTIndexIterator.FTEMPTY;
+    final IntList pr = new IntList(), ps = new IntList();
+    if(e.size > 0) read(e.offset, e.size, pr, ps);
+    if(delta != null) delta.pres(tok, pr, ps);
+    return pr.isEmpty() ? FTIndexIterator.FTEMPTY : iter(new FTCache(pr, ps), tok);
   }
 
   /**
@@ -136,8 +164,46 @@ public final class FTIndex extends ValueIndex {
   }
 
   @Override
-  public EntryIterator entries(final IndexEntries entries) {
+  public synchronized EntryIterator entries(final IndexEntries entries) {
     final byte[] prefix = entries.get();
+    final EntryIterator ei = entries(prefix);
+    if(delta == null || delta.isEmpty()) return ei;
+
+    // merge tokens of the index files and the delta, compute the number of valid entries
+    final TokenList tokens = new TokenList();
+    for(byte[] token; (token = ei.next()) != null;) tokens.add(token);
+    for(final byte[] token : delta.tokens()) {
+      if(startsWith(token, prefix) && token(token) == -1) tokens.add(token);
+    }
+    final byte[][] sorted = sort(tokens);
+    final IntList counts = new IntList(sorted.length);
+    tokens.reset();
+    for(final byte[] token : sorted) {
+      final int c = count(token);
+      if(c == 0) continue;
+      tokens.add(token);
+      counts.add(c);
+    }
+    return new EntryIterator() {
+      int t = -1;
+
+      @Override
+      public byte[] next() {
+        return ++t < tokens.size() ? tokens.get(t) : null;
+      }
+      @Override
+      public int count() {
+        return counts.get(t);
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator for all tokens of the index files that start with the specified prefix.
+   * @param prefix prefix
+   * @return iterator
+   */
+  private EntryIterator entries(final byte[] prefix) {
     return new EntryIterator() {
       int ti = prefix.length - 1, i, e, nr;
       boolean inner;
@@ -214,7 +280,15 @@ public final class FTIndex extends ValueIndex {
     tb.add(LI_SIZE + Performance.format(l) + NL);
 
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
-    addOccs(stats);
+    if(delta == null || delta.isEmpty()) {
+      addOccs(stats);
+    } else {
+      final EntryIterator ei = entries(new IndexEntries(EMPTY, IndexType.FULLTEXT));
+      for(byte[] token; (token = ei.next()) != null;) {
+        final int oc = ei.count();
+        if(stats.adding(oc)) stats.add(token, oc);
+      }
+    }
     stats.print(tb);
     return tb.finish();
   }
@@ -226,22 +300,34 @@ public final class FTIndex extends ValueIndex {
 
   @Override
   public synchronized void close() {
+    if(delta != null) {
+      try {
+        delta.write();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      delta.close();
+    }
     inX.close();
     inY.close();
     inZ.close();
   }
 
   @Override
-  public int size() {
+  public synchronized int size() {
+    int size = 0;
     final int tl = tp.length;
-    int size = 0, t = tl - 1;
-    while(true) {
+    for(int t = tl - 1; t > 0;) {
       final int e = t;
-      while(tp[--t] == -1) {
-        if(t == 0) return size;
+      while(--t > 0 && tp[t] == -1);
+      if(tp[t] != -1) size += (tp[e] - tp[t]) / (t + ENTRY);
+    }
+    if(delta != null) {
+      for(final byte[] token : delta.tokens()) {
+        if(token(token) == -1) size++;
       }
-      size += (tp[e] - tp[t]) / (t + ENTRY);
     }
+    return size;
   }
 
   /**
@@ -336,11 +422,20 @@ public final class FTIndex extends ValueIndex {
       while(t < tl && r == -1) r = tp[t++];
       while(p < r) {
         if(ls.similar(inY.readBytes(p, s), token, k)) {
-          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), inZ, token), it);
+          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), token), it);
         }
         p += s + ENTRY;
       }
     }
+    if(delta != null) {
+      for(final byte[] tok : delta.tokens()) {
+        if(tok.length >= tokl - k && tok.length <= e && ls.similar(tok, token, k)) {
+          final IntList pr = new IntList(), ps = new IntList();
+          delta.pres(tok, pr, ps);
+          it = FTIndexIterator.union(iter(new FTCache(pr, ps), token), it);
+        }
+      }
+    }
     return it;
   }
 
@@ -370,17 +465,15 @@ public final class FTIndex extends ValueIndex {
       while(i < e) {
         final byte[] t = inY.readBytes(i, ti);
         if(!startsWith(t, pref)) break;
-        if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
-          }
-        }
+        if(wc.match(t)) read(pointer(i, ti), size(i, ti), pr, ps);
         i += ti + ENTRY;
       }
     }
+    if(delta != null) {
+      for(final byte[] t : delta.tokens()) {
+        if(t.length <= l && wc.match(t)) delta.pres(t, pr, ps);
+      }
+    }
     return iter(new FTCache(pr, ps), token);
   }
 
@@ -388,19 +481,65 @@ public final class FTIndex extends ValueIndex {
    * Returns an iterator for an index entry.
    * @param off offset on entries
    * @param size number of id/pos entries
-   * @param da data source
    * @param token index token
    * @return iterator
    */
-  private static FTIndexIterator iter(final long off, final int size, final DataAccess da,
-      final byte[] token) {
-    da.cursor(off);
+  private FTIndexIterator iter(final long off, final int size, final byte[] token) {
     final IntList pr = new IntList(size), ps = new IntList(size);
+    read(off, size, pr, ps);
+    return iter(new FTCache(pr, ps), token);
+  }
+
+  /**
+   * Reads the entries of a token from the index files and adds the pre values and positions.
+   * Entries of an updatable index are skipped if they have been deleted.
+   * @param off offset on entries
+   * @param size number of id/pos entries
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void read(final long off, final int size, final IntList pr, final IntList ps) {
+    inZ.cursor(off);
     for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+      final int id = inZ.readNum(), pos = inZ.readNum();
+      if(delta == null || !delta.ids) {
+        pr.add(id);
+        ps.add(pos);
+      } else if(!delta.deleted(id)) {
+        pr.add(data.pre(id));
+        ps.add(pos);
+      }
     }
-    return iter(new FTCache(pr, ps), token);
+  }
+
+  /**
+   * Returns the number of valid entries of a token.
+   * @param token token
+   * @return number of entries
+   */
+  private int count(final byte[] token) {
+    final IndexEntry e = entry(token);
+    int c = 0;
+    if(e.size > 0) {
+      inZ.cursor(e.offset);
+      for(int s = 0; s < e.size; s++) {
+        if(!delta.deleted(inZ.readNum())) c++;
+        inZ.readNum();
+      }
+    }
+    return c + delta.count(token);
+  }
+
+  /**
+   * Sorts tokens by their length and in lexicographical order (as in the index files).
+   * @param tokens tokens
+   * @return sorted tokens
+   */
+  private static byte[][] sort(final TokenList tokens) {
+    final byte[][] sorted = tokens.toArray();
+    Arrays.sort(sorted, (t1, t2) -> t1.length != t2.length ? t1.length - t2.length :
+      diff(t1, t2));
+    return sorted;
   }
 
   /**
@@ -482,15 +621,168 @@ public final class FTIndex extends ValueIndex {
   }
 
   @Override
-  public void add(final ValueCache vc) {
-    throw Util.notExpected();
+  public synchronized void add(final ValueCache vc) {
+    final TokenList tokens = new TokenList();
+    final IntList poss = new IntList();
+    for(final byte[] text : vc) {
+      tokenize(text, tokens, poss);
+      final int ts = tokens.size();
+      for(final int id : vc.ids(text).toArray()) {
+        for(int t = 0; t < ts; t++) delta.add(tokens.get(t), id, poss.get(t));
+      }
+    }
   }
 
   @Override
-  public void delete(final ValueCache vc) {
-    throw Util.notExpected();
+  public synchronized void delete(final ValueCache vc) {
+    final TokenList tokens = new TokenList();
+    final IntList poss = new IntList();
+    for(final byte[] text : vc) {
+      tokenize(text, tokens, poss);
+      for(final int id : vc.ids(text).toArray()) {
+        for(final byte[] token : tokens) delta.remove(token, id);
+        delta.delete(id);
+      }
+    }
   }
 
   @Override
-  public void flush() { }
+  public synchronized void flush() {
+    if(delta == null) return;
+    try {
+      if(delta.size() > Math.max(MERGE, inZ.length() >> 3)) merge();
+      else delta.write();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
+  /**
+   * Tokenizes a text in the same way as the {@link FTBuilder}.
+   * @param text text
+   * @param tokens list for the indexed tokens
+   * @param poss list for the positions of the tokens
+   */
+  private void tokenize(final byte[] text, final TokenList tokens, final IntList poss) {
+    if(delta == null || !delta.ids) throw Util.notExpected();
+    if(lexer == null) {
+      try {
+        lexer = FTBuilder.lexer(data);
+      } catch(final IOException ex) {
+        throw Util.notExpected(ex);
+      }
+    }
+    tokens.reset();
+    poss.reset();
+    final StopWords sw = lexer.ftOpt().sw;
+    lexer.init(text);
+    for(int pos = 0; lexer.hasNext(); pos++) {
+      final byte[] tok = lexer.nextToken();
+      if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+        tokens.add(tok);
+        poss.add(pos);
+      }
+    }
+  }
+
+  /**
+   * Prepares an updatable index for updates. The pre values in the index files of older
+   * versions are replaced with ids. Must be called before the database is updated.
+   * @throws IOException I/O exception
+   */
+  public synchronized void prepare() throws IOException {
+    if(delta != null && !delta.ids) merge();
+  }
+
+  /**
+   * Merges the changes of an updatable index into the index files.
+   * @throws IOException I/O exception
+   */
+  public synchronized void merge() throws IOException {
+    if(delta == null || delta.ids && delta.isEmpty()) return;
+
+    // collect tokens of the index files and new tokens in the order of the index files
+    final TokenList tokens = new TokenList();
+    final LongList offsets = new LongList();
+    final IntList sizes = new IntList();
+    final byte[][] added = sort(delta.tokens());
+    final int as = added.length, tl = tp.length;
+    int a = 0;
+    for(int l = 1; l < tl - 1; l++) {
+      int p = tp[l];
+      if(p == -1) continue;
+      int e = -1;
+      for(int c = l + 1; e == -1; c++) e = tp[c];
+      for(; p < e; p += l + ENTRY) {
+        final byte[] token = inY.readBytes(p, l);
+        while(a < as && (added[a].length < l || added[a].length == l &&
+            diff(added[a], token) < 0)) {
+          tokens.add(added[a++]);
+          offsets.add(-1);
+          sizes.add(0);
+        }
+        if(a < as && eq(added[a], token)) a++;
+        tokens.add(token);
+        offsets.add(pointer(p, l));
+        sizes.add(size(p, l));
+      }
+    }
+    while(a < as) {
+      tokens.add(added[a++]);
+      offsets.add(-1);
+      sizes.add(0);
+    }
+
+    // write new index files
+    final String name = DATAFTX + 'm';
+    try(DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
+        DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
+        DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
+
+      final IntList ind = new IntList(), ids = new IntList();
+      final int ts = tokens.size();
+      for(int t = 0; t < ts; t++) {
+        final byte[] token = tokens.get(t);
+        ids.reset();
+        final long off = offsets.get(t);
+        if(off != -1) {
+          inZ.cursor(off);
+          for(int s = sizes.get(t); --s >= 0;) {
+            final int id = inZ.readNum(), pos = inZ.readNum();
+            // convert pre values of older versions to ids
+            if(!delta.ids) ids.add(data.id(id)).add(pos);
+            else if(!delta.deleted(id)) ids.add(id).add(pos);
+          }
+        }
+        delta.ids(token, ids);
+        if(ids.isEmpty()) continue;
+
+        if(ind.isEmpty() || ind.get(ind.size() - 2) < token.length) {
+          ind.add(token.length);
+          ind.add((int) outY.size());
+        }
+        outY.writeBytes(token);
+        outY.write5(outZ.size());
+        outY.write4(ids.size() >> 1);
+        for(final int id : ids.toArray()) outZ.writeNum(id);
+      }
+      FTBuilder.writeInd(outX, ind, ind.isEmpty() ? 1 : ind.get(ind.size() - 2) + 1,
+          (int) outY.size());
+    }
+
+    // replace index files
+    inX.close();
+    inY.close();
+    inZ.close();
+    for(final char c : new char[] { 'x', 'y', 'z' }) {
+      final IOFile file = data.meta.dbfile(DATAFTX + c);
+      file.delete();
+      if(!data.meta.dbfile(name + c).rename(file)) {
+        throw new BaseXException(FILE_NOT_RENAMED_X, file);
+      }
+    }
+    open();
+    delta.clear();
+    delta.write();
+  }
 }
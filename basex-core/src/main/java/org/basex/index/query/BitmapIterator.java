@@ -0,0 +1,59 @@
+package org.basex.index.query;
+
+import org.basex.util.*;
+
+/**
+ * Iterator for returning index results that are stored in a {@link Bitmap}.
+ * The pre values are returned in ascending order and without duplicates.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BitmapIterator implements IndexIterator {
+  /** Bitmap with pre values. */
+  private final Bitmap bitmap;
+  /** Pre values (lazily materialized). */
+  private int[] pres;
+  /** Current position. */
+  private int p = -1;
+
+  /**
+   * Constructor.
+   * @param bitmap bitmap with pre values
+   */
+  public BitmapIterator(final Bitmap bitmap) {
+    this.bitmap = bitmap;
+  }
+
+  /**
+   * Returns the pre values of the specified index iterator as bitmap.
+   * If the iterator is based on a bitmap, and if it has not been consumed yet,
+   * no values need to be copied.
+   * @param iter index iterator
+   * @return bitmap
+   */
+  public static Bitmap get(final IndexIterator iter) {
+    if(iter instanceof BitmapIterator && ((BitmapIterator) iter).p == -1)
+      return ((BitmapIterator) iter).bitmap;
+
+    final Bitmap bitmap = new Bitmap();
+    while(iter.more()) bitmap.add(iter.pre());
+    return bitmap;
+  }
+
+  @Override
+  public boolean more() {
+    if(pres == null) pres = bitmap.toArray();
+    return ++p < pres.length;
+  }
+
+  @Override
+  public int pre() {
+    return pres[p];
+  }
+
+  @Override
+  public int size() {
+    return pres != null ? pres.length : bitmap.cardinality();
+  }
+}
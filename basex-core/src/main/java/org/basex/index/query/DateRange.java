@@ -0,0 +1,60 @@
+package org.basex.index.query;
+
+import org.basex.index.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * This class stores a range of dates or dateTimes for typed index access
+ * (see {@link org.basex.core.MainOptions#TYPEDINDEX}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class DateRange implements IndexToken {
+  /** Index type. */
+  private final IndexType type;
+  /** Minimum value ({@code null}: no lower limit). */
+  public final ADate min;
+  /** Include minimum value. */
+  public final boolean mni;
+  /** Maximum value ({@code null}: no upper limit). */
+  public final ADate max;
+  /** Include maximum value. */
+  public final boolean mxi;
+
+  /**
+   * Constructor.
+   * @param type index type
+   * @param min minimum value (can be {@code null})
+   * @param mni include minimum value
+   * @param max maximum value (can be {@code null})
+   * @param mxi include maximum value
+   */
+  public DateRange(final IndexType type, final ADate min, final boolean mni, final ADate max,
+      final boolean mxi) {
+    this.type = type;
+    this.min = min;
+    this.mni = mni;
+    this.max = max;
+    this.mxi = mxi;
+  }
+
+  /**
+   * Indicates if the range consists of dates (and not dateTimes).
+   * @return result of check
+   */
+  public boolean date() {
+    return (min != null ? min : max) instanceof Dat;
+  }
+
+  @Override
+  public IndexType type() {
+    return type;
+  }
+
+  @Override
+  public byte[] get() {
+    return Token.EMPTY;
+  }
+}
@@ -14,8 +14,12 @@ public final class NumericRange implements IndexToken {
   private final IndexType type;
   /** Minimum value. */
   public final double min;
+  /** Include minimum value. */
+  public final boolean mni;
   /** Maximum value. */
   public final double max;
+  /** Include maximum value. */
+  public final boolean mxi;
 
   /**
    * Constructor.
@@ -24,9 +28,24 @@ public final class NumericRange implements IndexToken {
    * @param max maximum value
    */
   public NumericRange(final IndexType type, final double min, final double max) {
+    this(type, min, true, max, true);
+  }
+
+  /**
+   * Constructor.
+   * @param type index type
+   * @param min minimum value
+   * @param mni include minimum value
+   * @param max maximum value
+   * @param mxi include maximum value
+   */
+  public NumericRange(final IndexType type, final double min, final boolean mni,
+      final double max, final boolean mxi) {
     this.type = type;
     this.min = min;
+    this.mni = mni;
     this.max = max;
+    this.mxi = mxi;
   }
 
   @Override
@@ -0,0 +1,104 @@
+package org.basex.index.resource;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * <p>This class deduplicates the binary files of a database
+ * (see {@link org.basex.core.MainOptions#DEDUPLICATE}).</p>
+ *
+ * <p>The contents of binary files are stored in a content-addressed directory. The name of each
+ * blob is the SHA-256 hash of its contents, and the first two characters of the hash are used as
+ * subdirectory. Binary files with the same contents are hard links to the same blob. As a result,
+ * identical files are only stored once, and they share a single inode. Blobs that are not
+ * referenced anymore are deleted by {@link #clean(IOFile)}.</p>
+ *
+ * <p>Files must never be overwritten in place, as this would change the contents of all
+ * linked files: existing files need to be deleted before new contents are written.
+ * If the file system does not support hard links, files remain unchanged.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BlobStore {
+  /** Private constructor. */
+  private BlobStore() { }
+
+  /**
+   * Links the specified binary file to a blob with the same contents.
+   * If no such blob exists, the file is added to the store.
+   * @param file binary file
+   * @param blobs blob directory
+   * @throws IOException I/O exception
+   */
+  public static void link(final IOFile file, final IOFile blobs) throws IOException {
+    final String hash = hash(file);
+    final IOFile dir = new IOFile(blobs, hash.substring(0, 2)), blob = new IOFile(dir, hash);
+    final Path source = file.file().toPath(), target = blob.file().toPath();
+    try {
+      if(!blob.exists()) {
+        // add file to the store
+        dir.md();
+        Files.createLink(target, source);
+      } else if(blob.length() == file.length() && !Files.isSameFile(source, target)) {
+        // replace file with a link to the existing blob
+        final Path link = new IOFile(dir, hash + ".link").file().toPath();
+        Files.deleteIfExists(link);
+        Files.createLink(link, target);
+        Files.move(link, source, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      }
+    } catch(final UnsupportedOperationException | FileSystemException ex) {
+      // links are not supported: keep file
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Deletes all blobs that are not referenced by binary files anymore.
+   * @param blobs blob directory
+   * @return number of deleted blobs
+   * @throws IOException I/O exception
+   */
+  public static int clean(final IOFile blobs) throws IOException {
+    int c = 0;
+    if(!blobs.exists()) return c;
+    try {
+      for(final IOFile dir : blobs.children()) {
+        for(final IOFile blob : dir.children()) {
+          final Object links = Files.getAttribute(blob.file().toPath(), "unix:nlink");
+          if(links instanceof Integer && (Integer) links < 2 && blob.delete()) c++;
+        }
+        if(dir.children().length == 0) dir.delete();
+      }
+    } catch(final UnsupportedOperationException | IllegalArgumentException ex) {
+      // number of links cannot be determined
+      Util.debug(ex);
+    }
+    return c;
+  }
+
+  /**
+   * Computes the hash of the specified file.
+   * @param file file
+   * @return hash
+   * @throws IOException I/O exception
+   */
+  private static String hash(final IOFile file) throws IOException {
+    final MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch(final NoSuchAlgorithmException ex) {
+      throw Util.notExpected(ex);
+    }
+    try(InputStream in = file.inputStream()) {
+      final byte[] buffer = new byte[IO.BLOCKSIZE];
+      for(int l; (l = in.read(buffer)) != -1;) md.update(buffer, 0, l);
+    }
+    return Token.string(Token.hex(md.digest(), false));
+  }
+}
@@ -8,6 +8,9 @@ import java.io.*;
 import org.basex.data.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
 import org.basex.util.hash.*;
 
 /**
@@ -28,6 +31,13 @@ public final class Stats {
   /** Data type. */
   public byte type;
 
+  /** Flag for values that can be cast to dates. */
+  private static final int DATE = 1;
+  /** Flag for values that can be cast to dateTimes. */
+  private static final int DATETIME = 2;
+
+  /** Date types to which all values can be cast (only computed for typed index structures). */
+  private int dates;
   /** Leaf node flag. Indicates if all nodes only have a text node as child. */
   private boolean leaf;
 
@@ -40,6 +50,7 @@ public final class Stats {
     min = Double.MAX_VALUE;
     max = Double.MIN_VALUE;
     leaf = true;
+    dates = DATE | DATETIME;
   }
 
   /**
@@ -61,7 +72,7 @@ public final class Stats {
     }
     count = in.readNum();
     leaf = in.readBool();
-    in.readDouble();
+    dates = (int) in.readDouble();
   }
 
   /**
@@ -91,8 +102,8 @@ public final class Stats {
 
     out.writeNum(count);
     out.writeBool(leaf);
-    // legacy (required before version 7.1)
-    out.writeDouble(0);
+    // legacy (required before version 7.1), now used for castable date types
+    out.writeDouble(dates);
   }
 
   /**
@@ -135,6 +146,9 @@ public final class Stats {
     }
     type = t;
 
+    // check if all values can be cast to dates or dateTimes
+    if(dates != 0) dates = meta.typedindex ? dates & dates(value) : 0;
+
     // save distinct values
     if(values != null) {
       if(vl > meta.maxlen || vl > 0 && ws(value)) {
@@ -148,6 +162,15 @@ public final class Stats {
     }
   }
 
+  /**
+   * Indicates if all values can be cast to dates or dateTimes.
+   * @param time dateTime or date
+   * @return result of check
+   */
+  public boolean dates(final boolean time) {
+    return (dates & (time ? DATETIME : DATE)) != 0;
+  }
+
   /**
    * Getter for leaf flag.
    * @return leaf flag
@@ -164,6 +187,28 @@ public final class Stats {
     leaf = l;
   }
 
+  /**
+   * Returns the date types to which the specified value can be cast.
+   * @param value value
+   * @return date types
+   */
+  private static int dates(final byte[] value) {
+    final byte[] v = trim(value);
+    final int vl = v.length;
+    if(vl < 10 || !contains(v, '-')) return 0;
+    try {
+      if(contains(v, 'T')) {
+        new Dtm(v, null);
+        return DATETIME;
+      }
+      new Dat(v, null);
+      return DATE;
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return 0;
+    }
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder(count + "x");
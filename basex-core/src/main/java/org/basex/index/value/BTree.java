@@ -0,0 +1,624 @@
+package org.basex.index.value;
+
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class stores the keys of a value index in a B+-tree. For each key, the size and the
+ * offset of its id list are stored (see {@link BTreeValues}).</p>
+ *
+ * <p>The first 5 bytes of the tree file contain the offset of the root node. All nodes start with
+ * a header, which consists of the reserved capacity (4 bytes), the leaf flag (1 byte) and the
+ * offsets of the previous and next leaf (5 bytes each; {@code 0} if there is no such leaf).
+ * It is followed by the number of keys ({@link Num} format) and the node entries:</p>
+ * <ul>
+ * <li>Leaf nodes contain the keys in ascending order, the sizes of the id lists, and their
+ *   5-byte offsets.</li>
+ * <li>Inner nodes contain the 5-byte offset of the first child node, followed by separator
+ *   keys and the offsets of the remaining child nodes. A child node contains all keys that
+ *   are larger than or equal to the preceding separator key, and smaller than the
+ *   following one.</li>
+ * </ul>
+ *
+ * <p>The leaves are linked in both directions. Ranges of keys can thus be traversed in ascending
+ * and descending order without accessing the inner nodes again. Nodes that exceed the page size
+ * are split; keys that are larger than a page are stored in nodes with a larger capacity.
+ * Leaves that become empty are kept until the index is rebuilt.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class BTree {
+  /** Page size (default capacity of a node). */
+  private static final int PAGE = IO.BLOCKSIZE;
+  /** Fill size of nodes that are created in bulk (leaves space for new entries). */
+  private static final int FILL = PAGE - (PAGE >>> 3);
+  /** Size of the node header. */
+  private static final int HEADER = 15;
+
+  /** Tree file. */
+  private final DataAccess da;
+  /** Free slots. */
+  private final FreeSlots free = new FreeSlots();
+  /** Offset of the root node. */
+  private long root;
+
+  /**
+   * Constructor, opening an existing tree.
+   * @param file tree file
+   * @param log write-ahead log (can be {@code null})
+   * @throws IOException I/O exception
+   */
+  BTree(final IOFile file, final WriteLog log) throws IOException {
+    da = new DataAccess(file, false, log);
+    root = da.read5(0);
+  }
+
+  /**
+   * Returns the size and the offset of the id list of the specified key.
+   * @param key key
+   * @return index entry, or {@code null} if the key does not exist
+   */
+  synchronized IndexEntry get(final byte[] key) {
+    final Node leaf = leaf(key, null);
+    final int i = leaf.index(key);
+    return i < 0 ? null : new IndexEntry(key, leaf.sizes.get(i), leaf.offsets.get(i));
+  }
+
+  /**
+   * Adds a key or updates the size and the offset of its id list.
+   * @param key key
+   * @param size size of the id list
+   * @param offset offset of the id list
+   */
+  synchronized void put(final byte[] key, final int size, final long offset) {
+    final ArrayList<Node> path = new ArrayList<>();
+    final Node leaf = leaf(key, path);
+    final int i = leaf.index(key);
+    if(i >= 0) {
+      leaf.sizes.set(i, size);
+      leaf.offsets.set(i, offset);
+    } else {
+      final int p = -i - 1;
+      leaf.keys.insert(p, key);
+      leaf.sizes.insert(p, size);
+      leaf.offsets.insert(p, offset);
+    }
+    store(leaf, path);
+  }
+
+  /**
+   * Deletes a key.
+   * @param key key
+   */
+  synchronized void delete(final byte[] key) {
+    final Node leaf = leaf(key, null);
+    final int i = leaf.index(key);
+    if(i < 0) return;
+    leaf.keys.remove(i);
+    leaf.sizes.remove(i);
+    leaf.offsets.remove(i);
+    write(leaf);
+  }
+
+  /**
+   * Returns a cursor for traversing the keys in ascending order, starting with the first key
+   * that is larger than or equal to the specified key.
+   * @param key key to start with (the empty token returns all keys)
+   * @return cursor
+   */
+  Cursor ascending(final byte[] key) {
+    synchronized(this) {
+      final Node leaf = leaf(key, null);
+      final int i = leaf.index(key);
+      return new Cursor(leaf, (i < 0 ? -i - 1 : i) - 1, true);
+    }
+  }
+
+  /**
+   * Returns a cursor for traversing the keys in descending order, starting with the last key
+   * that is smaller than the specified key.
+   * @param key key to start with ({@code null} returns all keys)
+   * @return cursor
+   */
+  Cursor descending(final byte[] key) {
+    synchronized(this) {
+      Node node = read(root);
+      if(key != null) {
+        node = leaf(key, null);
+        final int i = node.index(key);
+        return new Cursor(node, i < 0 ? -i - 1 : i, false);
+      }
+      while(!node.leaf) node = read(node.offsets.get(node.offsets.size() - 1));
+      return new Cursor(node, node.keys.size(), false);
+    }
+  }
+
+  /**
+   * Returns the size of the tree file.
+   * @return size
+   */
+  long length() {
+    return da.length();
+  }
+
+  /**
+   * Flushes the buffered data.
+   */
+  void flush() {
+    da.flush();
+  }
+
+  /**
+   * Closes the tree file.
+   */
+  void close() {
+    da.close();
+  }
+
+  /**
+   * Returns the leaf that may contain the specified key.
+   * @param key key
+   * @param path list for the inner nodes on the path to the leaf (can be {@code null})
+   * @return leaf
+   */
+  private Node leaf(final byte[] key, final ArrayList<Node> path) {
+    Node node = read(root);
+    while(!node.leaf) {
+      if(path != null) path.add(node);
+      node = read(node.offsets.get(node.child(key)));
+    }
+    return node;
+  }
+
+  /**
+   * Stores a modified node. If the node exceeds its capacity, it is split or relocated.
+   * @param node node
+   * @param path inner nodes on the path to the node
+   */
+  private void store(final Node node, final ArrayList<Node> path) {
+    if(node.length() <= node.capacity) {
+      write(node);
+    } else if(node.keys.size() > (node.leaf ? 1 : 0)) {
+      split(node, path);
+    } else {
+      relocate(node, path);
+    }
+  }
+
+  /**
+   * Splits a node and adds a separator key to its parent node.
+   * @param node node
+   * @param path inner nodes on the path to the node
+   */
+  private void split(final Node node, final ArrayList<Node> path) {
+    // choose split position: distribute bytes evenly
+    final int ks = node.keys.size(), half = node.length() >>> 1;
+    int m = 0;
+    for(int l = HEADER; m < ks - 1; m++) {
+      l += node.entryLength(m);
+      if(l >= half) break;
+    }
+    if(node.leaf) m = Math.max(1, m);
+
+    // move second half of the entries to a new node
+    final Node right = new Node(node.leaf);
+    final byte[] separator = node.keys.get(m);
+    if(node.leaf) {
+      for(int k = m; k < ks; k++) {
+        right.keys.add(node.keys.get(k));
+        right.sizes.add(node.sizes.get(k));
+        right.offsets.add(node.offsets.get(k));
+      }
+      node.sizes.size(m);
+      node.offsets.size(m);
+    } else {
+      for(int k = m + 1; k < ks; k++) right.keys.add(node.keys.get(k));
+      for(int k = m + 1; k <= ks; k++) right.offsets.add(node.offsets.get(k));
+      node.offsets.size(m + 1);
+    }
+    node.keys.size(m);
+    allocate(right);
+
+    // link leaves
+    if(node.leaf) {
+      right.prev = node.offset;
+      right.next = node.next;
+      if(node.next != 0) da.write5(node.next + 5, right.offset);
+      node.next = right.offset;
+    }
+    write(right);
+    if(node.length() <= node.capacity) write(node);
+    else relocate(node, path);
+
+    // add separator to parent node, or create new root
+    if(path.isEmpty()) {
+      final Node rt = new Node(false);
+      rt.offsets.add(node.offset).add(right.offset);
+      rt.keys.add(separator);
+      allocate(rt);
+      write(rt);
+      root(rt.offset);
+    } else {
+      final Node parent = path.remove(path.size() - 1);
+      final int c = parent.child(separator);
+      parent.keys.insert(c, separator);
+      parent.offsets.insert(c + 1, right.offset);
+      store(parent, path);
+    }
+  }
+
+  /**
+   * Moves a node to a new slot that is large enough to store all entries.
+   * @param node node
+   * @param path inner nodes on the path to the node
+   */
+  private void relocate(final Node node, final ArrayList<Node> path) {
+    final long old = node.offset;
+    free.add(node.capacity, old);
+    allocate(node);
+    write(node);
+
+    // update references
+    if(path.isEmpty()) {
+      root(node.offset);
+    } else {
+      final Node parent = path.get(path.size() - 1);
+      final int os = parent.offsets.size();
+      for(int o = 0; o < os; o++) {
+        if(parent.offsets.get(o) == old) parent.offsets.set(o, node.offset);
+      }
+      write(parent);
+    }
+    if(node.prev != 0) da.write5(node.prev + 10, node.offset);
+    if(node.next != 0) da.write5(node.next + 5, node.offset);
+  }
+
+  /**
+   * Assigns a new slot to the specified node.
+   * @param node node
+   */
+  private void allocate(final Node node) {
+    node.capacity = Math.max(PAGE, node.length());
+    node.offset = free.get(node.capacity, da.length());
+  }
+
+  /**
+   * Assigns a new root node.
+   * @param offset offset of the root node
+   */
+  private void root(final long offset) {
+    root = offset;
+    da.write5(0, offset);
+  }
+
+  /**
+   * Reads a node.
+   * @param offset offset of the node
+   * @return node
+   */
+  private Node read(final long offset) {
+    final Node node = new Node(da.read1(offset + 4) != 0);
+    node.offset = offset;
+    node.capacity = da.read4(offset);
+    da.cursor(offset + 5);
+    node.prev = da.read5();
+    node.next = da.read5();
+    final int ks = da.readNum();
+    if(node.leaf) {
+      for(int k = 0; k < ks; k++) {
+        node.keys.add(da.readToken());
+        node.sizes.add(da.readNum());
+        node.offsets.add(da.read5());
+      }
+    } else {
+      node.offsets.add(da.read5());
+      for(int k = 0; k < ks; k++) {
+        node.keys.add(da.readToken());
+        node.offsets.add(da.read5());
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Writes a node to its slot.
+   * @param node node
+   */
+  private void write(final Node node) {
+    da.cursor(node.offset);
+    final byte[] bytes = node.finish();
+    da.writeBytes(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Tree node.
+   */
+  private static final class Node {
+    /** Keys. */
+    final TokenList keys = new TokenList();
+    /** Sizes of id lists (leaf nodes only). */
+    final IntList sizes = new IntList();
+    /** Offsets of id lists (leaf nodes) or child nodes (inner nodes). */
+    final LongList offsets = new LongList();
+    /** Leaf flag. */
+    final boolean leaf;
+
+    /** Offset of the node. */
+    long offset;
+    /** Reserved capacity. */
+    int capacity;
+    /** Offset of the previous leaf ({@code 0} if there is none). */
+    long prev;
+    /** Offset of the next leaf ({@code 0} if there is none). */
+    long next;
+
+    /**
+     * Constructor.
+     * @param leaf leaf flag
+     */
+    Node(final boolean leaf) {
+      this.leaf = leaf;
+    }
+
+    /**
+     * Binary search for a key.
+     * @param key key to be found
+     * @return index of the key, or (-(insertion point) - 1)
+     */
+    int index(final byte[] key) {
+      int l = 0, h = keys.size() - 1;
+      while(l <= h) {
+        final int m = l + h >>> 1;
+        final int d = diff(keys.get(m), key);
+        if(d == 0) return m;
+        if(d < 0) l = m + 1;
+        else h = m - 1;
+      }
+      return -(l + 1);
+    }
+
+    /**
+     * Returns the index of the child node that may contain the specified key.
+     * @param key key
+     * @return index of the child node
+     */
+    int child(final byte[] key) {
+      final int i = index(key);
+      return i < 0 ? -i - 1 : i + 1;
+    }
+
+    /**
+     * Returns the number of bytes required to store the specified entry.
+     * @param k index of the key
+     * @return number of bytes
+     */
+    int entryLength(final int k) {
+      final int kl = keys.get(k).length;
+      return Num.length(kl) + kl + 5 + (leaf ? Num.length(sizes.get(k)) : 0);
+    }
+
+    /**
+     * Returns the number of bytes required to store the node.
+     * @return number of bytes
+     */
+    int length() {
+      final int ks = keys.size();
+      int l = HEADER + Num.length(ks) + (leaf ? 0 : 5);
+      for(int k = 0; k < ks; k++) l += entryLength(k);
+      return l;
+    }
+
+    /**
+     * Returns the byte representation of the node, padded to its capacity.
+     * @return bytes
+     */
+    byte[] finish() {
+      final ByteList bl = new ByteList(capacity);
+      add4(bl, capacity);
+      bl.add(leaf ? 1 : 0);
+      add5(bl, prev);
+      add5(bl, next);
+      final int ks = keys.size();
+      bl.add(Num.num(ks));
+      if(!leaf) add5(bl, offsets.get(0));
+      for(int k = 0; k < ks; k++) {
+        final byte[] key = keys.get(k);
+        bl.add(Num.num(key.length)).add(key);
+        if(leaf) {
+          bl.add(Num.num(sizes.get(k)));
+          add5(bl, offsets.get(k));
+        } else {
+          add5(bl, offsets.get(k + 1));
+        }
+      }
+      return Arrays.copyOf(bl.finish(), capacity);
+    }
+
+    /**
+     * Adds a 4-byte value.
+     * @param bl byte list
+     * @param value value
+     */
+    private static void add4(final ByteList bl, final int value) {
+      bl.add(value >>> 24).add(value >>> 16).add(value >>> 8).add(value);
+    }
+
+    /**
+     * Adds a 5-byte value.
+     * @param bl byte list
+     * @param value value
+     */
+    private static void add5(final ByteList bl, final long value) {
+      bl.add((int) (value >>> 32));
+      add4(bl, (int) value);
+    }
+  }
+
+  /**
+   * Cursor for traversing the keys of the tree.
+   */
+  final class Cursor {
+    /** Traversal direction. */
+    private final boolean asc;
+    /** Current leaf. */
+    private Node leaf;
+    /** Current position. */
+    private int pos;
+
+    /** Key of the current entry. */
+    byte[] key;
+    /** Size of the id list of the current entry. */
+    int size;
+    /** Offset of the id list of the current entry. */
+    long offset;
+
+    /**
+     * Constructor.
+     * @param leaf leaf
+     * @param pos initial position (the next entry will be returned)
+     * @param asc traversal direction
+     */
+    private Cursor(final Node leaf, final int pos, final boolean asc) {
+      this.leaf = leaf;
+      this.pos = pos;
+      this.asc = asc;
+    }
+
+    /**
+     * Moves the cursor to the next entry.
+     * @return {@code true} if another entry was found
+     */
+    boolean next() {
+      synchronized(BTree.this) {
+        if(asc) {
+          while(++pos >= leaf.keys.size()) {
+            if(leaf.next == 0) return false;
+            leaf = read(leaf.next);
+            pos = -1;
+          }
+        } else {
+          while(--pos < 0) {
+            if(leaf.prev == 0) return false;
+            leaf = read(leaf.prev);
+            pos = leaf.keys.size();
+          }
+        }
+        key = leaf.keys.get(pos);
+        size = leaf.sizes.get(pos);
+        offset = leaf.offsets.get(pos);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Builder for creating a tree from keys in ascending order.
+   */
+  static final class Builder implements Closeable {
+    /** Output stream. */
+    private final DataOutput out;
+    /** Tree file. */
+    private final IOFile file;
+    /** First keys of the nodes of the current level. */
+    private TokenList firsts = new TokenList();
+    /** Offsets of the nodes of the current level. */
+    private LongList nodes = new LongList();
+    /** Current leaf. */
+    private Node leaf = new Node(true);
+    /** Offset of the last leaf. */
+    private long prev;
+
+    /**
+     * Constructor.
+     * @param file tree file
+     * @throws IOException I/O exception
+     */
+    Builder(final IOFile file) throws IOException {
+      this.file = file;
+      out = new DataOutput(file);
+      // placeholder for offset of root node
+      out.write5(0);
+    }
+
+    /**
+     * Adds a key. Keys must be added in ascending order.
+     * @param key key
+     * @param size size of the id list
+     * @param offset offset of the id list
+     * @throws IOException I/O exception
+     */
+    void add(final byte[] key, final int size, final long offset) throws IOException {
+      if(!leaf.keys.isEmpty() && leaf.length() + Num.length(key.length) + key.length +
+          Num.length(size) + 5 > FILL) {
+        write(leaf, true);
+        leaf = new Node(true);
+      }
+      leaf.keys.add(key);
+      leaf.sizes.add(size);
+      leaf.offsets.add(offset);
+    }
+
+    @Override
+    public void close() throws IOException {
+      // write last leaf and inner nodes
+      write(leaf, false);
+      while(nodes.size() > 1) {
+        final TokenList keys = firsts;
+        final LongList children = nodes;
+        firsts = new TokenList();
+        nodes = new LongList();
+
+        final int cs = children.size();
+        Node node = null;
+        for(int c = 0; c < cs; c++) {
+          final byte[] key = keys.get(c);
+          if(node != null && node.length() + Num.length(key.length) + key.length + 5 > FILL) {
+            write(node, false);
+            node = null;
+          }
+          if(node == null) node = new Node(false);
+          node.keys.add(key);
+          node.offsets.add(children.get(c));
+        }
+        write(node, false);
+      }
+      out.close();
+
+      try(DataAccess access = new DataAccess(file)) {
+        access.write5(0, nodes.get(0));
+      }
+    }
+
+    /**
+     * Writes a node. The first key of an inner node will be removed and passed on to the next
+     * level of the tree.
+     * @param node node
+     * @param more indicates if more leaves will follow
+     * @throws IOException I/O exception
+     */
+    private void write(final Node node, final boolean more) throws IOException {
+      final byte[] first = node.keys.isEmpty() ? EMPTY : node.keys.get(0);
+      if(!node.leaf) node.keys.remove(0);
+      node.capacity = Math.max(PAGE, node.length());
+      node.offset = out.size();
+      if(node.leaf) {
+        node.prev = prev;
+        node.next = more ? node.offset + node.capacity : 0;
+        prev = node.offset;
+      }
+      out.writeBytes(node.finish());
+      firsts.add(first);
+      nodes.add(node.offset);
+    }
+  }
+}
@@ -0,0 +1,388 @@
+package org.basex.index.value;
+
+import static org.basex.core.Text.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.stats.*;
+import org.basex.io.random.*;
+import org.basex.query.util.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides access to attribute values and text contents, which are indexed in a
+ * B+-tree (see {@link MainOptions#BTREEINDEX}). The id lists are stored in the same format as
+ * described in the {@link DiskValuesBuilder} class. The references to the id lists are stored in a
+ * {@link BTree} along with their keys.</p>
+ *
+ * <p>Keys can be looked up without accessing the database table. Ranges of keys are traversed
+ * via the linked leaves of the tree, and new keys are inserted without moving the references of
+ * the existing keys.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BTreeValues extends ValueIndex {
+  /** Tree with keys and references to the id lists. */
+  private final BTree tree;
+  /** ID lists. */
+  private final DataAccess idxl;
+  /** Typed keys ({@code null} if they do not exist). */
+  private final TypedValues typed;
+  /** Free slots in the id lists. */
+  private final FreeSlots free = new FreeSlots();
+  /** Number of current index entries. */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /** Synchronization object. */
+  private final Object monitor = new Object();
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param data data reference
+   * @param type index type
+   * @throws IOException I/O Exception
+   */
+  public BTreeValues(final Data data, final IndexType type) throws IOException {
+    super(data, type);
+    final String pref = DiskValues.fileSuffix(type);
+    idxl = new DataAccess(data.meta.dbfile(pref + 'l'), false, data.meta.log);
+    tree = new BTree(data.meta.dbfile(pref + 'b'), data.meta.log);
+    typed = TypedValues.open(data, type);
+    size.set(idxl.read4());
+  }
+
+  /**
+   * Replaces the reference file of a new index structure with a B+-tree.
+   * @param data data reference
+   * @param type index type
+   * @throws IOException I/O Exception
+   */
+  static void create(final Data data, final IndexType type) throws IOException {
+    final String pref = DiskValues.fileSuffix(type);
+    final DiskValues values = data.meta.updindex ? new UpdatableDiskValues(data, type) :
+      new DiskValues(data, type);
+    try(BTree.Builder builder = new BTree.Builder(data.meta.dbfile(pref + 'b'))) {
+      values.write(builder);
+    } finally {
+      values.close();
+    }
+    data.meta.dbfile(pref + 'r').delete();
+  }
+
+  @Override
+  public byte[] info(final MainOptions options) {
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(LI_STRUCTURE).add(BTREE).add(NL);
+    tb.add(LI_NAMES).add(data.meta.names(type)).add(NL);
+
+    final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
+    final long l = idxl.length() + tree.length() + (typed != null ? typed.length() : 0);
+    tb.add(LI_SIZE).add(Performance.format(l)).add(NL);
+    final BTree.Cursor cursor = tree.ascending(EMPTY);
+    while(cursor.next()) {
+      if(stats.adding(cursor.size)) stats.add(cursor.key, cursor.size);
+    }
+    stats.print(tb);
+    return tb.finish();
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public IndexCosts costs(final IndexToken it) {
+    if(it instanceof DateRange && typed == null) return null;
+    if(it instanceof StringRange || it instanceof DateRange)
+      return IndexCosts.get(Math.max(1, data.meta.size / 10));
+    if(it instanceof NumericRange) return IndexCosts.get(Math.max(1, data.meta.size / 3));
+    final IndexEntry entry = tree.get(it.get());
+    return IndexCosts.get(entry != null ? entry.size : 0);
+  }
+
+  @Override
+  public IndexIterator iter(final IndexToken it) {
+    if(it instanceof StringRange) return idRange((StringRange) it);
+    if(it instanceof NumericRange && typed == null) return idRange((NumericRange) it);
+    if(it instanceof NumericRange || it instanceof DateRange) {
+      final LongList offsets = new LongList();
+      if(it instanceof NumericRange) typed.range((NumericRange) it, offsets);
+      else typed.range((DateRange) it, offsets);
+      final IntList pres = new IntList();
+      final int os = offsets.size();
+      for(int o = 0; o < os; o++) pres(offsets.get(o), pres);
+      return iter(pres);
+    }
+    final IndexEntry entry = tree.get(it.get());
+    if(entry == null) return IndexIterator.EMPTY;
+    final IntList pres = new IntList(entry.size);
+    pres(entry.offset, pres);
+    return iter(pres);
+  }
+
+  @Override
+  public EntryIterator entries(final IndexEntries input) {
+    final byte[] key = input.get();
+    if(input.prefix && key.length != 0) return entries(tree.ascending(key), key);
+    return entries(input.descending ? tree.descending(key.length == 0 ? null : key) :
+      tree.ascending(key), null);
+  }
+
+  @Override
+  public synchronized void add(final ValueCache values) {
+    int sz = size();
+    for(final byte[] key : values) {
+      final IntList ids = values.ids(key), pos = values.pos(key);
+      final IndexEntry entry = tree.get(key);
+      if(entry == null) {
+        write(key, ids, pos);
+        sz++;
+      } else {
+        // add existing ids, write new list
+        final int newSize = entry.size + ids.size();
+        final IntList newIds = new IntList(newSize);
+        final IntList newPos = pos != null ? new IntList(newSize) : null;
+        idxl.cursor(entry.offset);
+        final int oldSize = idxl.readNum();
+        for(int o = 0, c = 0; o < oldSize; ++o) {
+          c += idxl.readNum();
+          newIds.add(c);
+          if(newPos != null) newPos.add(idxl.readNum());
+        }
+        free.add((int) (idxl.cursor() - entry.offset), entry.offset);
+        newIds.add(ids.finish());
+        if(newPos != null) newPos.add(pos.finish());
+        write(key, newIds, newPos);
+      }
+    }
+    size(sz);
+  }
+
+  @Override
+  public synchronized void delete(final ValueCache values) {
+    int sz = size();
+    for(final byte[] key : values) {
+      final IndexEntry entry = tree.get(key);
+      if(entry == null) throw Util.notExpected("Key does not exist: '%'", key);
+
+      // read each id from the list and skip the ones that should be deleted
+      final IntList ids = values.ids(key).sort();
+      final boolean pos = values.pos(key) != null;
+      final int delSize = ids.size(), newSize = entry.size - delSize;
+      final IntList newIds = new IntList(newSize), newPos = pos ? new IntList(newSize) : null;
+      idxl.cursor(entry.offset);
+      final int oldSize = idxl.readNum();
+      for(int o = 0, d = 0, currId = 0; o < oldSize; o++) {
+        currId += idxl.readNum();
+        final int currPos = pos ? idxl.readNum() : 0;
+        if(d < delSize && currId == ids.get(d)) {
+          d++;
+        } else {
+          newIds.add(currId);
+          if(newPos != null) newPos.add(currPos);
+        }
+      }
+      free.add((int) (idxl.cursor() - entry.offset), entry.offset);
+
+      if(newIds.isEmpty()) {
+        tree.delete(key);
+        if(typed != null) typed.delete(key);
+        sz--;
+      } else {
+        write(key, newIds, newPos);
+      }
+    }
+    size(sz);
+  }
+
+  @Override
+  public boolean drop() {
+    return data.meta.drop(DiskValues.fileSuffix(type) + '.');
+  }
+
+  @Override
+  public void close() {
+    synchronized(monitor) {
+      idxl.close();
+      tree.close();
+      if(typed != null) typed.close();
+    }
+  }
+
+  @Override
+  public void flush() {
+    idxl.flush();
+    tree.flush();
+    if(typed != null) typed.flush();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Returns the {@code pre} value for the specified id.
+   * @param id id value
+   * @return pre value
+   */
+  private int pre(final int id) {
+    return data.meta.updindex ? data.pre(id) : id;
+  }
+
+  /**
+   * Adds the pre values of an id list to the specified list.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param offset offset of the id list
+   * @param pres pre values
+   */
+  private void pres(final long offset, final IntList pres) {
+    synchronized(monitor) {
+      final int sz = idxl.readNum(offset);
+      for(int i = 0, id = 0; i < sz; i++) {
+        id += idxl.readNum();
+        // pass over token position
+        if(type == IndexType.TOKEN) idxl.readNum();
+        pres.add(pre(id));
+      }
+    }
+  }
+
+  /**
+   * Performs a string-based range query. The keys are traversed in ascending order,
+   * starting from the minimum.
+   * @param tok index term
+   * @return results
+   */
+  private IndexIterator idRange(final StringRange tok) {
+    final IntList pres = new IntList();
+    final BTree.Cursor cursor = tree.ascending(tok.min);
+    while(cursor.next()) {
+      final byte[] key = cursor.key;
+      if(!tok.mni && eq(key, tok.min)) continue;
+      // skip traversal if value is too large
+      final int diff = diff(key, tok.max);
+      if(diff > 0 || !tok.mxi && diff == 0) break;
+      pres(cursor.offset, pres);
+    }
+    return iter(pres);
+  }
+
+  /**
+   * Performs a range query. All index values must be numeric.
+   * @param tok index term
+   * @return results
+   */
+  private IndexIterator idRange(final NumericRange tok) {
+    // check if min and max are positive integers with the same number of digits
+    final double min = tok.min, max = tok.max;
+    final int len = max > 0 && (long) max == max ? token(max).length : 0;
+    final boolean simple = len != 0 && min > 0 && (long) min == min && token(min).length == len;
+
+    final IntList pres = new IntList();
+    final BTree.Cursor cursor = tree.ascending(EMPTY);
+    while(cursor.next()) {
+      final byte[] key = cursor.key;
+      final double v = toDouble(key);
+      if((tok.mni ? v >= min : v > min) && (tok.mxi ? v <= max : v < max)) {
+        // value is in range
+        pres(cursor.offset, pres);
+      } else if(simple && v > max && key.length == len) {
+        // if limits are integers, if min, max and current value have the same
+        // string length, and if current value is larger than max, test can be
+        // skipped, as all remaining values will be bigger
+        break;
+      }
+    }
+    return iter(pres);
+  }
+
+  /**
+   * Returns an iterator for the specified pre values.
+   * The values are sorted and deduplicated by adding them to a bitmap.
+   * @param pres pre values
+   * @return iterator
+   */
+  private static IndexIterator iter(final IntList pres) {
+    final Bitmap bitmap = new Bitmap();
+    final int ps = pres.size();
+    for(int p = 0; p < ps; p++) bitmap.add(pres.get(p));
+    return new BitmapIterator(bitmap);
+  }
+
+  /**
+   * Returns an iterator for index entries.
+   * @param cursor tree cursor
+   * @param prefix prefix of the returned keys (can be {@code null})
+   * @return entries
+   */
+  private static EntryIterator entries(final BTree.Cursor cursor, final byte[] prefix) {
+    return new EntryIterator() {
+      int count = -1;
+
+      @Override
+      public byte[] next() {
+        if(cursor.next() && (prefix == null || startsWith(cursor.key, prefix))) {
+          count = cursor.size;
+          return cursor.key;
+        }
+        count = -1;
+        return null;
+      }
+
+      @Override
+      public int count() {
+        return count;
+      }
+    };
+  }
+
+  /**
+   * Writes a new id list and updates the reference in the tree.
+   * @param key key
+   * @param ids id list
+   * @param pos position list (can be {@code null})
+   */
+  private void write(final byte[] key, final IntList ids, final IntList pos) {
+    // compute compressed size of distance list
+    final int sz = ids.size();
+    final int[] nums = UpdatableDiskValues.prepare(ids, pos);
+    int bytes = Num.length(sz);
+    for(final int num : nums) bytes += Num.length(num);
+
+    // choose new insertion position (append at the end if no slot is found)
+    final long offset = free.get(bytes, idxl.length());
+    idxl.cursor(offset);
+    idxl.writeNum(sz);
+    for(final int num : nums) idxl.writeNum(num);
+    tree.put(key, sz, offset);
+    if(typed != null) typed.put(key, sz, offset);
+  }
+
+  /**
+   * Assigns the number of index entries.
+   * @param sz number of index entries
+   */
+  private void size(final int sz) {
+    size.set(sz);
+    idxl.write4(0, sz);
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder();
+    tb.addExt(type).add(" INDEX, '").add(data.meta.name).add("':\n");
+    final BTree.Cursor cursor = tree.ascending(EMPTY);
+    for(int index = 0; cursor.next(); index++) {
+      tb.add("  ").addInt(index).add(". offset: ").addLong(cursor.offset);
+      tb.add(", key: \"").add(cursor.key).add("\", ids: ").addInt(cursor.size).add("\n");
+    }
+    return tb.toString() + free;
+  }
+}
@@ -36,6 +36,10 @@ public class DiskValues extends ValueIndex {
   final IntObjMap<byte[]> ctext = new IntObjMap<>();
   /** Number of current index entries. */
   final AtomicInteger size = new AtomicInteger();
+  /** Typed keys ({@code null} if they do not exist). */
+  final TypedValues typed;
+  /** Indicates if the id lists are packed (see {@link PackedIds}). */
+  final boolean packed;
 
   /** Synchronization object. */
   private final Object monitor = new Object();
@@ -60,8 +64,10 @@ public class DiskValues extends ValueIndex {
    */
   DiskValues(final Data data, final IndexType type, final String pref) throws IOException {
     super(data, type);
-    idxl = new DataAccess(data.meta.dbfile(pref + 'l'));
-    idxr = new DataAccess(data.meta.dbfile(pref + 'r'));
+    idxl = new DataAccess(data.meta.dbfile(pref + 'l'), false, data.meta.log);
+    idxr = new DataAccess(data.meta.dbfile(pref + 'r'), false, data.meta.log);
+    typed = TypedValues.open(data, type);
+    packed = PackedIds.packed(data.meta, type);
     size.set(idxl.read4());
   }
 
@@ -73,7 +79,7 @@ public class DiskValues extends ValueIndex {
 
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
     synchronized(monitor) {
-      final long l = idxl.length() + idxr.length();
+      final long l = idxl.length() + idxr.length() + (typed != null ? typed.length() : 0);
       tb.add(LI_SIZE).add(Performance.format(l)).add(NL);
       final int entries = size();
       for(int index = 0; index < entries; index++) {
@@ -93,8 +99,9 @@ public class DiskValues extends ValueIndex {
 
   @Override
   public final IndexCosts costs(final IndexToken it) {
+    if(it instanceof DateRange && typed == null) return null;
     return IndexCosts.get(
-      it instanceof StringRange ? Math.max(1, data.meta.size / 10) :
+      it instanceof StringRange || it instanceof DateRange ? Math.max(1, data.meta.size / 10) :
       it instanceof NumericRange ? Math.max(1, data.meta.size / 3) :
       entry(it.get()).size);
   }
@@ -102,9 +109,27 @@ public class DiskValues extends ValueIndex {
   @Override
   public final IndexIterator iter(final IndexToken it) {
     if(it instanceof StringRange) return idRange((StringRange) it);
-    if(it instanceof NumericRange) return idRange((NumericRange) it);
+    if(it instanceof NumericRange) {
+      final NumericRange nr = (NumericRange) it;
+      if(typed == null) return idRange(nr);
+      final LongList offsets = new LongList();
+      typed.range(nr, offsets);
+      return iter(offsets);
+    }
+    if(it instanceof DateRange) {
+      final LongList offsets = new LongList();
+      typed.range((DateRange) it, offsets);
+      return iter(offsets);
+    }
     final IndexEntry ie = entry(it.get());
-    return iter(ie.size, ie.offset);
+    return iter(ie.size, ie.offset, 0, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public final IndexIterator iter(final IndexToken it, final int min, final int max) {
+    if(!(it instanceof StringToken)) return super.iter(it, min, max);
+    final IndexEntry ie = entry(it.get());
+    return iter(ie.size, ie.offset, min, max);
   }
 
   @Override
@@ -117,6 +142,7 @@ public class DiskValues extends ValueIndex {
     synchronized(monitor) {
       idxl.close();
       idxr.close();
+      if(typed != null) typed.close();
     }
   }
 
@@ -142,6 +168,7 @@ public class DiskValues extends ValueIndex {
   public final void flush() {
     idxl.flush();
     idxr.flush();
+    if(typed != null) typed.flush();
   }
 
   /**
@@ -186,6 +213,44 @@ public class DiskValues extends ValueIndex {
     return -(l + 1);
   }
 
+  /**
+   * Adds all keys, and the sizes and offsets of their id lists, to a B+-tree.
+   * @param builder tree builder
+   * @throws IOException I/O exception
+   */
+  final void write(final BTree.Builder builder) throws IOException {
+    final int entries = size();
+    for(int index = 0; index < entries; index++) {
+      final IndexEntry entry = list(index);
+      builder.add(entry.key, entry.size, entry.offset);
+    }
+  }
+
+  /**
+   * Returns the key at the specified position, and the size and offset of its id list.
+   * In contrast to the cached index entries, the offset points to the size of the id list.
+   * @param index position of the key
+   * @return index entry
+   */
+  final IndexEntry list(final int index) {
+    final long pos = idxr.read5(index * 5L);
+    final int count = idxl.readNum(pos);
+    return new IndexEntry(key(idxl.readNum()), count, pos);
+  }
+
+  /**
+   * Opens the value index of a disk-based database.
+   * @param data data reference
+   * @param type index type
+   * @return index
+   * @throws IOException I/O Exception
+   */
+  public static ValueIndex open(final Data data, final IndexType type) throws IOException {
+    final MetaData meta = data.meta;
+    return meta.btreeindex ? new BTreeValues(data, type) : meta.updindex ?
+      new UpdatableDiskValues(data, type) : new DiskValues(data, type);
+  }
+
   // PRIVATE METHODS ==============================================================================
 
   /**
@@ -362,20 +427,41 @@ public class DiskValues extends ValueIndex {
    * <p><em>Important:</em> This method is thread-safe.</p>
    * @param sz number of values
    * @param offset offset
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
    * @return iterator
    */
-  private IndexIterator iter(final int sz, final long offset) {
+  private IndexIterator iter(final int sz, final long offset, final int min, final int max) {
     final IntList pres = new IntList(sz);
     synchronized(monitor) {
       idxl.cursor(offset);
-      for(int i = 0, id = 0; i < sz; i++) {
+      pres(sz, min, max, pres);
+    }
+    return iter(pres);
+  }
+
+  /**
+   * Adds the pre values of an id list that are located within the specified range.
+   * The cursor must point to the first id of the list.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param count number of ids
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
+   * @param pres list for the resulting pre values
+   */
+  private void pres(final int count, final int min, final int max, final IntList pres) {
+    if(packed) {
+      // ids of packed lists are identical to pre values
+      PackedIds.read(idxl, count, min, max, pres);
+    } else {
+      for(int i = 0, id = 0; i < count; i++) {
         id += idxl.readNum();
         // pass over token position
         if(type == IndexType.TOKEN) idxl.readNum();
-        pres.add(pre(id));
+        final int pre = pre(id);
+        if(pre >= min && pre < max) pres.add(pre);
       }
     }
-    return iter(pres.sort());
   }
 
   /**
@@ -392,18 +478,16 @@ public class DiskValues extends ValueIndex {
       final int entries = size();
       for(int index = i < 0 ? -i - 1 : tok.mni ? i : i + 1; index < entries; index++) {
         final int count = idxl.readNum(idxr.read5(index * 5L));
-        int id = idxl.readNum();
+        final long offset = idxl.cursor();
         // skip traversal if value is too large
-        final int diff = diff(key(id), tok.max);
+        final int diff = diff(key(idxl.readNum()), tok.max);
         if(diff > 0 || !tok.mxi && diff == 0) break;
         // add pre values
-        for(int c = 0; c < count; c++) {
-          pres.add(pre(id));
-          id += idxl.readNum();
-        }
+        idxl.cursor(offset);
+        pres(count, 0, Integer.MAX_VALUE, pres);
       }
     }
-    return iter(pres.sort());
+    return iter(pres);
   }
 
   /**
@@ -424,16 +508,14 @@ public class DiskValues extends ValueIndex {
       final boolean text = type == IndexType.TEXT;
       for(int index = 0; index < entries; ++index) {
         final int count = idxl.readNum(idxr.read5(index * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+        final long offset = idxl.cursor();
+        final int pre = pre(idxl.readNum());
 
         final double v = data.textDbl(pre, text);
-        if(v >= min && v <= max) {
+        if((tok.mni ? v >= min : v > min) && (tok.mxi ? v <= max : v < max)) {
           // value is in range
-          for(int c = 0; c < count; c++) {
-            pres.add(pre(id));
-            id += idxl.readNum();
-          }
+          idxl.cursor(offset);
+          pres(count, 0, Integer.MAX_VALUE, pres);
         } else if(simple && v > max && data.textLen(pre, text) == len) {
           // if limits are integers, if min, max and current value have the same
           // string length, and if current value is larger than max, test can be
@@ -442,25 +524,37 @@ public class DiskValues extends ValueIndex {
         }
       }
     }
-    return iter(pres.sort());
+    return iter(pres);
+  }
+
+  /**
+   * Returns an iterator for the specified id lists.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param offsets offsets of the id lists
+   * @return iterator
+   */
+  private IndexIterator iter(final LongList offsets) {
+    final IntList pres = new IntList();
+    synchronized(monitor) {
+      final int os = offsets.size();
+      for(int o = 0; o < os; o++) {
+        pres(idxl.readNum(offsets.get(o)), 0, Integer.MAX_VALUE, pres);
+      }
+    }
+    return iter(pres);
   }
 
   /**
-   * Returns an iterator for the specified id list.
+   * Returns an iterator for the specified pre values.
+   * The values are sorted and deduplicated by adding them to a bitmap.
    * @param pres pre values
    * @return iterator
    */
   private static IndexIterator iter(final IntList pres) {
-    return new IndexIterator() {
-      final int s = pres.size();
-      int p = -1;
-      @Override
-      public boolean more() { return ++p < s; }
-      @Override
-      public int pre() { return pres.get(p); }
-      @Override
-      public int size() { return s; }
-    };
+    final Bitmap bitmap = new Bitmap();
+    final int ps = pres.size();
+    for(int p = 0; p < ps; p++) bitmap.add(pres.get(p));
+    return new BitmapIterator(bitmap);
   }
 
   /**
@@ -486,6 +580,7 @@ public class DiskValues extends ValueIndex {
     for(int index = 0; index < entries; index++) {
       final long pos = idxr.read5(index * 5L);
       final int count = idxl.readNum(pos);
+      final long offset = idxl.cursor();
       int id = idxl.readNum();
       tb.add("  ").addInt(index).add(". offset: ").addLong(pos);
       if(all) {
@@ -494,10 +589,20 @@ public class DiskValues extends ValueIndex {
       } else {
         tb.add(", ids").add(": ").addInt(id);
       }
-      for(int c = 1; c < count; c++) {
-        id += idxl.readNum();
-        tb.add(",").addInt(id);
-        if(all) tb.add('/').addInt(pre(id));
+      if(packed) {
+        final IntList ids = new IntList(count);
+        idxl.cursor(offset);
+        PackedIds.read(idxl, count, 0, Integer.MAX_VALUE, ids);
+        for(int c = 1; c < count; c++) {
+          tb.add(",").addInt(ids.get(c));
+          if(all) tb.add('/').addInt(ids.get(c));
+        }
+      } else {
+        for(int c = 1; c < count; c++) {
+          id += idxl.readNum();
+          tb.add(",").addInt(id);
+          if(all) tb.add('/').addInt(pre(id));
+        }
       }
       tb.add("\n");
     }
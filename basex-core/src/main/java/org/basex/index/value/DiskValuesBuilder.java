@@ -3,6 +3,9 @@ package org.basex.index.value;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.data.*;
 import org.basex.index.*;
@@ -20,7 +23,8 @@ import org.basex.util.list.*;
  * <li> {@code DATATXT/ATV + 'l'}: contains the index values, which are dense id
  *   lists to all text nodes/attribute values, stored in the {@link Num} format:
  *   [size0, id1, id2, ...]. The number of index keys is stored in the first 4
- *   bytes of the file.</li>
+ *   bytes of the file. If the index is neither updatable nor stored as B+-tree, the ids are
+ *   stored in packed blocks (see {@link PackedIds}).</li>
  * <li> {@code DATATXT/ATV + 'r'}: contains 5-byte references to the id lists
  *   for all keys. To save space, the keys itself are not stored in the index
  *   structure. Instead, they can be found by following the id references to
@@ -28,10 +32,28 @@ import org.basex.util.list.*;
  * </li>
  * </ul>
  *
+ * <p>If {@link org.basex.core.MainOptions#INDEXTHREADS} is larger than 1, the database is split
+ * into ranges of pre values, which are distributed to several threads. Each thread writes its
+ * entries to partial index structures, which are finally merged.</p>
+ *
+ * <p>If {@link org.basex.core.MainOptions#BTREEINDEX} is enabled, the references are finally
+ * moved to a B+-tree, which is stored in {@code DATATXT/ATV + 'b'} (see {@link BTreeValues}).</p>
+ *
+ * <p>If {@link org.basex.core.MainOptions#TYPEDINDEX} is enabled, numbers and dates of text and
+ * attribute values are additionally indexed in {@code DATATXT/ATV + 't'} (see
+ * {@link TypedValues}).</p>
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 public final class DiskValuesBuilder extends ValuesBuilder {
+  /** Number of pre values that are processed by a thread at a time. */
+  private static final int RANGE = 1 << 16;
+
+  /** Indicates if the index entries have been collected while the database was built. */
+  private final boolean collected;
+  /** Next pre value to be processed by one of several threads. */
+  private final AtomicInteger next = new AtomicInteger();
   /** Temporary value tree. */
   private IndexTree index;
 
@@ -43,40 +65,52 @@ public final class DiskValuesBuilder extends ValuesBuilder {
   public DiskValuesBuilder(final Data data, final IndexType type) {
     super(data, type);
     index = new IndexTree(type);
+    collected = false;
+  }
+
+  /**
+   * Constructor for merging partial index structures, which have been written by a
+   * {@link DiskValuesCollector} while the database was built.
+   * @param data data reference
+   * @param type index type
+   * @param splits number of partial index structures
+   */
+  public DiskValuesBuilder(final Data data, final IndexType type, final int splits) {
+    super(data, type);
+    this.splits = splits;
+    collected = true;
   }
 
   @Override
-  public DiskValues build() throws IOException {
+  public ValueIndex build() throws IOException {
     Util.debug(detailedInfo());
 
     try {
       final boolean updindex = data.meta.updindex;
-      for(pre = 0; pre < size; ++pre) {
-        if((pre & 0x0FFF) == 0) check();
-        if(indexEntry()) {
-          final int id = updindex ? data.id(pre) : pre;
-          if(tokenize) {
-            int pos = 0;
-            for(final byte[] token : distinctTokens(data.text(pre, text))) {
-              index.add(token, id, pos++);
-              count++;
-            }
-          } else if(data.textLen(pre, text) <= data.meta.maxlen) {
-            index.add(data.text(pre, text), id, 0);
-            count++;
+      if(!collected) {
+        final int threads = Math.min(data.meta.indexthreads, (size + RANGE - 1) / RANGE);
+        if(threads > 1) {
+          index = null;
+          parallel(threads);
+        } else {
+          for(pre = 0; pre < size; ++pre) {
+            if((pre & 0x0FFF) == 0) check();
+            if(indexEntry()) count += add(index, pre, updindex);
           }
+          writeIndex(splits > 0);
         }
       }
-
-      writeIndex(splits > 0);
-      if(splits > 1) {
+      if(splits > 1 || collected) {
         index = null;
         clean();
         merge();
       }
 
+      if(data.meta.typedindex) TypedValues.create(data, type);
+      if(data.meta.btreeindex) BTreeValues.create(data, type);
+
       finishIndex();
-      return updindex ? new UpdatableDiskValues(data, type) : new DiskValues(data, type);
+      return DiskValues.open(data, type);
 
     } catch(final Throwable th) {
       // drop index files
@@ -85,6 +119,91 @@ public final class DiskValuesBuilder extends ValuesBuilder {
     }
   }
 
+  /**
+   * Adds the index entries of the specified node to an index tree.
+   * @param tree index tree
+   * @param p pre value
+   * @param updindex updatable index flag
+   * @return number of index operations
+   */
+  private int add(final IndexTree tree, final int p, final boolean updindex) {
+    final int id = updindex ? data.id(p) : p;
+    int c = 0;
+    if(tokenize) {
+      for(final byte[] token : distinctTokens(data.text(p, text))) tree.add(token, id, c++);
+    } else if(data.textLen(p, text) <= data.meta.maxlen) {
+      tree.add(data.text(p, text), id, 0);
+      c++;
+    }
+    return c;
+  }
+
+  /**
+   * Creates partial index structures in parallel. The threads fetch ranges of pre values
+   * and write their index trees to disk whenever the split size or the memory limit is reached.
+   * @param threads number of threads
+   * @throws IOException I/O exception
+   */
+  private void parallel(final int threads) throws IOException {
+    final boolean updindex = data.meta.updindex;
+    final AtomicInteger runs = new AtomicInteger();
+    final AtomicLong ops = new AtomicLong();
+
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      final ArrayList<Future<Void>> futures = new ArrayList<>(threads);
+      for(int t = 0; t < threads; t++) {
+        futures.add(pool.submit(() -> {
+          IndexTree tree = new IndexTree(type);
+          long c = 0;
+          for(int start; (start = next.getAndAdd(RANGE)) < size;) {
+            final int end = Math.min(size, start + RANGE);
+            for(int p = start; p < end; p++) {
+              if((p & 0x0FFF) == 0) {
+                checkStop();
+                if(splitRequired(c, threads)) {
+                  write(tree, type, runs.getAndIncrement(), data.meta);
+                  tree = new IndexTree(type);
+                  ops.addAndGet(c);
+                  c = 0;
+                  clean();
+                }
+              }
+              if(indexEntry(p)) c += add(tree, p, updindex);
+            }
+          }
+          write(tree, type, runs.getAndIncrement(), data.meta);
+          ops.addAndGet(c);
+          return null;
+        }));
+      }
+      // wait until all threads have finished, and raise the first error
+      Throwable error = null;
+      for(final Future<Void> future : futures) {
+        try {
+          result(future);
+        } catch(final IOException | RuntimeException | Error ex) {
+          if(error == null) error = ex;
+        }
+      }
+      if(error instanceof IOException) throw (IOException) error;
+      if(error instanceof RuntimeException) throw (RuntimeException) error;
+      if(error != null) throw (Error) error;
+    } finally {
+      pool.shutdownNow();
+    }
+    pre = size;
+    count += ops.get();
+    splits += runs.get();
+  }
+
+  @Override
+  public double progressInfo() {
+    // pre values are processed in parallel: return the number of assigned values
+    final int n = next.get();
+    return n == 0 ? super.progressInfo() : Math.min(n, size) / (size + size / 50.0d);
+  }
+
   @Override
   protected void check() throws IOException {
     super.check();
@@ -168,24 +287,21 @@ public final class DiskValuesBuilder extends ValuesBuilder {
    * @throws IOException I/O exception
    */
   private void writeIndex(final boolean partial) throws IOException {
-    // write id arrays and references
-    final String name = DiskValues.fileSuffix(type) + (partial ? splits : "");
-    try(DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
-        DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
-      outL.write4(index.size());
-
-      final IntList id = new IntList(), pos = tokenize ? new IntList() : null;
-      index.init();
-      while(index.more()) {
-        final byte[] values = index.ids.get(index.next());
-        final int vs = Num.size(values);
+    if(partial) {
+      write(index, type, splits, data.meta);
+    } else {
+      // write id arrays and references
+      final String name = DiskValues.fileSuffix(type);
+      try(DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
+          DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
+        outL.write4(index.size());
 
-        if(partial) {
-          // write temporary structure to disk: number of entries, absolute values
-          outR.write5(outL.size());
-          outL.write(values, 0, vs);
-        } else {
+        final IntList id = new IntList(), pos = tokenize ? new IntList() : null;
+        index.init();
+        while(index.more()) {
           // cache and sort all values
+          final byte[] values = index.ids.get(index.next());
+          final int vs = Num.size(values);
           for(int ip = 4; ip < vs; ip += Num.length(values, ip)) {
             id.add(Num.get(values, ip));
             if(pos != null) {
@@ -198,16 +314,38 @@ public final class DiskValuesBuilder extends ValuesBuilder {
         }
       }
     }
+    // increase split counter
+    splits++;
+  }
 
-    // temporarily write texts
-    if(partial) {
-      try(DataOutput outT = new DataOutput(data.meta.dbfile(name + 't'))) {
-        index.init();
-        while(index.more()) outT.writeToken(index.keys.get(index.next()));
+  /**
+   * Writes a partial index structure to disk.
+   * @param index index tree
+   * @param type index type
+   * @param split number of the partial index structure
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  static void write(final IndexTree index, final IndexType type, final int split,
+      final MetaData meta) throws IOException {
+
+    // write temporary structure to disk: number of entries, absolute values
+    final String name = DiskValues.fileSuffix(type) + split;
+    try(DataOutput outL = new DataOutput(meta.dbfile(name + 'l'));
+        DataOutput outR = new DataOutput(meta.dbfile(name + 'r'))) {
+      outL.write4(index.size());
+      index.init();
+      while(index.more()) {
+        final byte[] values = index.ids.get(index.next());
+        outR.write5(outL.size());
+        outL.write(values, 0, Num.size(values));
       }
     }
-    // increase split counter
-    splits++;
+    // temporarily write texts
+    try(DataOutput outT = new DataOutput(meta.dbfile(name + 't'))) {
+      index.init();
+      while(index.more()) outT.writeToken(index.keys.get(index.next()));
+    }
   }
 
   /**
@@ -231,14 +369,18 @@ public final class DiskValuesBuilder extends ValuesBuilder {
       id.sort();
     }
 
-    final int is = id.size();
     outR.write5(outL.size());
-    outL.writeNum(is);
-    for(int i = 0, old = 0; i < is; i++) {
-      final int value = id.get(i);
-      outL.writeNum(value - old);
-      if(order != null) outL.writeNum(pos.get(order[i]));
-      old = value;
+    if(PackedIds.packed(data.meta, type)) {
+      PackedIds.write(outL, id);
+    } else {
+      final int is = id.size();
+      outL.writeNum(is);
+      for(int i = 0, old = 0; i < is; i++) {
+        final int value = id.get(i);
+        outL.writeNum(value - old);
+        if(order != null) outL.writeNum(pos.get(order[i]));
+        old = value;
+      }
     }
     id.reset();
     if(pos != null) pos.reset();
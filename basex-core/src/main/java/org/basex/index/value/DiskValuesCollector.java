@@ -0,0 +1,135 @@
+package org.basex.index.value;
+
+import static org.basex.core.Text.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.util.*;
+
+/**
+ * This class collects the entries of a value index while a database is being built
+ * (see {@link MainOptions#BULKLOAD}). If main memory is exhausted, or if the split size has been
+ * reached, the entries are written to partial index structures. After the database has been
+ * built, they are merged by the {@link DiskValuesBuilder}.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class DiskValuesCollector {
+  /** Index type. */
+  public final IndexType type;
+  /** Meta data. */
+  private final MetaData meta;
+  /** Names and namespace uri of element or attributes to include. */
+  private final IndexNames includeNames;
+  /** Tokenize flag. */
+  private final boolean tokenize;
+  /** Number of index operations to perform before writing a partial index to disk. */
+  private final long splitSize;
+  /** Maximum memory to consume. */
+  private final long maxMem = (long) (Runtime.getRuntime().maxMemory() * 0.8);
+
+  /** Temporary value tree. */
+  private IndexTree index;
+  /** Total number of index operations. */
+  private long count;
+  /** Number of partial index structures. */
+  private int splits;
+  /** Threshold for freeing memory when estimating main memory consumption. */
+  private int gcCount = -1;
+
+  /**
+   * Constructor.
+   * @param meta meta data
+   * @param type index type
+   */
+  public DiskValuesCollector(final MetaData meta, final IndexType type) {
+    this.meta = meta;
+    this.type = type;
+    includeNames = new IndexNames(type, meta);
+    tokenize = type == IndexType.TOKEN;
+    splitSize = meta.splitsize * 100000L;
+    index = new IndexTree(type);
+  }
+
+  /**
+   * Checks if the values of the element or attribute with the specified name will be indexed.
+   * @param name name (can be {@code null})
+   * @param uri namespace uri
+   * @return result of check
+   */
+  public boolean contains(final byte[] name, final byte[] uri) {
+    return includeNames.isEmpty() ||
+      name != null && includeNames.contains(new byte[][] { local(name), uri });
+  }
+
+  /**
+   * Adds an index entry.
+   * @param value text or attribute value
+   * @param id id of the node
+   * @throws IOException I/O exception
+   */
+  public void add(final byte[] value, final int id) throws IOException {
+    final long c = count;
+    if(tokenize) {
+      int pos = 0;
+      for(final byte[] token : distinctTokens(value)) {
+        index.add(token, id, pos++);
+        count++;
+      }
+    } else if(value.length <= meta.maxlen) {
+      index.add(value, id, 0);
+      count++;
+    }
+    // check if main memory is exhausted
+    if(c >>> 12 != count >>> 12 && splitRequired()) {
+      write();
+      if(splitSize <= 0) Performance.gc(2);
+    }
+  }
+
+  /**
+   * Writes the remaining entries to disk.
+   * @return number of partial index structures
+   * @throws IOException I/O exception
+   */
+  public int finish() throws IOException {
+    write();
+    index = null;
+    return splits;
+  }
+
+  /**
+   * Writes the current entries to a partial index structure.
+   * @throws IOException I/O exception
+   */
+  private void write() throws IOException {
+    DiskValuesBuilder.write(index, type, splits++, meta);
+    index = new IndexTree(type);
+  }
+
+  /**
+   * Decides whether the current entries must be written to disk.
+   * @return result of check
+   * @throws BaseXException exception
+   */
+  private boolean splitRequired() throws BaseXException {
+    if(splitSize > 0) return count >= (splits + 1L) * splitSize;
+
+    // estimate how much main memory is left; stop operation if index splitting degenerates
+    final boolean split = Performance.memory() >= maxMem;
+    int gc = gcCount;
+    if(split) {
+      if(gc >= 0) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
+      gc = 30;
+    } else {
+      gc = Math.max(-1, gc - 1);
+    }
+    gcCount = gc;
+    return split;
+  }
+}
@@ -0,0 +1,200 @@
+package org.basex.index.value;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.path.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Definition of a key index (see {@link MainOptions#KEYINCLUDE}). A definition consists of a
+ * path to the indexed elements and a list of keys, which are specified in parentheses:
+ * <ul>
+ * <li>The path consists of child element names. If it starts with {@code //}, elements are
+ *   indexed at any level.</li>
+ * <li>A key is an attribute ({@code @name}) or a child element ({@code name}) of the indexed
+ *   element. If a child element occurs more than once, one entry is created for each value.</li>
+ * </ul>
+ * Example: {@code /orders/order(@customer, @status), //item(sku)}.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class KeyDefinition {
+  /** Separator of composite keys. */
+  static final byte SEPARATOR = 0x01;
+
+  /** Names of the keys (attribute names are prefixed with {@code @}). */
+  public final byte[][] keys;
+  /** Element names of the path. */
+  private final byte[][] path;
+  /** Indicates if the indexed elements can occur at any level. */
+  private final boolean desc;
+
+  /**
+   * Constructor.
+   * @param path element names of the path
+   * @param desc descendant flag
+   * @param keys names of the keys
+   */
+  private KeyDefinition(final byte[][] path, final boolean desc, final byte[][] keys) {
+    this.path = path;
+    this.desc = desc;
+    this.keys = keys;
+  }
+
+  /**
+   * Parses the definitions of the key indexes.
+   * @param include definitions
+   * @return definitions
+   * @throws BaseXException database exception
+   */
+  public static KeyDefinition[] parse(final String include) throws BaseXException {
+    final ArrayList<KeyDefinition> list = new ArrayList<>();
+    final String input = include.trim();
+    final int il = input.length();
+    int i = 0;
+    while(i < il) {
+      // parse path
+      final int p = input.indexOf('(', i), k = input.indexOf(')', i);
+      if(p == -1 || k < p) throw error(include);
+      String pth = input.substring(i, p).trim();
+      final boolean desc = pth.startsWith("//");
+      if(!pth.startsWith("/")) throw error(include);
+      pth = pth.substring(desc ? 2 : 1);
+
+      final TokenList path = new TokenList();
+      for(final String step : pth.split("/", -1)) {
+        final byte[] name = token(step.trim());
+        if(!XMLToken.isQName(name)) throw error(include);
+        path.add(name);
+      }
+      // parse keys
+      final TokenList keys = new TokenList();
+      for(final String key : input.substring(p + 1, k).split(",", -1)) {
+        final String name = key.trim();
+        final boolean attr = name.startsWith("@");
+        if(!XMLToken.isQName(token(attr ? name.substring(1) : name))) throw error(include);
+        keys.add(name);
+      }
+      list.add(new KeyDefinition(path.finish(), desc, keys.finish()));
+
+      // skip separator
+      i = k + 1;
+      while(i < il && Character.isWhitespace(input.charAt(i))) i++;
+      if(i < il && input.charAt(i++) != ',') throw error(include);
+    }
+    return list.toArray(new KeyDefinition[list.size()]);
+  }
+
+  /**
+   * Returns the name of the indexed elements.
+   * @return name
+   */
+  public byte[] name() {
+    return path[path.length - 1];
+  }
+
+  /**
+   * Checks if all elements with the name of the indexed elements are covered by this definition.
+   * @param data data reference
+   * @return result of check
+   */
+  public boolean covers(final Data data) {
+    // without up-to-date path index, only definitions for all elements can be checked
+    if(!data.meta.uptodate) return desc && path.length == 1;
+
+    for(final PathNode node : data.paths.desc(name())) {
+      PathNode pn = node;
+      int s = path.length;
+      while(--s >= 0) {
+        if(pn == null || pn.kind != Data.ELEM || !eq(data.elemNames.key(pn.name), path[s]))
+          return false;
+        pn = pn.parent;
+      }
+      if(!desc && pn != null && pn.kind == Data.ELEM) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the specified element is indexed by this definition.
+   * @param data data reference
+   * @param pre pre value of an element
+   * @return result of check
+   */
+  boolean matches(final Data data, final int pre) {
+    int p = pre, s = path.length;
+    while(--s >= 0) {
+      if(p == -1 || data.kind(p) != Data.ELEM || !eq(data.name(p, Data.ELEM), path[s]))
+        return false;
+      p = data.parent(p, Data.ELEM);
+    }
+    return desc || p == -1 || data.kind(p) == Data.DOC;
+  }
+
+  /**
+   * Returns the composite keys of the specified element. The keys are truncated before the
+   * first missing key value. No keys will be returned if the value of the first key is missing.
+   * @param data data reference
+   * @param pre pre value of an indexed element
+   * @return composite keys
+   */
+  TokenList keys(final Data data, final int pre) {
+    // find end of attributes; attribute sizes may not be updated yet if attributes are inserted
+    final int size = pre + data.size(pre, Data.ELEM);
+    int atts = pre + 1;
+    while(atts < size && data.kind(atts) == Data.ATTR) atts++;
+
+    TokenList list = new TokenList(1);
+    list.add(EMPTY);
+    final int kl = keys.length;
+    for(int k = 0; k < kl; k++) {
+      // collect values of the current key
+      final TokenList values = new TokenList(1);
+      if(keys[k][0] == '@') {
+        final byte[] name = substring(keys[k], 1);
+        for(int a = pre + 1; a < atts; a++) {
+          if(eq(data.name(a, Data.ATTR), name)) values.add(data.text(a, false));
+        }
+      } else {
+        for(int c = atts; c < size; c += data.size(c, data.kind(c))) {
+          if(data.kind(c) == Data.ELEM && eq(data.name(c, Data.ELEM), keys[k])) {
+            values.add(data.atom(c));
+          }
+        }
+      }
+      if(values.isEmpty()) return k == 0 ? values : list;
+
+      // combine values with the existing composite keys
+      final TokenList next = new TokenList(list.size() * values.size());
+      for(final byte[] key : list) {
+        for(final byte[] value : values) {
+          next.add(k == 0 ? value : new TokenBuilder(key).addByte(SEPARATOR).add(value).finish());
+        }
+      }
+      list = next;
+    }
+    return list;
+  }
+
+  /**
+   * Returns an error for an invalid definition.
+   * @param include definitions
+   * @return exception
+   */
+  private static BaseXException error(final String include) {
+    return new BaseXException(Text.OPT_KEYS_X_X, MainOptions.KEYINCLUDE.name(), include);
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder(desc ? "//" : "/");
+    tb.addSep(path, "/").add('(').addSep(keys, ", ").add(')');
+    return tb.toString();
+  }
+}
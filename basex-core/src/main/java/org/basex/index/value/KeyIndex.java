@@ -0,0 +1,274 @@
+package org.basex.index.value;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides access to the key indexes of a database
+ * (see {@link org.basex.core.MainOptions#KEYINCLUDE}). The entries of each
+ * {@link KeyDefinition} are stored in a {@link BTree}, which is saved in the file
+ * {@code DATAKEY + index}.</p>
+ *
+ * <p>A tree key consists of the composite key of an element (the key values are separated
+ * by {@code 0x01}), a {@code 0x00} byte and the id of the element. The id is also stored as
+ * offset of the entry. As the composite keys are sorted, elements can be looked up by all keys
+ * or by a number of leading keys. Composite keys are truncated before the first missing
+ * key value.</p>
+ *
+ * <p>If {@link MetaData#updindex} is enabled, the indexes are updated along with the database:
+ * the entries of all updated elements and their ancestors are removed before an update,
+ * and added again after the update.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class KeyIndex {
+  /** Key definitions. */
+  public final KeyDefinition[] definitions;
+  /** Data reference. */
+  private final Data data;
+  /** Trees with the entries of the definitions. */
+  private final BTree[] trees;
+  /** Ids of elements whose entries have been removed during an update. */
+  private final IntList removed = new IntList();
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @throws IOException I/O exception
+   */
+  public KeyIndex(final Data data) throws IOException {
+    this.data = data;
+    definitions = KeyDefinition.parse(data.meta.keyinclude);
+    final int dl = definitions.length;
+    trees = new BTree[dl];
+    for(int d = 0; d < dl; d++) trees[d] = new BTree(file(data, d), data.meta.log);
+  }
+
+  /**
+   * Creates and opens the key indexes of a database. Existing indexes are dropped.
+   * @param data data reference
+   * @throws IOException I/O exception
+   */
+  public static void create(final Data data) throws IOException {
+    drop(data);
+
+    final KeyDefinition[] defs = KeyDefinition.parse(data.meta.keyinclude);
+    final boolean updindex = data.meta.updindex;
+    final int size = data.meta.size, dl = defs.length;
+    try {
+      for(int d = 0; d < dl; d++) {
+        // collect and sort tree keys
+        final TokenList keys = new TokenList();
+        for(int pre = 0; pre < size; pre++) {
+          if(data.kind(pre) != Data.ELEM || !defs[d].matches(data, pre)) continue;
+          final int id = updindex ? data.id(pre) : pre;
+          for(final byte[] key : defs[d].keys(data, pre)) keys.add(entry(key, id));
+        }
+        final byte[][] tokens = keys.finish();
+        Array.createOrder(tokens, false, true);
+
+        try(BTree.Builder builder = new BTree.Builder(file(data, d))) {
+          for(final byte[] token : tokens) builder.add(token, 0, id(token));
+        }
+      }
+      data.keyIndex = new KeyIndex(data);
+      data.meta.keyindex = true;
+      data.meta.dirty = true;
+    } catch(final IOException ex) {
+      drop(data);
+      throw ex;
+    }
+  }
+
+  /**
+   * Closes and drops the key indexes of a database.
+   * @param data data reference
+   * @return success flag
+   */
+  public static boolean drop(final Data data) {
+    if(data.keyIndex != null) {
+      data.keyIndex.close();
+      data.keyIndex = null;
+    }
+    data.meta.keyindex = false;
+    data.meta.dirty = true;
+    return data.meta.drop(DATAKEY + "\\d+");
+  }
+
+  /**
+   * Returns a composite key for the specified key values.
+   * @param values key values
+   * @return composite key
+   */
+  public static byte[] key(final byte[]... values) {
+    final TokenBuilder tb = new TokenBuilder();
+    final int vl = values.length;
+    for(int v = 0; v < vl; v++) {
+      if(v > 0) tb.addByte(KeyDefinition.SEPARATOR);
+      tb.add(values[v]);
+    }
+    return tb.finish();
+  }
+
+  /**
+   * Adds the pre values of all elements with the specified key.
+   * @param def index of the definition
+   * @param key composite key
+   * @param all indicates if the key contains values for all keys of the definition
+   *   (otherwise, the key is treated as prefix of longer keys)
+   * @param pres pre values
+   */
+  public void pres(final int def, final byte[] key, final boolean all, final IntList pres) {
+    final boolean updindex = data.meta.updindex;
+    final byte[] prefix = all ? prefix(key) : key;
+    final BTree.Cursor cursor = trees[def].ascending(prefix);
+    while(cursor.next() && Token.startsWith(cursor.key, prefix)) {
+      if(!all && (cursor.key[prefix.length] & 0xFF) > KeyDefinition.SEPARATOR) continue;
+      final int id = (int) cursor.offset;
+      pres.add(updindex ? data.pre(id) : id);
+    }
+  }
+
+  /**
+   * Returns the number of elements with the specified key.
+   * @param def index of the definition
+   * @param key composite key
+   * @param all indicates if the key contains values for all keys of the definition
+   * @return number of elements
+   */
+  public int count(final int def, final byte[] key, final boolean all) {
+    final byte[] prefix = all ? prefix(key) : key;
+    final BTree.Cursor cursor = trees[def].ascending(prefix);
+    int c = 0;
+    while(cursor.next() && Token.startsWith(cursor.key, prefix)) {
+      if(all || (cursor.key[prefix.length] & 0xFF) <= KeyDefinition.SEPARATOR) c++;
+    }
+    return c;
+  }
+
+  /**
+   * Removes the entries of the specified nodes and their ancestors. Called before an update.
+   * @param pre pre value of the first node
+   * @param size number of nodes
+   */
+  public void delete(final int pre, final int size) {
+    final int end = pre + size;
+    for(int p = pre; p < end; p++) delete(p);
+    for(int p = data.parent(pre, data.kind(pre)); p != -1; p = data.parent(p, data.kind(p))) {
+      delete(p);
+    }
+  }
+
+  /**
+   * Adds the entries of the specified nodes, and the entries that have been removed before
+   * the update. Called after an update.
+   * @param pre pre value of the first node
+   * @param size number of nodes
+   */
+  public void add(final int pre, final int size) {
+    final int end = pre + size;
+    for(int p = pre; p < end; p++) add(p);
+    final int rs = removed.size();
+    for(int r = 0; r < rs; r++) {
+      // skip elements that have been deleted
+      final int p = data.pre(removed.get(r));
+      if(p != -1) add(p);
+    }
+    removed.reset();
+  }
+
+  /**
+   * Flushes the buffered data.
+   */
+  public void flush() {
+    for(final BTree tree : trees) tree.flush();
+  }
+
+  /**
+   * Closes the tree files.
+   */
+  public void close() {
+    for(final BTree tree : trees) tree.close();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Removes the entries of the specified node.
+   * @param pre pre value
+   */
+  private void delete(final int pre) {
+    if(data.kind(pre) != Data.ELEM) return;
+    final int id = data.id(pre), dl = definitions.length;
+    boolean found = false;
+    for(int d = 0; d < dl; d++) {
+      if(!definitions[d].matches(data, pre)) continue;
+      for(final byte[] key : definitions[d].keys(data, pre)) trees[d].delete(entry(key, id));
+      found = true;
+    }
+    if(found) removed.add(id);
+  }
+
+  /**
+   * Adds the entries of the specified node.
+   * @param pre pre value
+   */
+  private void add(final int pre) {
+    if(data.kind(pre) != Data.ELEM) return;
+    final int id = data.id(pre), dl = definitions.length;
+    for(int d = 0; d < dl; d++) {
+      if(!definitions[d].matches(data, pre)) continue;
+      for(final byte[] key : definitions[d].keys(data, pre)) trees[d].put(entry(key, id), 0, id);
+    }
+  }
+
+  /**
+   * Returns the tree key for the specified composite key and id.
+   * @param key composite key
+   * @param id id
+   * @return tree key
+   */
+  private static byte[] entry(final byte[] key, final int id) {
+    final TokenBuilder tb = new TokenBuilder(key.length + 5).add(key).addByte((byte) 0);
+    for(int s = 24; s >= 0; s -= 8) tb.addByte((byte) (id >>> s));
+    return tb.finish();
+  }
+
+  /**
+   * Returns the id of a tree key.
+   * @param entry tree key
+   * @return id
+   */
+  private static int id(final byte[] entry) {
+    final int el = entry.length;
+    int id = 0;
+    for(int e = el - 4; e < el; e++) id = id << 8 | entry[e] & 0xFF;
+    return id;
+  }
+
+  /**
+   * Returns the prefix of all tree keys with the specified composite key.
+   * @param key composite key
+   * @return prefix
+   */
+  private static byte[] prefix(final byte[] key) {
+    return new TokenBuilder(key.length + 1).add(key).addByte((byte) 0).finish();
+  }
+
+  /**
+   * Returns the tree file of a definition.
+   * @param data data reference
+   * @param def index of the definition
+   * @return file
+   */
+  private static IOFile file(final Data data, final int def) {
+    return data.meta.dbfile(DATAKEY + def);
+  }
+}
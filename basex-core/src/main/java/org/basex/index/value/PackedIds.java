@@ -0,0 +1,134 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class writes and reads packed id lists of value indexes
+ * (see {@link MetaData#idformat}). A packed list consists of:</p>
+ *
+ * <ul>
+ * <li>the number of ids and the first id, both stored in the {@link Num} format
+ *   (keys can be resolved in the same way as for unpacked lists),</li>
+ * <li>blocks with the distances of the remaining ids. A block contains up to {@link #BLOCK}
+ *   distances and consists of the number of bits per distance (1 byte), the distance between
+ *   the last ids of the previous and the current block ({@link Num} format), and the
+ *   bit-packed distances.</li>
+ * </ul>
+ *
+ * <p>The second entry of a block serves as skip entry: if the ids of a block are smaller than
+ * the requested range, the block is skipped without decoding its distances.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class PackedIds {
+  /** Maximum number of distances in a block. */
+  static final int BLOCK = 128;
+
+  /** Private constructor. */
+  private PackedIds() { }
+
+  /**
+   * Checks if the id lists of the specified index are packed.
+   * Lists of updatable indexes, B+-trees and token indexes are never packed.
+   * @param meta meta data
+   * @param type index type
+   * @return result of check
+   */
+  static boolean packed(final MetaData meta, final IndexType type) {
+    return meta.idformat > 0 && !meta.updindex && !meta.btreeindex && type != IndexType.TOKEN;
+  }
+
+  /**
+   * Writes a list with sorted ids.
+   * @param out output stream
+   * @param ids ids (sorted, not empty)
+   * @throws IOException I/O exception
+   */
+  static void write(final DataOutput out, final IntList ids) throws IOException {
+    final int is = ids.size();
+    out.writeNum(is);
+    int last = ids.get(0);
+    out.writeNum(last);
+
+    final int[] dist = new int[BLOCK];
+    for(int i = 1; i < is; i += BLOCK) {
+      // compute distances and the maximum number of bits per distance
+      final int n = Math.min(BLOCK, is - i), first = last;
+      int or = 0;
+      for(int d = 0; d < n; d++) {
+        final int id = ids.get(i + d);
+        dist[d] = id - last;
+        or |= dist[d];
+        last = id;
+      }
+      final int bits = 32 - Integer.numberOfLeadingZeros(or);
+      out.write1(bits);
+      out.writeNum(last - first);
+
+      // pack distances
+      final byte[] packed = new byte[n * bits + 7 >>> 3];
+      long acc = 0;
+      int ab = 0, p = 0;
+      for(int d = 0; d < n; d++) {
+        acc |= (long) dist[d] << ab;
+        for(ab += bits; ab >= 8; ab -= 8) {
+          packed[p++] = (byte) acc;
+          acc >>>= 8;
+        }
+      }
+      if(ab > 0) packed[p] = (byte) acc;
+      out.write(packed);
+    }
+  }
+
+  /**
+   * Reads the ids of a list that are located within the specified range.
+   * The cursor must point to the first id of the list.
+   * @param da data access
+   * @param count number of ids
+   * @param min minimum id (inclusive)
+   * @param max maximum id (exclusive)
+   * @param ids list for the resulting ids
+   */
+  static void read(final DataAccess da, final int count, final int min, final int max,
+      final IntList ids) {
+
+    if(count == 0) return;
+    int last = da.readNum();
+    if(last >= max) return;
+    if(last >= min) ids.add(last);
+
+    for(int i = 1; i < count; i += BLOCK) {
+      final int n = Math.min(BLOCK, count - i), bits = da.read1() & 0xFF;
+      final int span = da.readNum(), len = n * bits + 7 >>> 3;
+      if(last + span < min) {
+        // skip block
+        da.cursor(da.cursor() + len);
+        last += span;
+        continue;
+      }
+
+      // unpack distances
+      final byte[] packed = da.readBytes(len);
+      final long mask = (1L << bits) - 1;
+      long acc = 0;
+      int ab = 0, p = 0;
+      for(int d = 0; d < n; d++) {
+        for(; ab < bits; ab += 8) acc |= (packed[p++] & 0xFFL) << ab;
+        last += (int) (acc & mask);
+        acc >>>= bits;
+        ab -= bits;
+        if(last >= max) return;
+        if(last >= min) ids.add(last);
+      }
+    }
+  }
+}
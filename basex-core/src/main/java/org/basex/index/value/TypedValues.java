@@ -0,0 +1,348 @@
+package org.basex.index.value;
+
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.math.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class indexes the numbers, dates and dateTimes of a text or attribute index
+ * (see {@link org.basex.core.MainOptions#TYPEDINDEX}). The values are stored in a {@link BTree},
+ * which is saved in the file {@code DATATXT/ATV + 't'}. Each tree key consists of a binary
+ * representation of the typed value, followed by the original string. It references the
+ * id list of the string in the value index.</p>
+ *
+ * <p>The binary representation starts with a byte that denotes the type of the value. It is
+ * followed by 8 bytes and the digits of a fractional part, and terminated by a {@code 0} byte.
+ * The bytes are chosen such that the tokens can be sorted in the order of the typed values:</p>
+ * <ul>
+ * <li>Numbers are stored as doubles. Negative numbers are inverted, and the sign bit of positive
+ *   numbers is flipped.</li>
+ * <li>Dates and dateTimes are stored as seconds. The integer part is stored as long value with
+ *   flipped sign bit, and the fractional part is stored as string. Values with timezone are
+ *   normalized to UTC. Values without timezone are stored separately, as their order depends
+ *   on the implicit timezone of the query.</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class TypedValues {
+  /** Type: number. */
+  private static final byte NUMBER = 1;
+  /** Type: date with timezone. */
+  private static final byte DATE = 2;
+  /** Type: date without timezone. */
+  private static final byte LOCAL_DATE = 3;
+  /** Type: dateTime with timezone. */
+  private static final byte DATETIME = 4;
+  /** Type: dateTime without timezone. */
+  private static final byte LOCAL_DATETIME = 5;
+  /** Length of the type and the integer part. */
+  private static final int LENGTH = 9;
+
+  /** Tree with the typed keys. */
+  private final BTree tree;
+
+  /**
+   * Constructor.
+   * @param data data reference
+   * @param type index type
+   * @throws IOException I/O exception
+   */
+  private TypedValues(final Data data, final IndexType type) throws IOException {
+    tree = new BTree(file(data, type), data.meta.log);
+  }
+
+  /**
+   * Opens the typed keys of a value index.
+   * @param data data reference
+   * @param type index type
+   * @return typed keys, or {@code null} if they do not exist
+   * @throws IOException I/O exception
+   */
+  static TypedValues open(final Data data, final IndexType type) throws IOException {
+    return data.meta.typedindex && type != IndexType.TOKEN && file(data, type).exists() ?
+      new TypedValues(data, type) : null;
+  }
+
+  /**
+   * Creates the typed keys of a new value index.
+   * @param data data reference
+   * @param type index type
+   * @throws IOException I/O exception
+   */
+  static void create(final Data data, final IndexType type) throws IOException {
+    if(type == IndexType.TOKEN) return;
+
+    // collect and sort typed keys
+    final TokenList keys = new TokenList();
+    final IntList sizes = new IntList();
+    final LongList offsets = new LongList();
+    final DiskValues values = data.meta.updindex ? new UpdatableDiskValues(data, type) :
+      new DiskValues(data, type);
+    try {
+      final int entries = values.size();
+      for(int index = 0; index < entries; index++) {
+        final IndexEntry entry = values.list(index);
+        final byte[] key = key(entry.key);
+        if(key != null) {
+          keys.add(key);
+          sizes.add(entry.size);
+          offsets.add(entry.offset);
+        }
+      }
+    } finally {
+      values.close();
+    }
+    final byte[][] tokens = keys.finish();
+    final int[] order = Array.createOrder(tokens, false, true);
+
+    try(BTree.Builder builder = new BTree.Builder(file(data, type))) {
+      final int tl = tokens.length;
+      for(int t = 0; t < tl; t++) {
+        builder.add(tokens[t], sizes.get(order[t]), offsets.get(order[t]));
+      }
+    }
+  }
+
+  /**
+   * Adds a key or updates the size and offset of its id list. Keys that cannot be converted
+   * to a typed value are ignored.
+   * @param value original key
+   * @param size size of the id list
+   * @param offset offset of the id list
+   */
+  void put(final byte[] value, final int size, final long offset) {
+    final byte[] key = key(value);
+    if(key != null) tree.put(key, size, offset);
+  }
+
+  /**
+   * Deletes a key.
+   * @param value original key
+   */
+  void delete(final byte[] value) {
+    final byte[] key = key(value);
+    if(key != null) tree.delete(key);
+  }
+
+  /**
+   * Adds the offsets of the id lists of all numbers in the specified range.
+   * @param range numeric range
+   * @param offsets offsets of the id lists
+   */
+  void range(final NumericRange range, final LongList offsets) {
+    range(number(range.min), range.mni, number(range.max), range.mxi, offsets);
+  }
+
+  /**
+   * Adds the offsets of the id lists of all dates or dateTimes in the specified range.
+   * @param range date range
+   * @param offsets offsets of the id lists
+   */
+  void range(final DateRange range, final LongList offsets) {
+    final boolean date = range.date();
+    final byte zoned = date ? DATE : DATETIME, local = date ? LOCAL_DATE : LOCAL_DATETIME;
+    final int tz = ADate.implicitTimezone();
+    final BigDecimal min = instant(range.min, tz), max = instant(range.max, tz);
+    range(limit(zoned, min, true), range.mni, limit(zoned, max, false), range.mxi, offsets);
+
+    // the instants of values without timezone depend on the implicit timezone
+    final BigDecimal shift = BigDecimal.valueOf(tz * 60L);
+    range(limit(local, min == null ? null : min.add(shift), true), range.mni,
+        limit(local, max == null ? null : max.add(shift), false), range.mxi, offsets);
+  }
+
+  /**
+   * Returns the size of the tree file.
+   * @return size
+   */
+  long length() {
+    return tree.length();
+  }
+
+  /**
+   * Flushes the buffered data.
+   */
+  void flush() {
+    tree.flush();
+  }
+
+  /**
+   * Closes the tree file.
+   */
+  void close() {
+    tree.close();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Adds the offsets of the id lists of all keys in the specified range.
+   * @param min minimum key
+   * @param mni include minimum key
+   * @param max maximum key
+   * @param mxi include maximum key
+   * @param offsets offsets of the id lists
+   */
+  private void range(final byte[] min, final boolean mni, final byte[] max, final boolean mxi,
+      final LongList offsets) {
+    final BTree.Cursor cursor = tree.ascending(min);
+    while(cursor.next()) {
+      final byte[] key = cursor.key;
+      if(!mni && compare(key, min) == 0) continue;
+      final int d = compare(key, max);
+      if(d > 0 || !mxi && d == 0) break;
+      offsets.add(cursor.offset);
+    }
+  }
+
+  /**
+   * Returns the tree file.
+   * @param data data reference
+   * @param type index type
+   * @return file
+   */
+  private static IOFile file(final Data data, final IndexType type) {
+    return data.meta.dbfile(DiskValues.fileSuffix(type) + 't');
+  }
+
+  /**
+   * Returns the typed key for the specified value.
+   * @param value value
+   * @return typed key, or {@code null} if the value has no supported type
+   */
+  private static byte[] key(final byte[] value) {
+    byte[] typed = null;
+    final double d = toDouble(value);
+    if(d == d) {
+      typed = number(d);
+    } else {
+      final ADate date = date(value);
+      if(date != null) {
+        final byte tp = date instanceof Dat ? date.hasTz() ? DATE : LOCAL_DATE :
+          date.hasTz() ? DATETIME : LOCAL_DATETIME;
+        typed = seconds(tp, date.utcSeconds());
+      }
+    }
+    return typed == null ? null : new TokenBuilder(typed.length + value.length).
+        add(typed).add(value).finish();
+  }
+
+  /**
+   * Compares the typed part of a key with a minimum or maximum key.
+   * @param key key
+   * @param limit typed limit
+   * @return difference
+   */
+  private static int compare(final byte[] key, final byte[] limit) {
+    // find terminating zero byte of typed part
+    int kl = LENGTH;
+    while(key[kl++] != 0);
+    final int ll = limit.length, l = Math.min(kl, ll);
+    for(int i = 0; i < l; i++) {
+      final int d = (key[i] & 0xFF) - (limit[i] & 0xFF);
+      if(d != 0) return d;
+    }
+    return kl - ll;
+  }
+
+  /**
+   * Returns the binary representation of a number.
+   * @param number number
+   * @return typed key
+   */
+  private static byte[] number(final double number) {
+    long bits = Double.doubleToLongBits(number == 0 ? 0.0 : number);
+    bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    return bytes(NUMBER, bits, EMPTY);
+  }
+
+  /**
+   * Returns the binary representation of seconds.
+   * @param tp type
+   * @param seconds seconds
+   * @return typed key, or {@code null} if the value is too large
+   */
+  private static byte[] seconds(final byte tp, final BigDecimal seconds) {
+    final BigDecimal integer = seconds.setScale(0, RoundingMode.FLOOR);
+    final BigDecimal fraction = seconds.subtract(integer).stripTrailingZeros();
+    final long bits;
+    try {
+      bits = integer.longValueExact() ^ Long.MIN_VALUE;
+    } catch(final ArithmeticException ex) {
+      Util.debug(ex);
+      return null;
+    }
+    return bytes(tp, bits, fraction.signum() == 0 ? EMPTY :
+      token(fraction.toPlainString().substring(2)));
+  }
+
+  /**
+   * Returns a typed key.
+   * @param tp type
+   * @param bits integer part
+   * @param fraction fractional digits
+   * @return typed key
+   */
+  private static byte[] bytes(final byte tp, final long bits, final byte[] fraction) {
+    final TokenBuilder tb = new TokenBuilder(LENGTH + fraction.length + 1).addByte(tp);
+    for(int s = 56; s >= 0; s -= 8) tb.addByte((byte) (bits >>> s));
+    return tb.add(fraction).addByte((byte) 0).finish();
+  }
+
+  /**
+   * Returns a typed limit for a range query.
+   * @param tp type
+   * @param seconds seconds ({@code null}: no limit)
+   * @param lower lower limit
+   * @return typed key
+   */
+  private static byte[] limit(final byte tp, final BigDecimal seconds, final boolean lower) {
+    final byte[] key = seconds == null ? null : seconds(tp, seconds);
+    if(key != null) return key;
+    // no limit, or limit exceeds the range of indexed values
+    final boolean first = seconds == null ? lower : seconds.signum() < 0;
+    return new byte[] { first ? tp : (byte) (tp + 1) };
+  }
+
+  /**
+   * Returns the instant of a date.
+   * @param date date (can be {@code null})
+   * @param tz implicit timezone
+   * @return seconds, or {@code null}
+   */
+  private static BigDecimal instant(final ADate date, final int tz) {
+    if(date == null) return null;
+    final BigDecimal seconds = date.utcSeconds();
+    return date.hasTz() ? seconds : seconds.subtract(BigDecimal.valueOf(tz * 60L));
+  }
+
+  /**
+   * Converts a value to a date or dateTime.
+   * @param value value
+   * @return date, or {@code null} if the value is no date or dateTime
+   */
+  private static ADate date(final byte[] value) {
+    // skip values that cannot be dates
+    final byte[] v = trim(value);
+    final int vl = v.length;
+    if(vl < 10 || !digit(v[vl - 1]) && v[vl - 1] != 'Z' || !contains(v, '-')) return null;
+    try {
+      return contains(v, 'T') ? new Dtm(v, null) : new Dat(v, null);
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return null;
+    }
+  }
+}
@@ -135,6 +135,7 @@ public final class UpdatableDiskValues extends DiskValues {
     // delete cached index entry if no ids remain
     if(newSize == 0) {
       cache.delete(key);
+      if(typed != null) typed.delete(key);
       return true;
     }
 
@@ -201,8 +202,9 @@ public final class UpdatableDiskValues extends DiskValues {
     idxl.writeNum(sz);
     for(final int num : nums) idxl.writeNum(num);
 
-    // update cache entry
+    // update cache entry and typed key
     cache.add(key, sz, offset + Num.length(sz));
+    if(typed != null) typed.put(key, sz, offset);
   }
 
   /**
@@ -232,7 +234,7 @@ public final class UpdatableDiskValues extends DiskValues {
    * @param pos position list (can be {@code null})
    * @return differences
    */
-  private static int[] prepare(final IntList ids, final IntList pos) {
+  static int[] prepare(final IntList ids, final IntList pos) {
     final int is = ids.size();
     final IntList result = new IntList(pos == null ? is : is << 1);
     int[] order = null;
@@ -2,6 +2,8 @@ package org.basex.index.value;
 
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.util.*;
 
 /**
  * Index for texts, attribute values and full-texts.
@@ -47,4 +49,22 @@ public abstract class ValueIndex implements Index {
    * Flushes the buffered data.
    */
   public abstract void flush();
+
+  /**
+   * Returns an iterator for the index entries of the specified token whose pre values are
+   * located within the specified range.
+   * @param token index token reference
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
+   * @return iterator
+   */
+  public IndexIterator iter(final IndexToken token, final int min, final int max) {
+    final IndexIterator iter = iter(token);
+    final Bitmap bitmap = new Bitmap();
+    while(iter.more()) {
+      final int pre = iter.pre();
+      if(pre >= min && pre < max) bitmap.add(pre);
+    }
+    return new BitmapIterator(bitmap);
+  }
 }
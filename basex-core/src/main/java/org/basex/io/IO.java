@@ -61,6 +61,8 @@ public abstract class IO {
   public static final String IGNORESUFFIX = ".ignore";
   /** Directory for raw files. */
   public static final String RAW = "raw";
+  /** Directory for the contents of deduplicated raw files. */
+  public static final String BLOBS = "blobs";
   /** File prefix. */
   public static final String FILEPREF = "file:/";
 
@@ -82,8 +84,10 @@ public abstract class IO {
   /** Text suffixes. */
   public static final String[] TXTSUFFIXES = { ".txt", ".text", ".ini", ".conf", ".md", ".log" };
 
+  /** Disk block/page size power (12). */
+  public static final int BLOCKPOWER = 12;
   /** Disk block/page size (4096). */
-  public static final int BLOCKSIZE = 1 << 12;
+  public static final int BLOCKSIZE = 1 << BLOCKPOWER;
   /** Table node size power (4). */
   public static final int NODEPOWER = 4;
   /** Table node size power (16). */
@@ -56,6 +56,14 @@ public final class NewlineInput extends TextInput {
     return '\n';
   }
 
+  /**
+   * Indicates if a character has been cached after a carriage return.
+   * @return result of check
+   */
+  boolean cached() {
+    return next != -2;
+  }
+
   /**
    * Reads and returns a single line.
    * @return line or {@code null}
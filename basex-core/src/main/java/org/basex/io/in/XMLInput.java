@@ -72,6 +72,49 @@ public class XMLInput extends InputStream {
     return ch;
   }
 
+  /**
+   * Copies a run of characters to the specified token builder. This is a fast path for UTF-8
+   * input, which will be chosen if no characters have been pushed back and if no entities are
+   * being read: The bytes are scanned in the input buffer, and the run ends before the first
+   * stop character, before the first character that needs to be decoded or validated via
+   * {@link #read()}, or at the end of the buffer.
+   * @param tb token builder
+   * @param stop bytes that end a run (all bytes must be stop bytes for which {@link #read()}
+   *   returns a different value, such as carriage returns and invalid XML characters)
+   */
+  public void copy(final TokenBuilder tb, final boolean[] stop) {
+    final NewlineInput in = inputs[0];
+    if(pp != 0 || ip != 0 || in.cached() || in.encoding() != Strings.UTF8) return;
+
+    final byte[] array = in.array;
+    final int start = in.bpos, size = in.bsize;
+    int p = start;
+    while(p < size) {
+      final int b = array[p] & 0xFF;
+      if(stop[b]) break;
+      int cp = b, cl = 1;
+      if(b >= 0x80) {
+        // multi-byte character: check for complete and valid encoding
+        cl = Token.cl((byte) b);
+        if(b < 0xC0 || p + cl > size) break;
+        int c = 1;
+        while(c < cl && (array[p + c] & 0xC0) == 0x80) c++;
+        if(c < cl) break;
+        cp = Token.cp(array, p);
+        if(!XMLToken.valid(cp)) break;
+      } else if(b == '\n') {
+        ++line;
+      }
+      last[lp++] = cp;
+      lp &= 0x0F;
+      p += cl;
+    }
+    if(p > start) {
+      tb.add(array, start, p);
+      in.bpos = p;
+    }
+  }
+
   /**
    * Inserts some bytes in the input stream.
    * @param value values to insert
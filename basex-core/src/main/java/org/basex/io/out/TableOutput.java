@@ -1,20 +1,27 @@
 package org.basex.io.out;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
 
 /**
  * This class allows a blockwise output of the database table.
+ * If table compression is enabled, pages will be compressed via {@link TableCompression}.
  *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class TableOutput extends OutputStream {
+  /** Pages that are kept in main memory after they have been written ({@code null} if pages are
+   * directly written to disk). */
+  private final byte[][] window;
   /** Buffer. */
-  private final byte[] buffer = new byte[IO.BLOCKSIZE];
+  private byte[] buffer = new byte[IO.BLOCKSIZE];
 
   /** The underlying output stream. */
   private final OutputStream os;
@@ -23,10 +30,17 @@ public final class TableOutput extends OutputStream {
   /** Current filename. */
   private final String file;
 
+  /** Slots of compressed pages ({@code null} if pages are not compressed). */
+  private final LongList slots;
+
   /** Position inside buffer. */
   private int pos;
   /** Number of pages. */
   private int pages;
+  /** Number of pages in the window that have not been written to disk yet. */
+  private int kept;
+  /** File offset. */
+  private long offset;
 
   /**
    * Initializes the output.
@@ -36,9 +50,49 @@ public final class TableOutput extends OutputStream {
    * @throws IOException I/O exception
    */
   public TableOutput(final MetaData md, final String fn) throws IOException {
+    this(md, fn, 0);
+  }
+
+  /**
+   * Initializes the output.
+   * The most recently written pages will be kept in main memory. They can be updated via
+   * {@link #write4(int, int, int)}.
+   * @param md meta data
+   * @param fn the file to be written to
+   * @param pgs maximum number of pages to be kept in main memory
+   * @throws IOException I/O exception
+   */
+  public TableOutput(final MetaData md, final String fn, final int pgs) throws IOException {
     os = new FileOutputStream(md.dbfile(fn).file());
     meta = md;
     file = fn;
+    slots = md.tablecompress ? new LongList() : null;
+    window = pgs > 0 ? new byte[pgs][] : null;
+  }
+
+  /**
+   * Updates an integer value of a table entry if its page is still kept in main memory.
+   * @param pre pre value
+   * @param off offset of the value in the entry
+   * @param value value to be written
+   * @return success flag
+   */
+  public boolean write4(final int pre, final int off, final int value) {
+    final long p = (long) pre << IO.NODEPOWER;
+    final int page = (int) (p / IO.BLOCKSIZE), o = (int) (p % IO.BLOCKSIZE) + off;
+    final byte[] b;
+    if(page == pages) {
+      b = buffer;
+    } else if(window != null && page < pages && page >= pages - kept) {
+      b = window[page % window.length];
+    } else {
+      return false;
+    }
+    b[o] = (byte) (value >>> 24);
+    b[o + 1] = (byte) (value >>> 16);
+    b[o + 2] = (byte) (value >>> 8);
+    b[o + 3] = (byte) value;
+    return true;
   }
 
   @Override
@@ -50,7 +104,22 @@ public final class TableOutput extends OutputStream {
   @Override
   public void flush() throws IOException {
     if(pos == 0) return;
-    os.write(buffer);
+    // clear remaining bytes of last page
+    if(slots != null) Arrays.fill(buffer, pos, IO.BLOCKSIZE, (byte) 0);
+    if(window != null) {
+      // keep page in main memory, write oldest page to disk
+      final int w = window.length;
+      if(kept == w) {
+        writePage(window[(pages - kept) % w]);
+        kept--;
+      }
+      final byte[] page = window[pages % w];
+      window[pages % w] = buffer;
+      buffer = page != null ? page : new byte[IO.BLOCKSIZE];
+      kept++;
+    } else {
+      writePage(buffer);
+    }
     pages++;
     pos = 0;
   }
@@ -61,6 +130,8 @@ public final class TableOutput extends OutputStream {
     final boolean empty = pages == 0 && pos == 0;
     if(empty) pos++;
     flush();
+    // write remaining pages
+    for(; kept > 0; kept--) writePage(window[(pages - kept) % window.length]);
     os.close();
 
     // create table info file
@@ -68,6 +139,23 @@ public final class TableOutput extends OutputStream {
       out.writeNum(pages);
       // max value indicates that regular page table is not stored on disk
       out.writeNum(empty ? 0 : Integer.MAX_VALUE);
+      if(slots != null) out.writeLongs(slots.finish());
+    }
+  }
+
+  /**
+   * Writes a page to disk.
+   * @param page page
+   * @throws IOException I/O exception
+   */
+  private void writePage(final byte[] page) throws IOException {
+    if(slots != null) {
+      final byte[] packed = TableCompression.pack(page);
+      slots.add(offset << 16 | packed.length);
+      os.write(packed);
+      offset += packed.length;
+    } else {
+      os.write(page);
     }
   }
 }
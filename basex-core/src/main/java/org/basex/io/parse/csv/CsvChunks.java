@@ -0,0 +1,122 @@
+package org.basex.io.parse.csv;
+
+import java.io.*;
+
+import org.basex.build.csv.*;
+import org.basex.io.in.*;
+import org.basex.util.*;
+
+/**
+ * This class splits CSV input into chunks with complete records, which can be converted
+ * independently. Quoted line breaks are detected in the same way as by the CSV parser.
+ * If the input has a header, it will be prepended to all chunks.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class CsvChunks {
+  /** Input. */
+  private final TextInput input;
+  /** Minimum size of a chunk (in bytes). */
+  private final int size;
+  /** Header flag. */
+  private final boolean header;
+  /** Backslash flag. */
+  private final boolean backslashes;
+  /** Column separator (see {@link CsvOptions#SEPARATOR}). */
+  private final int separator;
+  /** Parse quotes.  */
+  private final boolean quotes;
+  /** Current chunk. */
+  private final TokenBuilder chunk = new TokenBuilder();
+
+  /** Header line ({@code null} if the first chunk has not been created yet). */
+  private byte[] head;
+
+  /**
+   * Constructor.
+   * @param input input
+   * @param opts options
+   * @param size minimum size of a chunk (in bytes)
+   */
+  public CsvChunks(final TextInput input, final CsvParserOptions opts, final int size) {
+    this.input = input;
+    this.size = size;
+    header = opts.get(CsvOptions.HEADER);
+    separator = opts.separator();
+    quotes = opts.get(CsvOptions.QUOTES);
+    backslashes = opts.get(CsvOptions.BACKSLASHES);
+  }
+
+  /**
+   * Returns the next chunk.
+   * @return chunk in UTF-8, or {@code null} if all records have been returned
+   * @throws IOException I/O exception
+   */
+  public byte[] next() throws IOException {
+    chunk.reset();
+    if(head == null) {
+      if(header) record();
+      head = chunk.toArray();
+    } else {
+      chunk.add(head);
+    }
+    final int hs = chunk.size();
+    while(chunk.size() - hs < size && record());
+    return chunk.size() > hs ? chunk.toArray() : null;
+  }
+
+  /**
+   * Adds the next record to the current chunk.
+   * @return {@code false} if the end of the input has been reached
+   * @throws IOException I/O exception
+   */
+  private boolean record() throws IOException {
+    boolean quoted = false, empty = true;
+    int ch = read();
+    if(ch == -1) return false;
+    while(ch != -1) {
+      if(quoted) {
+        // quoted state
+        if(ch == '"') {
+          ch = read();
+          if(ch != '"') {
+            quoted = false;
+            continue;
+          }
+        } else if(ch == '\\' && backslashes) {
+          read();
+        }
+        empty = false;
+      } else if(ch == '"') {
+        if(quotes && empty) {
+          quoted = true;
+        } else {
+          ch = read();
+          if(ch != '"' || backslashes) empty = false;
+          continue;
+        }
+      } else if(ch == separator) {
+        empty = true;
+      } else if(ch == '\n') {
+        return true;
+      } else {
+        if(ch == '\\' && backslashes) read();
+        empty = false;
+      }
+      ch = read();
+    }
+    return true;
+  }
+
+  /**
+   * Reads the next character and adds it to the current chunk.
+   * @return next character, or {@code -1} if the end of the input has been reached
+   * @throws IOException I/O exception
+   */
+  private int read() throws IOException {
+    final int ch = input.read();
+    if(ch != -1) chunk.add(ch);
+    return ch;
+  }
+}
@@ -64,6 +64,31 @@ final class JsonParser extends InputParser {
    */
   static void parse(final String input, final String path, final JsonParserOptions opts,
       final JsonConverter conv) throws QueryIOException {
+    if(opts.get(JsonParserOptions.LINES)) {
+      // JSON Lines: convert non-empty lines to members of an array
+      conv.openArray();
+      for(final String line : input.split("\n")) {
+        if(line.trim().isEmpty()) continue;
+        conv.openItem();
+        text(line, path, opts, conv);
+        conv.closeItem();
+      }
+      conv.closeArray();
+    } else {
+      text(input, path, opts, conv);
+    }
+  }
+
+  /**
+   * Parses a single JSON text.
+   * @param input input string
+   * @param path input path (can be {@code null)}
+   * @param opts options
+   * @param conv converter
+   * @throws QueryIOException parse exception
+   */
+  private static void text(final String input, final String path, final JsonParserOptions opts,
+      final JsonConverter conv) throws QueryIOException {
     final JsonParser parser = new JsonParser(input, opts, conv);
     parser.file = path;
     parser.parse();
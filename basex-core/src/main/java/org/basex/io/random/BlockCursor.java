@@ -0,0 +1,107 @@
+package org.basex.io.random;
+
+import java.nio.*;
+
+import org.basex.io.*;
+
+/**
+ * Cursor of a single reading thread. It references a block of a file, which has either been
+ * copied from the buffer pool or which is part of a memory mapping.
+ * As each thread owns its cursor, no synchronization is required for reading the block.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class BlockCursor {
+  /** Version of the file contents the block belongs to ({@code -1}: no block). */
+  int version = -1;
+  /** Block position ({@code -1}: no block). */
+  long pos = -1;
+  /** Pre value of the first entry in the block (only assigned for table blocks). */
+  int firstPre = -1;
+  /** First pre value of the next block (only assigned for table blocks). */
+  int nextPre = -1;
+  /** Index of the block in the table (only assigned for table blocks). */
+  int page = -1;
+  /** Number of blocks that have been accessed in sequential order. */
+  int run;
+  /** Index of the last block that has been read ahead. */
+  int ahead = -1;
+
+  /** Buffer containing the block. */
+  private ByteBuffer buffer;
+  /** Offset of the block in the buffer. */
+  private int offset;
+  /** Copy of the block (only allocated if blocks are not mapped). */
+  private byte[] data;
+  /** Buffer wrapping the copy of the block. */
+  private ByteBuffer copy;
+
+  /**
+   * Assigns a block of a memory mapping.
+   * @param bb buffer containing the block
+   * @param off offset of the block in the buffer
+   */
+  void map(final ByteBuffer bb, final int off) {
+    buffer = bb;
+    offset = off;
+  }
+
+  /**
+   * Returns an array for copying a block. The array is assigned as current block.
+   * @return array
+   */
+  byte[] data() {
+    if(data == null) {
+      data = new byte[IO.BLOCKSIZE];
+      copy = ByteBuffer.wrap(data);
+    }
+    buffer = copy;
+    offset = 0;
+    return data;
+  }
+
+  /**
+   * Reads a byte value.
+   * @param o offset in the block
+   * @return integer value
+   */
+  int read1(final int o) {
+    return buffer.get(offset + o) & 0xFF;
+  }
+
+  /**
+   * Reads a short value.
+   * @param o offset in the block
+   * @return integer value
+   */
+  int read2(final int o) {
+    final int p = offset + o;
+    final ByteBuffer bb = buffer;
+    return ((bb.get(p) & 0xFF) << 8) + (bb.get(p + 1) & 0xFF);
+  }
+
+  /**
+   * Reads an integer value.
+   * @param o offset in the block
+   * @return integer value
+   */
+  int read4(final int o) {
+    final int p = offset + o;
+    final ByteBuffer bb = buffer;
+    return ((bb.get(p) & 0xFF) << 24) + ((bb.get(p + 1) & 0xFF) << 16) +
+      ((bb.get(p + 2) & 0xFF) << 8) + (bb.get(p + 3) & 0xFF);
+  }
+
+  /**
+   * Reads a 5-byte value.
+   * @param o offset in the block
+   * @return long value
+   */
+  long read5(final int o) {
+    final int p = offset + o;
+    final ByteBuffer bb = buffer;
+    return ((long) (bb.get(p) & 0xFF) << 32) + ((long) (bb.get(p + 1) & 0xFF) << 24) +
+      ((bb.get(p + 2) & 0xFF) << 16) + ((bb.get(p + 3) & 0xFF) << 8) + (bb.get(p + 4) & 0xFF);
+  }
+}
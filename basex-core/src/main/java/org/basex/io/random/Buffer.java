@@ -1,5 +1,9 @@
 package org.basex.io.random;
 
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
 import org.basex.io.*;
 
 /**
@@ -15,4 +19,55 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+
+  /** Owner of the buffer ({@code null} if the buffer is not assigned). */
+  Buffers owner;
+  /** Indicates if the buffer has been accessed repeatedly. */
+  boolean hot;
+  /** Indicates if the buffer has been read ahead and not been requested yet. */
+  boolean ahead;
+  /** Previous buffer in the queue of the buffer pool. */
+  Buffer prev;
+  /** Next buffer in the queue of the buffer pool. */
+  Buffer next;
+
+  /**
+   * Reads bytes from the specified channel. Reading stops when the end of file is reached.
+   * @param channel file channel
+   * @param off file offset
+   * @param len number of bytes to read
+   * @throws IOException I/O exception
+   */
+  void read(final FileChannel channel, final long off, final int len) throws IOException {
+    read(channel, off, data, len);
+  }
+
+  /**
+   * Reads bytes from the specified channel into an array. Reading stops when the end of file
+   * is reached. The channel position is not changed.
+   * @param channel file channel
+   * @param off file offset
+   * @param data target array
+   * @param len number of bytes to read
+   * @throws IOException I/O exception
+   */
+  static void read(final FileChannel channel, final long off, final byte[] data, final int len)
+      throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(data, 0, len);
+    while(bb.hasRemaining() && channel.read(bb, off + bb.position()) != -1);
+  }
+
+  /**
+   * Writes bytes from an array to the specified channel. The channel position is not changed.
+   * @param channel file channel
+   * @param off file offset
+   * @param data source array
+   * @param len number of bytes to write
+   * @throws IOException I/O exception
+   */
+  static void write(final FileChannel channel, final long off, final byte[] data, final int len)
+      throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(data, 0, len);
+    while(bb.hasRemaining()) channel.write(bb, off + bb.position());
+  }
 }
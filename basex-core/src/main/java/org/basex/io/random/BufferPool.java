@@ -0,0 +1,430 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides a process-wide, size-bounded pool of disk buffers, which is shared by all
+ * opened database files.
+ *
+ * Buffers are evicted via the 2Q strategy: buffers that are requested for the first time are
+ * added to a FIFO queue. The keys of buffers that are evicted from this queue are remembered;
+ * if they are requested again soon, they are added to an LRU queue. This way, scans over
+ * cold data will not replace frequently accessed buffers.
+ *
+ * Dirty buffers are never written back by the pool, as this could interfere with concurrent
+ * operations on the file they belong to. Instead, the owners of dirty buffers are requested
+ * to write them back, and the pool may temporarily exceed its capacity.
+ *
+ * Blocks that are expected to be requested soon can be read ahead. The read requests are
+ * processed by a single background thread.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPool {
+  /** Process-wide buffer pool. */
+  private static final BufferPool POOL = new BufferPool();
+  /** Default size of the pool (in megabytes). */
+  private static final int DEFAULT = 32;
+  /** Maximum number of pending read-ahead requests. */
+  private static final int REQUESTS = 64;
+
+  /** Queue of buffers that have been requested once (the head is the most recent entry). */
+  private final Buffer in = queue();
+  /** Queue of buffers that have been accessed repeatedly (the head is the most recent entry). */
+  private final Buffer main = queue();
+  /** Released buffers. */
+  private final ArrayList<Buffer> free = new ArrayList<>();
+  /** Keys of buffers that have recently been evicted from the first queue. */
+  private final LinkedHashSet<Long> ghosts = new LinkedHashSet<>();
+  /** Pending read-ahead requests. */
+  private final BlockingQueue<Runnable> pending = new ArrayBlockingQueue<>(REQUESTS);
+  /** Thread that processes read-ahead requests (started with the first request). */
+  private Thread reader;
+
+  /** Maximum number of buffers. */
+  private int capacity;
+  /** Number of allocated buffers. */
+  private int allocated;
+  /** Number of buffers in the first queue. */
+  private int ins;
+  /** Maximum number of blocks that will be read ahead. */
+  private int readahead = 16;
+
+  /** Number of requests that could be served from the pool. */
+  private long hits;
+  /** Number of requests that required a buffer to be read. */
+  private long misses;
+  /** Number of dirty buffers that were written back. */
+  private long writes;
+  /** Number of buffers that have been read ahead. */
+  private long aheads;
+  /** Number of buffers read ahead that have been requested later on. */
+  private long aheadHits;
+
+  /**
+   * Private constructor.
+   */
+  private BufferPool() {
+    size(DEFAULT);
+  }
+
+  /**
+   * Returns the process-wide buffer pool.
+   * @return buffer pool
+   */
+  public static BufferPool get() {
+    return POOL;
+  }
+
+  /**
+   * Assigns the maximum size of the pool. If the pool is shrunk, superfluous buffers will be
+   * discarded when new buffers are requested.
+   * @param mb size in megabytes
+   */
+  public synchronized void size(final int mb) {
+    capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, ((long) mb << 20) / IO.BLOCKSIZE));
+    while(allocated > capacity && !free.isEmpty()) {
+      free.remove(free.size() - 1);
+      allocated--;
+    }
+  }
+
+  /**
+   * Assigns the maximum number of blocks that will be read ahead.
+   * @param blocks number of blocks ({@code 0}: disable read-ahead)
+   */
+  public synchronized void readAhead(final int blocks) {
+    readahead = Math.max(0, blocks);
+  }
+
+  /**
+   * Returns the maximum number of blocks that will be read ahead.
+   * @return number of blocks
+   */
+  synchronized int readAhead() {
+    return readahead;
+  }
+
+  /**
+   * Returns information on the size and the usage of the pool.
+   * @return info string
+   */
+  public synchronized String info() {
+    final long requests = hits + misses;
+    return Performance.format((long) allocated * IO.BLOCKSIZE) + " / " +
+      Performance.format((long) capacity * IO.BLOCKSIZE) + ", " +
+      percent(hits, requests) + "% hits (" + hits + " hits, " + misses + " misses, " +
+      writes + " writes), " + aheads + " blocks read ahead (" + percent(aheadHits, aheads) +
+      "% requested)";
+  }
+
+  /**
+   * Returns the ratio of buffers read ahead that have been requested later on.
+   * @return ratio (between {@code 0} and {@code 1})
+   */
+  public synchronized double aheadRatio() {
+    return aheads == 0 ? 0 : (double) aheadHits / aheads;
+  }
+
+  /**
+   * Submits a read-ahead request. The request will be discarded if too many requests are pending.
+   * @param request request
+   */
+  void submit(final Runnable request) {
+    if(!pending.offer(request)) return;
+    synchronized(pending) {
+      if(reader != null) return;
+      reader = new Thread(() -> {
+        while(true) {
+          try {
+            pending.take().run();
+          } catch(final InterruptedException ex) {
+            Util.debug(ex);
+          }
+        }
+      }, "ReadAhead");
+      reader.setDaemon(true);
+      reader.start();
+    }
+  }
+
+  /**
+   * Chooses a buffer for the specified owner and position and pins it as current buffer.
+   * @param owner owner
+   * @param pos position
+   * @return {@code true} if the contents of the buffer need to be read
+   */
+  synchronized boolean cursor(final Buffers owner, final long pos) {
+    Buffer bf = owner.buffers.get(pos);
+    final boolean miss = bf == null;
+    if(miss) {
+      misses++;
+      bf = assign(owner, pos);
+    } else {
+      hit(bf);
+    }
+    owner.current = bf;
+    return miss;
+  }
+
+  /**
+   * Checks if the specified owner is requested to write back its dirty buffers.
+   * @param owner owner
+   * @return result of check
+   */
+  synchronized boolean evict(final Buffers owner) {
+    return owner.evict;
+  }
+
+  /**
+   * Copies the contents of a buffer of the specified owner to the specified array.
+   * The current buffer of the owner is not changed.
+   * @param owner owner
+   * @param pos position
+   * @param target target array
+   * @return {@code true} if the buffer was found in the pool
+   */
+  synchronized boolean copy(final Buffers owner, final long pos, final byte[] target) {
+    final Buffer bf = owner.buffers.get(pos);
+    if(bf == null) {
+      misses++;
+      return false;
+    }
+    hit(bf);
+    System.arraycopy(bf.data, 0, target, 0, IO.BLOCKSIZE);
+    return true;
+  }
+
+  /**
+   * Checks if a buffer of the specified owner exists for the specified position.
+   * @param owner owner
+   * @param pos position
+   * @return result of check
+   */
+  synchronized boolean contains(final Buffers owner, final long pos) {
+    return owner.buffers.containsKey(pos);
+  }
+
+  /**
+   * Adds a buffer with a copy of the specified contents, unless a buffer for the specified
+   * position already exists. The current buffer of the owner is not changed.
+   * @param owner owner
+   * @param pos position
+   * @param source source array
+   * @param ahead indicates if the contents have been read ahead
+   */
+  synchronized void add(final Buffers owner, final long pos, final byte[] source,
+      final boolean ahead) {
+    if(owner.buffers.containsKey(pos)) return;
+    final Buffer bf = assign(owner, pos);
+    System.arraycopy(source, 0, bf.data, 0, IO.BLOCKSIZE);
+    if(ahead) {
+      bf.ahead = true;
+      aheads++;
+    }
+  }
+
+  /**
+   * Writes all dirty buffers of the specified owner back to disk.
+   * @param owner owner
+   * @throws IOException I/O exception
+   */
+  synchronized void flush(final Buffers owner) throws IOException {
+    for(final Buffer bf : owner.buffers.values()) {
+      if(bf.dirty) {
+        owner.writer.write(bf);
+        writes++;
+      }
+    }
+    owner.evict = false;
+  }
+
+  /**
+   * Returns the buffers of the specified owner to the pool.
+   * The current buffer is detached from the pool and remains accessible by the owner.
+   * @param owner owner
+   */
+  synchronized void release(final Buffers owner) {
+    for(final Buffer bf : owner.buffers.values()) {
+      unlink(bf);
+      bf.owner = null;
+      if(bf == owner.current || allocated > capacity) {
+        allocated--;
+      } else {
+        bf.pos = -1;
+        bf.dirty = false;
+        free.add(bf);
+      }
+    }
+    owner.buffers.clear();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Assigns an unassigned buffer to the specified owner and position.
+   * @param owner owner
+   * @param pos position
+   * @return buffer
+   */
+  private Buffer assign(final Buffers owner, final long pos) {
+    final Buffer bf = reclaim();
+    bf.owner = owner;
+    bf.pos = pos;
+    bf.dirty = false;
+    bf.ahead = false;
+    owner.buffers.put(pos, bf);
+    // buffers that have recently been evicted are directly moved to the LRU queue
+    bf.hot = ghosts.remove(key(owner, pos));
+    link(bf);
+    return bf;
+  }
+
+  /**
+   * Registers a request that could be served from the pool.
+   * @param bf buffer
+   */
+  private void hit(final Buffer bf) {
+    hits++;
+    if(bf.ahead) {
+      bf.ahead = false;
+      aheadHits++;
+    }
+    // move buffer to the head of the LRU queue (buffers in the FIFO queue will not be moved)
+    if(bf.hot) {
+      unlink(bf);
+      link(bf);
+    }
+  }
+
+  /**
+   * Returns an unassigned buffer. A new buffer is created if the pool is not full or if all
+   * assigned buffers are pinned or dirty. Otherwise, a buffer is evicted.
+   * @return buffer
+   */
+  private Buffer reclaim() {
+    if(!free.isEmpty()) return free.remove(free.size() - 1);
+    if(allocated < capacity) {
+      allocated++;
+      return new Buffer();
+    }
+
+    // evict from the first queue if it exceeds its share of the pool
+    Buffer bf = ins > capacity >>> 2 ? victim(in) : null;
+    if(bf == null) bf = victim(main);
+    if(bf == null) bf = victim(in);
+    if(bf == null) {
+      // all buffers are pinned or dirty
+      allocated++;
+      return new Buffer();
+    }
+    evict(bf);
+    // discard superfluous buffers if the pool has been shrunk
+    while(allocated > capacity) {
+      final Buffer b = victim(ins > 0 ? in : main);
+      if(b == null) break;
+      evict(b);
+      allocated--;
+    }
+    return bf;
+  }
+
+  /**
+   * Returns the least recently used buffer of a queue that is neither pinned nor dirty.
+   * The owners of skipped dirty buffers are requested to write them back.
+   * @param queue queue
+   * @return buffer or {@code null}
+   */
+  private static Buffer victim(final Buffer queue) {
+    for(Buffer bf = queue.prev; bf != queue; bf = bf.prev) {
+      final Buffers owner = bf.owner;
+      if(bf.dirty) owner.evict = true;
+      else if(owner.current != bf) return bf;
+    }
+    return null;
+  }
+
+  /**
+   * Evicts a buffer that is not dirty.
+   * @param bf buffer
+   */
+  private void evict(final Buffer bf) {
+    final Buffers owner = bf.owner;
+    if(!bf.hot) {
+      // remember key; limit number of remembered keys to half of the pool size
+      ghosts.add(key(owner, bf.pos));
+      if(ghosts.size() > capacity >>> 1) {
+        final Iterator<Long> iter = ghosts.iterator();
+        iter.next();
+        iter.remove();
+      }
+    }
+    owner.buffers.remove(bf.pos);
+    unlink(bf);
+    bf.owner = null;
+  }
+
+  /**
+   * Adds a buffer to the head of its queue.
+   * @param bf buffer
+   */
+  private void link(final Buffer bf) {
+    final Buffer queue = bf.hot ? main : in;
+    bf.prev = queue;
+    bf.next = queue.next;
+    queue.next.prev = bf;
+    queue.next = bf;
+    if(!bf.hot) ins++;
+  }
+
+  /**
+   * Removes a buffer from its queue.
+   * @param bf buffer
+   */
+  private void unlink(final Buffer bf) {
+    if(bf.prev == null) return;
+    bf.prev.next = bf.next;
+    bf.next.prev = bf.prev;
+    bf.prev = null;
+    bf.next = null;
+    if(!bf.hot) ins--;
+  }
+
+  /**
+   * Creates an empty queue.
+   * @return sentinel entry of the queue
+   */
+  private static Buffer queue() {
+    final Buffer queue = new Buffer();
+    queue.prev = queue;
+    queue.next = queue;
+    return queue;
+  }
+
+  /**
+   * Returns a percentage.
+   * @param count count
+   * @param total total number
+   * @return percentage, with one decimal place
+   */
+  private static double percent(final long count, final long total) {
+    return total == 0 ? 0 : count * 1000 / total / 10.0d;
+  }
+
+  /**
+   * Returns a key for the specified owner and position. Keys are only used as hints;
+   * collisions do not affect correctness.
+   * @param owner owner
+   * @param pos position
+   * @return key
+   */
+  private static long key(final Buffers owner, final long pos) {
+    return (long) System.identityHashCode(owner) << 40 ^ pos;
+  }
+}
@@ -1,53 +1,114 @@
 package org.basex.io.random;
 
+import java.io.*;
+import java.util.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides access to the buffers of a single file.
+ * The buffers are taken from the process-wide {@link BufferPool}.
+ * The current buffer is pinned: it will not be evicted before another buffer is chosen.
  *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
-  /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
-  /** Current buffer offset. */
-  private int off;
+  /** Assigned buffers, indexed by their positions (only accessed by the buffer pool). */
+  final HashMap<Long, Buffer> buffers = new HashMap<>();
+  /** Writer for dirty buffers. */
+  final Writer writer;
+  /** Current buffer. */
+  Buffer current;
+  /** Indicates if the pool requests dirty buffers to be written back (guarded by the pool). */
+  boolean evict;
 
   /**
    * Constructor.
+   * @param writer writer for dirty buffers
    */
-  Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+  Buffers(final Writer writer) {
+    this.writer = writer;
   }
 
   /**
-   * Returns all buffers.
-   * @return buffers
+   * Returns the current buffer.
+   * @return current buffer
    */
-  Buffer[] all() {
-    return buf;
+  Buffer current() {
+    return current;
   }
 
   /**
-   * Returns the current buffer.
-   * @return current buffer
+   * Chooses a buffer for the specified position.
+   * Dirty buffers will be written back to disk if the pool requests it.
+   * @param p buffer pointer
+   * @return {@code true} if the contents of the chosen buffer need to be read
+   * @throws IOException I/O exception
    */
-  Buffer current() {
-    return buf[off];
+  boolean cursor(final long p) throws IOException {
+    final Buffer bf = current;
+    if(bf != null && bf.pos == p) return false;
+    final BufferPool pool = BufferPool.get();
+    if(pool.evict(this)) pool.flush(this);
+    return pool.cursor(this, p);
   }
 
   /**
-   * Chooses a buffer and sets the offset.
+   * Copies the contents of the buffer at the specified position to the specified array.
+   * This function can be called by concurrent readers.
    * @param p buffer pointer
-   * @return true if cursor has changed
-   */
-  boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
-    return true;
+   * @param target target array
+   * @return {@code true} if the buffer was found in the pool
+   */
+  boolean copy(final long p, final byte[] target) {
+    return BufferPool.get().copy(this, p, target);
+  }
+
+  /**
+   * Checks if the pool contains a buffer for the specified position.
+   * @param p buffer pointer
+   * @return result of check
+   */
+  boolean contains(final long p) {
+    return BufferPool.get().contains(this, p);
+  }
+
+  /**
+   * Adds a copy of the specified contents to the pool.
+   * This function can be called by concurrent readers.
+   * @param p buffer pointer
+   * @param source source array
+   * @param ahead indicates if the contents have been read ahead
+   */
+  void add(final long p, final byte[] source, final boolean ahead) {
+    BufferPool.get().add(this, p, source, ahead);
+  }
+
+  /**
+   * Writes all dirty buffers back to disk.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    BufferPool.get().flush(this);
+  }
+
+  /**
+   * Returns all buffers to the pool. Dirty buffers will be discarded.
+   * The current buffer remains accessible.
+   */
+  void close() {
+    BufferPool.get().release(this);
+  }
+
+  /**
+   * Writer for dirty buffers.
+   */
+  interface Writer {
+    /**
+     * Writes the specified buffer back to disk and resets the dirty flag.
+     * This function is only called by threads that access the file of the buffer.
+     * @param buffer buffer to write
+     * @throws IOException I/O exception
+     */
+    void write(Buffer buffer) throws IOException;
   }
 }
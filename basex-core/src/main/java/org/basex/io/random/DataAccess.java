@@ -1,6 +1,7 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.util.concurrent.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
@@ -8,20 +9,47 @@ import org.basex.util.*;
 /**
  * This class allows positional read and write access to a database file.
  *
+ * Most read operations change the file cursor. The functions {@link #num(long)} and
+ * {@link #token(long)} can be called by concurrent readers: they do not change the cursor, and
+ * each reader accesses its own copy of the current block.
+ *
+ * Read-only snapshots of the file can be created via {@link #snapshot()}. Before a block is
+ * modified, its original contents are preserved for all snapshots that include the block.
+ *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 public final class DataAccess implements Closeable {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm = new Buffers(this::writeBlock);
   /** Reference to the data input stream. */
   private final RandomAccessFile raf;
-  /** File length. */
-  private long length;
+  /** Name of the file. */
+  private final String name;
+  /** Write-ahead log ({@code null} if changes are directly written to the file). */
+  private final WriteLog log;
+  /** File length (will also be accessed when buffers are evicted by other threads). */
+  private volatile long length;
   /** Changed flag. */
   private boolean changed;
   /** Offset. */
   private int off;
+  /** Memory mapping ({@code null} if the file is read via the buffers). */
+  private FileMapping mapping;
+  /** Indicates if data is currently read from the memory mapping. */
+  private boolean mapped;
+  /** File position in the memory mapping. */
+  private long mpos;
+  /** Version of the file contents; incremented whenever data is written. */
+  private int version;
+  /** Cursors of concurrent readers. */
+  private final ThreadLocal<BlockCursor> cursors = ThreadLocal.withInitial(BlockCursor::new);
+  /** Snapshots of the file. */
+  private final CopyOnWriteArrayList<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+  /** Original file access (only assigned if this instance provides access to a snapshot). */
+  private final DataAccess origin;
+  /** Preserved blocks (only assigned if this instance provides access to a snapshot). */
+  private final Snapshot snapshot;
 
   /**
    * Constructor, initializing the file reader.
@@ -29,28 +57,93 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile file) throws IOException {
+    this(file, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param mmap map file into memory
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final boolean mmap) throws IOException {
+    this(file, mmap, null);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param mmap map file into memory
+   * @param log write-ahead log (can be {@code null})
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final boolean mmap, final WriteLog log)
+      throws IOException {
+    name = file.name();
+    this.log = log;
+    origin = null;
+    snapshot = null;
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(file.file(), "rw");
       length = f.length();
       raf = f;
       cursor(0);
+      if(mmap) {
+        mapping = new FileMapping(f.getChannel(), length);
+        mapped = true;
+      }
     } catch(final IOException ex) {
       if(f != null) f.close();
       throw ex;
     }
   }
 
+  /**
+   * Constructor for a snapshot of a file.
+   * @param origin original file access
+   */
+  private DataAccess(final DataAccess origin) {
+    name = origin.name;
+    log = null;
+    raf = origin.raf;
+    length = origin.length;
+    this.origin = origin;
+    snapshot = new Snapshot(length);
+  }
+
+  /**
+   * Creates a read-only snapshot of the file. Blocks that are modified after this call will be
+   * preserved until the snapshot is closed. Only {@link #num(long)} and {@link #token(long)}
+   * can be called on the returned instance.
+   * @return snapshot
+   */
+  public synchronized DataAccess snapshot() {
+    final DataAccess da = new DataAccess(this);
+    snapshots.add(da.snapshot);
+    return da;
+  }
+
   /**
    * Flushes the buffered data.
    */
   public synchronized void flush() {
     try {
-      for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+      bm.flush();
+      final boolean remap = mapping != null && (!mapped || changed);
       if(changed) {
-        raf.setLength(length);
+        if(log != null) log.length(name, raf, length);
+        else raf.setLength(length);
         changed = false;
       }
+      // remap file: all buffers have been written back
+      if(remap) {
+        final long pos = cursor();
+        mapping.map(length);
+        mapped = true;
+        mpos = pos;
+        version++;
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -58,8 +151,15 @@ public final class DataAccess implements Closeable {
 
   @Override
   public synchronized void close() {
+    if(origin != null) {
+      origin.snapshots.remove(snapshot);
+      return;
+    }
     flush();
+    bm.close();
+    if(mapping != null) mapping.close();
     try {
+      if(log != null) log.close(name);
       raf.close();
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -71,7 +171,7 @@ public final class DataAccess implements Closeable {
    * @return position in the file
    */
   public long cursor() {
-    return buffer(false).pos + off;
+    return mapped ? mpos : buffer(false).pos + off;
   }
 
   /**
@@ -173,6 +273,54 @@ public final class DataAccess implements Closeable {
     return readBytes(l);
   }
 
+  /**
+   * Reads a {@link Num} value from the specified position.
+   * In contrast to {@link #readNum(long)}, the file cursor is not changed.
+   * @param pos position
+   * @return read num
+   */
+  public int num(final long pos) {
+    final BlockCursor bc = mapped ? null : cursors.get();
+    long p = pos;
+    final int value = read(bc, p++);
+    switch(value & 0xC0) {
+    case 0:
+      return value;
+    case 0x40:
+      return (value - 0x40 << 8) + read(bc, p);
+    case 0x80:
+      return (value - 0x80 << 24) + (read(bc, p) << 16) + (read(bc, p + 1) << 8) +
+        read(bc, p + 2);
+    default:
+      return (read(bc, p) << 24) + (read(bc, p + 1) << 16) + (read(bc, p + 2) << 8) +
+        read(bc, p + 3);
+    }
+  }
+
+  /**
+   * Reads a token from the specified position.
+   * In contrast to {@link #readToken(long)}, the file cursor is not changed.
+   * @param pos position
+   * @return token
+   */
+  public byte[] token(final long pos) {
+    final int len = num(pos);
+    final long start = pos + Num.length(len);
+    final byte[] b = new byte[len];
+    if(mapped) {
+      mapping.read(start, b, 0, len);
+    } else {
+      final BlockCursor bc = cursors.get();
+      for(int o = 0; o < len;) {
+        final long p = start + o;
+        final int bo = (int) (p & IO.BLOCKSIZE - 1), l = Math.min(len - o, IO.BLOCKSIZE - bo);
+        System.arraycopy(block(bc, p - bo), bo, b, o, l);
+        o += l;
+      }
+    }
+    return b;
+  }
+
   /**
    * Reads a number of bytes from the specified offset.
    * @param pos position
@@ -190,6 +338,13 @@ public final class DataAccess implements Closeable {
    * @return byte array
    */
   public synchronized byte[] readBytes(final int len) {
+    if(mapped) {
+      final byte[] b = new byte[len];
+      mapping.read(mpos, b, 0, len);
+      mpos += len;
+      return b;
+    }
+
     int l = len;
     int ll = IO.BLOCKSIZE - off;
     final byte[] b = new byte[l];
@@ -213,17 +368,18 @@ public final class DataAccess implements Closeable {
    * @param pos read position
    */
   public void cursor(final long pos) {
+    if(mapped) {
+      mpos = pos;
+      return;
+    }
+
     off = (int) (pos & IO.BLOCKSIZE - 1);
     final long b = pos - off;
-    if(!bm.cursor(b)) return;
-
-    final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
-      bf.pos = b;
-      raf.seek(bf.pos);
-      if(bf.pos < raf.length())
-        raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
+      if(!bm.cursor(b)) return;
+      final Buffer bf = bm.current();
+      final long len = Math.min(length - b, IO.BLOCKSIZE);
+      if(len > 0) bf.read(raf.getChannel(), b, (int) len);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -309,8 +465,10 @@ public final class DataAccess implements Closeable {
     final int last = offset + len;
     int o = offset;
 
+    version++;
     while(o < last) {
       final Buffer bf = buffer();
+      if(!snapshots.isEmpty()) preserve(bf.pos);
       final int l = Math.min(last - o, IO.BLOCKSIZE - off);
       System.arraycopy(buffer, o, bf.data, off, l);
       bf.dirty = true;
@@ -374,10 +532,15 @@ public final class DataAccess implements Closeable {
    * Sets the file length.
    * @param len file length
    */
-  private synchronized void length(final long len) {
+  public synchronized void length(final long len) {
     if(len != length) {
+      // preserve blocks that will be truncated
+      if(len < length && !snapshots.isEmpty()) {
+        for(long p = len - (len & IO.BLOCKSIZE - 1); p < length; p += IO.BLOCKSIZE) preserve(p);
+      }
       changed = true;
       length = len;
+      version++;
     }
   }
 
@@ -388,16 +551,100 @@ public final class DataAccess implements Closeable {
    * @return next byte
    */
   private int read() {
+    if(mapped) return mapping.read1(mpos++);
     final Buffer bf = buffer();
     return bf.data[off++] & 0xFF;
   }
 
+  /**
+   * Reads a byte from the specified position without changing the file cursor.
+   * @param bc cursor of the current thread ({@code null} if the file is mapped)
+   * @param pos position
+   * @return byte
+   */
+  private int read(final BlockCursor bc, final long pos) {
+    if(bc == null) return mapping.read1(pos);
+    final int o = (int) (pos & IO.BLOCKSIZE - 1);
+    return block(bc, pos - o)[o] & 0xFF;
+  }
+
+  /**
+   * Returns a copy of the block at the specified position for the specified cursor.
+   * @param bc cursor of the current thread
+   * @param pos block position
+   * @return block
+   */
+  private byte[] block(final BlockCursor bc, final long pos) {
+    final byte[] data = bc.data();
+    if(bc.version != version || bc.pos != pos) {
+      bc.version = version;
+      bc.pos = pos;
+      if(origin != null) {
+        origin.read(snapshot, pos, data);
+      } else if(!bm.copy(pos, data)) {
+        try {
+          final long len = Math.min(length - pos, IO.BLOCKSIZE);
+          if(len > 0) Buffer.read(raf.getChannel(), pos, data, (int) len);
+        } catch(final IOException ex) {
+          Util.stack(ex);
+        }
+        bm.add(pos, data, false);
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Copies a block of a snapshot to the specified array.
+   * This function can be called by concurrent readers.
+   * @param snap preserved blocks of the snapshot
+   * @param pos block position
+   * @param data target array
+   */
+  private synchronized void read(final Snapshot snap, final long pos, final byte[] data) {
+    if(!snap.copy(pos, data)) copy(pos, data);
+  }
+
+  /**
+   * Preserves the original contents of a block for all snapshots that include the block.
+   * Must be called before the block is modified.
+   * @param pos block position
+   */
+  private synchronized void preserve(final long pos) {
+    byte[] data = null;
+    for(final Snapshot snap : snapshots) {
+      if(!snap.preserve(pos)) continue;
+      if(data == null) {
+        data = new byte[IO.BLOCKSIZE];
+        copy(pos, data);
+      }
+      snap.add(pos, data);
+    }
+  }
+
+  /**
+   * Copies the current contents of a block to the specified array.
+   * @param pos block position
+   * @param data target array
+   */
+  private void copy(final long pos, final byte[] data) {
+    if(bm.copy(pos, data)) return;
+    try {
+      final long len = Math.min(length - pos, IO.BLOCKSIZE);
+      if(len > 0) Buffer.read(raf.getChannel(), pos, data, (int) len);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
   /**
    * Writes the next byte.
    * @param value byte to be written
    */
   private void write(final int value) {
     final Buffer bf = buffer();
+    if(!snapshots.isEmpty()) preserve(bf.pos);
+    version++;
     bf.dirty = true;
     bf.data[off++] = (byte) value;
     final long nl = bf.pos + off;
@@ -422,8 +669,10 @@ public final class DataAccess implements Closeable {
    */
   private void writeBlock(final Buffer buffer) throws IOException {
     final long pos = buffer.pos, len = Math.min(IO.BLOCKSIZE, length - pos);
-    raf.seek(pos);
-    raf.write(buffer.data, 0, (int) len);
+    if(len > 0) {
+      if(log != null) log.write(name, raf.getChannel(), pos, buffer.data, (int) len);
+      else Buffer.write(raf.getChannel(), pos, buffer.data, (int) len);
+    }
     buffer.dirty = false;
   }
 
@@ -432,6 +681,11 @@ public final class DataAccess implements Closeable {
    * @return buffer
    */
   private Buffer buffer() {
+    // switch from mapped to buffered access before data is written
+    if(mapped) {
+      mapped = false;
+      cursor(mpos);
+    }
     return buffer(off == IO.BLOCKSIZE);
   }
 
@@ -0,0 +1,122 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class maps a file into memory and provides positional read access to its contents.
+ * Large files are split into several regions, as a single mapping is limited to 2 GB.
+ * The mapped buffers are only accessed via absolute methods, which are thread-safe.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class FileMapping {
+  /** Number of bits of a region offset (must be larger than the block power). */
+  private static final int REGIONPOWER = 30;
+  /** Size of a mapped region. */
+  private static final int REGIONSIZE = 1 << REGIONPOWER;
+
+  /** File channel. */
+  private final FileChannel channel;
+  /** Mapped regions. */
+  private volatile MappedByteBuffer[] regions = {};
+  /** Mapped length. */
+  private long length;
+
+  /**
+   * Constructor.
+   * @param channel file channel
+   * @param length number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  FileMapping(final FileChannel channel, final long length) throws IOException {
+    this.channel = channel;
+    map(length);
+  }
+
+  /**
+   * (Re)maps the file. Existing regions will be reused if they have not changed in size.
+   * @param len number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  synchronized void map(final long len) throws IOException {
+    final int rs = (int) ((len + REGIONSIZE - 1) >>> REGIONPOWER);
+    final MappedByteBuffer[] rgs = new MappedByteBuffer[rs];
+    for(int r = 0; r < rs; r++) {
+      final long pos = (long) r << REGIONPOWER;
+      final int size = (int) Math.min(REGIONSIZE, len - pos);
+      rgs[r] = r < regions.length && regions[r].capacity() == size ? regions[r] :
+        channel.map(MapMode.READ_ONLY, pos, size);
+    }
+    regions = rgs;
+    length = len;
+  }
+
+  /**
+   * Returns the mapped length.
+   * @return length
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Reads a byte.
+   * @param pos file position
+   * @return byte value
+   */
+  int read1(final long pos) {
+    return regions[(int) (pos >>> REGIONPOWER)].get((int) (pos & REGIONSIZE - 1)) & 0xFF;
+  }
+
+  /**
+   * Returns the region containing the specified file position.
+   * Blocks never span several regions.
+   * @param pos file position
+   * @return region
+   */
+  ByteBuffer region(final long pos) {
+    return regions[(int) (pos >>> REGIONPOWER)];
+  }
+
+  /**
+   * Returns the offset of the specified file position in its region.
+   * @param pos file position
+   * @return offset
+   */
+  static int offset(final long pos) {
+    return (int) (pos & REGIONSIZE - 1);
+  }
+
+  /**
+   * Reads a number of bytes into the specified array.
+   * @param pos file position
+   * @param bytes target array
+   * @param off offset in the target array
+   * @param len number of bytes to read
+   */
+  void read(final long pos, final byte[] bytes, final int off, final int len) {
+    long p = pos;
+    int o = off, l = len;
+    while(l > 0) {
+      final ByteBuffer bb = regions[(int) (p >>> REGIONPOWER)].duplicate();
+      final int rp = (int) (p & REGIONSIZE - 1), n = Math.min(l, bb.capacity() - rp);
+      bb.position(rp);
+      bb.get(bytes, o, n);
+      p += n;
+      o += n;
+      l -= n;
+    }
+  }
+
+  /**
+   * Releases the mapped regions. The memory will be freed by the garbage collector.
+   */
+  synchronized void close() {
+    regions = new MappedByteBuffer[0];
+    length = 0;
+  }
+}
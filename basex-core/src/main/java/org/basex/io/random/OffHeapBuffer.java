@@ -0,0 +1,126 @@
+package org.basex.io.random;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * This class provides a byte store outside the Java heap. The bytes are distributed to direct
+ * byte buffers (chunks) of a fixed maximum size, which are allocated when they are written for
+ * the first time, and which grow until they reach their maximum size.
+ *
+ * The total size of all direct buffers is limited by the JVM option
+ * {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class OffHeapBuffer {
+  /** Power of the maximum chunk size. */
+  private static final int POWER = 24;
+  /** Maximum chunk size. */
+  private static final int CHUNK = 1 << POWER;
+  /** Initial chunk size. */
+  private static final int INITIAL = 1 << 12;
+
+  /** Chunks. */
+  private ByteBuffer[] chunks = new ByteBuffer[1];
+
+  /**
+   * Reads a byte.
+   * @param off offset
+   * @return byte
+   */
+  public int read1(final long off) {
+    return chunk(off).get((int) off & CHUNK - 1) & 0xFF;
+  }
+
+  /**
+   * Writes a byte.
+   * @param off offset
+   * @param v value
+   */
+  public void write1(final long off, final int v) {
+    chunk(off).put((int) off & CHUNK - 1, (byte) v);
+  }
+
+  /**
+   * Reads a long value. The offset must be a multiple of 8.
+   * @param off offset
+   * @return long value
+   */
+  public long read8(final long off) {
+    return chunk(off + 7).getLong((int) off & CHUNK - 1);
+  }
+
+  /**
+   * Writes a long value. The offset must be a multiple of 8.
+   * @param off offset
+   * @param v value
+   */
+  public void write8(final long off, final long v) {
+    chunk(off + 7).putLong((int) off & CHUNK - 1, v);
+  }
+
+  /**
+   * Reads bytes.
+   * @param off offset
+   * @param data array to be filled
+   */
+  public void read(final long off, final byte[] data) {
+    final int dl = data.length;
+    for(int d = 0; d < dl; d++) data[d] = (byte) read1(off + d);
+  }
+
+  /**
+   * Writes bytes.
+   * @param off offset
+   * @param data bytes to be written
+   * @param len number of bytes to be written
+   */
+  public void write(final long off, final byte[] data, final int len) {
+    for(int d = 0; d < len; d++) write1(off + d, data[d]);
+  }
+
+  /**
+   * Copies bytes to another offset. The areas may overlap.
+   * If all arguments are multiples of 8, bytes will be copied as long values.
+   * @param source source offset
+   * @param target target offset
+   * @param len number of bytes
+   */
+  public void copy(final long source, final long target, final long len) {
+    if(len <= 0 || source == target) return;
+    final int step = ((source | target | len) & 7) == 0 ? 8 : 1;
+    final boolean back = target > source;
+    for(long l = back ? len - step : 0; back ? l >= 0 : l < len; l += back ? -step : step) {
+      if(step == 8) write8(target + l, read8(source + l));
+      else write1(target + l, read1(source + l));
+    }
+  }
+
+  /**
+   * Returns the chunk for the specified offset. Chunks are created or enlarged if required.
+   * @param off offset
+   * @return chunk
+   */
+  private ByteBuffer chunk(final long off) {
+    final int c = (int) (off >>> POWER), o = (int) off & CHUNK - 1;
+    if(c >= chunks.length) chunks = Arrays.copyOf(chunks, Math.max(c + 1, chunks.length << 1));
+
+    ByteBuffer chunk = chunks[c];
+    if(chunk == null || o >= chunk.capacity()) {
+      int size = chunk == null ? INITIAL : chunk.capacity();
+      while(size <= o) size <<= 1;
+      final ByteBuffer bb = ByteBuffer.allocateDirect(Math.min(size, CHUNK));
+      if(chunk != null) {
+        chunk.clear();
+        bb.put(chunk).clear();
+      }
+      chunks[c] = bb;
+      chunk = bb;
+    }
+    return chunk;
+  }
+}
@@ -0,0 +1,61 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+import org.basex.io.*;
+
+/**
+ * Images of the blocks of a file that belong to a snapshot. Before a block of the file is
+ * modified for the first time, its original contents are preserved (copy-on-write).
+ * Blocks that have not been modified are read from the file or the buffer pool.
+ *
+ * The methods of this class are called by the owner of the file, which synchronizes all calls.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class Snapshot {
+  /** Preserved images, indexed by block positions. */
+  private final HashMap<Long, byte[]> images = new HashMap<>();
+  /** Limit: blocks at or beyond this position do not belong to the snapshot. */
+  final long limit;
+
+  /**
+   * Constructor.
+   * @param limit limit (number of table pages, or length of a file)
+   */
+  Snapshot(final long limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Checks if the original contents of the specified block must be preserved.
+   * @param pos block position
+   * @return result of check
+   */
+  boolean preserve(final long pos) {
+    return pos < limit && !images.containsKey(pos);
+  }
+
+  /**
+   * Adds the original contents of a block.
+   * @param pos block position
+   * @param data contents (must not be modified anymore)
+   */
+  void add(final long pos, final byte[] data) {
+    images.put(pos, data);
+  }
+
+  /**
+   * Copies a preserved image to the specified array.
+   * @param pos block position
+   * @param target target array
+   * @return {@code true} if an image was found
+   */
+  boolean copy(final long pos, final byte[] target) {
+    final byte[] data = images.get(pos);
+    if(data == null) return false;
+    System.arraycopy(data, 0, target, 0, IO.BLOCKSIZE);
+    return true;
+  }
+}
@@ -39,6 +39,20 @@ public abstract class TableAccess {
    */
   public abstract void close() throws IOException;
 
+  /**
+   * Compacts the table in a single pass: sparsely filled pages are filled with the entries of
+   * subsequent pages, pages are moved to the file positions that correspond to their order,
+   * and unused pages at the end of the file are released. A pass that has been interrupted
+   * will be resumed by the next call. Tables in main memory are never fragmented.
+   * @param compactor compaction job
+   * @return {@code true} if the pass has been completed
+   * @throws IOException I/O exception
+   */
+  @SuppressWarnings("unused")
+  public boolean compact(final Compactor compactor) throws IOException {
+    return true;
+  }
+
   /**
    * Tries to acquires a lock on the table. If a lock exists, it is first released.
    * @param write write/read lock
@@ -0,0 +1,182 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+import org.basex.io.*;
+
+/**
+ * This class compresses and decompresses pages of the database table.
+ *
+ * The first byte of each entry (which contains the node kind) is stored as is. The remaining
+ * 15 bytes are split into four integers (3, 4, 4 and 4 bytes), and each integer is stored as
+ * zigzag-encoded variable-length delta to the corresponding integer of the last entry of the same
+ * kind. As a result, ids, distances and text offsets of neighboring nodes will mostly be stored
+ * in single bytes. Trailing empty entries are not stored.
+ *
+ * A compressed page starts with two bytes, which contain the number of stored entries, or
+ * {@code 0xFFFF} if the page was not compressible. Compressed pages are stored in slots, the size
+ * of which is a multiple of 64 bytes. A page is decompressed when it is read from disk, so all
+ * entries can still be accessed in constant time.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class TableCompression {
+  /** Alignment of compressed pages (the remaining space can be used if pages grow). */
+  static final int ALIGN = 64;
+  /** Header value for uncompressed pages. */
+  private static final int RAW = 0xFFFF;
+  /** Number of distinct node kinds. */
+  private static final int KINDS = 8;
+  /** Maximum size of a compressed page. */
+  private static final int MAX = 2 + IO.ENTRIES * (1 + 4 * 5);
+  /** Maximum slot size (pages that are not compressible are stored as is). */
+  static final int MAXSLOT = slot(IO.BLOCKSIZE + 2);
+
+  /** Private constructor. */
+  private TableCompression() { }
+
+  /**
+   * Compresses a page.
+   * @param page page (with {@link IO#BLOCKSIZE} bytes)
+   * @return compressed page, padded to the next slot size
+   */
+  public static byte[] pack(final byte[] page) {
+    // find last non-empty entry
+    int entries = IO.ENTRIES;
+    while(entries > 0 && empty(page, entries - 1 << IO.NODEPOWER)) entries--;
+
+    final byte[] packed = new byte[MAX];
+    final int[] last = new int[KINDS << 2];
+    int p = 2;
+    for(int e = 0; e < entries; e++) {
+      final int o = e << IO.NODEPOWER, k = (page[o] & KINDS - 1) << 2;
+      packed[p++] = page[o];
+      for(int i = 0; i < 4; i++) {
+        final int v = i == 0 ? read3(page, o + 1) : read4(page, o + (i << 2));
+        final int d = v - last[k + i];
+        last[k + i] = v;
+        // zigzag encoding: small negative and positive deltas yield small values
+        int z = d << 1 ^ d >> 31;
+        while((z & ~0x7F) != 0) {
+          packed[p++] = (byte) (z & 0x7F | 0x80);
+          z >>>= 7;
+        }
+        packed[p++] = (byte) z;
+      }
+    }
+
+    // store page uncompressed if no space is saved
+    final int header;
+    if(p >= IO.BLOCKSIZE + 2) {
+      header = RAW;
+      System.arraycopy(page, 0, packed, 2, IO.BLOCKSIZE);
+      p = IO.BLOCKSIZE + 2;
+    } else {
+      header = entries;
+    }
+    packed[0] = (byte) (header >>> 8);
+    packed[1] = (byte) header;
+    return Arrays.copyOf(packed, slot(p));
+  }
+
+  /**
+   * Decompresses a page.
+   * @param packed compressed page
+   * @param page target page (with {@link IO#BLOCKSIZE} bytes)
+   */
+  public static void unpack(final byte[] packed, final byte[] page) {
+    final int header = (packed[0] & 0xFF) << 8 | packed[1] & 0xFF;
+    if(header == RAW) {
+      System.arraycopy(packed, 2, page, 0, IO.BLOCKSIZE);
+      return;
+    }
+
+    final int[] last = new int[KINDS << 2];
+    int p = 2;
+    for(int e = 0; e < header; e++) {
+      final int o = e << IO.NODEPOWER, k = (packed[p] & KINDS - 1) << 2;
+      page[o] = packed[p++];
+      for(int i = 0; i < 4; i++) {
+        int z = 0;
+        for(int s = 0;; s += 7) {
+          final int b = packed[p++];
+          z |= (b & 0x7F) << s;
+          if(b >= 0) break;
+        }
+        final int v = last[k + i] + (z >>> 1 ^ -(z & 1));
+        last[k + i] = v;
+        if(i == 0) write3(page, o + 1, v);
+        else write4(page, o + (i << 2), v);
+      }
+    }
+    Arrays.fill(page, header << IO.NODEPOWER, IO.BLOCKSIZE, (byte) 0);
+  }
+
+  /**
+   * Returns the slot size for the specified number of bytes.
+   * @param size number of bytes
+   * @return slot size
+   */
+  private static int slot(final int size) {
+    return size + ALIGN - 1 & -ALIGN;
+  }
+
+  /**
+   * Checks if the specified entry is empty.
+   * @param page page
+   * @param o offset of the entry
+   * @return result of check
+   */
+  private static boolean empty(final byte[] page, final int o) {
+    for(int i = 0; i < IO.NODESIZE; i++) {
+      if(page[o + i] != 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reads a 3-byte value.
+   * @param b byte array
+   * @param o offset
+   * @return value
+   */
+  private static int read3(final byte[] b, final int o) {
+    return (b[o] & 0xFF) << 16 | (b[o + 1] & 0xFF) << 8 | b[o + 2] & 0xFF;
+  }
+
+  /**
+   * Reads a 4-byte value.
+   * @param b byte array
+   * @param o offset
+   * @return value
+   */
+  private static int read4(final byte[] b, final int o) {
+    return b[o] << 24 | (b[o + 1] & 0xFF) << 16 | (b[o + 2] & 0xFF) << 8 | b[o + 3] & 0xFF;
+  }
+
+  /**
+   * Writes a 3-byte value.
+   * @param b byte array
+   * @param o offset
+   * @param v value
+   */
+  private static void write3(final byte[] b, final int o, final int v) {
+    b[o] = (byte) (v >>> 16);
+    b[o + 1] = (byte) (v >>> 8);
+    b[o + 2] = (byte) v;
+  }
+
+  /**
+   * Writes a 4-byte value.
+   * @param b byte array
+   * @param o offset
+   * @param v value
+   */
+  private static void write4(final byte[] b, final int o, final int v) {
+    b[o] = (byte) (v >>> 24);
+    b[o + 1] = (byte) (v >>> 16);
+    b[o + 2] = (byte) (v >>> 8);
+    b[o + 3] = (byte) v;
+  }
+}
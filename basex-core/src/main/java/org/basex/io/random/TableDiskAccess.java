@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import java.io.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -12,11 +13,23 @@ import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class stores the table on disk and reads it page-wise.
  *
- * NOTE: this class is not thread-safe.
+ * If the table is not locked for updates, it can be read by concurrent threads without
+ * synchronization: each reader has its own cursor, which references a copy of the current page
+ * or a region of the memory mapping. Updates must not be performed concurrently.
+ *
+ * If table compression is enabled, pages are compressed via {@link TableCompression} and stored
+ * in slots of variable size. If a page no longer fits into its slot, it is moved to a free slot
+ * or to the end of the file. Pages are decompressed when they are read from disk. The original
+ * slot of a moved page will only be reused after the new slots have been written to disk.
+ *
+ * Snapshots of the table can be created for readers that must not be affected by subsequent
+ * updates. Before a page is modified, its original contents are preserved for all snapshots
+ * that include the page (copy-on-write).
  *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
@@ -24,13 +37,27 @@ import org.basex.util.*;
  */
 public final class TableDiskAccess extends TableAccess {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm = new Buffers(this::write);
   /** File storing all pages. */
   private final RandomAccessFile file;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
   private FileLock fl;
+  /** Memory mapping of the table file ({@code null} if pages are read via the buffers). */
+  private FileMapping mapping;
+  /** Indicates if pages are currently read from the memory mapping. */
+  private boolean mapped;
+  /** Indicates if the table is locked for updates (pages will then be read via the buffers). */
+  private boolean writing;
+  /** Version of the table contents; incremented whenever pages or page pointers change. */
+  private int version;
+  /** Cursors of concurrent readers. */
+  private final ThreadLocal<BlockCursor> cursors = ThreadLocal.withInitial(BlockCursor::new);
+  /** Cursor for tracking sequential page accesses while the table is locked for updates. */
+  private final BlockCursor locked = new BlockCursor();
+  /** Snapshots of the table. */
+  private final CopyOnWriteArrayList<TableSnapshot> snapshots = new CopyOnWriteArrayList<>();
 
   /** First pre values (ascending order); will be initialized with the first update. */
   private int[] fpres;
@@ -40,6 +67,17 @@ public final class TableDiskAccess extends TableAccess {
   private int size;
   /** Number of used pages. */
   private int used;
+  /** Slots of compressed pages (offset and size), indexed by pages ({@code null}: uncompressed). */
+  private long[] slots;
+  /** End of the last slot. */
+  private long tail;
+  /** Free slots, indexed by their size in units of the slot alignment
+   * (will be initialized when the first page is moved). */
+  private LongList[] free;
+  /** Slots of moved pages, which will be freed when the slots have been written to disk. */
+  private final LongList released = new LongList();
+  /** Index of the first page that has not been compacted in the current compaction pass. */
+  private int compacted;
 
   /** Pointer to current page. */
   private int page = -1;
@@ -79,11 +117,21 @@ public final class TableDiskAccess extends TableAccess {
         final int psize = in.readNum();
         usedPages = new BitArray(in.readLongs(psize), used);
       }
+
+      // read slots of compressed pages
+      if(md.tablecompress) slots = in.readLongs(in.readNum());
     }
 
     // initialize data file
     file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
     if(!lock(write)) throw new BaseXException(Text.DB_PINNED_X, md.name);
+    tail = file.length();
+
+    // map table file into memory (compressed pages cannot be mapped)
+    if(md.mmap && !write && slots == null) {
+      mapping = new FileMapping(file.getChannel(), file.length());
+      mapped = true;
+    }
   }
 
   /**
@@ -106,30 +154,163 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public synchronized void flush(final boolean all) throws IOException {
-    for(final Buffer b : bm.all()) if(b.dirty) write(b);
+    bm.flush();
+    // remap table file: all buffers have been written back
+    if(!writing) remap();
     if(!dirty || !all) return;
 
-    try(DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'))) {
+    try(DataOutput out = WriteLog.output(meta.dbfile(DATATBL + 'i'), meta.log)) {
       final int sz = size;
       out.writeNum(sz);
-      out.writeNum(used);
-      // due to legacy issues, number of pages is written several times
-      out.writeNum(sz);
-      for(int s = 0; s < sz; s++) out.writeNum(fpres[s]);
-      out.writeNum(sz);
-      for(int s = 0; s < sz; s++) out.writeNum(pages[s]);
-
-      out.writeLongs(usedPages.toArray());
+      if(fpres == null) {
+        // page index is regular (only compressed pages have been moved)
+        out.writeNum(used == 0 ? 0 : Integer.MAX_VALUE);
+      } else {
+        out.writeNum(used);
+        // due to legacy issues, number of pages is written several times
+        out.writeNum(sz);
+        for(int s = 0; s < sz; s++) out.writeNum(fpres[s]);
+        out.writeNum(sz);
+        for(int s = 0; s < sz; s++) out.writeNum(pages[s]);
+
+        out.writeLongs(usedPages.toArray());
+      }
+      if(slots != null) out.writeLongs(Arrays.copyOf(slots, sz));
     }
     dirty = false;
+    // slots of moved pages are no longer referenced on disk
+    while(!released.isEmpty()) {
+      final long slot = released.pop();
+      release(slot >>> 16, slot & 0xFFFF);
+    }
   }
 
   @Override
   public synchronized void close() throws IOException {
     flush(true);
+    // remaining read operations will be served by the current buffer
+    writing = true;
+    bm.close();
+    if(mapping != null) mapping.close();
+    if(meta.log != null) meta.log.close(DATATBL + IO.BASEXSUFFIX);
     file.close();
   }
 
+  @Override
+  public synchronized boolean compact(final Compactor compactor) throws IOException {
+    // regular page index: pages are neither scattered nor sparse
+    if(fpres == null) return true;
+
+    // compressed pages are stored in slots: their file positions need not be adjusted
+    final boolean move = slots == null;
+    final int[] owners = move ? new int[size] : null;
+    if(move) {
+      Arrays.fill(owners, -1);
+      for(int p = 0; p < used; p++) owners[pages[p]] = p;
+    }
+
+    // pages before the target page are compact. pages between the target page and
+    // the source page have been emptied and will be removed when the pass is interrupted
+    compactor.phase(used);
+    int target = Math.min(compacted, used), source = target;
+    try {
+      for(; target < used; target++) {
+        compactor.progress(target);
+        // stop if no entries are left, skip compact pages
+        final boolean empty = target < source;
+        if(empty && source == used) break;
+        if(!empty && (!move || pages[target] == target) &&
+            (target + 1 == used || occSpace(target) == IO.ENTRIES)) {
+          source++;
+          continue;
+        }
+        if(!compactor.step()) break;
+
+        if(!empty) source++;
+        dirty();
+        if(empty) {
+          // reuse emptied page for the entries of the source page
+          fpres[target] = fpres[source];
+          usedPages.set(pages[target]);
+          if(move) owners[pages[target]] = target;
+        }
+        if(move && pages[target] != target) place(target, owners, empty);
+        source = fill(target, source, owners);
+      }
+    } finally {
+      // remove emptied pages from the index
+      final int emptied = source - target;
+      if(emptied > 0) {
+        Array.move(fpres, source, -emptied, used - source);
+        Array.move(pages, source, -emptied, used - source);
+        used -= emptied;
+      }
+      compacted = target < used ? target : 0;
+      // invalidate page pointers
+      page = -1;
+      firstPre = -1;
+      nextPre = -1;
+    }
+    if(compacted != 0) return false;
+
+    // release unused pages at the end of the file (unused pages may still be referenced
+    // by snapshots, and pages may have been moved by updates after a previous call)
+    boolean placed = move && size > used && snapshots.isEmpty();
+    for(int p = 0; placed && p < used; p++) placed = pages[p] == p;
+    if(placed) {
+      dirty();
+      bm.flush();
+      size = used;
+      final long len = (long) used * IO.BLOCKSIZE;
+      if(meta.log != null) meta.log.length(DATATBL + IO.BASEXSUFFIX, file, len);
+      else file.setLength(len);
+    }
+    return true;
+  }
+
+  /**
+   * Creates a read-only snapshot of the table. Pages that are modified after this call will be
+   * preserved until the snapshot is closed.
+   * @param md meta data of the snapshot
+   * @return snapshot
+   */
+  public synchronized TableAccess snapshot(final MetaData md) {
+    final int u = used;
+    final TableSnapshot ts = new TableSnapshot(md, this, new Snapshot(size),
+        fpres == null ? null : Arrays.copyOf(fpres, u),
+        pages == null ? null : Arrays.copyOf(pages, u), u);
+    snapshots.add(ts);
+    // reset page pointers: the next page to be modified will be fetched and preserved
+    page = -1;
+    firstPre = -1;
+    nextPre = -1;
+    return ts;
+  }
+
+  /**
+   * Releases a snapshot.
+   * @param ts snapshot
+   */
+  synchronized void release(final TableSnapshot ts) {
+    snapshots.remove(ts);
+  }
+
+  /**
+   * Copies a page of a snapshot to the specified array.
+   * This function can be called by concurrent readers.
+   * @param snapshot preserved pages of the snapshot
+   * @param p page to fetch
+   * @param data target array
+   */
+  synchronized void read(final Snapshot snapshot, final int p, final byte[] data) {
+    if(snapshot.copy(p, data) || bm.copy(p, data)) return;
+    try {
+      read(p, data);
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+  }
+
   @Override
   public boolean lock(final boolean write) {
     try {
@@ -138,44 +319,76 @@ public final class TableDiskAccess extends TableAccess {
         fl.release();
       }
       fl = file.getChannel().tryLock(0, Long.MAX_VALUE, !write);
-      return fl != null;
+      if(fl == null) return false;
+      synchronized(this) {
+        writing = write;
+        version++;
+        if(write) buffered();
+        else remap();
+      }
+      return true;
     } catch(final IOException ex) {
       throw Util.notExpected(ex);
     }
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    if(!writing) {
+      final BlockCursor bc = reader(pre);
+      return bc.read1((pre - bc.firstPre << IO.NODEPOWER) + off);
+    }
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return b[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    if(!writing) {
+      final BlockCursor bc = reader(pre);
+      return bc.read2((pre - bc.firstPre << IO.NODEPOWER) + off);
+    }
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    if(!writing) {
+      final BlockCursor bc = reader(pre);
+      return bc.read4((pre - bc.firstPre << IO.NODEPOWER) + off);
+    }
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    if(!writing) {
+      final BlockCursor bc = reader(pre);
+      return bc.read5((pre - bc.firstPre << IO.NODEPOWER) + off);
+    }
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    }
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    buffered();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -185,6 +398,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    buffered();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -195,6 +409,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    buffered();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -207,6 +422,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    buffered();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -418,6 +634,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void dirty() {
+    buffered();
     // initialize data structures required for performing updates
     if(fpres == null) {
       final int b = size;
@@ -441,30 +658,154 @@ public final class TableDiskAccess extends TableAccess {
    * @return offset of the entry in the page
    */
   private synchronized int cursor(final int pre) {
-    int fp = firstPre, np = nextPre;
-    if(pre < fp || pre >= np) {
-      final int last = used - 1;
-      int l = 0, h = last, m = page;
-      while(l <= h) {
-        if(pre < fp) h = m - 1;
-        else if(pre >= np) l = m + 1;
-        else break;
-        m = h + l >>> 1;
-        fp = fpre(m);
-        np = m == last ? meta.size : fpre(m + 1);
-      }
-      if(l > h) throw Util.notExpected(
-          "Data Access out of bounds:" +
-          "\n- pre value: " + pre +
-          "\n- table size: " + meta.size +
-          "\n- first/next pre value: " + fp + '/' + np +
-          "\n- #total/used pages: " + size + '/' + used +
-          "\n- accessed page: " + m + " (" + l + " > " + h + ']');
-      readPage(m);
+    if(locate(pre)) {
+      read(page(page));
+      // read ahead if the table is scanned by an updating command (index builders, optimize)
+      if(!mapped) readAhead(locked, page);
     }
     return pre - firstPre << IO.NODEPOWER;
   }
 
+  /**
+   * Returns the cursor of the current thread, which points to the page containing the entry for
+   * the specified pre value.
+   * @param pre pre of the entry to search for
+   * @return cursor
+   */
+  private BlockCursor reader(final int pre) {
+    final BlockCursor bc = cursors.get();
+    if(bc.version != version || pre < bc.firstPre || pre >= bc.nextPre) {
+      final int last = used - 1, p = search(pre);
+      bc.version = version;
+      bc.firstPre = fpre(p);
+      bc.nextPre = p == last ? meta.size : fpre(p + 1);
+      bc.pos = page(p);
+      final long pos = bc.pos * IO.BLOCKSIZE;
+      if(mapped) {
+        bc.map(mapping.region(pos), FileMapping.offset(pos));
+      } else {
+        final byte[] data = bc.data();
+        if(!bm.copy(bc.pos, data)) {
+          try {
+            read(page(p), data);
+          } catch(final IOException ex) {
+            Util.stack(ex);
+          }
+          bm.add(bc.pos, data, false);
+        }
+        readAhead(bc, p);
+      }
+    }
+    return bc;
+  }
+
+  /**
+   * Reads subsequent pages in the background if the pages of the table are accessed in
+   * sequential order. The number of pages grows with the length of the sequence.
+   * @param bc cursor
+   * @param p index of the current page
+   */
+  private void readAhead(final BlockCursor bc, final int p) {
+    if(p == bc.page + 1) {
+      bc.run++;
+    } else {
+      bc.run = 0;
+      bc.ahead = p;
+    }
+    bc.page = p;
+
+    final int max = BufferPool.get().readAhead();
+    if(bc.run < 2 || max == 0) return;
+    final int first = Math.max(p + 1, bc.ahead + 1);
+    final int last = Math.min(p + Math.min(max, 1 << Math.min(bc.run, 16)), used - 1);
+    if(first > last) return;
+    bc.ahead = last;
+
+    // pages are only added if the table has neither been modified nor closed in the meantime.
+    // pages are read while the table is locked, as dirty buffers may be written concurrently
+    final int v = version;
+    BufferPool.get().submit(() -> {
+      final byte[] data = new byte[IO.BLOCKSIZE];
+      for(int a = first; a <= last; a++) {
+        synchronized(this) {
+          if(v != version || !file.getChannel().isOpen()) return;
+          final int pos = page(a);
+          if(bm.contains(pos)) continue;
+          try {
+            read(pos, data);
+          } catch(final IOException ex) {
+            Util.debug(ex);
+            return;
+          }
+          bm.add(pos, data, true);
+        }
+      }
+    });
+  }
+
+  /**
+   * Switches from mapped to buffered access. Must be called before the table is modified.
+   * Invalidates the cursors of concurrent readers.
+   */
+  private void buffered() {
+    version++;
+    if(mapped) {
+      mapped = false;
+      // fetch page that has been accessed last
+      if(page != -1) read(page(page));
+    }
+  }
+
+  /**
+   * Switches from buffered to mapped access. All buffers must have been written back.
+   * @throws IOException I/O exception
+   */
+  private void remap() throws IOException {
+    if(mapping != null && !mapped) {
+      bm.flush();
+      mapping.map(file.length());
+      mapped = true;
+      version++;
+    }
+  }
+
+  /**
+   * Searches for the page containing the entry for the specified pre value
+   * and updates the page pointers.
+   * @param pre pre of the entry to search for
+   * @return {@code true} if the page pointers have changed
+   */
+  private boolean locate(final int pre) {
+    if(pre >= firstPre && pre < nextPre) return false;
+    setPage(search(pre));
+    return true;
+  }
+
+  /**
+   * Returns the index of the page containing the entry for the specified pre value.
+   * @param pre pre of the entry to search for
+   * @return page index
+   */
+  private int search(final int pre) {
+    final int last = used - 1;
+    int l = 0, h = last, m = 0, fp = 0, np = 0;
+    while(l <= h) {
+      m = h + l >>> 1;
+      fp = fpre(m);
+      np = m == last ? meta.size : fpre(m + 1);
+      if(pre < fp) h = m - 1;
+      else if(pre >= np) l = m + 1;
+      else return m;
+    }
+    throw Util.notExpected(
+        "Data Access out of bounds:" +
+        "\n- pre value: " + pre +
+        "\n- table size: " + meta.size +
+        "\n- first/next pre value: " + fp + '/' + np +
+        "\n- #total/used pages: " + size + '/' + used +
+        "\n- accessed page: " + m + " (" + l + " > " + h + ']');
+  }
+
   /**
    * Updates the page pointers.
    * @param p page index
@@ -489,7 +830,7 @@ public final class TableDiskAccess extends TableAccess {
    * @param p index of the page to fetch
    * @return pre value
    */
-  private synchronized int page(final int p) {
+  private int page(final int p) {
     return pages == null ? p : pages[p];
   }
 
@@ -498,7 +839,7 @@ public final class TableDiskAccess extends TableAccess {
    * @param p index of the page to fetch
    * @return pre value
    */
-  private synchronized int fpre(final int p) {
+  private int fpre(final int p) {
     return fpres == null ? p * IO.ENTRIES : fpres[p];
   }
 
@@ -507,23 +848,136 @@ public final class TableDiskAccess extends TableAccess {
    * @param p page to fetch
    */
   private synchronized void read(final int p) {
-    if(!bm.cursor(p)) return;
-
-    final Buffer bf = bm.current();
+    if(!snapshots.isEmpty()) preserve(p);
     try {
-      if(bf.dirty) write(bf);
-      bf.pos = p;
+      if(!bm.cursor(p)) return;
       if(p >= size) {
         size = p + 1;
       } else {
-        file.seek(bf.pos * IO.BLOCKSIZE);
-        file.readFully(bf.data);
+        read(p, bm.current().data);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Reads a page from disk into the specified array.
+   * This function can be called by concurrent readers.
+   * @param p page to fetch
+   * @param data target array
+   * @throws IOException I/O exception
+   */
+  private void read(final int p, final byte[] data) throws IOException {
+    if(slots == null) {
+      Buffer.read(file.getChannel(), (long) p * IO.BLOCKSIZE, data, IO.BLOCKSIZE);
+    } else {
+      final long slot = p < slots.length ? slots[p] : 0;
+      if(slot == 0) {
+        Arrays.fill(data, (byte) 0);
+      } else {
+        final byte[] packed = new byte[(int) (slot & 0xFFFF)];
+        Buffer.read(file.getChannel(), slot >>> 16, packed, packed.length);
+        TableCompression.unpack(packed, data);
+      }
+    }
+  }
+
+  /**
+   * Preserves the original contents of a page for all snapshots that include the page.
+   * Must be called before the page is modified.
+   * @param p page
+   */
+  private void preserve(final int p) {
+    byte[] data = null;
+    for(final TableSnapshot ts : snapshots) {
+      if(!ts.snapshot.preserve(p)) continue;
+      if(data == null) {
+        data = new byte[IO.BLOCKSIZE];
+        if(!bm.copy(p, data)) {
+          try {
+            read(p, data);
+          } catch(final IOException ex) {
+            Util.stack(ex);
+          }
+        }
+      }
+      ts.snapshot.add(p, data);
+    }
+  }
+
+  /**
+   * Fills a page with the entries of the subsequent pages. Pages that have been emptied are
+   * released.
+   * @param p page index
+   * @param source index of the first page with entries
+   * @param owners page indexes of file positions (-1: unused; {@code null}: compressed table)
+   * @return index of the first page with remaining entries
+   */
+  private int fill(final int p, final int source, final int[] owners) {
+    int s = source, n = (s < used ? fpres[s] : meta.size) - fpres[p];
+    while(n < IO.ENTRIES && s < used) {
+      // move as many entries as possible from the source page to the end of the page
+      final int m = occSpace(s), e = Math.min(IO.ENTRIES - n, m);
+      read(pages[s]);
+      Buffer bf = bm.current();
+      final byte[] entries = Arrays.copyOf(bf.data, e << IO.NODEPOWER);
+      if(e < m) {
+        copy(bf.data, e, bf.data, 0, m - e);
+        fpres[s] += e;
+      } else {
+        usedPages.clear(pages[s]);
+        if(owners != null) owners[pages[s]] = -1;
+        s++;
+      }
+      read(pages[p]);
+      bf = bm.current();
+      System.arraycopy(entries, 0, bf.data, n << IO.NODEPOWER, entries.length);
+      bf.dirty = true;
+      n += e;
+    }
+    return s;
+  }
+
+  /**
+   * Moves a page to the file position that corresponds to its index. If this position is
+   * occupied by another page, this page will be moved to the original position.
+   * @param p page index
+   * @param owners page indexes of file positions (-1: unused)
+   * @param empty indicates if the page is empty
+   */
+  private void place(final int p, final int[] owners, final boolean empty) {
+    final int source = pages[p], other = owners[p];
+    byte[] entries = null;
+    if(!empty) {
+      read(source);
+      entries = bm.current().data.clone();
+    }
+
+    read(p);
+    Buffer bf = bm.current();
+    final byte[] swapped = other == -1 ? null : bf.data.clone();
+    if(entries != null) {
+      System.arraycopy(entries, 0, bf.data, 0, IO.BLOCKSIZE);
+      bf.dirty = true;
+    }
+    pages[p] = p;
+    owners[p] = p;
+    usedPages.set(p);
+
+    if(swapped != null) {
+      read(source);
+      bf = bm.current();
+      System.arraycopy(swapped, 0, bf.data, 0, IO.BLOCKSIZE);
+      bf.dirty = true;
+      pages[other] = source;
+      owners[source] = other;
+    } else {
+      usedPages.clear(source);
+      owners[source] = -1;
+    }
+  }
+
   /**
    * Moves the cursor to a free page (either new or existing empty one).
    */
@@ -541,11 +995,82 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   private void write(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
+    if(slots == null) {
+      write(bf.pos * IO.BLOCKSIZE, bf.data, IO.BLOCKSIZE);
+      bf.dirty = false;
+      return;
+    }
+
+    final int p = (int) bf.pos;
+    final byte[] packed = TableCompression.pack(bf.data);
+    if(p >= slots.length) slots = Arrays.copyOf(slots, Math.max(slots.length << 1, p + 1));
+    long slot = slots[p];
+    if(packed.length > (slot & 0xFFFF)) {
+      // page does not fit into its slot: move it to a free slot or to the end of the file
+      if(free == null) initFree();
+      if(slot != 0) released.add(slot);
+      slot = 0;
+      for(int f = packed.length / TableCompression.ALIGN; slot == 0 && f < free.length; f++) {
+        if(!free[f].isEmpty()) slot = free[f].pop();
+      }
+      if(slot == 0) {
+        slot = tail << 16 | packed.length;
+        tail += packed.length;
+      }
+      slots[p] = slot;
+      dirty = true;
+    }
+    write(slot >>> 16, packed, packed.length);
     bf.dirty = false;
   }
 
+  /**
+   * Initializes the free slots with the gaps between the slots of the table file.
+   */
+  private void initFree() {
+    free = new LongList[TableCompression.MAXSLOT / TableCompression.ALIGN + 1];
+    for(int f = 0; f < free.length; f++) free[f] = new LongList();
+    final LongList list = new LongList();
+    for(final long slot : slots) {
+      if(slot != 0) list.add(slot);
+    }
+    // slots are sorted by their offsets
+    long end = 0;
+    for(final long slot : list.sort().finish()) {
+      final long off = slot >>> 16;
+      if(off > end) release(end, off - end);
+      end = Math.max(end, off + (slot & 0xFFFF));
+    }
+  }
+
+  /**
+   * Adds a slot, or the gap between two slots, to the free slots.
+   * Gaps that exceed the maximum slot size are split.
+   * @param offset file offset
+   * @param size size
+   */
+  private void release(final long offset, final long size) {
+    long off = offset, sz = size;
+    for(; sz >= TableCompression.ALIGN; off += TableCompression.MAXSLOT) {
+      final int s = (int) Math.min(sz, TableCompression.MAXSLOT);
+      free[s / TableCompression.ALIGN].add(off << 16 | s);
+      sz -= s;
+    }
+  }
+
+  /**
+   * Writes bytes to the table file. If updates are logged, the bytes will be logged first.
+   * @param off file offset
+   * @param data bytes to be written
+   * @param len number of bytes to be written
+   * @throws IOException I/O exception
+   */
+  private void write(final long off, final byte[] data, final int len) throws IOException {
+    final FileChannel fc = file.getChannel();
+    if(meta.log != null) meta.log.write(DATATBL + IO.BASEXSUFFIX, fc, off, data, len);
+    else Buffer.write(fc, off, data, len);
+  }
+
   /**
    * Updates the firstPre index entries.
    * @param nr number of entries to move
@@ -0,0 +1,136 @@
+package org.basex.io.random;
+
+import org.basex.data.*;
+import org.basex.io.*;
+
+/**
+ * This class allows main memory access to the database table representation.
+ * The table is stored outside the Java heap.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class TableOffHeapAccess extends TableAccess {
+  /** Buffer. */
+  private final OffHeapBuffer buffer = new OffHeapBuffer();
+
+  /**
+   * Stores the table outside the Java heap.
+   * @param md meta data
+   */
+  public TableOffHeapAccess(final MetaData md) {
+    super(md);
+  }
+
+  @Override
+  public void flush(final boolean all) { }
+
+  @Override
+  public void close() { }
+
+  @Override
+  public boolean lock(final boolean lock) { return true; }
+
+  @Override
+  public int read1(final int p, final int o) {
+    return (int) (buffer.read8(offset(p, o)) >> ((o < 8 ? 7 : 15) - o << 3) & 0xFF);
+  }
+
+  @Override
+  public int read2(final int p, final int o) {
+    return (int) (buffer.read8(offset(p, o)) >> ((o < 8 ? 6 : 14) - o << 3) & 0xFFFF);
+  }
+
+  @Override
+  public int read4(final int p, final int o) {
+    return (int) (buffer.read8(offset(p, o)) >> ((o < 8 ? 4 : 12) - o << 3));
+  }
+
+  @Override
+  public long read5(final int p, final int o) {
+    return buffer.read8(offset(p, o)) >> ((o < 8 ? 3 : 11) - o << 3) & 0xFFFFFFFFFFL;
+  }
+
+  @Override
+  public void write1(final int p, final int o, final int v) {
+    write(p, o, (o < 8 ? 7 : 15) - o << 3, 0xFFL, v);
+  }
+
+  @Override
+  public void write2(final int p, final int o, final int v) {
+    write(p, o, (o < 8 ? 6 : 14) - o << 3, 0xFFFFL, v);
+  }
+
+  @Override
+  public void write4(final int p, final int o, final int v) {
+    write(p, o, (o < 8 ? 4 : 12) - o << 3, 0xFFFFFFFFL, v & 0xFFFFFFFFL);
+  }
+
+  @Override
+  public void write5(final int p, final int o, final long v) {
+    write(p, o, (o < 8 ? 3 : 11) - o << 3, 0xFFFFFFFFFFL, v);
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    dirty();
+    buffer.write(offset(pre, 0), entries, last - pre << IO.NODEPOWER);
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    if(nr == 0) return;
+    move(pre + nr, pre);
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    if(entries.length == 0) return;
+    move(pre, pre + (entries.length >>> IO.NODEPOWER));
+    set(pre, entries);
+  }
+
+  @Override
+  protected void dirty() {
+    dirty = true;
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the offset of the long value that contains the specified entry offset.
+   * @param p pre value
+   * @param o entry offset
+   * @return buffer offset
+   */
+  private static long offset(final int p, final int o) {
+    return (long) p << IO.NODEPOWER | o & 8;
+  }
+
+  /**
+   * Writes a value.
+   * @param p pre value
+   * @param o entry offset
+   * @param d bit shift
+   * @param mask value mask
+   * @param v value
+   */
+  private void write(final int p, final int o, final long d, final long mask, final long v) {
+    dirty();
+    final long off = offset(p, o);
+    buffer.write8(off, buffer.read8(off) & ~(mask << d) | v << d);
+  }
+
+  /**
+   * Moves entries inside the buffer.
+   * @param op source position
+   * @param np destination position
+   */
+  private void move(final int op, final int np) {
+    dirty();
+    buffer.copy(offset(op, 0), offset(np, 0), (long) (meta.size - op) << IO.NODEPOWER);
+    meta.size += np - op;
+  }
+}
@@ -0,0 +1,170 @@
+package org.basex.io.random;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides read-only access to a snapshot of a table on disk.
+ * The directory of the table is copied when the snapshot is created. Pages that are modified
+ * after that are preserved by the original table (see {@link TableDiskAccess#snapshot}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+final class TableSnapshot extends TableAccess {
+  /** Original table. */
+  private final TableDiskAccess table;
+  /** Preserved pages. */
+  final Snapshot snapshot;
+  /** First pre values of the pages ({@code null}: pages are ordered and completely filled). */
+  private final int[] fpres;
+  /** Page indexes ({@code null}: pages are ordered and completely filled). */
+  private final int[] pages;
+  /** Number of used pages. */
+  private final int used;
+  /** Cursors of concurrent readers. */
+  private final ThreadLocal<BlockCursor> cursors = ThreadLocal.withInitial(BlockCursor::new);
+
+  /**
+   * Constructor.
+   * @param meta meta data of the snapshot
+   * @param table original table
+   * @param snapshot preserved pages
+   * @param fpres first pre values (can be {@code null})
+   * @param pages page indexes (can be {@code null})
+   * @param used number of used pages
+   */
+  TableSnapshot(final MetaData meta, final TableDiskAccess table, final Snapshot snapshot,
+      final int[] fpres, final int[] pages, final int used) {
+    super(meta);
+    this.table = table;
+    this.snapshot = snapshot;
+    this.fpres = fpres;
+    this.pages = pages;
+    this.used = used;
+  }
+
+  @Override
+  public void flush(final boolean all) { }
+
+  @Override
+  public void close() {
+    table.release(this);
+  }
+
+  @Override
+  public boolean lock(final boolean write) {
+    return !write;
+  }
+
+  @Override
+  public int read1(final int pre, final int off) {
+    final BlockCursor bc = cursor(pre);
+    return bc.read1((pre - bc.firstPre << IO.NODEPOWER) + off);
+  }
+
+  @Override
+  public int read2(final int pre, final int off) {
+    final BlockCursor bc = cursor(pre);
+    return bc.read2((pre - bc.firstPre << IO.NODEPOWER) + off);
+  }
+
+  @Override
+  public int read4(final int pre, final int off) {
+    final BlockCursor bc = cursor(pre);
+    return bc.read4((pre - bc.firstPre << IO.NODEPOWER) + off);
+  }
+
+  @Override
+  public long read5(final int pre, final int off) {
+    final BlockCursor bc = cursor(pre);
+    return bc.read5((pre - bc.firstPre << IO.NODEPOWER) + off);
+  }
+
+  @Override
+  public void write1(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write2(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write4(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write5(final int pre, final int off, final long v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void dirty() {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    throw Util.notExpected();
+  }
+
+  // PRIVATE METHODS ==============================================================================
+
+  /**
+   * Returns the cursor of the current thread, which points to the page containing the entry for
+   * the specified pre value.
+   * @param pre pre of the entry to search for
+   * @return cursor
+   */
+  private BlockCursor cursor(final int pre) {
+    final BlockCursor bc = cursors.get();
+    if(pre < bc.firstPre || pre >= bc.nextPre) {
+      final int p = search(pre);
+      bc.firstPre = fpre(p);
+      bc.nextPre = p == used - 1 ? meta.size : fpre(p + 1);
+      bc.pos = pages == null ? p : pages[p];
+      table.read(snapshot, (int) bc.pos, bc.data());
+    }
+    return bc;
+  }
+
+  /**
+   * Returns the index of the page containing the entry for the specified pre value.
+   * @param pre pre of the entry to search for
+   * @return page index
+   */
+  private int search(final int pre) {
+    if(pre < 0 || pre >= meta.size) throw Util.notExpected("Pre value out of bounds: %", pre);
+    if(fpres == null) return pre / IO.ENTRIES;
+    int l = 0, h = used - 1;
+    while(l < h) {
+      final int m = h + l + 1 >>> 1;
+      if(pre < fpres[m]) h = m - 1;
+      else l = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the first pre value of the specified page.
+   * @param p page index
+   * @return pre value
+   */
+  private int fpre(final int p) {
+    return fpres == null ? p * IO.ENTRIES : fpres[p];
+  }
+}
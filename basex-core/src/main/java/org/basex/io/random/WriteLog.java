@@ -0,0 +1,415 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+
+/**
+ * This class provides a write-ahead log for the files of a database.
+ *
+ * All changes of the data files are appended to the log before they are written. If updates are
+ * committed, only the log will be synchronized with disk. The data files will only be synchronized
+ * by checkpoints, which are performed in the background as soon as the log exceeds a maximum size,
+ * and when the database is closed. A checkpoint truncates the log.
+ *
+ * Files that are rewritten as a whole are compared with their previous contents. Only the changed
+ * regions are logged and written.
+ *
+ * If a database has not been closed properly, the committed changes are recovered from the log
+ * before the database is opened again.
+ *
+ * Each entry of the log consists of a type, the name of a file, a numeric value (file offset,
+ * file length or checksum) and a byte array. A commit entry contains the checksum of all entries
+ * that have been logged since the last commit or checkpoint.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteLog {
+  /** Size of the log that triggers a checkpoint. */
+  private static final long CHECKPOINT = 1 << 24;
+  /** Entry type: commit. */
+  private static final int COMMIT = 0;
+  /** Entry type: bytes written to a file. */
+  private static final int WRITE = 1;
+  /** Entry type: new file length. */
+  private static final int LENGTH = 2;
+  /** Minimum number of unchanged bytes between two changed regions of a rewritten file. */
+  private static final int GAP = 64;
+
+  /** Log file. */
+  private final IOFile file;
+  /** Output stream of the log file. */
+  private final FileOutputStream fos;
+  /** Log output. */
+  private final DataOutput out;
+  /** Checksum of the entries that have been logged since the last commit. */
+  private final CRC32 crc = new CRC32();
+  /** Channels of the data files that have been changed since the last checkpoint. */
+  private final HashMap<String, FileChannel> channels = new HashMap<>();
+  /** Names of files that have been rewritten since the last checkpoint. */
+  private final HashSet<String> files = new HashSet<>();
+  /** Contents of rewritten files, as they have been logged last. */
+  private final HashMap<String, byte[]> contents = new HashMap<>();
+  /** Thread that performs a checkpoint in the background ({@code null} if none is running). */
+  private Thread checkpointer;
+  /** Error of the last background checkpoint ({@code null} if none occurred). */
+  private IOException error;
+  /** Number of logged bytes before the last checkpoint. */
+  private long start;
+  /** Indicates if uncommitted entries exist. */
+  private boolean pending;
+  /** Indicates if the log has been closed. */
+  private boolean closed;
+
+  /**
+   * Constructor. Changes from a previous log must have been recovered.
+   * @param file log file
+   * @throws IOException I/O exception
+   */
+  public WriteLog(final IOFile file) throws IOException {
+    this.file = file;
+    fos = new FileOutputStream(file.file(), true);
+    out = new DataOutput(new BufferOutput(fos));
+  }
+
+  /**
+   * Recovers the changes that have been committed to the specified log, and deletes the log.
+   * The log will be ignored after the first incomplete or corrupt entry.
+   * @param file log file
+   * @return {@code true} if changes were recovered
+   * @throws IOException I/O exception
+   */
+  public static boolean recover(final IOFile file) throws IOException {
+    if(!file.exists()) return false;
+
+    // find last valid commit
+    final Entry entry = new Entry();
+    int entries = 0;
+    try(DataInput in = new DataInput(file)) {
+      final CRC32 crc = new CRC32();
+      for(int e = 1; entry.read(in); e++) {
+        if(entry.type == COMMIT) {
+          if(entry.value != crc.getValue()) break;
+          crc.reset();
+          entries = e;
+        } else {
+          checksum(crc, entry.type, entry.name, entry.value, entry.data, entry.data.length);
+        }
+      }
+    }
+
+    // write committed changes to the data files
+    if(entries != 0) {
+      final HashMap<String, RandomAccessFile> rafs = new HashMap<>();
+      try(DataInput in = new DataInput(file)) {
+        final IOFile dir = file.parent();
+        for(int e = 0; e < entries; e++) {
+          entry.read(in);
+          if(entry.type == COMMIT) continue;
+          final String name = Token.string(entry.name);
+          RandomAccessFile raf = rafs.get(name);
+          if(raf == null) {
+            raf = new RandomAccessFile(new IOFile(dir, name).file(), "rw");
+            rafs.put(name, raf);
+          }
+          if(entry.type == WRITE) Buffer.write(raf.getChannel(), entry.value, entry.data,
+              entry.data.length);
+          else raf.setLength(entry.value);
+        }
+        for(final RandomAccessFile raf : rafs.values()) raf.getFD().sync();
+      } finally {
+        for(final RandomAccessFile raf : rafs.values()) raf.close();
+      }
+    }
+    if(!file.delete()) throw Util.notExpected("%: could not delete log.", file);
+    return entries != 0;
+  }
+
+  /**
+   * Logs bytes and writes them to a data file.
+   * @param name name of the data file
+   * @param channel channel of the data file
+   * @param off file offset
+   * @param data bytes to be written
+   * @param len number of bytes to be written
+   * @throws IOException I/O exception
+   */
+  synchronized void write(final String name, final FileChannel channel, final long off,
+      final byte[] data, final int len) throws IOException {
+    log(WRITE, name, off, data, len);
+    channels.put(name, channel);
+    Buffer.write(channel, off, data, len);
+  }
+
+  /**
+   * Logs and assigns the length of a data file.
+   * @param name name of the data file
+   * @param raf data file
+   * @param len file length
+   * @throws IOException I/O exception
+   */
+  synchronized void length(final String name, final RandomAccessFile raf, final long len)
+      throws IOException {
+    log(LENGTH, name, len, Token.EMPTY, 0);
+    channels.put(name, raf.getChannel());
+    raf.setLength(len);
+  }
+
+  /**
+   * Synchronizes a data file before it is closed.
+   * @param name name of the data file
+   * @throws IOException I/O exception
+   */
+  synchronized void close(final String name) throws IOException {
+    final FileChannel fc = channels.remove(name);
+    if(fc != null) fc.force(true);
+  }
+
+  /**
+   * Returns an output stream for rewriting a data file as a whole. If a log is specified, the
+   * new contents will be logged and written when the stream is closed.
+   * @param io data file
+   * @param log write-ahead log (can be {@code null})
+   * @return output stream
+   * @throws IOException I/O exception
+   */
+  public static DataOutput output(final IOFile io, final WriteLog log) throws IOException {
+    if(log == null) return new DataOutput(io);
+    final ArrayOutput ao = new ArrayOutput();
+    return new DataOutput(new OutputStream() {
+      @Override
+      public void write(final int b) {
+        ao.write(b);
+      }
+      @Override
+      public void close() throws IOException {
+        log.file(io, ao.finish());
+      }
+    });
+  }
+
+  /**
+   * Logs and writes the new contents of a data file. Only the regions that differ from the
+   * previous contents are logged and written; the remaining bytes of the file are not touched.
+   * @param io data file
+   * @param data new contents
+   * @throws IOException I/O exception
+   */
+  private synchronized void file(final IOFile io, final byte[] data) throws IOException {
+    final String name = io.name();
+    try(RandomAccessFile raf = new RandomAccessFile(io.file(), "rw")) {
+      byte[] old = contents.get(name);
+      if(old == null) {
+        // file is rewritten for the first time: its current contents must be on disk
+        old = new byte[(int) raf.length()];
+        raf.readFully(old);
+        raf.getFD().sync();
+      }
+      final int ol = old.length, nl = data.length;
+      for(int d = 0; d < nl;) {
+        if(d < ol && old[d] == data[d]) {
+          d++;
+        } else {
+          // merge changed regions that are separated by only a few unchanged bytes
+          int e = d + 1, same = 0;
+          for(; e < nl && same < GAP; e++) same = e < ol && old[e] == data[e] ? same + 1 : 0;
+          final byte[] region = Arrays.copyOfRange(data, d, e - same);
+          log(WRITE, name, d, region, region.length);
+          Buffer.write(raf.getChannel(), d, region, region.length);
+          d = e;
+        }
+      }
+      if(nl != ol) {
+        log(LENGTH, name, nl, Token.EMPTY, 0);
+        raf.setLength(nl);
+      }
+    }
+    contents.put(name, data);
+    files.add(name);
+  }
+
+  /**
+   * Commits all logged changes by synchronizing the log with disk.
+   * Triggers a checkpoint if the log exceeds its maximum size.
+   * @throws IOException I/O exception
+   */
+  public synchronized void commit() throws IOException {
+    if(error != null) throw error;
+    if(!pending) return;
+    log(COMMIT, "", crc.getValue(), Token.EMPTY, 0);
+    crc.reset();
+    out.flush();
+    fos.getFD().sync();
+    pending = false;
+
+    if(checkpointer == null && out.size() - start > CHECKPOINT) {
+      checkpointer = new Thread(() -> {
+        try {
+          checkpoint();
+        } catch(final IOException ex) {
+          // error will be raised by the next commit
+          synchronized(this) {
+            error = ex;
+          }
+        } finally {
+          synchronized(this) {
+            checkpointer = null;
+          }
+        }
+      }, "Checkpoint");
+      checkpointer.start();
+    }
+  }
+
+  /**
+   * Performs a checkpoint: synchronizes all changed data files with disk and truncates the log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void checkpoint() throws IOException {
+    if(closed) return;
+
+    for(final FileChannel fc : channels.values()) fc.force(true);
+    final IOFile dir = file.parent();
+    for(final String name : files) {
+      final IOFile io = new IOFile(dir, name);
+      if(!io.exists()) continue;
+      try(RandomAccessFile raf = new RandomAccessFile(io.file(), "rw")) {
+        raf.getFD().sync();
+      }
+    }
+    channels.clear();
+    files.clear();
+
+    // discard uncommitted entries: the corresponding changes have been written to disk
+    out.flush();
+    fos.getChannel().truncate(0);
+    start = out.size();
+    crc.reset();
+    pending = false;
+  }
+
+  /**
+   * Waits for a running background checkpoint, commits pending changes, performs a checkpoint,
+   * and deletes the log. Data files must have been closed via {@link #close(String)}.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    final Thread thread;
+    synchronized(this) {
+      thread = checkpointer;
+    }
+    if(thread != null) {
+      try {
+        thread.join();
+      } catch(final InterruptedException ex) {
+        throw Util.notExpected(ex);
+      }
+    }
+    synchronized(this) {
+      if(closed) return;
+      commit();
+      checkpoint();
+      closed = true;
+      out.close();
+      contents.clear();
+      if(!file.delete()) throw Util.notExpected("%: could not delete log.", file);
+    }
+  }
+
+  /**
+   * Appends an entry to the log.
+   * @param type entry type
+   * @param name file name
+   * @param value offset, length or checksum
+   * @param data data
+   * @param len number of bytes to be written
+   * @throws IOException I/O exception
+   */
+  private void log(final int type, final String name, final long value, final byte[] data,
+      final int len) throws IOException {
+    final byte[] nm = Token.token(name);
+    out.write1(type);
+    out.writeToken(nm);
+    out.write5(value);
+    out.writeNum(len);
+    for(int d = 0; d < len; d++) out.write(data[d]);
+    if(type != COMMIT) {
+      checksum(crc, type, nm, value, data, len);
+      pending = true;
+    }
+  }
+
+  /**
+   * Updates a checksum with the contents of an entry.
+   * @param crc checksum
+   * @param type entry type
+   * @param name file name
+   * @param value offset, length or checksum
+   * @param data data
+   * @param len number of bytes
+   */
+  private static void checksum(final CRC32 crc, final int type, final byte[] name,
+      final long value, final byte[] data, final int len) {
+    crc.update(type);
+    crc.update(name);
+    for(int s = 32; s >= 0; s -= 8) crc.update((int) (value >>> s));
+    crc.update(data, 0, len);
+  }
+
+  /**
+   * Entry of the log.
+   */
+  private static final class Entry {
+    /** Type. */
+    int type;
+    /** File name. */
+    byte[] name;
+    /** Offset, length or checksum. */
+    long value;
+    /** Data. */
+    byte[] data;
+
+    /**
+     * Reads the next entry.
+     * @param in log input
+     * @return {@code false} if the end of the log has been reached, or if the entry is invalid
+     * @throws IOException I/O exception
+     */
+    boolean read(final DataInput in) throws IOException {
+      type = in.read();
+      if(type < COMMIT || type > LENGTH) return false;
+      name = bytes(in);
+      if(name == null) return false;
+      value = 0;
+      for(int i = 0; i < 5; i++) {
+        final int b = in.read();
+        if(b == -1) return false;
+        value = value << 8 | b;
+      }
+      data = bytes(in);
+      return data != null;
+    }
+
+    /**
+     * Reads a byte array.
+     * @param in log input
+     * @return byte array, or {@code null} if the array exceeds the remaining input
+     * @throws IOException I/O exception
+     */
+    private static byte[] bytes(final DataInput in) throws IOException {
+      final int len = in.readNum();
+      if(len < 0 || len > in.length() - in.size()) return null;
+      final byte[] bytes = new byte[len];
+      for(int b = 0; b < len; b++) bytes[b] = (byte) in.read();
+      return bytes;
+    }
+  }
+}
@@ -429,6 +429,18 @@ public final class QueryContext extends Job implements Closeable {
     final LockList read = locks.reads, write = locks.writes;
     read.add(readLocks);
     write.add(writeLocks);
+    // read-only queries on database snapshots: only lock resources other than databases
+    if(!updating && context.soptions.get(StaticOptions.SNAPSHOTS)) {
+      final Locks dbs = new Locks();
+      if(root != null) root.databases(dbs, this);
+      if(ctxItem != null) ctxItem.databases(dbs, this);
+      for(final String lock : dbs.reads) {
+        if(lock.startsWith(Locking.USER_PREFIX) || lock.startsWith(Locking.MODULE_PREFIX) ||
+           lock.startsWith(Locking.PREFIX) && !Strings.eq(lock, Locking.CONTEXT,
+           Locking.COLLECTION)) read.add(lock);
+      }
+      return;
+    }
     // use global locking if referenced databases cannot be statically determined
     if(root == null || !root.databases(locks, this) ||
        ctxItem != null && !ctxItem.databases(locks, this)) {
@@ -66,9 +66,9 @@ public final class QueryResources {
    */
   Value compile(final DBNodes nodes) {
     // add globally opened database
-    final Data data = nodes.data();
+    final Data data = snapshot(nodes.data());
     addData(data);
-    synchronized(qc.context.datas) { qc.context.datas.pin(data); }
+    synchronized(qc.context.datas) { qc.context.datas.pin(nodes.data()); }
     globalData = true;
 
     // create context value
@@ -147,7 +147,7 @@ public final class QueryResources {
 
     // open and register database
     try {
-      return addData(Open.open(name, ctx, ctx.options));
+      return addData(snapshot(Open.open(name, ctx, ctx.options)));
     } catch(final IOException ex) {
       throw BXDB_OPEN_X.get(info, ex);
     }
@@ -374,7 +374,7 @@ public final class QueryResources {
     if(dbName != null) {
       try {
         final Context ctx = qc.context;
-        return addData(Open.open(dbName, ctx, ctx.options));
+        return addData(snapshot(Open.open(dbName, ctx, ctx.options)));
       } catch(final IOException ex) {
         Util.debug(ex);
       }
@@ -419,6 +419,17 @@ public final class QueryResources {
     return addData(data);
   }
 
+  /**
+   * Returns a snapshot of the specified database if read-only queries are evaluated on snapshots
+   * (see {@link StaticOptions#SNAPSHOTS}).
+   * @param data data reference
+   * @return snapshot or specified data reference
+   */
+  private Data snapshot(final Data data) {
+    return data instanceof DiskData && !qc.updating &&
+      qc.context.soptions.get(StaticOptions.SNAPSHOTS) ? ((DiskData) data).snapshot() : data;
+  }
+
   /**
    * Adds a data reference.
    * @param data data reference to be added
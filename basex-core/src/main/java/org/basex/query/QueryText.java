@@ -406,6 +406,8 @@ public interface QueryText {
   /** Optimization info. */ String OPTPATH_X = "remove non-existing path %";
   /** Optimization info. */ String OPTINDEX_X_X = "apply % index for %";
   /** Optimization info. */ String OPTNORESULTS_X = "no index results: %";
+  /** Optimization info. */ String OPTINTERSECT_X = "intersect index results: %";
+  /** Optimization info. */ String OPTFACETS_X = "count facets with attribute index: %";
   /** Optimization info. */ String OPTCHILD_X = "convert to child steps: %";
   /** Optimization info. */ String OPTUNROLL_X = "unroll: %";
 
@@ -3,9 +3,13 @@ package org.basex.query.expr;
 import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.CmpV.*;
+import org.basex.query.expr.index.*;
 import org.basex.query.func.fn.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
@@ -298,8 +302,13 @@ public class CmpG extends Cmp {
 
   @Override
   public final boolean indexAccessible(final IndexInfo ii) throws QueryException {
+    if(coll != null) return false;
+    // comparisons with dates and dateTimes can be rewritten for typed indexes
+    final SeqType st = exprs[1].seqType();
+    if((st.type == AtomType.DAT || st.type == AtomType.DTM) && st.zeroOrOne())
+      return dateAccessible(ii);
     // only equality expressions on default collation can be rewritten
-    if(op != OpG.EQ || coll != null) return false;
+    if(op != OpG.EQ) return false;
 
     Expr expr1 = exprs[0];
     final boolean tokenize = expr1 instanceof FnTokenize;
@@ -307,6 +316,61 @@ public class CmpG extends Cmp {
     return ii.create(exprs[1], ii.type(expr1, tokenize ? IndexType.TOKEN : null), info, false);
   }
 
+  /**
+   * Returns the search expression if this comparison can be rewritten for key index access
+   * (see {@link IndexInfo#keys()}).
+   * @return search expression, or {@code null}
+   */
+  public Expr keyAccessible() {
+    return op == OpG.EQ && coll == null ? exprs[1] : null;
+  }
+
+  /**
+   * Checks if the comparison of a date or dateTime can be rewritten for typed index access
+   * (see {@link org.basex.core.MainOptions#TYPEDINDEX}). The rewrite is only performed if the
+   * statistics indicate that all values can be cast to the type of the compared item.
+   * If the compared item is computed at runtime, the range will be computed at runtime, too.
+   * @param ii index info
+   * @return result of check
+   */
+  private boolean dateAccessible(final IndexInfo ii) {
+    final Data data = ii.db.data();
+    if(op == OpG.NE || data == null || data.inMemory() || !data.meta.typedindex) return false;
+
+    // accept untyped input, or input that is cast to the type of the compared item
+    final Expr search = exprs[1];
+    final Type dt = search.seqType().type;
+    Expr expr1 = exprs[0];
+    if(expr1 instanceof Cast && expr1.seqType().type == dt) expr1 = ((Cast) expr1).expr;
+    final IndexType type = ii.type(expr1, null);
+    if(type == null) return false;
+    final Stats stats = ii.stats(expr1, type);
+    if(stats == null || !stats.dates(dt == AtomType.DTM)) return false;
+
+    if(!(search instanceof ADate)) {
+      // index access is not possible if the expression depends on the context,
+      // or if it is non-deterministic
+      if(search.has(Flag.CTX, Flag.NDT)) return false;
+      // check if typed keys exist, estimate costs (tend to worst case)
+      if(ii.costs(data, new DateRange(type, null, true, null, true)) == null) return false;
+      ii.costs = IndexCosts.get(Math.max(1, data.meta.size / 10));
+      ii.create(new RangeAccess(info, search, type, op, ii.db), true, info,
+          Util.info(OPTINDEX_X_X, "range", this));
+      return true;
+    }
+
+    final ADate date = (ADate) search;
+    final boolean min = op != OpG.LT && op != OpG.LE, max = op != OpG.GT && op != OpG.GE;
+    final boolean inc = op != OpG.LT && op != OpG.GT;
+    final DateRange dr = new DateRange(type, min ? date : null, inc, max ? date : null, inc);
+    ii.costs = ii.costs(data, dr);
+    if(ii.costs == null) return false;
+
+    ii.create(new RangeAccess(info, dr, ii.db), true, info,
+        Util.info(OPTINDEX_X_X, "range", this));
+    return true;
+  }
+
   @Override
   public CmpG copy(final CompileContext cc, final IntObjMap<Var> vm) {
     final CmpG cmp = new CmpG(exprs[0].copy(cc, vm), exprs[1].copy(cc, vm), op, coll, sc, info);
@@ -5,13 +5,10 @@ import static org.basex.util.Token.*;
 
 import org.basex.data.*;
 import org.basex.index.*;
-import org.basex.index.name.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.index.*;
-import org.basex.query.expr.path.*;
-import org.basex.query.expr.path.Test.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
@@ -177,7 +174,9 @@ public final class CmpR extends Single {
     // sequential main memory scan is usually faster than range index access
     if(data == null ? !ii.enforce() : data.inMemory()) return false;
 
-    if(!mni || !mxi) return false;
+    // typed index: numbers are indexed in their numeric order
+    final boolean typed = data != null && data.meta.typedindex;
+    if(!typed && (!mni || !mxi)) return false;
     final IndexType type = ii.type(expr, null);
     if(type == null) return false;
 
@@ -185,9 +184,12 @@ public final class CmpR extends Single {
     if(key == null) return false;
 
     // estimate costs for range access; all values out of range: no results
-    final NumericRange nr = new NumericRange(type, Math.max(min, key.min), Math.min(max, key.max));
+    final boolean cmn = min < key.min, cmx = max > key.max;
+    final NumericRange nr = new NumericRange(type, cmn ? key.min : min, cmn || mni,
+        cmx ? key.max : max, cmx || mxi);
     // skip queries with no results
-    if(nr.min > nr.max || nr.max < key.min || nr.min > key.max) {
+    if(nr.min > nr.max || nr.max < key.min || nr.min > key.max ||
+        nr.min == nr.max && !(nr.mni && nr.mxi)) {
       ii.costs = IndexCosts.get(0);
       return true;
     }
@@ -196,14 +198,16 @@ public final class CmpR extends Single {
     ii.costs = ii.costs(data, nr);
     if(ii.costs == null) return false;
 
-    // skip if numbers are negative, doubles, or of different string length
-    final int mnl = min >= 0 && (long) min == min ? token(min).length : -1;
-    final int mxl = max >= 0 && (long) max == max ? token(max).length : -1;
-    if(mnl != mxl || mnl == -1) return false;
-
     // don't use index if min/max values are infinite
-    if(min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY ||
-        token((int) nr.min).length != token((int) nr.max).length) return false;
+    if(min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY) return false;
+
+    if(!typed) {
+      // skip if numbers are negative, doubles, or of different string length
+      final int mnl = min >= 0 && (long) min == min ? token(min).length : -1;
+      final int mxl = max >= 0 && (long) max == max ? token(max).length : -1;
+      if(mnl != mxl || mnl == -1 ||
+          token((int) nr.min).length != token((int) nr.max).length) return false;
+    }
 
     final TokenBuilder tb = new TokenBuilder();
     tb.add(mni ? '[' : '(').addExt(min).add(',').addExt(max).add(mxi ? ']' : ')');
@@ -218,29 +222,8 @@ public final class CmpR extends Single {
    * @return key
    */
   private Stats key(final IndexInfo ii, final IndexType type) {
-    // statistics are not up-to-date
-    final Data data = ii.db.data();
-    if(data == null || !data.meta.uptodate || !data.nspaces.isEmpty() ||
-        !(expr instanceof AxisPath)) return null;
-
-    NameTest test = ii.test;
-    if(test == null) {
-      final Step step;
-      final AxisPath path = (AxisPath) expr;
-      final int st = path.steps.length - 1;
-      if(type == IndexType.TEXT) {
-        step = st == 0 ? ii.step : path.step(st - 1);
-        if(step.test.kind != Kind.NAME) return null;
-      } else {
-        step = path.step(st);
-        if(!step.simple(Axis.ATTR, true)) return null;
-      }
-      test = (NameTest) step.test;
-    }
-
-    final Names names = type == IndexType.TEXT ? data.elemNames : data.attrNames;
-    final Stats stats = names.stats(names.id(test.name.local()));
-    return stats == null || StatsType.isNumeric(stats.type) ? stats : null;
+    final Stats stats = ii.stats(expr, type);
+    return stats != null && StatsType.isNumeric(stats.type) ? stats : null;
   }
 
   @Override
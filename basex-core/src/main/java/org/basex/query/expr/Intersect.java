@@ -61,6 +61,14 @@ public final class Intersect extends Set {
     return copyType(is);
   }
 
+  @Override
+  protected Bitmap eval(final Bitmap[] bitmaps) {
+    Bitmap bitmap = bitmaps[0];
+    final int bl = bitmaps.length;
+    for(int b = 1; b < bl && !bitmap.isEmpty(); b++) bitmap = bitmap.and(bitmaps[b]);
+    return bitmap;
+  }
+
   @Override
   protected NodeIter iter(final Iter[] iters) {
     return new SetIter(iters) {
@@ -4,7 +4,10 @@ import static org.basex.query.QueryText.*;
 
 import java.util.*;
 
+import org.basex.data.*;
 import org.basex.query.*;
+import org.basex.query.expr.index.*;
+import org.basex.query.expr.path.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.list.*;
 import org.basex.query.value.node.*;
@@ -53,6 +56,9 @@ abstract class Set extends Arr {
 
   @Override
   public final NodeIter iter(final QueryContext qc) throws QueryException {
+    final NodeIter ni = index(qc);
+    if(ni != null) return ni;
+
     final int el = exprs.length;
     final Iter[] iter = new Iter[el];
     for(int e = 0; e < el; e++) iter[e] = qc.iter(exprs[e]);
@@ -68,6 +74,13 @@ abstract class Set extends Arr {
    */
   protected abstract ANodeBuilder eval(Iter[] iters, QueryContext qc) throws QueryException;
 
+  /**
+   * Combines the specified bitmaps.
+   * @param bitmaps bitmaps with the pre values of the operands
+   * @return resulting bitmap
+   */
+  protected abstract Bitmap eval(Bitmap[] bitmaps);
+
   /**
    * Evaluates the specified iterators in an iterative manner.
    * @param iters iterators
@@ -75,6 +88,102 @@ abstract class Set extends Arr {
    */
   protected abstract NodeIter iter(Iter[] iters);
 
+  /**
+   * Evaluates the expression at index level if all operands are index requests on the same
+   * database, which is known at compile time. The pre values of the index results are
+   * combined as bitmaps.
+   * @param qc query context
+   * @return resulting iterator, or {@code null} if the expression cannot be evaluated this way
+   * @throws QueryException query exception
+   */
+  private NodeIter index(final QueryContext qc) throws QueryException {
+    final Data data = data(this, qc);
+    return data != null ? ValueAccess.iter(bitmap(this, data, qc, 0, Integer.MAX_VALUE), data) :
+      null;
+  }
+
+  /**
+   * Returns the database of an expression that can be evaluated at index level.
+   * Supported expressions are value index requests, paths with a value index request as root and
+   * self or parent steps without predicates, and set expressions with supported operands.
+   * @param expr expression
+   * @param qc query context
+   * @return data reference, or {@code null} if the expression is not supported
+   * @throws QueryException query exception
+   */
+  private static Data data(final Expr expr, final QueryContext qc) throws QueryException {
+    if(expr instanceof ValueAccess) return ((ValueAccess) expr).data(qc);
+    if(expr instanceof Path) {
+      final Path path = (Path) expr;
+      for(final Expr step : path.steps) {
+        if(!(step instanceof Step)) return null;
+        final Step s = (Step) step;
+        if(s.exprs.length != 0 || s.axis != Axis.SELF && s.axis != Axis.PARENT) return null;
+      }
+      return path.root != null ? data(path.root, qc) : null;
+    }
+    if(expr instanceof Set) {
+      Data data = null;
+      for(final Expr ex : ((Set) expr).exprs) {
+        final Data d = data(ex, qc);
+        if(d == null || data != null && data != d) return null;
+        data = d;
+      }
+      return data;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the pre values of an expression that can be evaluated at index level.
+   * Index requests may skip results outside the specified range. If the pre values of the
+   * expression will be intersected with other results, the range comprises the nodes of the
+   * other results and their descendants.
+   * @param expr expression
+   * @param data data reference
+   * @param qc query context
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
+   * @return bitmap with pre values
+   * @throws QueryException query exception
+   */
+  private static Bitmap bitmap(final Expr expr, final Data data, final QueryContext qc,
+      final int min, final int max) throws QueryException {
+
+    if(expr instanceof ValueAccess) return ((ValueAccess) expr).bitmap(data, qc, min, max);
+    if(expr instanceof Path) {
+      final Path path = (Path) expr;
+      Bitmap bitmap = bitmap(path.root, data, qc, min, max);
+      for(final Expr step : path.steps) {
+        final Step s = (Step) step;
+        final Bitmap bm = new Bitmap();
+        for(final int pre : bitmap.toArray()) {
+          final int p = s.axis == Axis.SELF ? pre : data.parent(pre, data.kind(pre));
+          if(p != -1 && s.test.eq(new DBNode(data, p, data.kind(p)))) bm.add(p);
+        }
+        bitmap = bm;
+      }
+      return bitmap;
+    }
+    final Expr[] exprs = ((Set) expr).exprs;
+    final int el = exprs.length;
+    final Bitmap[] bitmaps = new Bitmap[el];
+    bitmaps[0] = bitmap(exprs[0], data, qc, min, max);
+    // union: all operands are evaluated with the same range
+    // intersection, difference: remaining operands are restricted to the range of the first one
+    int mn = min, mx = max;
+    if(!(expr instanceof Union)) {
+      final int[] pres = bitmaps[0].toArray();
+      mn = pres.length == 0 ? 0 : pres[0];
+      mx = mn;
+      for(final int pre : pres) mx = Math.max(mx, pre + data.size(pre, data.kind(pre)));
+    }
+    for(int e = 1; e < el; e++) {
+      bitmaps[e] = mn < mx ? bitmap(exprs[e], data, qc, mn, mx) : new Bitmap();
+    }
+    return ((Set) expr).eval(bitmaps);
+  }
+
   @Override
   public final boolean iterable() {
     return iterable;
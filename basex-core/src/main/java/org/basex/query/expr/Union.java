@@ -69,6 +69,14 @@ public final class Union extends Set {
     return list;
   }
 
+  @Override
+  protected Bitmap eval(final Bitmap[] bitmaps) {
+    Bitmap bitmap = bitmaps[0];
+    final int bl = bitmaps.length;
+    for(int b = 1; b < bl; b++) bitmap = bitmap.or(bitmaps[b]);
+    return bitmap;
+  }
+
   @Override
   protected NodeIter iter(final Iter[] iters) {
     return new SetIter(iters) {
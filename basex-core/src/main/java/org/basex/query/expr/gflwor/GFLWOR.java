@@ -193,6 +193,15 @@ public final class GFLWOR extends ParseExpr {
               clauses.remove(1);
             }
             changed = true;
+          } else if(clauses.size() > 1 && clauses.get(1) instanceof GroupBy) {
+            // example: for $a in //@id group by $v := $a return count($a)
+            final Clause[] facets = ((GroupBy) clauses.get(1)).facets(fst, cc);
+            if(facets != null) {
+              clauses.remove(1);
+              clauses.remove(0);
+              clauses.addAll(0, Arrays.asList(facets));
+              changed = true;
+            }
           }
         }
       }
@@ -4,9 +4,14 @@ import static org.basex.query.QueryText.*;
 
 import java.util.*;
 
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.path.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.*;
+import org.basex.query.expr.index.*;
+import org.basex.query.expr.path.*;
 import org.basex.query.util.*;
 import org.basex.query.util.collation.*;
 import org.basex.query.value.*;
@@ -223,6 +228,89 @@ public final class GroupBy extends Clause {
     return this;
   }
 
+  /**
+   * Tries to rewrite this clause and the preceding for clause to a clause that iterates over
+   * the distinct values of the attribute index. The rewrite is applied if attributes are grouped
+   * by their value, and if the path of the for clause addresses all attributes of a specific name
+   * in a database.
+   * <pre>
+   * for $a in //@name group by $v := $a let $c := count($a) ...
+   * &rarr; for $v in facets(...) let $a := db:attribute(..., $v) let $c := count($a) ...
+   * </pre>
+   * @param fr preceding for clause
+   * @param cc compilation context
+   * @return new clauses or {@code null}
+   * @throws QueryException query exception
+   */
+  Clause[] facets(final For fr, final CompileContext cc) throws QueryException {
+    // single grouping spec, referencing the for variable
+    if(fr.pos != null || fr.score != null || fr.var.checksType() || specs.length != 1 ||
+        !(fr.expr instanceof Path)) return null;
+    final Spec spec = specs[0];
+    if(spec.occluded || spec.coll != null || spec.var.checksType() ||
+        !(spec.expr instanceof VarRef) || !((VarRef) spec.expr).var.is(fr.var)) return null;
+    for(final Expr expr : preExpr) {
+      if(!(expr instanceof VarRef) || !((VarRef) expr).var.is(fr.var)) return null;
+    }
+
+    // path must start from all documents of a database and end with an attribute name test
+    final Path path = (Path) fr.expr;
+    final Value init = cc.contextValue(path.root);
+    if(init == null || init.type != NodeType.DOC) return null;
+    final Data data = init.data();
+    if(data == null || !(init instanceof DBNodeSeq ? ((DBNodeSeq) init).all() :
+      init instanceof DBNode && data.meta.ndocs == 1)) return null;
+    if(!data.meta.attrindex || !data.nspaces.isEmpty()) return null;
+
+    final Expr last = path.steps[path.steps.length - 1];
+    if(!(last instanceof Step)) return null;
+    final Step step = (Step) last;
+    if(step.test.type != NodeType.ATT || step.test.kind != Test.Kind.NAME) return null;
+    final byte[] name = step.test.name.local();
+    final int id = data.attrNames.id(name);
+    final ArrayList<PathNode> nodes = path.pathNodes(cc);
+    if(id == 0 || nodes == null) return null;
+
+    // path nodes must comprise all attributes of the given name, distinct values must be known:
+    // in this case, all values are short enough to be indexed
+    final IndexNames names = new IndexNames(IndexType.ATTRIBUTE, data);
+    if(!names.contains(new byte[][] { name, Token.EMPTY })) return null;
+    for(final PathNode node : nodes) {
+      if(node.kind != Data.ATTR || node.name != id || node.stats.values == null) return null;
+    }
+
+    // filter results by name if values of other attributes are indexed as well, or if other
+    // attributes may be empty (empty values are looked up by scanning all attributes)
+    boolean filter = false;
+    int all = 0;
+    for(final PathNode node : PathIndex.desc(data.paths.root(), true)) {
+      if(node.kind != Data.ATTR) continue;
+      if(node.name == id) {
+        all++;
+      } else if(!filter) {
+        final TokenIntMap values = node.stats.values;
+        filter = values == null || values.contains(Token.EMPTY) ||
+            names.contains(new byte[][] { data.attrNames.key(node.name), Token.EMPTY });
+      }
+    }
+    if(all != nodes.size()) return null;
+
+    // create new clauses
+    final IndexDb db = new IndexStaticDb(info, data);
+    final ValueFacets facets = new ValueFacets(info, filter ? name : null, db);
+    final int pl = post.length;
+    final Clause[] clauses = new Clause[pl + 1];
+    clauses[0] = new For(spec.var, null, null, facets, false).optimize(cc);
+    for(int p = 0; p < pl; p++) {
+      Expr lookup = new ValueAccess(info, new VarRef(info, spec.var), IndexType.ATTRIBUTE,
+          null, db);
+      if(filter) lookup = Path.get(info, lookup, Step.get(info, Axis.SELF, step.test));
+      clauses[p + 1] = new Let(post[p], lookup.optimize(cc), false).optimize(cc);
+    }
+    cc.info(OPTFACETS_X, facets);
+    return clauses;
+  }
+
   @Override
   public boolean removable(final Var var) {
     for(final Spec b : specs) if(!b.removable(var)) return false;
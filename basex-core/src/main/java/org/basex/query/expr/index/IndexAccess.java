@@ -26,8 +26,18 @@ public abstract class IndexAccess extends Simple {
    * @param type type index type
    */
   IndexAccess(final IndexDb db, final InputInfo info, final IndexType type) {
-    super(info, type == IndexType.TEXT || type == IndexType.FULLTEXT ? SeqType.TXT_ZM :
+    this(db, info, type == IndexType.TEXT || type == IndexType.FULLTEXT ? SeqType.TXT_ZM :
       SeqType.ATT_ZM);
+  }
+
+  /**
+   * Constructor.
+   * @param db index database
+   * @param info input info
+   * @param seqType sequence type of the returned nodes
+   */
+  IndexAccess(final IndexDb db, final InputInfo info, final SeqType seqType) {
+    super(info, seqType);
     this.db = db;
   }
 
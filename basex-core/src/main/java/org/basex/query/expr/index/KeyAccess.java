@@ -0,0 +1,194 @@
+package org.basex.query.expr.index;
+
+import static org.basex.query.QueryError.*;
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.value.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This index class retrieves elements from a key index.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class KeyAccess extends IndexAccess {
+  /** Search expressions (one for each leading key of the definition). */
+  private final Expr[] exprs;
+  /** Key definition. */
+  private final KeyDefinition definition;
+  /** Index of the key definition. */
+  private final int def;
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param exprs search expressions
+   * @param definition key definition
+   * @param def index of the key definition
+   * @param db index database
+   */
+  public KeyAccess(final InputInfo info, final Expr[] exprs, final KeyDefinition definition,
+      final int def, final IndexDb db) {
+    super(db, info, SeqType.ELM_ZM);
+    this.exprs = exprs;
+    this.definition = definition;
+    this.def = def;
+  }
+
+  @Override
+  public BasicNodeIter iter(final QueryContext qc) throws QueryException {
+    final Data data = keyData();
+    final IntList pres = new IntList();
+    for(final byte[] key : keys(qc)) data.keyIndex.pres(def, key, all(), pres);
+    pres.sort().distinct();
+
+    // return elements in document order
+    return new DBNodeIter(data) {
+      final int ps = pres.size();
+      int p;
+      @Override
+      public DBNode next() {
+        return p < ps ? new DBNode(data, pres.get(p++), Data.ELEM) : null;
+      }
+    };
+  }
+
+  /**
+   * Returns the number of index entries for the search values.
+   * @param qc query context
+   * @return number of entries
+   * @throws QueryException query exception
+   */
+  public int count(final QueryContext qc) throws QueryException {
+    final Data data = keyData();
+    int c = 0;
+    for(final byte[] key : keys(qc)) c += data.keyIndex.count(def, key, all());
+    return c;
+  }
+
+  /**
+   * Returns the data reference.
+   * @return data reference
+   * @throws QueryException query exception
+   */
+  private Data keyData() throws QueryException {
+    final Data data = db.data();
+    if(!data.meta.keyindex) throw BXDB_INDEX_X.get(info, data.meta.name, "key");
+    return data;
+  }
+
+  /**
+   * Indicates if the search expressions contain values for all keys of the definition.
+   * @return result of check
+   */
+  private boolean all() {
+    return exprs.length == definition.keys.length;
+  }
+
+  /**
+   * Returns the composite keys for the distinct strings of all search expressions.
+   * @param qc query context
+   * @return composite keys
+   * @throws QueryException query exception
+   */
+  private TokenList keys(final QueryContext qc) throws QueryException {
+    TokenList keys = new TokenList(1);
+    final int el = exprs.length;
+    for(int e = 0; e < el; e++) {
+      final TokenSet values = new TokenSet();
+      final Iter iter = qc.iter(exprs[e]);
+      for(Item it; (it = iter.next()) != null;) {
+        qc.checkStop();
+        values.put(it.string(info));
+      }
+      final TokenList next = new TokenList(Math.max(1, keys.size() * values.size()));
+      for(final byte[] value : values) {
+        if(e == 0) next.add(value);
+        else for(final byte[] key : keys) next.add(KeyIndex.key(key, value));
+      }
+      keys = next;
+    }
+    return keys;
+  }
+
+  @Override
+  public boolean has(final Flag... flags) {
+    for(final Expr expr : exprs) if(expr.has(flags)) return true;
+    return super.has(flags);
+  }
+
+  @Override
+  public boolean removable(final Var var) {
+    for(final Expr expr : exprs) if(!expr.removable(var)) return false;
+    return super.removable(var);
+  }
+
+  @Override
+  public VarUsage count(final Var var) {
+    return VarUsage.sum(var, exprs).plus(super.count(var));
+  }
+
+  @Override
+  public Expr inline(final Var var, final Expr ex, final CompileContext cc) throws QueryException {
+    final boolean sub = inlineAll(exprs, var, ex, cc);
+    final Expr ia = super.inline(var, ex, cc);
+    return sub || ia != null ? optimize(cc) : null;
+  }
+
+  @Override
+  public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
+    return copyType(new KeyAccess(info, Arr.copyAll(cc, vm, exprs), definition, def,
+        db.copy(cc, vm)));
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return visitAll(visitor, exprs) && super.accept(visitor);
+  }
+
+  @Override
+  public int exprSize() {
+    int sz = super.exprSize();
+    for(final Expr expr : exprs) sz += expr.exprSize();
+    return sz;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if(!(obj instanceof KeyAccess)) return false;
+    final KeyAccess k = (KeyAccess) obj;
+    return def == k.def && definition == k.definition && Array.equals(exprs, k.exprs) &&
+        super.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    // expressions are skipped, as they do not implement hashCode()
+    return 31 * definition.hashCode() + def;
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(INDEX, "key", NAME, definition), db, exprs);
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder("key-index(").add(db.source().toString());
+    tb.add(", ").add(Str.get(definition.toString()).toString());
+    for(final Expr expr : exprs) tb.add(", ").add(expr.toString());
+    return tb.add(')').toString();
+  }
+}
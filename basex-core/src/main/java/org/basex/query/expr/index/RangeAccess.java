@@ -7,8 +7,10 @@ import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.CmpG.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.var.*;
@@ -16,14 +18,21 @@ import org.basex.util.*;
 import org.basex.util.hash.*;
 
 /**
- * This index class retrieves numeric ranges from a value index.
+ * This index class retrieves numeric and date ranges from a value index.
+ * Dates and dateTimes can also be computed at runtime.
  *
  * @author BaseX Team 2005-17, BSD License
  * @author Christian Gruen
  */
 public final class RangeAccess extends IndexAccess {
-  /** Index token. */
-  private final NumericRange index;
+  /** Index token ({@code null} if the range is computed at runtime). */
+  private final IndexToken index;
+  /** Index type. */
+  private final IndexType type;
+  /** Expression yielding a date or dateTime ({@code null} if the range is static). */
+  private Expr expr;
+  /** Comparison operator ({@code null} if the range is static). */
+  private final OpG op;
 
   /**
    * Constructor.
@@ -32,17 +41,60 @@ public final class RangeAccess extends IndexAccess {
    * @param db index database
    */
   public RangeAccess(final InputInfo info, final NumericRange index, final IndexDb db) {
-    super(db, info, index.type());
+    this(info, index, index.type(), null, null, db);
+  }
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param index index token
+   * @param db index database
+   */
+  public RangeAccess(final InputInfo info, final DateRange index, final IndexDb db) {
+    this(info, index, index.type(), null, null, db);
+  }
+
+  /**
+   * Constructor for a date or dateTime range that will be computed at runtime.
+   * @param info input info
+   * @param expr expression yielding a date or dateTime (will be the right operand of the
+   *   comparison)
+   * @param type index type
+   * @param op comparison operator
+   * @param db index database
+   */
+  public RangeAccess(final InputInfo info, final Expr expr, final IndexType type, final OpG op,
+      final IndexDb db) {
+    this(info, null, type, expr, op, db);
+  }
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param index index token (can be {@code null})
+   * @param type index type
+   * @param expr expression yielding a date or dateTime (can be {@code null})
+   * @param op comparison operator (can be {@code null})
+   * @param db index database
+   */
+  private RangeAccess(final InputInfo info, final IndexToken index, final IndexType type,
+      final Expr expr, final OpG op, final IndexDb db) {
+    super(db, info, type);
     this.index = index;
+    this.type = type;
+    this.expr = expr;
+    this.op = op;
   }
 
   @Override
   public BasicNodeIter iter(final QueryContext qc) throws QueryException {
-    final IndexType type = index.type();
     final Data data = db.data(qc, type);
+    final IndexToken token = index != null ? index : range(qc);
+    if(token == null) return BasicNodeIter.EMPTY;
+
     return new DBNodeIter(data) {
       final byte kind = type == IndexType.TEXT ? Data.TEXT : Data.ATTR;
-      final IndexIterator ii = data.iter(index);
+      final IndexIterator ii = data.iter(token);
       @Override
       public DBNode next() {
         return ii.more() ? new DBNode(data, ii.pre(), kind) : null;
@@ -50,26 +102,128 @@ public final class RangeAccess extends IndexAccess {
     };
   }
 
+  /**
+   * Computes the date range at runtime.
+   * @param qc query context
+   * @return range, or {@code null} if the expression yields no date
+   * @throws QueryException query exception
+   */
+  private DateRange range(final QueryContext qc) throws QueryException {
+    final Item it = expr.atomItem(qc, info);
+    if(!(it instanceof ADate)) return null;
+    final ADate date = (ADate) it;
+    final boolean min = op != OpG.LT && op != OpG.LE, max = op != OpG.GT && op != OpG.GE;
+    final boolean inc = op != OpG.LT && op != OpG.GT;
+    return new DateRange(type, min ? date : null, inc, max ? date : null, inc);
+  }
+
+  @Override
+  public boolean has(final Flag... flags) {
+    return expr != null && expr.has(flags) || super.has(flags);
+  }
+
+  @Override
+  public boolean removable(final Var var) {
+    return (expr == null || expr.removable(var)) && super.removable(var);
+  }
+
+  @Override
+  public VarUsage count(final Var var) {
+    return expr == null ? super.count(var) : expr.count(var).plus(super.count(var));
+  }
+
+  @Override
+  public Expr inline(final Var var, final Expr ex, final CompileContext cc) throws QueryException {
+    final Expr sub = expr == null ? null : expr.inline(var, ex, cc);
+    if(sub != null) expr = sub;
+    final Expr ia = super.inline(var, ex, cc);
+    return sub != null || ia != null ? optimize(cc) : null;
+  }
+
   @Override
   public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
-    return new RangeAccess(info, index, db.copy(cc, vm));
+    return new RangeAccess(info, index, type, expr == null ? null : expr.copy(cc, vm), op,
+        db.copy(cc, vm));
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return (expr == null || expr.accept(visitor)) && super.accept(visitor);
+  }
+
+  @Override
+  public int exprSize() {
+    return expr == null ? super.exprSize() : expr.exprSize() + super.exprSize();
   }
 
   @Override
   public boolean equals(final Object obj) {
-    return obj instanceof RangeAccess && index.equals(((RangeAccess) obj).index) &&
-        super.equals(obj);
+    if(!(obj instanceof RangeAccess)) return false;
+    final RangeAccess r = (RangeAccess) obj;
+    return (index == null ? r.index == null : index.equals(r.index)) &&
+        (expr == null ? r.expr == null : expr.equals(r.expr)) && type == r.type &&
+        op == r.op && super.equals(obj);
   }
 
   @Override
   public void plan(final FElem plan) {
-    addPlan(plan, planElem(INDEX, index.type(), MIN, index.min, MAX, index.max), db);
+    if(expr != null) addPlan(plan, planElem(INDEX, type, OP, op.name), db, expr);
+    else addPlan(plan, planElem(INDEX, type, MIN, min(), MAX, max()), db);
   }
 
   @Override
   public String toString() {
-    final Function func = index.type() == IndexType.TEXT ? Function._DB_TEXT_RANGE :
-      Function._DB_ATTRIBUTE_RANGE;
-    return func.args(db.source(), Dbl.get(index.min), Dbl.get(index.max)).substring(1);
+    // inclusive numeric ranges can be represented as function call
+    if(index instanceof NumericRange && ((NumericRange) index).mni &&
+        ((NumericRange) index).mxi) {
+      final Function func = type == IndexType.TEXT ? Function._DB_TEXT_RANGE :
+        Function._DB_ATTRIBUTE_RANGE;
+      return func.args(db.source(), min(), max()).substring(1);
+    }
+
+    // otherwise, represent range as comparison: range-index(db, min < text() <= max)
+    final String node = type == IndexType.TEXT ? "text()" : "@*";
+    final TokenBuilder tb = new TokenBuilder("range-index(").add(db.source().toString());
+    tb.add(", ");
+    if(expr != null) {
+      tb.add(node).add(' ').add(op.name).add(' ').add(expr.toString());
+    } else {
+      final boolean mni = index instanceof NumericRange ? ((NumericRange) index).mni :
+        ((DateRange) index).mni;
+      final boolean mxi = index instanceof NumericRange ? ((NumericRange) index).mxi :
+        ((DateRange) index).mxi;
+      final Item min = min(), max = max();
+      if(min != null) tb.add(bound(min)).add(mni ? " <= " : " < ");
+      tb.add(node);
+      if(max != null) tb.add(mxi ? " <= " : " < ").add(bound(max));
+    }
+    return tb.add(')').toString();
+  }
+
+  /**
+   * Returns a string representation of a range bound, including its type.
+   * @param item bound
+   * @return string
+   */
+  private static String bound(final Item item) {
+    return item instanceof ADate ? item.type + "(" + item + ')' : item.toString();
+  }
+
+  /**
+   * Returns the minimum value of a static range.
+   * @return minimum value (can be {@code null})
+   */
+  private Item min() {
+    return index instanceof NumericRange ? Dbl.get(((NumericRange) index).min) :
+      ((DateRange) index).min;
+  }
+
+  /**
+   * Returns the maximum value of a static range.
+   * @return maximum value (can be {@code null})
+   */
+  private Item max() {
+    return index instanceof NumericRange ? Dbl.get(((NumericRange) index).max) :
+      ((DateRange) index).max;
   }
 }
@@ -66,16 +66,29 @@ public final class ValueAccess extends IndexAccess {
   public BasicNodeIter iter(final QueryContext qc) throws QueryException {
     final Data data = db.data(qc, type);
     if(expr.seqType().zeroOrOne()) return iter(expr.item(qc, info), data);
+    // multiple search terms: merge results at index level
+    return iter(bitmap(data, qc, 0, Integer.MAX_VALUE), data);
+  }
 
-    final ArrayList<BasicNodeIter> iters = new ArrayList<>();
-    final Iter iter = qc.iter(expr);
-    for(Item it; (it = iter.next()) != null;) {
-      qc.checkStop();
-      iters.add(iter(it, data));
-    }
-    final int is = iters.size();
-    return is == 0 ? BasicNodeIter.EMPTY : is == 1 ? iters.get(0) :
-      new Union(info, expr).eval(iters.toArray(new NodeIter[is]), qc).iter();
+  /**
+   * Returns an iterator for the nodes with the pre values of the specified bitmap.
+   * @param bitmap bitmap with pre values
+   * @param data data reference
+   * @return iterator
+   */
+  public static BasicNodeIter iter(final Bitmap bitmap, final Data data) {
+    if(bitmap.isEmpty()) return BasicNodeIter.EMPTY;
+    final int[] pres = bitmap.toArray();
+    return new DBNodeIter(data) {
+      final int ps = pres.length;
+      int p;
+      @Override
+      public DBNode next() {
+        if(p == ps) return null;
+        final int pre = pres[p++];
+        return new DBNode(data, pre, data.kind(pre));
+      }
+    };
   }
 
   /**
@@ -98,15 +111,31 @@ public final class ValueAccess extends IndexAccess {
     if(tl == 0 && type == IndexType.TEXT)
       return test == null ? BasicNodeIter.EMPTY : scanEmpty(data);
 
-    // check if index is available and if it may contain the requested term
-    // otherwise, use sequential scan
-    boolean index = data.meta.index(type);
-    if(type == IndexType.TEXT || type == IndexType.ATTRIBUTE) {
-      index &= tl > 0 && tl <= data.meta.maxlen;
+    final int kind = type == IndexType.TEXT ? Data.TEXT : Data.ATTR;
+    if(test == null && type != IndexType.TOKEN && index(term, data)) {
+      // no parent test: the number of results is known before the index entries are read
+      final StringToken st = new StringToken(type, term);
+      final int size = data.costs(st).results();
+      return new DBNodeIter(data) {
+        int[] pres;
+        int p;
+        @Override
+        public DBNode next() {
+          return p < size ? get(p++) : null;
+        }
+        @Override
+        public DBNode get(final long i) {
+          if(pres == null) pres = BitmapIterator.get(data.iter(st)).toArray();
+          return new DBNode(data, pres[(int) i], kind);
+        }
+        @Override
+        public long size() {
+          return size;
+        }
+      };
     }
 
-    final IndexIterator ii = index ? data.iter(new StringToken(type, term)) : scan(term, data);
-    final int kind = type == IndexType.TEXT ? Data.TEXT : Data.ATTR;
+    final IndexIterator ii = iter(term, data, 0, Integer.MAX_VALUE);
     final DBNode tmp = new DBNode(data, 0, test == null ? kind : Data.ELEM);
     return new DBNodeIter(data) {
       @Override
@@ -125,6 +154,77 @@ public final class ValueAccess extends IndexAccess {
     };
   }
 
+  /**
+   * Returns the pre values of all nodes that will be returned by this expression.
+   * Index entries outside the specified range may be skipped.
+   * @param data data reference
+   * @param qc query context
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
+   * @return bitmap with pre values
+   * @throws QueryException query exception
+   */
+  public Bitmap bitmap(final Data data, final QueryContext qc, final int min, final int max)
+      throws QueryException {
+    Bitmap bitmap = new Bitmap();
+    final Iter iter = qc.iter(expr);
+    for(Item it; (it = iter.next()) != null;) {
+      qc.checkStop();
+      final byte[] token = it.string(info), term = trim ? Token.trim(token) : token;
+      final Bitmap bm;
+      if(term.length == 0 && type == IndexType.TEXT || test != null) {
+        // special cases, or parent elements: collect pre values of the resulting nodes
+        bm = new Bitmap();
+        final BasicNodeIter ni = iter(it, data);
+        for(ANode n; (n = ni.next()) != null;) bm.add(((DBNode) n).pre());
+      } else {
+        bm = BitmapIterator.get(iter(term, data, min, max));
+      }
+      bitmap = bitmap.isEmpty() ? bm : bitmap.or(bm);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Returns the data reference if it is known at compile time.
+   * @param qc query context
+   * @return data reference or {@code null}
+   * @throws QueryException query exception
+   */
+  public Data data(final QueryContext qc) throws QueryException {
+    return db.data() != null ? db.data(qc, type) : null;
+  }
+
+  /**
+   * Returns an index iterator for the specified term.
+   * @param term term to be found
+   * @param data data reference
+   * @param min minimum pre value (inclusive)
+   * @param max maximum pre value (exclusive)
+   * @return iterator
+   */
+  private IndexIterator iter(final byte[] term, final Data data, final int min, final int max) {
+    // use sequential scan if the index cannot be used
+    if(!index(term, data)) return scan(term, data);
+    final StringToken token = new StringToken(type, term);
+    return min > 0 || max < Integer.MAX_VALUE ? data.iter(token, min, max) : data.iter(token);
+  }
+
+  /**
+   * Checks if the index is available and if it may contain the requested term.
+   * @param term term to be found
+   * @param data data reference
+   * @return result of check
+   */
+  private boolean index(final byte[] term, final Data data) {
+    boolean index = data.meta.index(type);
+    if(type == IndexType.TEXT || type == IndexType.ATTRIBUTE) {
+      final int tl = term.length;
+      index &= tl > 0 && tl <= data.meta.maxlen;
+    }
+    return index;
+  }
+
   /**
    * Returns a scan-based index iterator, which looks for text nodes with the specified value.
    * @param data data reference
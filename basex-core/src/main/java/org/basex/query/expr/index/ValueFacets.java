@@ -0,0 +1,138 @@
+package org.basex.query.expr.index;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+
+/**
+ * This index class returns the distinct values of attributes from the attribute index.
+ * The values are returned as untyped atomics and in the order of the index. If a name is
+ * specified, values will only be returned if they belong to attributes with this name.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class ValueFacets extends Simple {
+  /** Index database. */
+  private final IndexDb db;
+  /** Attribute name (can be {@code null}). */
+  private final byte[] name;
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param name name of the attributes (if {@code null}, all attributes will be considered)
+   * @param db index database
+   */
+  public ValueFacets(final InputInfo info, final byte[] name, final IndexDb db) {
+    super(info, SeqType.get(AtomType.ATM, Occ.ZERO_MORE));
+    this.name = name;
+    this.db = db;
+  }
+
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    final IndexType type = IndexType.ATTRIBUTE;
+    final Data data = db.data(qc, type);
+    final EntryIterator ei = data.index(type).entries(new IndexEntries(Token.EMPTY, type));
+    final int id = name != null ? data.attrNames.id(name) : 0;
+    return new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        for(byte[] key; (key = ei.next()) != null;) {
+          qc.checkStop();
+          if(id == 0 || contains(data, key, id)) return new Atm(key);
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Checks if the specified value belongs to at least one attribute with the specified name.
+   * @param data data reference
+   * @param key index key
+   * @param id id of the attribute name
+   * @return result of check
+   */
+  private static boolean contains(final Data data, final byte[] key, final int id) {
+    final IndexIterator ii = data.iter(new StringToken(IndexType.ATTRIBUTE, key));
+    while(ii.more()) {
+      if(data.nameId(ii.pre()) == id) return true;
+    }
+    return false;
+  }
+
+  @Override
+  public boolean has(final Flag... flags) {
+    return db.has(flags);
+  }
+
+  @Override
+  public boolean removable(final Var var) {
+    return db.removable(var);
+  }
+
+  @Override
+  public VarUsage count(final Var var) {
+    return db.count(var);
+  }
+
+  @Override
+  public Expr inline(final Var var, final Expr ex, final CompileContext cc) throws QueryException {
+    final IndexDb sub = db.inline(var, ex, cc);
+    return sub == null ? null : copyType(new ValueFacets(info, name, sub));
+  }
+
+  @Override
+  public Expr copy(final CompileContext cc, final IntObjMap<Var> vm) {
+    return copyType(new ValueFacets(info, name, db.copy(cc, vm)));
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return db.accept(visitor);
+  }
+
+  @Override
+  public int exprSize() {
+    return db.exprSize() + 1;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    return obj instanceof ValueFacets && Token.eq(name, ((ValueFacets) obj).name) &&
+        db.equals(((ValueFacets) obj).db);
+  }
+
+  @Override
+  public int hashCode() {
+    return name == null ? 0 : Token.hash(name);
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(INDEX, IndexType.ATTRIBUTE, NAME,
+        name != null ? Token.string(name) : null), db);
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder("facets(").add(db.source().toString());
+    if(name != null) tb.add(", ").add(Str.get(name).toString());
+    return tb.add(')').toString();
+  }
+}
@@ -24,6 +24,7 @@ import org.basex.query.value.type.*;
 import org.basex.query.value.type.SeqType.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * Path expression.
@@ -35,6 +36,8 @@ public abstract class Path extends ParseExpr {
   /** XPath axes that are expected to be expensive when at the start of a path. */
   private static final EnumSet<Axis> EXPENSIVE =
       EnumSet.of(DESC, DESCORSELF, PREC, PRECSIBL, FOLL, FOLLSIBL);
+  /** Maximum factor between the results of intersected and cheapest index requests. */
+  private static final int MAXFACTOR = 8;
 
   /** Root expression (can be {@code null}). */
   public Expr root;
@@ -603,8 +606,9 @@ public abstract class Path extends ParseExpr {
 
     // cache index access costs
     IndexInfo index = null;
-    // cheapest predicate and step
-    int indexPred = 0, indexStep = 0;
+    // predicates to be replaced by index access, and step with cheapest index access
+    IntList indexPreds = null;
+    int indexStep = 0;
 
     // check if path can be converted to an index access
     final int sl = steps.length;
@@ -621,20 +625,51 @@ public abstract class Path extends ParseExpr {
         final IndexDb db = data != null ? new IndexStaticDb(data, iter, info) :
           new IndexDynDb(info, iter, root == null ? new ContextValue(info) : root);
 
-        // choose cheapest index access
-        for(int e = 0; e < el; e++) {
+        // choose cheapest index access (-1: key index access, which preserves all predicates)
+        final IndexInfo[] values = new IndexInfo[el];
+        for(int e = -1; e < el; e++) {
           final IndexInfo ii = new IndexInfo(db, cc.qc, step);
-          if(!step.exprs[e].indexAccessible(ii)) continue;
+          if(!(e == -1 ? ii.keys() : step.exprs[e].indexAccessible(ii))) continue;
 
           if(ii.costs.results() == 0) {
             // no results...
             cc.info(OPTNORESULTS_X, ii.step);
             return Empty.SEQ;
           }
+          if(e != -1 && ii.costs.results() > 0 && valueAccess(ii.expr)) values[e] = ii;
 
           if(index == null || index.costs.compareTo(ii.costs) > 0) {
             index = ii;
-            indexPred = e;
+            indexPreds = e == -1 ? new IntList() : new IntList(1).add(e);
+            indexStep = s;
+          }
+        }
+
+        // intersect the results of several value index requests
+        final IntList preds = intersect(values);
+        if(preds != null) {
+          final int ps = preds.size();
+          final Expr[] exprs = new Expr[ps];
+          int min = Integer.MAX_VALUE;
+          for(int p = 0; p < ps; p++) {
+            final IndexInfo ii = values[preds.get(p)];
+            exprs[p] = ii.expr;
+            // cheapest request first: its results restrict the range of the remaining requests
+            if(ii.costs.results() < min) {
+              min = ii.costs.results();
+              exprs[p] = exprs[0];
+              exprs[0] = ii.expr;
+            }
+          }
+          final IndexInfo ii = new IndexInfo(db, cc.qc, step);
+          ii.expr = new Intersect(info, exprs);
+          ii.costs = IndexCosts.get(min);
+          ii.optInfo = Util.info(OPTINTERSECT_X, ii.expr);
+          // prefer intersection to the single requests of the same step
+          final int c = index == null ? 1 : index.costs.compareTo(ii.costs);
+          if(c > 0 || c == 0 && indexStep == s && indexPreds.size() == 1) {
+            index = ii;
+            indexPreds = preds;
             indexStep = s;
           }
         }
@@ -672,7 +707,7 @@ public abstract class Path extends ParseExpr {
     final Expr[] preds = index.step.exprs;
     final int pl = preds.length;
     for(int p = 0; p < pl; p++) {
-      if(p != indexPred) newPreds.add(preds[p]);
+      if(!indexPreds.contains(p)) newPreds.add(preds[p]);
     }
 
     // create resulting expression
@@ -711,6 +746,42 @@ public abstract class Path extends ParseExpr {
     return resultSteps.isEmpty() ? resultRoot : get(info, resultRoot, resultSteps.finish());
   }
 
+  /**
+   * Checks if the specified index expression is based on value index requests.
+   * @param expr index expression
+   * @return result of check
+   */
+  private static boolean valueAccess(final Expr expr) {
+    final Expr ex = expr instanceof Path ? ((Path) expr).root : expr;
+    if(ex instanceof Union) {
+      for(final Expr e : ((Union) ex).exprs) {
+        if(!(e instanceof ValueAccess)) return false;
+      }
+      return true;
+    }
+    return ex instanceof ValueAccess;
+  }
+
+  /**
+   * Returns the positions of value index requests whose results can be intersected.
+   * The results of requests will be ignored if they are much larger than the results of the
+   * cheapest request: in this case, filtering the cheapest results will be faster.
+   * @param values value index requests of the predicates of a step (entries can be {@code null})
+   * @return positions of the predicates, or {@code null} if less than two requests remain
+   */
+  private static IntList intersect(final IndexInfo[] values) {
+    int min = Integer.MAX_VALUE;
+    for(final IndexInfo ii : values) {
+      if(ii != null) min = Math.min(min, ii.costs.results());
+    }
+    final IntList preds = new IntList();
+    final int vl = values.length;
+    for(int v = 0; v < vl; v++) {
+      if(values[v] != null && values[v].costs.results() / MAXFACTOR <= min) preds.add(v);
+    }
+    return preds.size() > 1 ? preds : null;
+  }
+
   /**
    * Checks if steps before index step need to be inverted and traversed.
    * @param data data reference
@@ -815,6 +815,8 @@ public enum Function {
   _DB_OPTIMIZE(DbOptimize.class, "optimize(database[,all[,options]])",
       arg(STR, BLN, MAP_O), EMP, flag(UPD), DB_URI),
   /** XQuery function. */
+  _DB_COMPACT(DbCompact.class, "compact(database[,steps])", arg(STR, ITR), EMP, flag(UPD), DB_URI),
+  /** XQuery function. */
   _DB_RETRIEVE(DbRetrieve.class, "retrieve(database,path)", arg(STR, STR), B64, flag(NDT), DB_URI),
   /** XQuery function. */
   _DB_STORE(DbStore.class, "store(database,path,input)",
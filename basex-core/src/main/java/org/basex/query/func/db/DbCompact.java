@@ -0,0 +1,24 @@
+package org.basex.query.func.db;
+
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.up.primitives.db.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class DbCompact extends DbAccess {
+  @Override
+  public Item item(final QueryContext qc, final InputInfo ii) throws QueryException {
+    final Data data = checkData(qc);
+    final long steps = exprs.length > 1 ? toLong(exprs[1], qc) : Integer.MAX_VALUE;
+    qc.updates().add(new DBCompact(data, (int) Math.max(0, Math.min(Integer.MAX_VALUE, steps)),
+        qc, info), qc);
+    return null;
+  }
+}
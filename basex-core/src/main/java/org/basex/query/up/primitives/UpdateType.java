@@ -48,6 +48,7 @@ public enum UpdateType {
   /** Rename resource.      */ DBRENAME,
   /** Delete resource.      */ DBDELETE,
   /** Optimize database.    */ DBOPTIMIZE,
+  /** Compact database.     */ DBCOMPACT,
   /** Flush database.       */ DBFLUSH,
 
   // User operations
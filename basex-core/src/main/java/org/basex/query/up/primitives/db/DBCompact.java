@@ -0,0 +1,80 @@
+package org.basex.query.up.primitives.db;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.func.*;
+import org.basex.query.up.*;
+import org.basex.query.up.primitives.*;
+import org.basex.util.*;
+
+/**
+ * Update primitive for the {@link Function#_DB_COMPACT} function.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class DBCompact extends DBUpdate {
+  /** Query context. */
+  private final QueryContext qc;
+  /** Maximum number of compaction steps. */
+  private int steps;
+
+  /**
+   * Constructor.
+   * @param data data
+   * @param steps maximum number of compaction steps
+   * @param qc query context
+   * @param info input info
+   */
+  public DBCompact(final Data data, final int steps, final QueryContext qc,
+      final InputInfo info) {
+    super(UpdateType.DBCOMPACT, data, info);
+    this.steps = steps;
+    this.qc = qc;
+  }
+
+  @Override
+  public void merge(final Update update) {
+    steps = (int) Math.min(Integer.MAX_VALUE, (long) steps + ((DBCompact) update).steps);
+  }
+
+  @Override
+  public void apply() throws QueryException {
+    final Compactor compactor = qc.pushJob(new Compactor(steps));
+    try {
+      while(!data.compact(compactor) && compactor.batch()) {
+        // let other jobs access the database between two batches
+        if(pausable()) qc.context.locking.pause(data, qc.context.options);
+      }
+    } catch(final IOException ex) {
+      throw UPDBOPTERR_X.get(info, ex);
+    } finally {
+      qc.popJob();
+    }
+  }
+
+  /**
+   * Checks if the locks of the query can be released between two batches. This is the case if
+   * no other databases are updated, and if no files or query results will be written that
+   * may reference the database.
+   * @return result of check
+   */
+  private boolean pausable() {
+    final Updates updates = qc.updates();
+    return updates.databases().size() == 1 && updates.putPaths.isEmpty() &&
+        updates.cache.isEmpty() && !qc.context.options.get(MainOptions.MIXUPDATES);
+  }
+
+  @Override
+  public int size() {
+    return 1;
+  }
+
+  @Override
+  public void prepare() { }
+}
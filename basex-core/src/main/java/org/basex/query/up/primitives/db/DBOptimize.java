@@ -46,7 +46,10 @@ public final class DBOptimize extends DBUpdate {
 
     final ArrayList<Option<?>> supported = new ArrayList<>();
     for(final Option<?> option : DBOptions.INDEXING) {
-      if(all || option != MainOptions.UPDINDEX) supported.add(option);
+      if(all || option != MainOptions.UPDINDEX && option != MainOptions.BTREEINDEX &&
+          option != MainOptions.TYPEDINDEX) {
+        supported.add(option);
+      }
     }
     options = new DBOptions(opts, supported, info);
   }
@@ -72,9 +75,12 @@ public final class DBOptimize extends DBUpdate {
     options.assignIfAbsent(MainOptions.ATTRINCLUDE, meta.attrinclude);
     options.assignIfAbsent(MainOptions.TOKENINCLUDE, meta.tokeninclude);
     options.assignIfAbsent(MainOptions.FTINCLUDE, meta.ftinclude);
+    options.assignIfAbsent(MainOptions.KEYINCLUDE, meta.keyinclude);
     options.assignIfAbsent(MainOptions.SPLITSIZE, meta.splitsize);
     options.assignIfAbsent(MainOptions.UPDINDEX, meta.updindex);
     options.assignIfAbsent(MainOptions.AUTOOPTIMIZE, meta.autooptimize);
+    options.assignIfAbsent(MainOptions.BTREEINDEX, meta.btreeindex);
+    options.assignIfAbsent(MainOptions.TYPEDINDEX, meta.typedindex);
     options.assignTo(opts);
 
     // adopt options to database meta data
@@ -85,7 +91,10 @@ public final class DBOptimize extends DBUpdate {
 
     meta.updindex = opts.get(MainOptions.UPDINDEX);
     meta.autooptimize = opts.get(MainOptions.AUTOOPTIMIZE);
+    meta.btreeindex = opts.get(MainOptions.BTREEINDEX);
+    meta.typedindex = opts.get(MainOptions.TYPEDINDEX);
     meta.splitsize = opts.get(MainOptions.SPLITSIZE);
+    meta.indexthreads = opts.get(MainOptions.INDEXTHREADS);
 
     // check if other indexing options have changed
     final int maxcats = opts.get(MainOptions.MAXCATS);
@@ -103,6 +112,11 @@ public final class DBOptimize extends DBUpdate {
     meta.maxcats = maxcats;
     meta.maxlen = maxlen;
 
+    // check if key indexes have changed
+    final String keyinclude = opts.get(MainOptions.KEYINCLUDE);
+    if(!meta.keyinclude.equals(keyinclude)) meta.keyindex = false;
+    meta.keyinclude = keyinclude;
+
     // check if fulltext indexing options have changed
     final String ftinclude = opts.get(MainOptions.FTINCLUDE);
     final boolean stemming = opts.get(MainOptions.STEMMING);
@@ -6,6 +6,7 @@ import static org.basex.util.Token.*;
 import java.io.*;
 
 import org.basex.data.*;
+import org.basex.index.resource.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.query.*;
@@ -48,11 +49,13 @@ public final class DBStore extends DBUpdate {
     for(final byte[] path : map) {
       try {
         final IOFile file = data.meta.binary(string(path));
-        if(file.isDir()) file.delete();
+        // delete existing file or directory (the file may be linked to a deduplicated blob)
+        file.delete();
         file.parent().md();
         try(BufferInput bi = map.get(path).input(info)) {
           file.write(bi);
         }
+        if(data.meta.deduplicate) BlobStore.link(file, data.meta.blobs());
       } catch(final IOException ex) {
         Util.debug(ex);
         throw UPDBPUT_X.get(info, path);
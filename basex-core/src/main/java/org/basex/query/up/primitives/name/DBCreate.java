@@ -44,6 +44,8 @@ public final class DBCreate extends NameUpdate {
     final List<Option<?>> supported = new ArrayList<>();
     Collections.addAll(supported, DBOptions.INDEXING);
     Collections.addAll(supported, DBOptions.PARSING);
+    supported.add(MainOptions.TABLECOMPRESS);
+    supported.add(MainOptions.DEDUPLICATE);
     options = new DBOptions(opts, supported, info);
     newDocs = new DBNew(qc, options, info, inputs);
   }
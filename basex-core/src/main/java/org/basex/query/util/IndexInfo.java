@@ -7,8 +7,10 @@ import java.util.*;
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.name.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.index.value.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.index.*;
@@ -166,6 +168,70 @@ public final class IndexInfo {
     return true;
   }
 
+  /**
+   * Tries to rewrite the predicates of the step for key index access
+   * (see {@link MainOptions#KEYINCLUDE}). Equality comparisons with child elements and
+   * attributes are assigned to the leading keys of a matching definition. As the
+   * predicates will not be removed, an index definition may cover more elements than the step.
+   * @return success flag
+   * @throws QueryException query exception
+   */
+  public boolean keys() throws QueryException {
+    final Data data = db.data();
+    if(data == null || !data.meta.keyindex || !data.nspaces.isEmpty() ||
+        step.test.kind != Kind.NAME || step.test.type != NodeType.ELM) return false;
+
+    // collect search expressions of comparisons with child elements and attributes
+    final ExprList preds = new ExprList();
+    for(final Expr pred : step.exprs) {
+      if(pred instanceof And) preds.add(((And) pred).exprs);
+      else preds.add(pred);
+    }
+    final TokenObjMap<Expr> searches = new TokenObjMap<>();
+    for(final Expr pred : preds) {
+      if(!(pred instanceof CmpG)) continue;
+      final Expr search = ((CmpG) pred).keyAccessible(), input = ((CmpG) pred).exprs[0];
+      if(search == null || !search.seqType().type.isStringOrUntyped() ||
+          search.has(Flag.CTX, Flag.NDT) || !(input instanceof AxisPath)) continue;
+
+      final AxisPath path = (AxisPath) input;
+      final Step s = path.root == null && path.steps.length == 1 ? path.step(0) : null;
+      if(s == null || s.exprs.length != 0 || s.test.kind != Kind.NAME) continue;
+      final byte[] name = s.test.name.local();
+      if(s.axis == Axis.ATTR) searches.put(Token.concat(new byte[] { '@' }, name), search);
+      else if(s.axis == Axis.CHILD && s.test.type == NodeType.ELM) searches.put(name, search);
+    }
+    if(searches.isEmpty()) return false;
+
+    // choose the definition with the largest number of leading keys
+    final KeyDefinition[] defs = data.keyIndex.definitions;
+    final int dl = defs.length;
+    int def = -1, keys = 0;
+    for(int d = 0; d < dl; d++) {
+      final KeyDefinition kd = defs[d];
+      if(!Token.eq(kd.name(), step.test.name.local()) || !kd.covers(data)) continue;
+      int k = 0;
+      while(k < kd.keys.length && searches.contains(kd.keys[k])) k++;
+      if(k > keys) {
+        def = d;
+        keys = k;
+      }
+    }
+    if(def == -1) return false;
+
+    final Expr[] exprs = new Expr[keys];
+    for(int k = 0; k < keys; k++) exprs[k] = searches.get(defs[def].keys[k]);
+    final KeyAccess ka = new KeyAccess(step.info, exprs, defs[def], def, db);
+
+    // compute exact costs for static search values, or estimate costs (tend to worst case)
+    boolean values = true;
+    for(final Expr expr : exprs) values &= expr instanceof Value;
+    costs = IndexCosts.get(values ? ka.count(qc) : Math.max(1, data.meta.size / 10));
+    expr = ka;
+    optInfo = Util.info(OPTINDEX_X_X, "key", defs[def]);
+    return true;
+  }
+
   /**
    * Creates an index expression with an inverted axis path.
    * @param root new root expression
@@ -191,6 +257,36 @@ public final class IndexInfo {
     return enforce() ? IndexCosts.ENFORCE : data.costs(token);
   }
 
+  /**
+   * Returns the statistics for the name of the indexed nodes.
+   * @param input input expression
+   * @param type index type ({@link IndexType#TEXT} or {@link IndexType#ATTRIBUTE})
+   * @return statistics, or {@code null} if they are not up-to-date or if no name was found
+   */
+  public Stats stats(final Expr input, final IndexType type) {
+    final Data data = db.data();
+    if(data == null || !data.meta.uptodate || !data.nspaces.isEmpty() ||
+        !(input instanceof AxisPath)) return null;
+
+    NameTest nt = test;
+    if(nt == null) {
+      final Step st;
+      final AxisPath path = (AxisPath) input;
+      final int s = path.steps.length - 1;
+      if(type == IndexType.TEXT) {
+        st = s == 0 ? step : path.step(s - 1);
+        if(st.test.kind != Kind.NAME) return null;
+      } else {
+        st = path.step(s);
+        if(!st.simple(Axis.ATTR, true)) return null;
+      }
+      nt = (NameTest) st.test;
+    }
+
+    final Names names = type == IndexType.TEXT ? data.elemNames : data.attrNames;
+    return names.stats(names.id(nt.name.local()));
+  }
+
   /**
    * Indicates if the index rewriting should be enforced.
    * @return result of check
@@ -26,6 +26,8 @@ public abstract class ADate extends ADateDur {
   static final long MIN_YEAR = -MAX_YEAR;
   /** Constant for counting negative years (divisible by 400). */
   private static final long ADD_NEG = (MAX_YEAR / 400 + 1) * 400;
+  /** Day count of 1970-01-01. */
+  private static final BigDecimal EPOCH = days(ADD_NEG + 1970, 0, 0);
 
   /** Pattern for two digits. */
   static final String DD = "(\\d{2})";
@@ -413,12 +415,35 @@ public abstract class ADate extends ADateDur {
    * @return seconds
    */
   final BigDecimal seconds() {
-    int z = tz;
-    if(z == Short.MAX_VALUE) {
-      // [CG] XQuery, DateTime: may be removed
-      final long n = System.currentTimeMillis();
-      z = Calendar.getInstance().getTimeZone().getOffset(n) / 60000;
-    }
+    return seconds(tz == Short.MAX_VALUE ? implicitTimezone() : tz);
+  }
+
+  /**
+   * Returns the number of seconds since 1970-01-01T00:00:00Z.
+   * If no timezone is assigned, the date is interpreted as UTC.
+   * @return seconds
+   */
+  public final BigDecimal utcSeconds() {
+    return seconds(tz == Short.MAX_VALUE ? 0 : tz).add(
+        days().subtract(EPOCH).multiply(DAYSECONDS));
+  }
+
+  /**
+   * Returns the implicit timezone.
+   * @return offset in minutes
+   */
+  public static int implicitTimezone() {
+    // [CG] XQuery, DateTime: may be removed
+    final long n = System.currentTimeMillis();
+    return Calendar.getInstance().getTimeZone().getOffset(n) / 60000;
+  }
+
+  /**
+   * Returns the date in seconds.
+   * @param z timezone in minutes
+   * @return seconds
+   */
+  private BigDecimal seconds(final int z) {
     return (sec == null ? BigDecimal.ZERO : sec).add(
         BigDecimal.valueOf(Math.max(0, hou) * 3600L + Math.max(0, min) * 60L - z * 60L));
   }
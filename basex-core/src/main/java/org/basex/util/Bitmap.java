@@ -0,0 +1,403 @@
+package org.basex.util;
+
+import java.util.*;
+
+/**
+ * <p>Compressed bitmap for non-negative integers (e.g., pre values of index results).
+ * The implementation is inspired by Roaring bitmaps: the values are partitioned in
+ * containers, which are addressed by the upper 16 bits of the values. Each container stores
+ * the lower 16 bits of its values:</p>
+ *
+ * <ul>
+ * <li>as sorted array, if a container has at most {@link #MAXARRAY} values, or</li>
+ * <li>as bit set with 2<sup>16</sup> bits.</li>
+ * </ul>
+ *
+ * <p>Intersections, unions and differences are computed container by container. Their costs
+ * are proportional to the size of the bitmaps, and not to the range of the values.</p>
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class Bitmap {
+  /** Maximum number of values in an array container. */
+  static final int MAXARRAY = 4096;
+  /** Number of words of a bit set container. */
+  private static final int WORDS = 1 << 10;
+
+  /** Upper 16 bits of the containers (sorted). */
+  private int[] keys = new int[1];
+  /** Containers. */
+  private Container[] containers = new Container[1];
+  /** Number of containers. */
+  private int size;
+
+  /**
+   * Adds a value. Values can be added in arbitrary order; adding ascending values is fastest.
+   * @param value value to be added
+   */
+  public void add(final int value) {
+    final int key = value >>> 16;
+    int i = size - 1;
+    if(i < 0 || keys[i] != key) {
+      i = index(key);
+      if(i < 0) {
+        i = -i - 1;
+        insert(i, key, new Container());
+      }
+    }
+    containers[i].add(value & 0xFFFF);
+  }
+
+  /**
+   * Checks if the specified value is contained in the bitmap.
+   * @param value value to be found
+   * @return result of check
+   */
+  public boolean contains(final int value) {
+    final int i = index(value >>> 16);
+    return i >= 0 && containers[i].contains(value & 0xFFFF);
+  }
+
+  /**
+   * Returns the number of values.
+   * @return number of values
+   */
+  public int cardinality() {
+    int c = 0;
+    for(int i = 0; i < size; i++) c += containers[i].size;
+    return c;
+  }
+
+  /**
+   * Checks if the bitmap contains no values.
+   * @return result of check
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns a new bitmap with all values that occur in this and the specified bitmap.
+   * @param bitmap second bitmap
+   * @return intersection
+   */
+  public Bitmap and(final Bitmap bitmap) {
+    final Bitmap result = new Bitmap();
+    for(int i = 0, j = 0; i < size && j < bitmap.size;) {
+      final int k1 = keys[i], k2 = bitmap.keys[j];
+      if(k1 < k2) {
+        i++;
+      } else if(k1 > k2) {
+        j++;
+      } else {
+        result.append(k1, containers[i++].and(bitmap.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new bitmap with all values that occur in this or the specified bitmap.
+   * @param bitmap second bitmap
+   * @return union
+   */
+  public Bitmap or(final Bitmap bitmap) {
+    final Bitmap result = new Bitmap();
+    int i = 0, j = 0;
+    while(i < size || j < bitmap.size) {
+      final int k1 = i < size ? keys[i] : Integer.MAX_VALUE;
+      final int k2 = j < bitmap.size ? bitmap.keys[j] : Integer.MAX_VALUE;
+      if(k1 < k2) {
+        result.append(k1, containers[i++].copy());
+      } else if(k1 > k2) {
+        result.append(k2, bitmap.containers[j++].copy());
+      } else {
+        result.append(k1, containers[i++].or(bitmap.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new bitmap with all values that occur in this, but not in the specified bitmap.
+   * @param bitmap second bitmap
+   * @return difference
+   */
+  public Bitmap andNot(final Bitmap bitmap) {
+    final Bitmap result = new Bitmap();
+    for(int i = 0, j = 0; i < size; i++) {
+      while(j < bitmap.size && bitmap.keys[j] < keys[i]) j++;
+      result.append(keys[i], j < bitmap.size && bitmap.keys[j] == keys[i] ?
+        containers[i].andNot(bitmap.containers[j]) : containers[i].copy());
+    }
+    return result;
+  }
+
+  /**
+   * Returns all values in ascending order.
+   * @return values
+   */
+  public int[] toArray() {
+    final int[] values = new int[cardinality()];
+    int v = 0;
+    for(int i = 0; i < size; i++) v = containers[i].values(keys[i] << 16, values, v);
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return Util.className(this) + Arrays.toString(toArray());
+  }
+
+  /**
+   * Returns the index of the container with the specified key.
+   * @param key upper 16 bits
+   * @return index of the container, or (-(insertion point) - 1)
+   */
+  private int index(final int key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  /**
+   * Appends a container with a larger key than the existing ones, if it is not empty.
+   * @param key upper 16 bits
+   * @param container container
+   */
+  private void append(final int key, final Container container) {
+    if(container.size != 0) insert(size, key, container);
+  }
+
+  /**
+   * Inserts a container.
+   * @param index insertion index
+   * @param key upper 16 bits
+   * @param container container
+   */
+  private void insert(final int index, final int key, final Container container) {
+    if(size == keys.length) {
+      final int s = Array.newSize(size);
+      keys = Arrays.copyOf(keys, s);
+      containers = Arrays.copyOf(containers, s);
+    }
+    Array.move(keys, index, 1, size - index);
+    Array.move(containers, index, 1, size - index);
+    keys[index] = key;
+    containers[index] = container;
+    size++;
+  }
+
+  /**
+   * Container, storing the lower 16 bits of the values either in a sorted array
+   * or in a bit set.
+   */
+  private static final class Container {
+    /** Sorted values ({@code null} if values are stored in a bit set). */
+    private char[] array;
+    /** Bit set ({@code null} if values are stored in an array). */
+    private long[] bits;
+    /** Number of values. */
+    private int size;
+
+    /**
+     * Constructor for an empty container.
+     */
+    Container() {
+      array = new char[4];
+    }
+
+    /**
+     * Constructor.
+     * @param array sorted values (can be {@code null})
+     * @param bits bit set (can be {@code null})
+     * @param size number of values
+     */
+    private Container(final char[] array, final long[] bits, final int size) {
+      this.array = array;
+      this.bits = bits;
+      this.size = size;
+    }
+
+    /**
+     * Adds a value.
+     * @param value lower 16 bits
+     */
+    void add(final int value) {
+      if(bits != null) {
+        final long w = bits[value >>> 6], b = 1L << value;
+        if((w & b) == 0) {
+          bits[value >>> 6] = w | b;
+          size++;
+        }
+        return;
+      }
+      // skip binary search if value is larger than the last value
+      int i = size;
+      if(size > 0 && array[size - 1] >= value) {
+        i = Arrays.binarySearch(array, 0, size, (char) value);
+        if(i >= 0) return;
+        i = -i - 1;
+      }
+      if(size == MAXARRAY) {
+        toBits();
+        add(value);
+        return;
+      }
+      if(size == array.length) array = Arrays.copyOf(array, Math.min(MAXARRAY, size << 1));
+      System.arraycopy(array, i, array, i + 1, size - i);
+      array[i] = (char) value;
+      size++;
+    }
+
+    /**
+     * Checks if the specified value is contained in the container.
+     * @param value lower 16 bits
+     * @return result of check
+     */
+    boolean contains(final int value) {
+      return bits != null ? (bits[value >>> 6] & 1L << value) != 0 :
+        Arrays.binarySearch(array, 0, size, (char) value) >= 0;
+    }
+
+    /**
+     * Returns a copy of this container.
+     * @return copy
+     */
+    Container copy() {
+      return new Container(array != null ? Arrays.copyOf(array, size) : null,
+          bits != null ? bits.clone() : null, size);
+    }
+
+    /**
+     * Returns the intersection of this and the specified container.
+     * @param c second container
+     * @return new container
+     */
+    Container and(final Container c) {
+      if(bits != null && c.bits != null) {
+        final long[] b = new long[WORDS];
+        for(int w = 0; w < WORDS; w++) b[w] = bits[w] & c.bits[w];
+        return bits(b);
+      }
+      // filter values of the smaller array
+      final Container small = array != null && (c.array == null || size <= c.size) ? this : c;
+      final Container large = small == this ? c : this;
+      final char[] a = new char[small.size];
+      int s = 0;
+      for(int i = 0; i < small.size; i++) {
+        if(large.contains(small.array[i])) a[s++] = small.array[i];
+      }
+      return new Container(a, null, s);
+    }
+
+    /**
+     * Returns the union of this and the specified container.
+     * @param c second container
+     * @return new container
+     */
+    Container or(final Container c) {
+      if(array != null && c.array != null && size + c.size <= MAXARRAY) {
+        // merge arrays
+        final char[] a = new char[size + c.size];
+        int i = 0, j = 0, s = 0;
+        while(i < size && j < c.size) {
+          final char v1 = array[i], v2 = c.array[j];
+          a[s++] = v1 <= v2 ? v1 : v2;
+          if(v1 <= v2) i++;
+          if(v2 <= v1) j++;
+        }
+        while(i < size) a[s++] = array[i++];
+        while(j < c.size) a[s++] = c.array[j++];
+        return new Container(a, null, s);
+      }
+      final long[] b = bits();
+      if(c.bits != null) {
+        for(int w = 0; w < WORDS; w++) b[w] |= c.bits[w];
+      } else {
+        for(int i = 0; i < c.size; i++) b[c.array[i] >>> 6] |= 1L << c.array[i];
+      }
+      return bits(b);
+    }
+
+    /**
+     * Returns the difference of this and the specified container.
+     * @param c second container
+     * @return new container
+     */
+    Container andNot(final Container c) {
+      if(array != null) {
+        final char[] a = new char[size];
+        int s = 0;
+        for(int i = 0; i < size; i++) {
+          if(!c.contains(array[i])) a[s++] = array[i];
+        }
+        return new Container(a, null, s);
+      }
+      final long[] b = bits.clone();
+      if(c.bits != null) {
+        for(int w = 0; w < WORDS; w++) b[w] &= ~c.bits[w];
+      } else {
+        for(int i = 0; i < c.size; i++) b[c.array[i] >>> 6] &= ~(1L << c.array[i]);
+      }
+      return bits(b);
+    }
+
+    /**
+     * Writes the values to the specified array.
+     * @param high upper 16 bits of the values
+     * @param values array
+     * @param start start offset
+     * @return new offset
+     */
+    int values(final int high, final int[] values, final int start) {
+      int v = start;
+      if(array != null) {
+        for(int i = 0; i < size; i++) values[v++] = high | array[i];
+      } else {
+        for(int w = 0; w < WORDS; w++) {
+          for(long b = bits[w]; b != 0; b &= b - 1) {
+            values[v++] = high | w << 6 | Long.numberOfTrailingZeros(b);
+          }
+        }
+      }
+      return v;
+    }
+
+    /**
+     * Returns the values of this container as bit set.
+     * @return bit set (new instance)
+     */
+    private long[] bits() {
+      if(bits != null) return bits.clone();
+      final long[] b = new long[WORDS];
+      for(int i = 0; i < size; i++) b[array[i] >>> 6] |= 1L << array[i];
+      return b;
+    }
+
+    /**
+     * Converts this container to a bit set.
+     */
+    private void toBits() {
+      bits = bits();
+      array = null;
+    }
+
+    /**
+     * Creates a container for the specified bit set. If the number of values is small enough,
+     * they will be stored in an array.
+     * @param b bit set
+     * @return new container
+     */
+    private static Container bits(final long[] b) {
+      int s = 0;
+      for(final long w : b) s += Long.bitCount(w);
+      final Container c = new Container(null, b, s);
+      if(s > MAXARRAY) return c;
+      final int[] values = new int[s];
+      c.values(0, values, 0);
+      final char[] a = new char[s];
+      for(int i = 0; i < s; i++) a[i] = (char) values[i];
+      return new Container(a, null, s);
+    }
+  }
+}
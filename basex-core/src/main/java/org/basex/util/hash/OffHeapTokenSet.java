@@ -0,0 +1,157 @@
+package org.basex.util.hash;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * This is a hash set for storing tokens outside the Java heap.
+ * Only the hash structure, the key offsets and the hash values are stored on the heap.
+ * Keys will be materialized whenever they are requested.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class OffHeapTokenSet extends TokenSet {
+  /** Flag for deleted keys (set in the offsets). */
+  private static final long DELETED = Long.MIN_VALUE;
+
+  /** Buffer with the bytes of all keys. */
+  private final OffHeapBuffer buffer = new OffHeapBuffer();
+  /** Key offsets. */
+  private long[] offsets;
+  /** Hash values of the keys. */
+  private int[] hashes;
+  /** Offset of the next key. */
+  private long end;
+
+  /**
+   * Default constructor.
+   */
+  public OffHeapTokenSet() {
+    super(Array.CAPACITY);
+    offsets = new long[next.length];
+    hashes = new int[next.length];
+    offsets[0] = DELETED;
+  }
+
+  @Override
+  public void write(final DataOutput out) throws IOException {
+    final byte[][] ks = new byte[next.length][];
+    for(int id = 1; id < size; id++) ks[id] = key(id);
+    out.writeTokens(ks);
+    out.writeNums(next);
+    out.writeNums(buckets);
+    out.writeNum(size);
+  }
+
+  @Override
+  public int id(final byte[] key) {
+    final int h = Token.hash(key);
+    for(int i = buckets[h & buckets.length - 1]; i != 0; i = next[i]) {
+      if(eq(key, h, i)) return i;
+    }
+    return 0;
+  }
+
+  @Override
+  public byte[] key(final int id) {
+    final long off = offsets[id];
+    if((off & DELETED) != 0) return null;
+    final byte[] key = new byte[length(id)];
+    buffer.read(off, key);
+    return key;
+  }
+
+  @Override
+  public int delete(final byte[] key) {
+    final int h = Token.hash(key), b = h & buckets.length - 1;
+    for(int p = 0, i = buckets[b]; i != 0; p = i, i = next[i]) {
+      if(!eq(key, h, i)) continue;
+      if(p == 0) buckets[b] = next[i];
+      else next[p] = next[i];
+      offsets[i] |= DELETED;
+      return i;
+    }
+    return 0;
+  }
+
+  @Override
+  protected int store(final byte[] key) {
+    checkSize();
+    final int h = Token.hash(key), b = h & buckets.length - 1;
+    for(int r = buckets[b]; r != 0; r = next[r]) if(eq(key, h, r)) return -r;
+    next[size] = buckets[b];
+    offsets[size] = end;
+    hashes[size] = h;
+    buffer.write(end, key, key.length);
+    end += key.length;
+    buckets[b] = size;
+    return size++;
+  }
+
+  @Override
+  protected int hash(final int id) {
+    return hashes[id];
+  }
+
+  @Override
+  protected void rehash(final int newSize) {
+    offsets = Arrays.copyOf(offsets, newSize);
+    hashes = Arrays.copyOf(hashes, newSize);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(buckets, 0);
+    size = 1;
+    end = 0;
+  }
+
+  @Override
+  public Iterator<byte[]> iterator() {
+    return new Iterator<byte[]>() {
+      private int id = 1;
+
+      @Override
+      public boolean hasNext() {
+        return id < size;
+      }
+
+      @Override
+      public byte[] next() {
+        return key(id++);
+      }
+    };
+  }
+
+  /**
+   * Returns the length of the key with the specified id.
+   * @param id id of the key
+   * @return length
+   */
+  private int length(final int id) {
+    final long e = id + 1 < size ? offsets[id + 1] & ~DELETED : end;
+    return (int) (e - (offsets[id] & ~DELETED));
+  }
+
+  /**
+   * Compares the specified key with a stored key.
+   * @param key key
+   * @param hash hash value of the key
+   * @param id id of the stored key
+   * @return result of check
+   */
+  private boolean eq(final byte[] key, final int hash, final int id) {
+    final int kl = key.length;
+    if(hashes[id] != hash || length(id) != kl) return false;
+    final long off = offsets[id];
+    for(int k = 0; k < kl; k++) {
+      if(buffer.read1(off + k) != (key[k] & 0xFF)) return false;
+    }
+    return true;
+  }
+}
@@ -68,6 +68,43 @@ public class LongList extends ElementList {
     return list[index];
   }
 
+  /**
+   * Stores an element at the specified position.
+   * @param index index of the element to replace
+   * @param element element to be stored
+   */
+  public final void set(final int index, final long element) {
+    if(index >= list.length) list = Arrays.copyOf(list, newSize(index + 1));
+    list[index] = element;
+    size = Math.max(size, index + 1);
+  }
+
+  /**
+   * Inserts elements at the specified index position.
+   * @param index inserting position
+   * @param elements elements to be inserted
+   */
+  public final void insert(final int index, final long... elements) {
+    final int l = elements.length;
+    if(l == 0) return;
+    if(size + l > list.length) list = Arrays.copyOf(list, newSize(size + l));
+    Array.move(list, index, l, size - index);
+    System.arraycopy(elements, 0, list, index, l);
+    size += l;
+  }
+
+  /**
+   * Deletes the element at the specified position.
+   * @param index index of the element to delete
+   * @return deleted element
+   */
+  public final long remove(final int index) {
+    final long[] lst = list;
+    final long l = lst[index];
+    Array.move(lst, index + 1, -1, --size - index);
+    return l;
+  }
+
   /**
    * Returns the uppermost element from the stack.
    * @return the uppermost element
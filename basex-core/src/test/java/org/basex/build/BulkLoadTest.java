@@ -0,0 +1,104 @@
+package org.basex.build;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests the creation of databases via bulk loads ({@link MainOptions#BULKLOAD}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BulkLoadTest extends SandboxTest {
+  /** Test document (spans more table pages than are kept in main memory). */
+  private static final String DOC = "<xml xmlns:x='x'>{ for $i in 1 to 60000 return "
+      + "<a b='{ $i mod 100 }' x:c='token { $i mod 7 }'>text { $i mod 1000 }<b>{ $i }</b>"
+      + "<x:d>{ $i mod 3 }</x:d></a> }</xml>";
+  /** Query for returning the contents of the database and the index structures. */
+  private static final String CONTENTS = "let $db := '" + NAME + "' return ("
+      + "hash:md5(serialize(db:open($db))), "
+      + "for $i in (index:texts($db), index:attributes($db), index:tokens($db)) "
+      + "return $i/@count || $i, "
+      + "count(db:text($db, 'text 7')), count(db:attribute($db, '42')), "
+      + "count(db:token($db, '3')), db:info($db)//(textindex, attrindex, tokenindex))";
+
+  /**
+   * Resets the options and drops the test database.
+   */
+  @After
+  public void drop() {
+    set(MainOptions.BULKLOAD, false);
+    set(MainOptions.TOKENINDEX, false);
+    set(MainOptions.SPLITSIZE, 0);
+    set(MainOptions.TEXTINCLUDE, "");
+    set(MainOptions.ATTRINCLUDE, "");
+    set(MainOptions.UPDINDEX, false);
+    set(MainOptions.TABLECOMPRESS, false);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Compares databases created with and without bulk load.
+   */
+  @Test
+  public void create() {
+    set(MainOptions.TOKENINDEX, true);
+    compare();
+  }
+
+  /**
+   * Writes index entries to partial index structures.
+   */
+  @Test
+  public void split() {
+    set(MainOptions.SPLITSIZE, 1);
+    set(MainOptions.TOKENINDEX, true);
+    compare();
+  }
+
+  /**
+   * Only indexes the contents of selected elements and attributes.
+   */
+  @Test
+  public void include() {
+    set(MainOptions.TEXTINCLUDE, "b,Q{x}d");
+    set(MainOptions.ATTRINCLUDE, "*:c");
+    set(MainOptions.TOKENINDEX, true);
+    compare();
+  }
+
+  /**
+   * Bulk load with compressed tables and updatable indexes.
+   */
+  @Test
+  public void update() {
+    set(MainOptions.TABLECOMPRESS, true);
+    set(MainOptions.UPDINDEX, true);
+    set(MainOptions.TOKENINDEX, true);
+    compare();
+    query("for $a in //a[b mod 10 = 0] return replace value of node $a/@b with 'x'");
+    assertEquals("6000", query("count(db:attribute('" + NAME + "', 'x'))"));
+    assertEquals("600", query("count(db:attribute('" + NAME + "', '42'))"));
+  }
+
+  /**
+   * Creates the database with and without bulk load and compares the results.
+   */
+  private static void compare() {
+    final String doc = query(DOC);
+    execute(new CreateDB(NAME, doc));
+    final String expected = query(CONTENTS);
+    set(MainOptions.BULKLOAD, true);
+    execute(new CreateDB(NAME, doc));
+    assertEquals(expected, query(CONTENTS));
+    // database can be reopened
+    execute(new Close());
+    execute(new Open(NAME));
+    assertEquals(expected, query(CONTENTS));
+  }
+}
@@ -0,0 +1,189 @@
+package org.basex.build;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests the parallel parsing of documents ({@link MainOptions#PARSETHREADS}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelParseTest extends SandboxTest {
+  /** Test directory. */
+  private static final IOFile DIR = new IOFile(sandbox(), "parallel");
+  /** Query for returning the contents of the database. */
+  private static final String CONTENTS = "string-join(for $d in db:open('" + NAME + "') "
+      + "return db:path($d) || serialize($d), '\n')";
+
+  /**
+   * Creates the test documents.
+   */
+  @Before
+  public void init() {
+    final String ns = "<?pi value?><x:a xmlns:x='x' xmlns='y' x:b='1'><!--c--><b/>t<c d='2'>"
+        + "<d xmlns=''>u</d></c></x:a>";
+    for(int i = 0; i < 300; i++) {
+      final IOFile file = new IOFile(DIR, (i % 3 == 0 ? "sub" + i % 7 + '/' : "") + i + ".xml");
+      file.parent().md();
+      write(file, i % 5 == 0 ? ns : "<doc n='" + i + "'>" + i + "<e>" + i * i + "</e><f/></doc>");
+    }
+  }
+
+  /**
+   * Drops the test database.
+   */
+  @After
+  public void drop() {
+    set(MainOptions.PARSETHREADS, 1);
+    set(MainOptions.SKIPCORRUPT, false);
+    set(MainOptions.PARSER, MainOptions.MainParser.XML);
+    execute(new DropDB(NAME));
+    DIR.delete();
+  }
+
+  /**
+   * Creates databases from directories and archives.
+   */
+  @Test
+  public void create() {
+    for(final String path : new String[] { DIR.path(), "src/test/resources/xml.zip" }) {
+      execute(new CreateDB(NAME, path));
+      final String expected = query(CONTENTS), info = query("db:info('" + NAME + "')//size");
+      for(final int threads : new int[] { 2, 8 }) {
+        set(MainOptions.PARSETHREADS, threads);
+        execute(new CreateDB(NAME, path));
+        assertEquals(expected, query(CONTENTS));
+        assertEquals(info, query("db:info('" + NAME + "')//size"));
+        set(MainOptions.PARSETHREADS, 1);
+      }
+    }
+  }
+
+  /**
+   * Parses streamed archive entries, some of which are too large to be cached.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void archive() throws IOException {
+    final IOFile zip = new IOFile(sandbox(), "input.zip");
+    try(ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip.file()))) {
+      for(int i = 0; i < 30; i++) {
+        final TokenBuilder tb = new TokenBuilder("<x>");
+        for(int n = i % 10 == 0 ? 500000 : 10; n > 0; n--) tb.add("<y>" + n + "</y>");
+        final byte[] xml = tb.add("</x>").finish();
+        // store entries uncompressed, with size information
+        final ZipEntry ze = new ZipEntry(i + ".xml");
+        final CRC32 crc = new CRC32();
+        crc.update(xml);
+        ze.setMethod(ZipEntry.STORED);
+        ze.setSize(xml.length);
+        ze.setCrc(crc.getValue());
+        zos.putNextEntry(ze);
+        zos.write(xml);
+        zos.closeEntry();
+      }
+    }
+    execute(new CreateDB(NAME, zip.path()));
+    final String expected = query(CONTENTS);
+    set(MainOptions.PARSETHREADS, 4);
+    execute(new CreateDB(NAME, zip.path()));
+    assertEquals(expected, query(CONTENTS));
+  }
+
+  /**
+   * Adds documents to an existing database.
+   */
+  @Test
+  public void add() {
+    execute(new CreateDB(NAME, "<x/>"));
+    set(MainOptions.PARSETHREADS, 4);
+    execute(new Add("dir", DIR.path()));
+    assertEquals("301", query("count(db:open('" + NAME + "'))"));
+    assertEquals("60", query("count(db:open('" + NAME + "', 'dir')//Q{x}a)"));
+  }
+
+  /**
+   * Parses corrupt files.
+   */
+  @Test
+  public void corrupt() {
+    write(new IOFile(DIR, "corrupt.xml"), "<x");
+    set(MainOptions.PARSETHREADS, 4);
+    try {
+      new CreateDB(NAME, DIR.path()).execute(context);
+      fail("Broken file was added to the database.");
+    } catch(final BaseXException ignored) { }
+
+    set(MainOptions.SKIPCORRUPT, true);
+    final CreateDB cmd = new CreateDB(NAME, DIR.path());
+    execute(cmd);
+    assertTrue(cmd.info().contains("corrupt.xml"));
+    assertEquals("300", query("count(db:open('" + NAME + "'))"));
+  }
+
+  /**
+   * Converts chunks of CSV input in parallel.
+   */
+  @Test
+  public void csv() {
+    final TokenBuilder tb = new TokenBuilder("a,b\\,\"c\n\"\n");
+    for(int i = 0; i < 60000; i++) {
+      tb.add("\"x\"\"" + i + "\",\"y\n" + i + "\",z\\\"" + i + ",\"\"" + i + '\n');
+      if(i % 1000 == 0) tb.add("\n");
+    }
+    final IOFile file = new IOFile(sandbox(), "input.csv");
+    write(file, tb.toString());
+
+    set(MainOptions.PARSER, MainOptions.MainParser.CSV);
+    for(final String csv : new String[] { "header=false", "header=true",
+        "header=true,backslashes=true", "format=attributes,quotes=false,header=true" }) {
+      set(MainOptions.CSVPARSER, csv);
+      execute(new CreateDB(NAME, file.path()));
+      final String expected = query(CONTENTS);
+      set(MainOptions.PARSETHREADS, 4);
+      execute(new CreateDB(NAME, file.path()));
+      assertEquals(csv, expected, query(CONTENTS));
+      set(MainOptions.PARSETHREADS, 1);
+    }
+    set(MainOptions.CSVPARSER, "");
+  }
+
+  /**
+   * Converts chunks of JSON Lines input in parallel.
+   */
+  @Test
+  public void jsonLines() {
+    final TokenBuilder tb = new TokenBuilder();
+    for(int i = 0; i < 40000; i++) {
+      tb.add("{ \"id\": " + i + ", \"a\": [\"b\", { \"c\": null }], \"d\": \"\u00e4\" }\n");
+      if(i % 1000 == 0) tb.add("\n");
+    }
+    final IOFile file = new IOFile(sandbox(), "input.json");
+    write(file, tb.toString());
+
+    set(MainOptions.PARSER, MainOptions.MainParser.JSON);
+    for(final String json : new String[] { "lines=true", "lines=true,format=attributes",
+        "lines=true,format=basic" }) {
+      set(MainOptions.JSONPARSER, json);
+      execute(new CreateDB(NAME, file.path()));
+      final String expected = query(CONTENTS);
+      set(MainOptions.PARSETHREADS, 4);
+      execute(new CreateDB(NAME, file.path()));
+      assertEquals(json, expected, query(CONTENTS));
+      set(MainOptions.PARSETHREADS, 1);
+    }
+    assertEquals("40000", query("count(db:open('" + NAME + "')/*/*)"));
+    set(MainOptions.JSONPARSER, "");
+  }
+}
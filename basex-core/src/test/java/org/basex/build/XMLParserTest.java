@@ -5,7 +5,9 @@ import static org.junit.Assert.*;
 import org.basex.*;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
+import org.basex.io.*;
 import org.basex.io.serial.*;
+import org.basex.util.*;
 import org.junit.*;
 import org.junit.Test;
 
@@ -115,4 +117,27 @@ public final class XMLParserTest extends SandboxTest {
       assertEquals("Internal parser: " + b, out, query("."));
     }
   }
+
+  /**
+   * Parses runs of characters that span multiple input buffers.
+   */
+  @Test
+  public void runs() {
+    set(MainOptions.CHOP, false);
+
+    final TokenBuilder tb = new TokenBuilder("<x xmlns:n='n'>");
+    for(int i = 0; i < 2000; i++) {
+      tb.add("<n:a b='v\u00e4\r\n&amp;\u20ac" + i + "' c=\"'\">text\r\n\u00fc\ud834\udd1e ");
+      tb.addInt(i).add("&lt;]<![CDATA[<]]]]>\r</n:a><\u00e4\u00f6 d='").addInt(i % 7).add("'/>\r");
+    }
+    final IOFile file = new IOFile(sandbox(), "runs.xml");
+    write(file, tb.add("</x>").toString());
+
+    set(MainOptions.INTPARSE, false);
+    execute(new CreateDB(NAME, file.path()));
+    final String expected = query(".");
+    set(MainOptions.INTPARSE, true);
+    execute(new CreateDB(NAME, file.path()));
+    assertEquals(expected, query("."));
+  }
 }
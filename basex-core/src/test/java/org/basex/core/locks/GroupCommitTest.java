@@ -0,0 +1,122 @@
+package org.basex.core.locks;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.List;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests group commits of concurrent updates ({@link StaticOptions#COMMITBATCH}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class GroupCommitTest extends SandboxTest {
+  /** Number of concurrent updates. */
+  private static final int UPDATES = 200;
+  /** Database context with enabled group commits. */
+  private static Context ctx;
+
+  /**
+   * Creates a database context with enabled group commits.
+   */
+  @BeforeClass
+  public static void init() {
+    Prop.put(StaticOptions.COMMITBATCH, "8");
+    Prop.put(StaticOptions.COMMITLATENCY, "50");
+    ctx = new Context();
+  }
+
+  /**
+   * Closes the database context.
+   */
+  @AfterClass
+  public static void finish() {
+    ctx.close();
+    Prop.put(StaticOptions.COMMITBATCH, "1");
+    Prop.put(StaticOptions.COMMITLATENCY, "10");
+  }
+
+  /**
+   * Runs concurrent updates. All changes must have been flushed when the updates are finished.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    new CreateDB(NAME, "<x/>").execute(ctx);
+    try {
+      final List<Thread> threads = new ArrayList<>();
+      final Exception[] error = new Exception[1];
+      for(int u = 0; u < UPDATES; u++) {
+        final String query = "insert node <a>" + u + "</a> into db:open('" + NAME + "')/x";
+        threads.add(new Thread(() -> {
+          try {
+            final Context client = new Context(ctx);
+            client.user(ctx.user());
+            new XQuery(query).execute(client);
+          } catch(final Exception ex) {
+            error[0] = ex;
+          }
+        }));
+      }
+      for(final Thread thread : threads) thread.start();
+      for(final Thread thread : threads) thread.join();
+      if(error[0] != null) throw error[0];
+
+      // no updates are pending
+      assertFalse(ctx.data().meta.updateFile().exists());
+      assertFalse(ctx.data().meta.dirty);
+      final String query = "count(db:open('" + NAME + "')//a)";
+      assertEquals(String.valueOf(UPDATES), new XQuery(query).execute(ctx));
+      new Close().execute(ctx);
+      assertEquals(String.valueOf(UPDATES), new XQuery(query).execute(ctx));
+    } finally {
+      new DropDB(NAME).execute(ctx);
+    }
+  }
+
+  /**
+   * Defers the changes of an update. The queued writer does not change the database, so the
+   * changes are flushed by the deferring job itself.
+   * @throws Exception exception
+   */
+  @Test
+  public void flush() throws Exception {
+    new CreateDB(NAME, "<x/>").execute(ctx);
+    try {
+      final Exception[] error = new Exception[1];
+      final Thread writer = new Thread(() -> {
+        try {
+          final Context client = new Context(ctx);
+          client.user(ctx.user());
+          new XQuery("insert node <a/> into db:open('" + NAME + "')/x, prof:sleep(500)").
+            execute(client);
+        } catch(final Exception ex) {
+          error[0] = ex;
+        }
+      });
+      writer.start();
+      Thread.sleep(200);
+
+      // queued writer without changes
+      final Context client = new Context(ctx);
+      client.user(ctx.user());
+      new XQuery("if(random:double() > 1) then delete node db:open('" + NAME + "')/x else ()").
+        execute(client);
+      writer.join();
+      if(error[0] != null) throw error[0];
+
+      assertFalse(ctx.data().meta.updateFile().exists());
+      assertFalse(ctx.data().meta.dirty);
+    } finally {
+      new DropDB(NAME).execute(ctx);
+    }
+  }
+}
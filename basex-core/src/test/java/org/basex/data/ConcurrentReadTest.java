@@ -0,0 +1,137 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests concurrent read access to the table and the texts of a disk database.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Number of concurrent readers. */
+  private static final int READERS = 8;
+
+  /**
+   * Drops the test database.
+   */
+  @After
+  public void drop() {
+    context.soptions.set(StaticOptions.MMAP, false);
+    BufferPool.get().size(32);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Reads pages that are copied from the buffer pool.
+   * @throws Exception exception
+   */
+  @Test
+  public void buffered() throws Exception {
+    // shrink buffer pool to enforce evictions
+    BufferPool.get().size(1);
+    run();
+  }
+
+  /**
+   * Reads pages from the memory mapping.
+   * @throws Exception exception
+   */
+  @Test
+  public void mapped() throws Exception {
+    context.soptions.set(StaticOptions.MMAP, true);
+    run();
+  }
+
+  /**
+   * Compares the results of concurrent readers with sequentially read data.
+   * @throws Exception exception
+   */
+  private static void run() throws Exception {
+    execute(new CreateDB(NAME, FILE));
+    execute(new Close());
+    execute(new Open(NAME));
+    final Data data = context.data();
+    final String expected = read(data, 1);
+
+    final Reader[] readers = new Reader[READERS];
+    for(int r = 0; r < READERS; r++) readers[r] = new Reader(data, r + 2);
+    for(final Reader reader : readers) reader.start();
+    for(final Reader reader : readers) {
+      reader.join();
+      if(reader.error != null) throw reader.error;
+      assertEquals(expected, reader.result);
+    }
+  }
+
+  /**
+   * Reads all nodes of the database. Nodes are visited in a different order for each step size.
+   * @param data data reference
+   * @param step step size
+   * @return string representation
+   */
+  private static String read(final Data data, final int step) {
+    final int size = data.meta.size;
+    final String[] nodes = new String[size];
+    for(int s = 0; s < step; s++) {
+      for(int pre = s; pre < size; pre += step) {
+        final int kind = data.kind(pre);
+        final TokenBuilder tb = new TokenBuilder().addInt(kind).add(':').addInt(data.parent(pre,
+            kind)).add(':').addInt(data.size(pre, kind)).add(':');
+        if(kind == Data.ELEM || kind == Data.DOC) {
+          tb.add(data.name(pre, kind));
+        } else {
+          final boolean text = kind != Data.ATTR;
+          tb.add(data.text(pre, text)).add(':').addInt(data.textLen(pre, text));
+        }
+        nodes[pre] = tb.toString();
+      }
+    }
+    return Arrays.toString(nodes);
+  }
+
+  /**
+   * Reader thread.
+   */
+  private static final class Reader extends Thread {
+    /** Data reference. */
+    private final Data data;
+    /** Step size. */
+    private final int step;
+    /** Result. */
+    private String result;
+    /** Error. */
+    private Exception error;
+
+    /**
+     * Constructor.
+     * @param data data reference
+     * @param step step size
+     */
+    private Reader(final Data data, final int step) {
+      this.data = data;
+      this.step = step;
+    }
+
+    @Override
+    public void run() {
+      try {
+        result = read(data, step);
+      } catch(final Exception ex) {
+        error = ex;
+      }
+    }
+  }
+}
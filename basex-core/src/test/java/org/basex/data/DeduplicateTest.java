@@ -0,0 +1,150 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests databases with deduplicated texts, attribute values and binary files
+ * ({@link MainOptions#DEDUPLICATE}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class DeduplicateTest extends SandboxTest {
+  /** Test document with repeated values. */
+  private static final String DOC = "<xml>{ for $i in 1 to 1000 return " +
+      "<item status='{ ('open', 'closed')[$i mod 2 + 1] }'>{ ('Germany', 'France', 'Italy')[$i mod 3 + 1] }</item> }</xml>";
+  /** Query for serializing all texts and attribute values. */
+  private static final String QUERY = "string-join((//text(), //@*), '|')";
+
+  /**
+   * Drops the test database.
+   */
+  @After
+  public void drop() {
+    set(MainOptions.DEDUPLICATE, false);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Compares the sizes of deduplicated and regular stores.
+   */
+  @Test
+  public void create() {
+    final String doc = query(DOC);
+    execute(new CreateDB(NAME, doc));
+    final String expected = query(QUERY);
+    final long texts = size(DataText.DATATXT), values = size(DataText.DATAATV);
+
+    set(MainOptions.DEDUPLICATE, true);
+    execute(new CreateDB(NAME, doc));
+    assertTrue(context.data().meta.deduplicate);
+    assertEquals(expected, query(QUERY));
+    assertTrue(size(DataText.DATATXT) < texts / 10);
+    assertTrue(size(DataText.DATAATV) < values / 10);
+  }
+
+  /**
+   * Updates shared values.
+   */
+  @Test
+  public void update() {
+    set(MainOptions.DEDUPLICATE, true);
+    execute(new CreateDB(NAME, query(DOC)));
+    query("replace value of node (//text())[1] with 'Spain'");
+    query("replace value of node (//@status)[1] with 'pending'");
+    query("delete node (//item)[2]");
+    query("insert node <item status='open'>Germany</item> into /xml");
+    query("rename node (//@status)[3] as 'state'");
+
+    final String expected = query(QUERY);
+    assertEquals("Spain", query("(//text())[1]"));
+    assertEquals("pending", query("data((//@status)[1])"));
+    assertEquals(334, Integer.parseInt(query("count(//text()[. = 'Germany'])")));
+    assertEquals(500, Integer.parseInt(query("count(//@*[. = 'open'])")));
+
+    execute(new Close());
+    execute(new Open(NAME));
+    assertEquals(expected, query(QUERY));
+    execute(new OptimizeAll());
+    assertTrue(context.data().meta.deduplicate);
+    assertEquals(expected, query(QUERY));
+  }
+
+  /**
+   * Stores and updates binary files with identical contents.
+   * @throws Exception exception
+   */
+  @Test
+  public void binaries() throws Exception {
+    set(MainOptions.DEDUPLICATE, true);
+    execute(new CreateDB(NAME));
+    for(final String path : new String[] { "a.bin", "b.bin", "c/c.bin" }) {
+      execute(new Store(path, "<x>binary</x>"));
+    }
+    query("db:store('" + NAME + "', 'd.bin', 'other')");
+    query("db:store('" + NAME + "', 'e.bin', '<x>binary</x>')");
+
+    assertEquals(2, blobs().length);
+    final Path a = path("a.bin");
+    for(final String path : new String[] { "b.bin", "c/c.bin", "e.bin" }) {
+      assertTrue(Files.isSameFile(a, path(path)));
+    }
+    assertFalse(Files.isSameFile(a, path("d.bin")));
+
+    // overwriting a file must not change the contents of linked files
+    query("db:store('" + NAME + "', 'b.bin', 'changed')");
+    assertEquals("changed", query("db:retrieve('" + NAME + "', 'b.bin')"));
+    assertEquals("<x>binary</x>", query("db:retrieve('" + NAME + "', 'a.bin')"));
+    assertEquals("<x>binary</x>", query("db:retrieve('" + NAME + "', 'e.bin')"));
+    assertEquals(3, blobs().length);
+
+    // unreferenced blobs are removed by optimize
+    query("for $p in ('a.bin', 'c/c.bin', 'e.bin') return db:delete('" + NAME + "', $p)");
+    execute(new Optimize());
+    assertEquals(2, blobs().length);
+    execute(new OptimizeAll());
+    assertEquals("changed", query("db:retrieve('" + NAME + "', 'b.bin')"));
+    assertEquals("other", query("db:retrieve('" + NAME + "', 'd.bin')"));
+    assertEquals(2, blobs().length);
+  }
+
+  /**
+   * Returns the blobs of the opened database.
+   * @return blob files
+   */
+  private static IOFile[] blobs() {
+    final ArrayList<IOFile> list = new ArrayList<>();
+    for(final IOFile dir : context.data().meta.blobs().children()) {
+      for(final IOFile blob : dir.children()) list.add(blob);
+    }
+    return list.toArray(new IOFile[list.size()]);
+  }
+
+  /**
+   * Returns the path to a binary file.
+   * @param path path of the resource
+   * @return path
+   */
+  private static Path path(final String path) {
+    return context.data().meta.binary(path).file().toPath();
+  }
+
+  /**
+   * Returns the size of a database file.
+   * @param name name of file
+   * @return size
+   */
+  private static long size(final String name) {
+    return context.data().meta.dbfile(name).length();
+  }
+}
@@ -2,9 +2,13 @@ package org.basex.data;
 
 import static org.junit.Assert.*;
 
+import java.io.*;
 import java.util.*;
 
+import org.basex.*;
 import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
 import org.basex.util.list.*;
 import org.junit.*;
 
@@ -14,7 +18,7 @@ import org.junit.*;
  * @author BaseX Team 2005-17, BSD License
  * @author Dimitar Popov
  */
-public final class IdPreMapTest {
+public final class IdPreMapTest extends SandboxTest {
   /** Number of update operations to execute in each test. */
   private static final int ITERATIONS = 200;
   /** Initial number of records. */
@@ -103,6 +107,61 @@ public final class IdPreMapTest {
     }
   }
 
+  /**
+   * Correctness: writes a map to disk and reads it again.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void writeCorrectness() throws IOException {
+    insertDeleteCorrectness();
+    final IOFile file = new IOFile(sandbox(), NAME + ".idp");
+    try(DataOutput out = new DataOutput(file)) {
+      testedmap.write(out);
+    }
+    testedmap = new IdPreMap(file);
+    check();
+    file.delete();
+  }
+
+  /**
+   * Correctness: reads a map that has been written in the format of older versions.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void convertCorrectness() throws IOException {
+    // map with 20 initial records, created by the following updates:
+    // insert(5, 20), insert(6, 21), delete(10), insert(0, 22), delete(0), insert(15, 23),
+    // delete(3), insert(21, 24)
+    final IOFile file = new IOFile(sandbox(), NAME + ".idp");
+    try(DataOutput out = new DataOutput(file)) {
+      // base id, number of tuples
+      out.writeNum(19);
+      out.writeNum(7);
+      // pre values, first ids, last ids, increments, old ids
+      out.writeNums(new int[] { 0, 3, 4, 5, 9, 14, 21 });
+      out.writeNums(new int[] { -1, -1, 20, 21, -1, 23, 24 });
+      out.writeNums(new int[] { -1, -1, 20, 21, -1, 23, 24 });
+      out.writeNums(new int[] { 0, -1, 0, 1, 0, 1, 2 });
+      out.writeNums(new int[] { 0, 3, 5, 5, 8, 14, 20 });
+    }
+    final int[] ids = { 0, 1, 2, 4, 20, 21, 5, 6, 7, 9, 10, 11, 12, 13, 23, 14, 15, 16, 17,
+        18, 19, 24 };
+    testedmap = new IdPreMap(file);
+    final int il = ids.length;
+    for(int pre = 0; pre < il; pre++) assertEquals(pre, testedmap.pre(ids[pre]));
+    for(final int id : new int[] { 3, 8, 22 }) assertEquals(-1, testedmap.pre(id));
+
+    // converted map can be updated and written in the current format
+    testedmap.insert(0, 25, 1);
+    try(DataOutput out = new DataOutput(file)) {
+      testedmap.write(out);
+    }
+    testedmap = new IdPreMap(file);
+    assertEquals(0, testedmap.pre(25));
+    for(int pre = 0; pre < il; pre++) assertEquals(pre + 1, testedmap.pre(ids[pre]));
+    file.delete();
+  }
+
   /** Insert performance: insert at random positions. */
   @Test
   public void insertPerformance() {
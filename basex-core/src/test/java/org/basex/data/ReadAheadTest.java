@@ -0,0 +1,107 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.*;
+import org.basex.io.random.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests sequential scans of tables whose pages are read ahead
+ * ({@link StaticOptions#READAHEAD}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class ReadAheadTest extends SandboxTest {
+  /** Test document (spans several hundred table pages). */
+  private static final String DOC = "<xml>{ for $i in 1 to 50000 return <a>{ $i }</a> }</xml>";
+  /** Query for scanning the table. */
+  private static final String QUERY = "sum(//a) || '|' || count(//text()[. mod 7 = 0])";
+
+  /**
+   * Shrinks the buffer pool.
+   */
+  @Before
+  public void init() {
+    BufferPool.get().size(1);
+  }
+
+  /**
+   * Drops the test database.
+   */
+  @After
+  public void drop() {
+    BufferPool.get().size(32);
+    BufferPool.get().readAhead(16);
+    set(MainOptions.UPDINDEX, false);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Compares the results of scans with and without read-ahead.
+   */
+  @Test
+  public void scan() {
+    execute(new CreateDB(NAME, query(DOC)));
+    execute(new Close());
+    BufferPool.get().readAhead(0);
+    execute(new Open(NAME));
+    final String expected = query(QUERY);
+
+    BufferPool.get().readAhead(64);
+    for(int r = 0; r < 3; r++) {
+      execute(new Close());
+      execute(new Open(NAME));
+      assertEquals(expected, query(QUERY));
+    }
+    assertTrue(BufferPool.get().info().contains("read ahead"));
+  }
+
+  /**
+   * Reads pages ahead while indexes are built and the database is optimized.
+   */
+  @Test
+  public void locked() {
+    set(MainOptions.UPDINDEX, true);
+    execute(new CreateDB(NAME, query(DOC)));
+    execute(new Close());
+    BufferPool.get().readAhead(64);
+    execute(new Open(NAME));
+    long aheads = aheads();
+    execute(new CreateIndex(CmdIndex.TEXT));
+    assertTrue(aheads() > aheads);
+    aheads = aheads();
+    execute(new OptimizeAll());
+    assertTrue(aheads() > aheads);
+    assertEquals("7142", query("count(//text()[. mod 7 = 0])"));
+  }
+
+  /**
+   * Updates the table between scans. Pages that have been read ahead before the update must not
+   * be added to the buffer pool.
+   */
+  @Test
+  public void update() {
+    execute(new CreateDB(NAME, query(DOC)));
+    BufferPool.get().readAhead(64);
+    for(int u = 1; u <= 5; u++) {
+      query(QUERY);
+      query("for $a in //a[. mod 1000 = " + u + "] return replace value of node $a with -1");
+      assertEquals(String.valueOf(u * 50), query("count(//a[. < 0])"));
+    }
+  }
+
+  /**
+   * Returns the number of blocks that have been read ahead.
+   * @return number of blocks
+   */
+  private static long aheads() {
+    final String info = BufferPool.get().info();
+    return Long.parseLong(info.replaceAll(".* (\\d+) blocks read ahead.*", "$1"));
+  }
+}
@@ -0,0 +1,154 @@
+package org.basex.data;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests read-only snapshots of databases ({@link StaticOptions#SNAPSHOTS}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest extends SandboxTest {
+  /** Test document (spans several table pages and text blocks). */
+  private static final String DOC =
+      "<xml>{ for $i in 1 to 20000 return <a b='{ $i }'>text { $i }</a> }</xml>";
+
+  /**
+   * Drops the test database.
+   */
+  @After
+  public void drop() {
+    context.soptions.set(StaticOptions.SNAPSHOTS, false);
+    set(MainOptions.TEXTINDEX, true);
+    set(MainOptions.ATTRINDEX, true);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Updates the database while snapshots are open.
+   * Without index structures, the updates need not wait for the snapshots to be closed.
+   */
+  @Test
+  public void update() {
+    set(MainOptions.TEXTINDEX, false);
+    set(MainOptions.ATTRINDEX, false);
+    execute(new CreateDB(NAME, query(DOC)));
+    final DiskData data = (DiskData) context.data();
+    final DiskData snapshot1 = data.snapshot();
+    final String contents1 = contents(snapshot1);
+    assertEquals(contents1, contents(data));
+
+    query("for $a in //a[@b mod 3 = 0] return replace value of node $a with 'x'");
+    query("delete node //a[@b mod 5 = 0]");
+    final DiskData snapshot2 = data.snapshot();
+    final String contents2 = contents(snapshot2);
+    assertNotEquals(contents1, contents2);
+
+    query("for $a in //a[@b mod 7 = 0] return insert node <b>{ $a/@b }</b> after $a");
+    query("delete node //a[@b mod 2 = 0]/@b");
+    query("for $a in //a[@b mod 11 = 0] return replace value of node $a with 'updated ' || $a");
+    query("replace value of node (//a)[last()] with ''");
+
+    // snapshots are not affected by the updates
+    assertEquals(contents1, contents(snapshot1));
+    assertEquals(contents2, contents(snapshot2));
+    assertEquals("0", query("count(//a[@b mod 5 = 0])"));
+    snapshot1.close();
+    snapshot2.close();
+
+    // new snapshot reflects the current state
+    final DiskData snapshot3 = data.snapshot();
+    assertEquals(contents(data), contents(snapshot3));
+    snapshot3.close();
+  }
+
+  /**
+   * Evaluates a read-only query while another query updates the database.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    execute(new CreateDB(NAME, query(DOC)));
+    context.soptions.set(StaticOptions.SNAPSHOTS, true);
+    final String query = "db:open('" + NAME + "')//a";
+
+    final Exception[] error = new Exception[1];
+    final Thread writer = new Thread(() -> {
+      try {
+        final Context client = new Context(context);
+        client.user(context.user());
+        new XQuery("for $a in " + query + " return replace value of node $a with '-', " +
+            "prof:sleep(2000)").execute(client);
+      } catch(final Exception ex) {
+        error[0] = ex;
+      }
+    });
+    writer.start();
+    Thread.sleep(500);
+
+    // the reader does not wait for the writer
+    final Context client = new Context(context);
+    client.user(context.user());
+    assertEquals("0", new XQuery("count(" + query + "[. = '-'])").execute(client));
+    assertTrue(writer.isAlive());
+
+    writer.join();
+    if(error[0] != null) throw error[0];
+    assertEquals("20000", new XQuery("count(" + query + "[. = '-'])").execute(client));
+  }
+
+  /**
+   * Shares the index structures with a snapshot. Updates wait until the snapshot is closed.
+   * @throws Exception exception
+   */
+  @Test
+  public void index() throws Exception {
+    execute(new CreateDB(NAME, query(DOC)));
+    final DiskData data = (DiskData) context.data();
+    final DiskData snapshot1 = data.snapshot();
+    assertTrue(snapshot1.meta.textindex);
+
+    final Thread writer = new Thread(() -> query("replace value of node (//a)[1] with 'x'"));
+    writer.start();
+    Thread.sleep(500);
+    assertTrue(writer.isAlive());
+    final IndexIterator iter = snapshot1.iter(new StringToken(IndexType.TEXT, token("text 1")));
+    assertTrue(iter.more());
+    assertEquals("text 1", string(snapshot1.text(iter.pre(), true)));
+    snapshot1.close();
+    writer.join();
+    assertEquals("x", query("(//a)[1]/text()"));
+
+    // the index structures have been invalidated by the update
+    final DiskData snapshot2 = data.snapshot();
+    assertFalse(snapshot2.meta.textindex);
+    snapshot2.close();
+  }
+
+  /**
+   * Returns a string representation of all nodes of a database.
+   * @param data data reference
+   * @return string
+   */
+  private static String contents(final Data data) {
+    final StringBuilder sb = new StringBuilder();
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      final int kind = data.kind(pre);
+      sb.append(kind).append(' ').append(data.parent(pre, kind)).append(' ');
+      if(kind == Data.ELEM || kind == Data.ATTR) sb.append(string(data.name(pre, kind)));
+      if(kind != Data.ELEM) sb.append(string(data.text(pre, kind != Data.ATTR)));
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,235 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.List;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.junit.*;
+import org.junit.Test;
+import org.junit.runner.*;
+import org.junit.runners.*;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests the storage variants of databases. The contents of created and updated databases
+ * are compared with the contents of a default disk-based database.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+@RunWith(Parameterized.class)
+public final class StorageTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Query for serializing all nodes and values. */
+  private static final String QUERY = "string-join((//node(), //@*) ! (name() || string()), '|')";
+  /** Updates. */
+  private static final String[] UPDATES = {
+    "for $t in (//text())[position() mod 3 = 0] return replace value of node $t with "
+        + "'updated-' || string-length($t)",
+    "for $i in 1 to 5 return insert node <new a='{ $i }'>inserted</new> into (//item)[$i]",
+    "delete node //@id[. = 'item1']",
+    "delete node (//item)[position() mod 4 = 0]",
+    "replace value of node (//@id)[1] with 'replaced'",
+  };
+
+  /** Contents of the default database. */
+  private static String original;
+  /** Contents of the updated default database. */
+  private static String updated;
+  /** Table size of the default database. */
+  private static long size;
+
+  /** Storage variant. */
+  private final Storage storage;
+
+  /** Storage variants. */
+  private enum Storage {
+    /** Default disk-based storage. */
+    DISK,
+    /** Memory-mapped read access ({@link StaticOptions#MMAP}). */
+    MAPPED,
+    /** Compressed table ({@link MainOptions#TABLECOMPRESS}). */
+    COMPRESSED,
+    /** Write-ahead log ({@link StaticOptions#WRITELOG}). */
+    LOGGED,
+    /** Main memory, stored outside the Java heap ({@link MainOptions#OFFHEAP}). */
+    OFFHEAP;
+
+    /**
+     * Enables or disables the options of this variant.
+     * @param enable enable or disable options
+     */
+    void options(final boolean enable) {
+      if(this == MAPPED) context.soptions.set(StaticOptions.MMAP, enable);
+      else if(this == COMPRESSED) set(MainOptions.TABLECOMPRESS, enable);
+      else if(this == LOGGED) context.soptions.set(StaticOptions.WRITELOG, enable);
+      else if(this == OFFHEAP) {
+        set(MainOptions.MAINMEM, enable);
+        set(MainOptions.OFFHEAP, enable);
+      }
+    }
+
+    /**
+     * Checks the properties of a database that has been opened or created with this variant.
+     * @param data data reference
+     */
+    void check(final Data data) {
+      if(this == MAPPED) assertTrue(data.meta.mmap);
+      else if(this == COMPRESSED) assertTrue(data.meta.tablecompress);
+      else if(this == LOGGED) assertTrue(data.meta.writelog);
+      else if(this == OFFHEAP) assertTrue(data.table instanceof TableOffHeapAccess);
+    }
+
+    /**
+     * Indicates if databases of this variant are stored on disk.
+     * @return result of check
+     */
+    boolean disk() {
+      return this != OFFHEAP;
+    }
+  }
+
+  /**
+   * Returns the storage variants.
+   * @return variants
+   */
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> params() {
+    final List<Object[]> params = new ArrayList<>();
+    for(final Storage storage : Storage.values()) params.add(new Object[] { storage });
+    return params;
+  }
+
+  /**
+   * Constructor.
+   * @param storage storage variant
+   */
+  public StorageTest(final Storage storage) {
+    this.storage = storage;
+  }
+
+  /**
+   * Computes the contents of the default database.
+   */
+  @BeforeClass
+  public static void init() {
+    set(MainOptions.UPDINDEX, true);
+    execute(new CreateDB(NAME, FILE));
+    original = query(QUERY);
+    size = table().length();
+    for(final String update : UPDATES) query(update);
+    updated = query(QUERY);
+    execute(new DropDB(NAME));
+    set(MainOptions.UPDINDEX, false);
+  }
+
+  /**
+   * Enables the options of the storage variant.
+   */
+  @Before
+  public void before() {
+    storage.options(true);
+  }
+
+  /**
+   * Resets the options and drops the test database.
+   */
+  @After
+  public void after() {
+    execute(new Close());
+    storage.options(false);
+    set(MainOptions.AUTOFLUSH, true);
+    set(MainOptions.UPDINDEX, false);
+    execute(new DropDB(NAME));
+  }
+
+  /**
+   * Creates and reopens a database.
+   */
+  @Test
+  public void read() {
+    execute(new CreateDB(NAME, FILE));
+    storage.check(context.data());
+    assertEquals(original, query(QUERY));
+    if(storage == Storage.COMPRESSED) assertTrue(table().length() < size / 2);
+    if(!storage.disk()) return;
+
+    execute(new Close());
+    execute(new Open(NAME));
+    storage.check(context.data());
+    assertEquals(original, query(QUERY));
+  }
+
+  /**
+   * Reads updated data before and after it has been flushed, and after reopening the database.
+   */
+  @Test
+  public void update() {
+    set(MainOptions.AUTOFLUSH, false);
+    set(MainOptions.UPDINDEX, true);
+    execute(new CreateDB(NAME, FILE));
+    if(storage.disk()) {
+      execute(new Close());
+      execute(new Open(NAME));
+    }
+    for(final String update : UPDATES) query(update);
+    assertEquals(updated, query(QUERY));
+    assertEquals("4", query("count(db:text('" + NAME + "', 'inserted'))"));
+    assertEquals("1", query("count(db:attribute('" + NAME + "', 'replaced'))"));
+    if(storage == Storage.LOGGED) assertTrue(log().length() > 0);
+    if(!storage.disk()) return;
+
+    execute(new Flush());
+    assertEquals(updated, query(QUERY));
+    execute(new Close());
+    assertFalse(log().exists());
+    execute(new Open(NAME));
+    storage.check(context.data());
+    assertEquals(updated, query(QUERY));
+
+    // rebuild database
+    execute(new OptimizeAll());
+    storage.check(context.data());
+    assertEquals(updated, query(QUERY));
+  }
+
+  /**
+   * Updates values in two steps. The slots of pages that have been moved in the first step
+   * must be reused in the second step.
+   */
+  @Test
+  public void rewrite() {
+    if(!storage.disk()) return;
+    execute(new CreateDB(NAME, query("<x>{ for $i in 1 to 20000 return "
+        + "<a>{ if($i <= 10000) then $i * 997 else 1 }</a> }</x>")));
+    query("for $a at $p in (//a)[position() <= 10000] "
+        + "return replace value of node $a with $p * 100000");
+    final long length = table().length();
+    query("for $a at $p in (//a)[position() > 10000] "
+        + "return replace value of node $a with $p * 997");
+    assertEquals(length, table().length());
+  }
+
+  /**
+   * Returns the table file of the test database.
+   * @return table file
+   */
+  private static IOFile table() {
+    return context.data().meta.dbfile(DataText.DATATBL);
+  }
+
+  /**
+   * Returns the log file of the test database.
+   * @return log file
+   */
+  private static IOFile log() {
+    return MetaData.file(context.soptions.dbPath(NAME), DataText.DATAWAL);
+  }
+}
@@ -0,0 +1,129 @@
+package org.basex.data;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the recovery of databases from a write-ahead log
+ * ({@link StaticOptions#WRITELOG}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteLogTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Query for serializing all nodes and values. */
+  private static final String QUERY = "string-join((//node(), //@*) ! (name() || string()), '|')";
+
+  /**
+   * Initializes the tests.
+   */
+  @BeforeClass
+  public static void init() {
+    context.soptions.set(StaticOptions.WRITELOG, true);
+  }
+
+  /**
+   * Finishes the tests.
+   */
+  @AfterClass
+  public static void finish() {
+    context.soptions.set(StaticOptions.WRITELOG, false);
+  }
+
+  /**
+   * Drops the test database.
+   */
+  @After
+  public void drop() {
+    set(MainOptions.UPDINDEX, false);
+    execute(new DropDB(NAME));
+    new IOFile(sandbox(), NAME + "-backup").delete();
+  }
+
+  /**
+   * Recovers committed updates from the log.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void recover() throws IOException {
+    set(MainOptions.UPDINDEX, true);
+    execute(new CreateDB(NAME, FILE));
+    execute(new Close());
+    final IOFile dir = context.soptions.dbPath(NAME), backup = new IOFile(sandbox(), NAME +
+        "-backup");
+    copy(dir, backup);
+
+    // perform updates and save committed log
+    execute(new Open(NAME));
+    update();
+    final String expected = query(QUERY);
+    final byte[] log = logFile().read();
+    execute(new Close());
+
+    // restore original files, add log with incomplete entry
+    dir.delete();
+    copy(backup, dir);
+    logFile().write(concat(log, new byte[] { 1, 5, 'x' }));
+
+    // recovered changes are written to the data files, and a new log is created
+    execute(new Open(NAME));
+    assertEquals(0, logFile().length());
+    assertEquals(expected, query(QUERY));
+    assertEquals("1", query("count(db:text('" + NAME + "', 'recovered'))"));
+  }
+
+  /**
+   * Only logs the changed regions of rewritten files.
+   */
+  @Test
+  public void regions() {
+    set(MainOptions.UPDINDEX, true);
+    execute(new CreateDB(NAME, FILE));
+    query("replace value of node (//text())[1] with 'logged'");
+    // meta data file is larger than the log
+    final IOFile inf = MetaData.file(context.soptions.dbPath(NAME), DataText.DATAINF);
+    assertTrue(logFile().length() < inf.length());
+  }
+
+  /**
+   * Performs some updates.
+   */
+  private static void update() {
+    query("for $t in (//text())[position() mod 3 = 0] return replace value of node $t with " +
+        "'updated-' || string-length($t)");
+    query("for $i in 1 to 5 return insert node <new a='" + NAME + "'>{ $i }</new> " +
+        "into (//item)[$i]");
+    query("delete node //@id[. = 'item1']");
+    query("replace value of node (//text())[1] with 'recovered'");
+  }
+
+  /**
+   * Returns the log file of the test database.
+   * @return log file
+   */
+  private static IOFile logFile() {
+    return MetaData.file(context.soptions.dbPath(NAME), DataText.DATAWAL);
+  }
+
+  /**
+   * Copies the files of a directory.
+   * @param source source directory
+   * @param target target directory
+   * @throws IOException I/O exception
+   */
+  private static void copy(final IOFile source, final IOFile target) throws IOException {
+    target.md();
+    for(final IOFile file : source.children()) file.copyTo(new IOFile(target, file.name()));
+  }
+}
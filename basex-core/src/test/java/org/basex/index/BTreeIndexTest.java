@@ -0,0 +1,163 @@
+package org.basex.index;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.index.value.*;
+import org.basex.query.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests value indexes that are stored as B+-trees (see {@link MainOptions#BTREEINDEX}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BTreeIndexTest extends AdvancedQueryTest {
+  /** Name of the database with B+-tree indexes. */
+  private static final String BTREE = NAME + "btree";
+  /** Query for creating the test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 20000 return "
+      + "<a b='{ $i mod 700 }'>{ $i mod 3000 } w{ $i mod 7 }</a> }</x>";
+  /** Updates. */
+  private static final String[] UPDATES = {
+    "for $i in 1 to 5000 return insert node <a b='{ 1000 + $i }'>new { $i }</a> into /x",
+    "for $i in 1 to 20 return insert node <a b='{ string-join((1 to 500) ! $i) }'>"
+        + "{ string-join((1 to 1000) ! $i, ' ') }</a> into /x",
+    "delete node //a[@b = '5']",
+    "delete node //a[starts-with(text(), 'new 1')]",
+    "for $a in //a[position() mod 3 = 0] return replace value of node $a/@b with '999'",
+    "for $a in //a[@b = '999'] return replace value of node $a/text() with 'replaced'",
+  };
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//a[text() = '123 w4']",
+    "//a[@b = '77']",
+    "//a[@b = ('1', '10', '100', '1020', '999')]",
+    "//a[@b >= '650' and @b <= '66']",
+    "//a[@b > '1' and @b < '2'] => count()",
+    "//a[@b >= 100 and @b <= 120] => count()",
+    "//a[text() >= 'new' and text() < 'newz'] => count()",
+    "//a[text() = 'replaced'] => count()",
+    _DB_ATTRIBUTE_RANGE.args(NAME, "5", "6") + " => count()",
+  };
+
+  /**
+   * Finalizes a test.
+   */
+  @After
+  public void after() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(BTREE));
+    set(MainOptions.BTREEINDEX, false);
+    set(MainOptions.UPDINDEX, false);
+    set(MainOptions.TOKENINDEX, false);
+  }
+
+  /**
+   * Creates databases.
+   */
+  @Test
+  public void create() {
+    set(MainOptions.TOKENINDEX, true);
+    init();
+    compare();
+    execute(new Open(BTREE));
+    for(final IndexType type : new IndexType[] { IndexType.TEXT, IndexType.ATTRIBUTE,
+        IndexType.TOKEN }) {
+      assertTrue(context.data().index(type) instanceof BTreeValues);
+    }
+    assertEquals("true", query(_DB_INFO.args(BTREE) + "//btreeindex/text()"));
+  }
+
+  /**
+   * Updates databases with updatable indexes.
+   */
+  @Test
+  public void updindex() {
+    set(MainOptions.UPDINDEX, true);
+    set(MainOptions.TOKENINDEX, true);
+    init();
+    for(final String update : UPDATES) {
+      update(update);
+      compare();
+    }
+
+    // changes are persistent
+    execute(new Close());
+    compare();
+
+    // rebuild index structures
+    execute(new Open(BTREE));
+    execute(new Optimize());
+    compare();
+    set(MainOptions.BTREEINDEX, true);
+    execute(new OptimizeAll());
+    compare();
+    update(UPDATES[0]);
+    compare();
+  }
+
+  /**
+   * Enables and disables the B+-tree format.
+   */
+  @Test
+  public void optimize() {
+    init();
+    execute(new Open(NAME));
+    set(MainOptions.BTREEINDEX, true);
+    execute(new OptimizeAll());
+    assertEquals("true", query(_DB_INFO.args(NAME) + "//btreeindex/text()"));
+    compare();
+
+    execute(new Open(BTREE));
+    set(MainOptions.BTREEINDEX, false);
+    execute(new OptimizeAll());
+    assertEquals("false", query(_DB_INFO.args(BTREE) + "//btreeindex/text()"));
+    compare();
+  }
+
+  /**
+   * Creates the test databases.
+   */
+  private static void init() {
+    execute(new CreateDB(NAME, query(DOC)));
+    set(MainOptions.BTREEINDEX, true);
+    try {
+      execute(new CreateDB(BTREE, query(DOC)));
+    } finally {
+      set(MainOptions.BTREEINDEX, false);
+    }
+  }
+
+  /**
+   * Performs an update on both databases.
+   * @param update update
+   */
+  private static void update(final String update) {
+    for(final String db : new String[] { NAME, BTREE }) {
+      execute(new Open(db));
+      query(update);
+    }
+  }
+
+  /**
+   * Compares the results of queries and the index entries of both databases.
+   */
+  private static void compare() {
+    for(final String query : QUERIES) {
+      execute(new Open(NAME));
+      final String expected = query(query);
+      execute(new Open(BTREE));
+      assertEquals(query, expected, query(query.replace(NAME + '"', BTREE + '"')));
+    }
+    for(final String func : new String[] { _INDEX_TEXTS.args(NAME),
+        _INDEX_ATTRIBUTES.args(NAME), _INDEX_TEXTS.args(NAME, "3", true),
+        _INDEX_ATTRIBUTES.args(NAME, "", false) }) {
+      assertEquals(func, query(func), query(func.replace(NAME + '"', BTREE + '"')));
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.query.*;
+import org.basex.util.list.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests value indexes with packed id lists (see {@link MetaData#idformat}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class PackedIdsTest extends AdvancedQueryTest {
+  /** Name of the database with unpacked id lists. */
+  private static final String PLAIN = NAME + "plain";
+  /** Query for creating the test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 20000 return "
+      + "<a b='{ $i mod 3 }' c='{ $i mod 700 }'>{ $i mod 5 }</a> }<a b='x'>{ 1 to 1000 }</a></x>";
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//a[text() = '1'] => count()",
+    "//a[@b = '2']/@c => sum()",
+    "//a[@b = ('0', 'x')]/text() => string-join()",
+    "//a[@c = '123'][@b = '0'] => count()",
+    "//a[@b = '1'][text() = '4']/@c => sum()",
+    "//a[@b = '1'][text() = '3'][@c = ('1', '2', '3')] => count()",
+    "//a[@c >= '650' and @c <= '66'] => count()",
+    "//a[@c >= 100 and @c <= 120] => count()",
+  };
+
+  /**
+   * Finalizes a test.
+   */
+  @After
+  public void after() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(PLAIN));
+    set(MainOptions.UPDINDEX, false);
+  }
+
+  /**
+   * Compares query results of databases with packed and unpacked id lists.
+   */
+  @Test
+  public void query() {
+    init();
+    for(final String query : QUERIES) {
+      execute(new Open(PLAIN));
+      final String expected = query(query);
+      execute(new Open(NAME));
+      assertEquals(query, expected, query(query));
+    }
+  }
+
+  /**
+   * Looks up index entries within ranges of pre values.
+   */
+  @Test
+  public void range() {
+    init();
+    execute(new Open(NAME));
+    final Data data = context.data();
+    final int size = data.meta.size;
+    for(final String value : new String[] { "0", "1", "123", "x", "unknown" }) {
+      final StringToken token = new StringToken(IndexType.ATTRIBUTE, token(value));
+      final int[] all = pres(data.iter(token));
+      for(final int[] range : new int[][] { { 0, size }, { 0, 1 }, { 1000, 1500 },
+          { 33333, 33334 }, { size - 100, size }, { size, Integer.MAX_VALUE } }) {
+        final int[] pres = pres(data.iter(token, range[0], range[1]));
+        int p = 0;
+        for(final int pre : all) {
+          if(pre >= range[0] && pre < range[1]) assertEquals(pre, pres[p++]);
+        }
+        assertEquals(p, pres.length);
+      }
+    }
+  }
+
+  /**
+   * Checks the id format of new and optimized databases.
+   */
+  @Test
+  public void optimize() {
+    init();
+    execute(new Open(NAME));
+    assertEquals(DataText.IDFORMAT, context.data().meta.idformat);
+    final String expected = query(QUERIES[4]);
+    set(MainOptions.UPDINDEX, true);
+    execute(new OptimizeAll());
+    assertEquals(DataText.IDFORMAT, context.data().meta.idformat);
+    assertEquals(expected, query(QUERIES[4]));
+    set(MainOptions.UPDINDEX, false);
+    execute(new OptimizeAll());
+    assertEquals(expected, query(QUERIES[4]));
+  }
+
+  /**
+   * Creates the test databases. Id lists of databases with updatable indexes are not packed.
+   */
+  private static void init() {
+    execute(new CreateDB(NAME, query(DOC)));
+    set(MainOptions.UPDINDEX, true);
+    try {
+      execute(new CreateDB(PLAIN, query(DOC)));
+    } finally {
+      set(MainOptions.UPDINDEX, false);
+    }
+  }
+
+  /**
+   * Returns the pre values of an index iterator.
+   * @param iter index iterator
+   * @return pre values
+   */
+  private static int[] pres(final IndexIterator iter) {
+    final IntList list = new IntList();
+    while(iter.more()) list.add(iter.pre());
+    return list.finish();
+  }
+}
@@ -0,0 +1,114 @@
+package org.basex.index;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.*;
+import org.basex.query.*;
+import org.basex.query.func.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests the parallel creation of index structures (see {@link MainOptions#INDEXTHREADS}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest extends AdvancedQueryTest {
+  /** Name of the database that is indexed in parallel. */
+  private static final String PARALLEL = NAME + "parallel";
+  /** Query for creating the test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 70000 return "
+      + "<a b='{ $i mod 500 }'>{ $i mod 1000 } w{ $i mod 7 }</a> }</x>";
+
+  /**
+   * Initializes a test.
+   */
+  @Before
+  public void before() {
+    set(MainOptions.TOKENINDEX, true);
+    set(MainOptions.FTINDEX, true);
+    set(MainOptions.SPLITSIZE, 1);
+  }
+
+  /**
+   * Finalizes a test.
+   */
+  @After
+  public void after() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(PARALLEL));
+    set(MainOptions.TOKENINDEX, false);
+    set(MainOptions.FTINDEX, false);
+    set(MainOptions.SPLITSIZE, 0);
+    set(MainOptions.INDEXTHREADS, 1);
+    set(MainOptions.UPDINDEX, false);
+  }
+
+  /**
+   * Creates databases.
+   */
+  @Test
+  public void create() {
+    create(NAME, 1);
+    create(PARALLEL, 4);
+    compare();
+    query(_DB_TEXT.args(PARALLEL, "5 w5") + " => count()", 10);
+    query(_DB_ATTRIBUTE.args(PARALLEL, "7") + " => count()", 140);
+    query(_DB_TOKEN.args(PARALLEL, "7") + " => count()", 140);
+  }
+
+  /**
+   * Creates databases with updatable indexes.
+   */
+  @Test
+  public void updindex() {
+    set(MainOptions.UPDINDEX, true);
+    create(NAME, 1);
+    create(PARALLEL, 4);
+    compare();
+  }
+
+  /**
+   * Rebuilds index structures.
+   */
+  @Test
+  public void optimize() {
+    create(NAME, 1);
+    create(PARALLEL, 1);
+
+    set(MainOptions.INDEXTHREADS, 4);
+    execute(new DropIndex(CmdIndex.TEXT));
+    execute(new DropIndex(CmdIndex.TOKEN));
+    execute(new CreateIndex(CmdIndex.TEXT));
+    execute(new CreateIndex(CmdIndex.TOKEN));
+    compare();
+
+    execute(new Open(PARALLEL));
+    execute(new OptimizeAll());
+    compare();
+  }
+
+  /**
+   * Creates a database.
+   * @param name name of database
+   * @param threads number of threads
+   */
+  private static void create(final String name, final int threads) {
+    set(MainOptions.INDEXTHREADS, threads);
+    execute(new CreateDB(name, query(DOC)));
+  }
+
+  /**
+   * Compares the index entries of the databases.
+   */
+  private static void compare() {
+    for(final Function func : new Function[] { _INDEX_TEXTS, _INDEX_ATTRIBUTES, _INDEX_TOKENS,
+        _FT_TOKENS }) {
+      assertEquals(func.name(), query(func.args(NAME)), query(func.args(PARALLEL)));
+    }
+  }
+}
@@ -39,10 +39,12 @@ public final class ValueIndexTest extends SandboxTest {
   @Parameters
   public static Collection<Object[]> generateParams() {
     final List<Object[]> paramsSet = new ArrayList<>();
-    paramsSet.add(paramSet(false, false));
-    paramsSet.add(paramSet(true, false));
-    paramsSet.add(paramSet(false, true));
-    paramsSet.add(paramSet(true, true));
+    paramsSet.add(paramSet(false, false, false));
+    paramsSet.add(paramSet(true, false, false));
+    paramsSet.add(paramSet(false, true, false));
+    paramsSet.add(paramSet(true, true, false));
+    paramsSet.add(paramSet(false, false, true));
+    paramsSet.add(paramSet(false, true, true));
     return paramsSet;
   }
 
@@ -50,12 +52,15 @@ public final class ValueIndexTest extends SandboxTest {
    * Return parameter set for parameterized execution.
    * @param mainmem MAINMEM option
    * @param updindex UPDINDEX option
+   * @param btreeindex BTREEINDEX option
    * @return parameter set
    */
-  private static Object[] paramSet(final boolean mainmem, final boolean updindex) {
+  private static Object[] paramSet(final boolean mainmem, final boolean updindex,
+      final boolean btreeindex) {
     final ArrayList<Set> params = new ArrayList<>();
     params.add(new Set(MainOptions.MAINMEM, mainmem));
     params.add(new Set(MainOptions.UPDINDEX, updindex));
+    params.add(new Set(MainOptions.BTREEINDEX, btreeindex));
     final ArrayList<ArrayList<Set>> paramArray = new ArrayList<>();
     paramArray.add(params);
     return paramArray.toArray();
@@ -74,6 +79,7 @@ public final class ValueIndexTest extends SandboxTest {
   public void setDown() {
     set(MainOptions.MAINMEM, false);
     set(MainOptions.UPDINDEX, false);
+    set(MainOptions.BTREEINDEX, false);
     execute(new DropDB(NAME));
   }
 
@@ -0,0 +1,86 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link BufferPool}.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPoolTest {
+  /** Number of files. */
+  private static final int FILES = 3;
+  /** Number of blocks written to each file (exceeds the size of the pool). */
+  private static final int BLOCKS = 1 << 9;
+
+  /** Temporary files. */
+  private final IOFile[] files = new IOFile[FILES];
+
+  /**
+   * Shrinks the buffer pool.
+   */
+  @Before
+  public void setUp() {
+    BufferPool.get().size(1);
+    for(int f = 0; f < FILES; f++) files[f] = new IOFile(Prop.TMP, "pool" + f + IO.BASEXSUFFIX);
+  }
+
+  /**
+   * Resets the buffer pool and deletes the temporary files.
+   */
+  @After
+  public void tearDown() {
+    BufferPool.get().size(32);
+    for(final IOFile file : files) file.delete();
+  }
+
+  /**
+   * Writes blocks to several files in an interleaved order; dirty buffers of one file will be
+   * written back by this file when the pool requests it.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void interleaved() throws IOException {
+    final DataAccess[] das = new DataAccess[FILES];
+    for(int f = 0; f < FILES; f++) das[f] = new DataAccess(files[f]);
+    try {
+      for(int b = 0; b < BLOCKS; b++) {
+        for(int f = 0; f < FILES; f++) das[f].write4((long) b * IO.BLOCKSIZE, value(f, b));
+      }
+      // read values before they have been flushed
+      for(int b = BLOCKS - 1; b >= 0; b--) {
+        for(int f = 0; f < FILES; f++) {
+          assertEquals(value(f, b), das[f].read4((long) b * IO.BLOCKSIZE));
+        }
+      }
+    } finally {
+      for(final DataAccess da : das) da.close();
+    }
+
+    // read values from disk
+    for(int f = 0; f < FILES; f++) {
+      try(DataAccess da = new DataAccess(files[f])) {
+        for(int b = 0; b < BLOCKS; b++) {
+          assertEquals(value(f, b), da.read4((long) b * IO.BLOCKSIZE));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a test value.
+   * @param f file index
+   * @param b block index
+   * @return value
+   */
+  private static int value(final int f, final int b) {
+    return f << 24 | b;
+  }
+}
@@ -0,0 +1,165 @@
+package org.basex.query.ft;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.query.ast.*;
+import org.basex.query.expr.ft.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests updates of databases with a full-text index.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class FTIndexUpdateTest extends QueryPlanTest {
+  /** Name of the database with full-text index. */
+  private static final String FT = NAME + "ft";
+  /** Test document. */
+  private static final String DOC = "<xml><a>hello world</a><a>foo bar</a><b>beta hello</b>"
+      + "<a>foo beta</a></xml>";
+  /** Updates. */
+  private static final String[] UPDATES = {
+    "insert node <a>hello there</a> into /xml",
+    "delete node (//a)[1]",
+    "replace value of node (//a)[1]/text() with 'hello again, world'",
+    "rename node (//b)[1] as 'a'",
+    "for $i in 1 to 100 return insert node <a>text { $i } hello</a> into /xml",
+    "delete node //a[text() = 'text 50 hello']",
+    "replace node (//a)[last()] with <a>bar beta</a>",
+  };
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//a[text() contains text 'hello']",
+    "//a[text() contains text 'beta']",
+    "//a[text() contains text 'foo' ftand 'bar']",
+    "//a[text() contains text 'hello world' all words]",
+    "//a[text() contains text 'hel.*' using wildcards]",
+    "//a[text() contains text 'hellp' using fuzzy]",
+    "//a[text() contains text 'foo']",
+  };
+
+  /**
+   * Drops the test databases.
+   */
+  @After
+  public void drop() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(FT));
+    set(MainOptions.UPDINDEX, false);
+    set(MainOptions.AUTOOPTIMIZE, false);
+    set(MainOptions.FTINCLUDE, "");
+  }
+
+  /**
+   * Updates a database with an updatable full-text index.
+   */
+  @Test
+  public void updindex() {
+    set(MainOptions.UPDINDEX, true);
+    set(MainOptions.FTINCLUDE, "a");
+    create();
+
+    for(final String update : UPDATES) {
+      update(update);
+      compare();
+      assertEquals("true", query(_DB_INFO.args(FT) + "//ftindex/text()"));
+    }
+
+    // changes are persistent
+    execute(new Close());
+    compare();
+    final String tokens = query(_FT_TOKENS.args(FT));
+
+    // merge changes, rebuild index
+    execute(new Optimize());
+    compare();
+    assertEquals(tokens, query(_FT_TOKENS.args(FT)));
+    execute(new OptimizeAll());
+    compare();
+    assertEquals(tokens, query(_FT_TOKENS.args(FT)));
+
+    // update merged index
+    update(UPDATES[0]);
+    compare();
+  }
+
+  /**
+   * Converts the index files of an older version when the database is updated.
+   */
+  @Test
+  public void convert() {
+    set(MainOptions.UPDINDEX, true);
+    set(MainOptions.FTINCLUDE, "a");
+    create();
+    execute(new Close());
+
+    // index files of older versions contain pre values, and no changes are recorded
+    final IOFile changes = MetaData.file(context.soptions.dbPath(FT), DataText.DATAFTX + 'u');
+    assertTrue(changes.delete());
+    compare();
+    assertFalse(changes.exists());
+
+    for(final String update : UPDATES) {
+      update(update);
+      compare();
+    }
+    assertTrue(changes.exists());
+  }
+
+  /**
+   * Updates a database with auto-optimization.
+   */
+  @Test
+  public void autooptimize() {
+    set(MainOptions.AUTOOPTIMIZE, true);
+    create();
+    for(final String update : UPDATES) {
+      update(update);
+      compare();
+      assertEquals("true", query(_DB_INFO.args(FT) + "//ftindex/text()"));
+    }
+  }
+
+  /**
+   * Creates the test databases.
+   */
+  private static void create() {
+    execute(new CreateDB(NAME, DOC));
+    set(MainOptions.FTINDEX, true);
+    try {
+      execute(new CreateDB(FT, DOC));
+    } finally {
+      set(MainOptions.FTINDEX, false);
+    }
+  }
+
+  /**
+   * Performs an update on both databases.
+   * @param update update
+   */
+  private static void update(final String update) {
+    for(final String db : new String[] { NAME, FT }) {
+      execute(new Open(db));
+      query(update);
+    }
+  }
+
+  /**
+   * Compares the results of queries with and without full-text index.
+   */
+  private static void compare() {
+    for(final String query : QUERIES) {
+      execute(new Open(NAME));
+      final String expected = query(query);
+      execute(new Open(FT));
+      check(query, expected, exists(FTIndexAccess.class));
+    }
+  }
+}
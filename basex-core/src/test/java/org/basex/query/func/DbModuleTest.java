@@ -587,6 +587,77 @@ public final class DbModuleTest extends AdvancedQueryTest {
         _DB_REPLACE.args(NAME, "9.xml", " <a/>"));
   }
 
+  /** Test method. */
+  @Test
+  public void compact() {
+    final String expected = fragment();
+    final IOFile dir = context.soptions.dbPath(NAME);
+    final IOFile table = new IOFile(dir, "tbl.basex"), texts = new IOFile(dir, "txt.basex");
+    final long size = table.length(), length = texts.length();
+
+    // compact table and heaps stepwise (the state of a pass is kept while the database is opened)
+    execute(new Open(NAME));
+    query(_DB_COMPACT.args(NAME, 1));
+    query(_DB_COMPACT.args(NAME, 0));
+    assertEquals(expected, query(_DB_OPEN.args(NAME)));
+    for(int c = 0; c < 100 && texts.length() == length; c++) {
+      query(_DB_COMPACT.args(NAME, 200));
+      assertEquals(expected, query(_DB_OPEN.args(NAME)));
+    }
+    assertTrue(table.length() < size);
+    assertTrue(texts.length() < length);
+    query(_DB_COMPACT.args(NAME));
+    assertEquals(expected, query(_DB_OPEN.args(NAME)));
+
+    // update database while heaps are compacted
+    fragment();
+    execute(new Open(NAME));
+    query(_DB_COMPACT.args(NAME, 500));
+    query("insert node <c>text</c> into " + _DB_OPEN.args(NAME) + "/x");
+    query(_DB_COMPACT.args(NAME, 500));
+    query("delete node " + _DB_OPEN.args(NAME) + "//b[1]");
+    final String updated = query(_DB_OPEN.args(NAME));
+    query(_DB_COMPACT.args(NAME));
+    assertEquals(updated, query(_DB_OPEN.args(NAME)));
+    execute(new Close());
+    execute(new Open(NAME));
+    assertEquals(updated, query(_DB_OPEN.args(NAME)));
+
+    // compact compressed table
+    set(MainOptions.TABLECOMPRESS, true);
+    try {
+      assertEquals(expected, fragment());
+      query(_DB_COMPACT.args(NAME, 5));
+      query(_DB_COMPACT.args(NAME));
+      assertEquals(expected, query(_DB_OPEN.args(NAME)));
+    } finally {
+      set(MainOptions.TABLECOMPRESS, false);
+    }
+
+    // compact table in main memory
+    execute(new Close());
+    set(MainOptions.MAINMEM, true);
+    execute(new Open(NAME));
+    query(_DB_COMPACT.args(NAME));
+    set(MainOptions.MAINMEM, false);
+
+    error(_DB_COMPACT.args(NAME + "unknown"), BXDB_OPEN_X);
+  }
+
+  /**
+   * Creates a fragmented database: nodes are inserted at several positions, and every second
+   * node is deleted.
+   * @return contents of the database
+   */
+  private static String fragment() {
+    execute(new Close());
+    query(_DB_CREATE.args(NAME, " <x>{ (1 to 2000) ! <a a='a{ . }'>a{ . }</a> }</x>", "x.xml"));
+    query("for $i in 1 to 10 return insert node (1 to 500) ! <b>b{ . }</b> " +
+        "after " + _DB_OPEN.args(NAME) + "//a[$i * 100]");
+    query("delete node " + _DB_OPEN.args(NAME) + "//*[position() mod 2 = 0]");
+    return query(_DB_OPEN.args(NAME));
+  }
+
   /** Test method. */
   @Test
   public void optimize() {
@@ -121,6 +121,11 @@ public final class JsonModuleTest extends AdvancedQueryTest {
         "\\t\\n");
     query("string-to-codepoints(json:parse('\"\\t\\u000A\"'," +
         "  map {'format':'xquery','escape':false(),'liberal':true()}))", "9\n10");
+    query("json:parse('1&#10;&#10;[2]&#10;', map {'lines':true()})",
+        "<json type=\"array\">\n<_ type=\"number\">1</_>\n<_ type=\"array\">\n"
+        + "<_ type=\"number\">2</_>\n</_>\n</json>");
+    query("array:size(json:parse('{}&#10;{}', map {'lines':true(),'format':'xquery'}))", 2);
+    error("json:parse('1 2', map {'lines':true()})", BXJS_PARSE_X_X_X);
     error("json:parse('42', map {'spec':'garbage'})", INVALIDOPT_X);
   }
 
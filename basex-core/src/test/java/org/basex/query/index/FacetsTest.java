@@ -0,0 +1,109 @@
+package org.basex.query.index;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.ast.*;
+import org.basex.query.expr.index.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests if grouped attribute values are counted with the attribute index.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class FacetsTest extends QueryPlanTest {
+  /** Query for creating the test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 1000 return <a b='{ $i mod 7 }' "
+      + "c='{ $i mod 3 }' d='{ $i }'>{ if($i mod 5 = 0) then <e b='{ $i mod 2 }'/> else () }"
+      + "</a> }<a b='' c=''/></x>";
+
+  /**
+   * Finalizes a test.
+   */
+  @After
+  public void after() {
+    execute(new DropDB(NAME));
+    set(MainOptions.ATTRINCLUDE, "");
+    set(MainOptions.MAINMEM, false);
+  }
+
+  /**
+   * Counts facets.
+   */
+  @Test
+  public void facets() {
+    execute(new CreateDB(NAME, query(DOC)));
+    check("b", true);
+    check("c", true);
+    check("d", false);
+    check("x", false);
+  }
+
+  /**
+   * Counts facets of indexed attributes.
+   */
+  @Test
+  public void include() {
+    set(MainOptions.ATTRINCLUDE, "b");
+    execute(new CreateDB(NAME, query(DOC)));
+    check("b", true);
+    check("c", false);
+
+    // no other attributes are indexed or empty: results need not be filtered by name
+    execute(new CreateDB(NAME, "<x><a b='1' c='1'/><a b='2'/><a b='1' c='3'/></x>"));
+    check("string-join(for $a in //@b group by $v := $a return $v || ':' || count($a), ' ')",
+        "1:2 2:1", exists("ValueFacets[not(@name)]"));
+  }
+
+  /**
+   * Counts facets in a main-memory database.
+   */
+  @Test
+  public void mainmem() {
+    set(MainOptions.MAINMEM, true);
+    execute(new CreateDB(NAME, query(DOC)));
+    check("b", true);
+    check("c", true);
+  }
+
+  /**
+   * Paths that do not address all attributes are not rewritten.
+   */
+  @Test
+  public void paths() {
+    execute(new CreateDB(NAME, query(DOC)));
+    check("/x/a/@c", "count($a)", true);
+    check("/x/a/@b", "count($a)", false);
+    check("//e/@b", "count($a)", false);
+    check("//@b[. = '1']", "count($a)", false);
+    check("//@b", "count($a/..)", true);
+    check("//@b", "sum($a/../@d)", true);
+    check("//@b", "string-join($a/../@c, ',')", true);
+  }
+
+  /**
+   * Compares the results of a grouping query with a query that is not rewritten.
+   * @param name attribute name
+   * @param index attribute index is expected to be used
+   */
+  private static void check(final String name, final boolean index) {
+    check("//@" + name, "count($a)", index);
+  }
+
+  /**
+   * Compares the results of a grouping query with a query that is not rewritten.
+   * @param path path to attributes
+   * @param result result per group
+   * @param index attribute index is expected to be used
+   */
+  private static void check(final String path, final String result, final boolean index) {
+    final String query = "string-join(for $a in " + path + " group by $v := %s "
+        + "order by $v return $v || ':' || " + result + ", ' ')";
+    execute(new Open(NAME));
+    final String expected = query(String.format(query, "string($a)"));
+    check(String.format(query, "$a"), expected,
+        index ? exists(ValueFacets.class) : empty(ValueFacets.class));
+  }
+}
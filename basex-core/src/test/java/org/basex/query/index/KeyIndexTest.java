@@ -0,0 +1,192 @@
+package org.basex.query.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.ast.*;
+import org.basex.query.expr.index.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests if queries on compound keys are correctly evaluated with key indexes
+ * (see {@link MainOptions#KEYINCLUDE}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class KeyIndexTest extends QueryPlanTest {
+  /** Name of the database without key indexes. */
+  private static final String PLAIN = NAME + "plain";
+  /** Key indexes. */
+  private static final String KEYS = "/orders/order(@customer, @status), //item(sku, @qty)";
+  /** Query for creating the test document. */
+  private static final String DOC = "<orders>{ for $i in 1 to 2000 "
+      + "return <order id='{ $i }' customer='c{ $i mod 50 }' status='{ "
+      + "('open', 'closed', 'new')[$i mod 3 + 1] }'>{ "
+      + "for $j in 1 to $i mod 3 return <item qty='{ $j }'><sku>s{ ($i + $j) mod 7 }</sku>"
+      + "{ if($i mod 11 = 0) then <sku>x{ $i mod 5 }</sku> else () }</item> }</order> }"
+      + "</orders>";
+  /** Updates. */
+  private static final String[] UPDATES = {
+    "for $i in 1 to 50 return insert node <order id='{ 5000 + $i }' customer='c{ $i }' "
+        + "status='open'><item qty='1'><sku>s{ $i mod 7 }</sku></item></order> into /orders",
+    "delete node //order[@id mod 13 = 0]",
+    "for $o in //order[@id mod 17 = 0] return replace value of node $o/@status with 'open'",
+    "delete node //order[@id mod 19 = 0]/@status",
+    "for $o in //order[@id mod 23 = 0][not(@status)] return "
+        + "insert node attribute status { 'new' } into $o",
+    "for $o in //order[@id mod 29 = 0] return rename node $o/@customer as 'cust'",
+    "for $s in //order[@id mod 31 = 0]/item/sku return replace value of node $s with 'y'",
+    "for $s in //order[@id mod 37 = 0]/item/sku return rename node $s as 'nosku'",
+    "for $i in //order[@id mod 41 = 0]/item[1] return "
+        + "replace node $i with <item qty='9'><sku>s1</sku><sku>s2</sku></item>",
+    "for $o in //order[@id mod 43 = 0] return insert node <item qty='1'><sku>s3</sku></item> "
+        + "into $o",
+  };
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//order[@customer = 'c7'][@status = 'open']",
+    "//order[@customer = 'c7' and @status = ('open', 'new')]",
+    "/orders/order[@status = 'closed'][@customer = ('c1', 'c2', 'c3')]",
+    "//order[@customer = 'c9']",
+    "//order[@customer = 'c12'][not(@status)]",
+    "//order[@customer = 'c99']",
+    "//item[sku = 's3'][@qty = '2']/..",
+    "//item[sku = ('s1', 'x2')]/..",
+    "//item[sku = 'y']/..",
+    "for $c in ('c1', 'c2') return //order[@customer = $c][@status = ('open', 'closed', 'new')]",
+  };
+
+  /**
+   * Finalizes a test.
+   */
+  @After
+  public void after() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(PLAIN));
+    set(MainOptions.KEYINCLUDE, "");
+    set(MainOptions.UPDINDEX, false);
+  }
+
+  /**
+   * Queries a database with key indexes.
+   */
+  @Test
+  public void create() {
+    init();
+    compare(true);
+    assertEquals("true", query("db:info('" + NAME + "')//keyindex/text()"));
+    execute(new Open(NAME));
+    check("count(//order[@customer = 'c99'])", 0, empty(KeyAccess.class));
+    check("count(//order[@id = '1'])", 1, empty(KeyAccess.class));
+  }
+
+  /**
+   * Updates databases with updatable key indexes.
+   */
+  @Test
+  public void updindex() {
+    set(MainOptions.UPDINDEX, true);
+    init();
+    for(final String update : UPDATES) {
+      update(update);
+      compare(true);
+    }
+
+    // changes are persistent, and indexes are rebuilt
+    execute(new Close());
+    compare(true);
+    execute(new Open(NAME));
+    execute(new Optimize());
+    compare(true);
+    execute(new OptimizeAll());
+    compare(true);
+  }
+
+  /**
+   * Updates databases without updatable indexes.
+   */
+  @Test
+  public void update() {
+    init();
+    update(UPDATES[0]);
+    compare(false);
+    execute(new Open(NAME));
+    execute(new Optimize());
+    compare(true);
+  }
+
+  /**
+   * Changes the key indexes of a database.
+   */
+  @Test
+  public void optimize() {
+    init();
+    execute(new Open(NAME));
+    query("db:optimize('" + NAME + "', false(), map { 'keyinclude': '' })");
+    compare(false);
+    query("db:optimize('" + NAME + "', false(), map { 'keyinclude': '" + KEYS + "' })");
+    compare(true);
+  }
+
+  /**
+   * Rejects invalid definitions.
+   */
+  @Test
+  public void invalid() {
+    for(final String keys : new String[] { "order(@a)", "/order", "/order(@a", "//(@a)",
+        "/order(@a)/x(b)", "/order(@1)" }) {
+      set(MainOptions.KEYINCLUDE, keys);
+      try {
+        new CreateDB(NAME, "<orders/>").execute(context);
+        fail("\"" + keys + "\" was supposed to be rejected.");
+      } catch(final BaseXException ex) {
+        /* expected */
+      }
+    }
+  }
+
+  /**
+   * Creates the test databases.
+   */
+  private static void init() {
+    execute(new CreateDB(PLAIN, query(DOC)));
+    set(MainOptions.KEYINCLUDE, KEYS);
+    try {
+      execute(new CreateDB(NAME, query(DOC)));
+    } finally {
+      set(MainOptions.KEYINCLUDE, "");
+    }
+  }
+
+  /**
+   * Performs an update on both databases.
+   * @param update update
+   */
+  private static void update(final String update) {
+    for(final String db : new String[] { NAME, PLAIN }) {
+      execute(new Open(db));
+      query(update);
+    }
+  }
+
+  /**
+   * Compares the query results of both databases.
+   * @param keys key index is expected to be used
+   */
+  private static void compare(final boolean keys) {
+    for(final String query : QUERIES) {
+      execute(new Open(PLAIN));
+      final String expected = query("string-join((" + query + ")/@id, ' ')");
+      execute(new Open(NAME));
+      // absolute paths can only be checked if the path index is up-to-date
+      final boolean index = keys && (query.contains("item") || context.data().meta.uptodate);
+      // queries without results may be rewritten to empty sequences
+      final String plan = index ? exists(KeyAccess.class) : empty(KeyAccess.class);
+      check("string-join((" + query + ")/@id, ' ')", expected,
+          expected.isEmpty() ? new String[0] : new String[] { plan });
+    }
+  }
+}
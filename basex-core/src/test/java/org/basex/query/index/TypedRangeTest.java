@@ -0,0 +1,197 @@
+package org.basex.query.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.ast.*;
+import org.basex.query.expr.index.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests if numeric and date range queries are correctly evaluated with typed indexes
+ * (see {@link MainOptions#TYPEDINDEX}).
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class TypedRangeTest extends QueryPlanTest {
+  /** Name of the database without typed index. */
+  private static final String PLAIN = NAME + "plain";
+  /** Query for creating the test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 3000 "
+      + "let $d := xs:date('2016-01-01') + xs:dayTimeDuration('P' || ($i * 7) mod 900 || 'D') "
+      + "let $s := xs:dayTimeDuration('PT' || ($i * 37) mod 86400 || '.' || $i mod 10 || 'S') "
+      + "let $z := ('', 'Z', '+05:00', '-11:00')[$i mod 4 + 1] "
+      + "let $g := ('abc', '12', '2017-01-01', '2017-13-45', '2017-01-01T25:00:00')[$i mod 5 + 1] "
+      + "return <o i='{ $i }' d='{ $d }{ $z }' t='{ xs:dateTime($d) + $s }{ $z }' g='{ $g }'>"
+      + "<n>{ ($i - 1000) div 8 }</n></o> }</x>";
+  /** Updates. */
+  private static final String[] UPDATES = {
+    "for $i in 1 to 100 return insert node <o i='{ 5000 + $i }' d='2016-06-0{ $i mod 9 + 1 }Z' "
+        + "t='2016-06-06T12:00:0{ $i mod 10 }'><n>-{ $i }.5</n></o> into /x",
+    "delete node //o[@i mod 7 = 0]",
+    "for $o in //o[@i mod 5 = 0] return replace value of node $o/@d with '2016-06-06'",
+    "for $n in //n[. = '-3.5'] return replace value of node $n/text() with '12345'",
+  };
+  /** Queries. */
+  private static final String[] QUERIES = {
+    "//o[xs:date(@d) > xs:date('2017-03-01')]",
+    "//o[@d >= xs:date('2017-03-01Z')]",
+    "//o[@d = xs:date('2016-06-06')]",
+    "//o[xs:date(@d) = xs:date('2016-06-06-11:00')]",
+    "//o[xs:date(@d) < xs:date('2016-02-01+14:00')]",
+    "//o[@d <= xs:date('2016-02-01-14:00')]",
+    "//o[@t > xs:dateTime('2016-05-05T12:00:00')]",
+    "//o[xs:dateTime(@t) <= xs:dateTime('2016-05-05T12:00:00.5-03:00')]",
+    "//o[@t >= xs:dateTime('2016-06-06T12:00:04')]",
+    "//o[@d < xs:date('1000-01-01')]",
+    "//o[n > -10 and n < 10.5]",
+    "//o[n >= -100.125 and n <= -99]",
+    "//o[n > 200]",
+    "//o[n < -50]",
+    "(for $d in (xs:date('2017-03-01'), xs:date('2016-06-06')) return //o[xs:date(@d) > $d])",
+    "(for $t in (xs:dateTime('2016-05-05T12:00:00'), xs:dateTime('2016-06-06T12:00:04Z')) "
+        + "return //o[@t <= $t])",
+  };
+
+  /**
+   * Finalizes a test.
+   */
+  @After
+  public void after() {
+    execute(new DropDB(NAME));
+    execute(new DropDB(PLAIN));
+    set(MainOptions.TYPEDINDEX, false);
+    set(MainOptions.UPDINDEX, false);
+    set(MainOptions.BTREEINDEX, false);
+  }
+
+  /**
+   * Queries a database with typed indexes.
+   */
+  @Test
+  public void create() {
+    init();
+    compare(true);
+    assertEquals("true", query("db:info('" + NAME + "')//typedindex/text()"));
+  }
+
+  /**
+   * Does not rewrite comparisons with values that cannot be cast.
+   */
+  @Test
+  public void cast() {
+    init();
+    for(final String db : new String[] { NAME, PLAIN }) {
+      execute(new Open(db));
+      error("count(//o[@g = xs:date('2017-01-01')])", QueryError.DATEFORMAT_X_X_X);
+      error("count(//o[@g > xs:dateTime('2017-01-01T00:00:00')])", QueryError.DATEFORMAT_X_X_X);
+    }
+    final String query = "count(//o[@d = xs:date('2016-06-06')])", expected = query(query);
+    execute(new Open(NAME));
+    check(query, expected, exists(RangeAccess.class));
+  }
+
+  /**
+   * Checks the string representations of ranges.
+   */
+  @Test
+  public void string() {
+    init();
+    execute(new Open(NAME));
+    for(final String[] test : new String[][] {
+      { "//o[@d > xs:date('2017-03-01')]", "xs:date(\"2017-03-01\") < @*)" },
+      { "//o[@t <= xs:dateTime('2016-05-05T12:00:00')]", "@* <= xs:dateTime(" },
+      { "//o[n > -10 and n < 10.5]", "-10 < text() < 10.5)" },
+      { "for $d in (xs:date('2017-03-01'), xs:date('2016-06-06')) return //o[@d >= $d]",
+        "@* >= $d" },
+    }) {
+      try(QueryProcessor qp = new QueryProcessor(test[0], context)) {
+        qp.compile();
+        final String string = qp.qc.root.toString();
+        assertTrue(string, string.contains("range-index(") && string.contains(test[1]));
+      } catch(final QueryException ex) {
+        fail(ex.toString());
+      }
+    }
+  }
+
+  /**
+   * Updates databases with updatable indexes.
+   */
+  @Test
+  public void updindex() {
+    set(MainOptions.UPDINDEX, true);
+    init();
+    for(final String update : UPDATES) {
+      update(update);
+      compare(true);
+    }
+
+    // changes are persistent, and typed indexes are rebuilt
+    execute(new Close());
+    compare(true);
+    execute(new Open(NAME));
+    execute(new OptimizeAll());
+    compare(false);
+    set(MainOptions.TYPEDINDEX, true);
+    execute(new OptimizeAll());
+    compare(true);
+  }
+
+  /**
+   * Updates databases with B+-tree indexes.
+   */
+  @Test
+  public void btree() {
+    set(MainOptions.BTREEINDEX, true);
+    set(MainOptions.UPDINDEX, true);
+    init();
+    compare(true);
+    for(final String update : UPDATES) update(update);
+    compare(true);
+  }
+
+  /**
+   * Creates the test databases.
+   */
+  private static void init() {
+    execute(new CreateDB(PLAIN, query(DOC)));
+    set(MainOptions.TYPEDINDEX, true);
+    try {
+      execute(new CreateDB(NAME, query(DOC)));
+    } finally {
+      set(MainOptions.TYPEDINDEX, false);
+    }
+  }
+
+  /**
+   * Performs an update on both databases.
+   * @param update update
+   */
+  private static void update(final String update) {
+    for(final String db : new String[] { NAME, PLAIN }) {
+      execute(new Open(db));
+      query(update);
+    }
+  }
+
+  /**
+   * Compares the query results of both databases.
+   * @param typed typed index is expected to be used
+   */
+  private static void compare(final boolean typed) {
+    for(final String query : QUERIES) {
+      execute(new Open(PLAIN));
+      final String expected = query("sum(" + query + "/@i)");
+      execute(new Open(NAME));
+      // up-to-date statistics are required for rewriting paths
+      final boolean index = typed && context.data().meta.uptodate;
+      check("sum(" + query + "/@i)", expected,
+          index ? exists(RangeAccess.class) : empty(RangeAccess.class));
+    }
+  }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.query.ast.*;
+import org.basex.query.expr.*;
 import org.basex.query.expr.ft.*;
 import org.basex.query.expr.index.*;
 import org.basex.query.value.node.*;
@@ -152,6 +153,26 @@ public final class ValueIndexTest extends QueryPlanTest {
     check("//a[text() = 'text']", "", empty());
   }
 
+  /**
+   * Tests the intersection of value index results.
+   */
+  @Test
+  public void intersect() {
+    final String doc = "<x>{ for $i in 1 to 3000 return "
+        + "<o a='{ $i mod 3 }' b='{ $i mod 5 }'><t>{ $i mod 7 }</t></o> }</x>";
+    execute(new CreateDB(NAME, query(doc)));
+    for(final String pred : new String[] { "[@a = '1'][@b = '2']", "[@a = '1'][t = '2']",
+        "[@a = ('1', '2')][@b = '2'][t = ('1', '3')]", "[t = '4'][@b = '3' and @a = '0']" }) {
+      check("count(//o" + pred + ")", query("count(" + doc + "//o" + pred + ")"),
+          exists(Intersect.class));
+    }
+    for(final String set : new String[] { "union", "intersect", "except" }) {
+      final String query = "count(//o[@a = '1'] " + set + " //o[t = ('2', '5')])";
+      final String expected = query("let $x := " + doc + " return " + query.replace("//", "$x//"));
+      check(query, expected, exists(ValueAccess.class));
+    }
+  }
+
   /**
    * Returns a map with name tests.
    * @return map
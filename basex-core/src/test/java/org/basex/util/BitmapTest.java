@@ -0,0 +1,97 @@
+package org.basex.util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+/**
+ * Tests for {@link Bitmap}.
+ *
+ * @author BaseX Team 2005-17, BSD License
+ * @author Christian Gruen
+ */
+public final class BitmapTest {
+  /** Random number generator. */
+  private final Random random = new Random(1);
+
+  /** Adds values in ascending and arbitrary order. */
+  @Test
+  public void add() {
+    for(final int max : new int[] { 100, 1 << 16, 1 << 20 }) {
+      for(final int count : new int[] { 0, 10, Bitmap.MAXARRAY, 20000 }) {
+        final TreeSet<Integer> set = values(count, max);
+        final Bitmap bitmap = bitmap(set);
+        check(set, bitmap);
+        for(int i = 0; i < 1000; i++) {
+          final int v = random.nextInt(max);
+          assertEquals(set.contains(v), bitmap.contains(v));
+        }
+      }
+    }
+  }
+
+  /** Computes intersections, unions and differences. */
+  @Test
+  public void operations() {
+    for(final int max : new int[] { 100, 1 << 16, 1 << 20 }) {
+      for(final int count1 : new int[] { 0, 10, 3000, 20000 }) {
+        for(final int count2 : new int[] { 0, 10, 3000, 20000 }) {
+          final TreeSet<Integer> set1 = values(count1, max), set2 = values(count2, max);
+          final Bitmap bitmap1 = bitmap(set1), bitmap2 = bitmap(set2);
+
+          final TreeSet<Integer> and = new TreeSet<>(set1), or = new TreeSet<>(set1);
+          final TreeSet<Integer> andNot = new TreeSet<>(set1);
+          and.retainAll(set2);
+          or.addAll(set2);
+          andNot.removeAll(set2);
+          check(and, bitmap1.and(bitmap2));
+          check(or, bitmap1.or(bitmap2));
+          check(andNot, bitmap1.andNot(bitmap2));
+          // input bitmaps are not changed
+          check(set1, bitmap1);
+          check(set2, bitmap2);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns random values.
+   * @param count number of values to be generated
+   * @param max maximum value (exclusive)
+   * @return values
+   */
+  private TreeSet<Integer> values(final int count, final int max) {
+    final TreeSet<Integer> set = new TreeSet<>();
+    for(int c = 0; c < count; c++) set.add(random.nextInt(max));
+    return set;
+  }
+
+  /**
+   * Creates a bitmap. Values are added in ascending or random order.
+   * @param set values
+   * @return bitmap
+   */
+  private Bitmap bitmap(final TreeSet<Integer> set) {
+    final ArrayList<Integer> list = new ArrayList<>(set);
+    if(random.nextBoolean()) Collections.shuffle(list, random);
+    final Bitmap bitmap = new Bitmap();
+    for(final int v : list) bitmap.add(v);
+    return bitmap;
+  }
+
+  /**
+   * Compares the values of a bitmap with the expected values.
+   * @param expected expected values
+   * @param bitmap bitmap
+   */
+  private static void check(final TreeSet<Integer> expected, final Bitmap bitmap) {
+    final int[] values = bitmap.toArray();
+    assertEquals(expected.size(), bitmap.cardinality());
+    assertEquals(expected.isEmpty(), bitmap.isEmpty());
+    int v = 0;
+    for(final int value : expected) assertEquals(value, values[v++]);
+  }
+}